@@ -0,0 +1,83 @@
+package com.webscience.pizzaorder.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NOTES:
+ * Writes the details of an order in any of the media types of the given Jackson converters, the one negotiated
+ * by Spring for the request, with the same object mapper as the converter would. The details of a COMPLETED
+ * order are taken from the {@link CompletedOrderResponseCache} as they are, so they are serialized only once.
+ * Registered before the Jackson converters, only for writing.
+ */
+public class CompletedOrderDetailsConverter extends AbstractHttpMessageConverter<OrderDetailsResponseDTO> {
+
+    private final CompletedOrderResponseCache cache;
+    private final Map<MediaType, ObjectMapper> mappersByMediaType = new LinkedHashMap<>();
+
+    public CompletedOrderDetailsConverter(CompletedOrderResponseCache cache, List<AbstractJackson2HttpMessageConverter> delegates) {
+        this.cache = cache;
+        for (AbstractJackson2HttpMessageConverter delegate : delegates) {
+            for (MediaType mediaType : delegate.getSupportedMediaTypes()) {
+                mappersByMediaType.putIfAbsent(mediaType, delegate.getObjectMapper());
+            }
+        }
+        setSupportedMediaTypes(new ArrayList<>(mappersByMediaType.keySet()));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return OrderDetailsResponseDTO.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected OrderDetailsResponseDTO readInternal(Class<? extends OrderDetailsResponseDTO> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Order details are only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(OrderDetailsResponseDTO details, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        MediaType mediaType = new MediaType(contentType.getType(), contentType.getSubtype());
+        boolean completed = details.getStatus() == OrderStatus.COMPLETED;
+
+        byte[] encoded = completed ? cache.get(details.getId(), mediaType) : null;
+        if (encoded == null) {
+            encoded = mapperFor(mediaType).writeValueAsBytes(details);
+            if (completed) {
+                cache.put(details.getId(), mediaType, encoded);
+            }
+        }
+        outputMessage.getBody().write(encoded);
+    }
+
+    private ObjectMapper mapperFor(MediaType mediaType) {
+        ObjectMapper mapper = mappersByMediaType.get(mediaType);
+        if (mapper != null) {
+            return mapper;
+        }
+        return mappersByMediaType.entrySet().stream()
+                .filter(entry -> entry.getKey().includes(mediaType))
+                .findFirst()
+                .orElseThrow()
+                .getValue();
+    }
+}
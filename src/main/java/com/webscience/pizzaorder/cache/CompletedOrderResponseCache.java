@@ -0,0 +1,83 @@
+package com.webscience.pizzaorder.cache;
+
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NOTES:
+ * Bounded cache of the encoded details of the COMPLETED orders, per media type: a COMPLETED order never
+ * changes, so its details are serialized once and then the very same bytes are written to every response.
+ * Only COMPLETED details are admitted, and any later event of an order (e.g. its eviction) drops its bytes,
+ * as does the rebuild of the projections. The oldest orders are evicted when more than {@code maxOrders}
+ * have been cached: since orders are added in time order, a FIFO queue is enough, as in the {@code IdempotencyCache}.
+ * The ids of the orders dropped by an event stay in the queue until their turn, so they count towards the bound.
+ * It listens to the events of every store, order ids being unique across them.
+ */
+@Component
+public class CompletedOrderResponseCache implements OrderEventListener {
+
+    private final int maxOrders;
+
+    private final Map<String, Map<MediaType, byte[]>> encodedByOrderId = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public CompletedOrderResponseCache(@Value("${pizzaorder.response-cache.max-orders:10000}") int maxOrders) {
+        this.maxOrders = maxOrders;
+    }
+
+    /**
+     * Returns the details of the COMPLETED order encoded in the given media type, or null if not cached.
+     */
+    public byte[] get(String orderId, MediaType mediaType) {
+        Map<MediaType, byte[]> encoded = encodedByOrderId.get(orderId);
+        return encoded == null ? null : encoded.get(mediaType);
+    }
+
+    /**
+     * Caches the details of a COMPLETED order encoded in the given media type.
+     */
+    public void put(String orderId, MediaType mediaType, byte[] encodedDetails) {
+        Map<MediaType, byte[]> encoded = encodedByOrderId.computeIfAbsent(orderId, id -> {
+            insertionOrder.add(id);
+            queued.incrementAndGet();
+            return new ConcurrentHashMap<>(4);
+        });
+        encoded.put(mediaType, encodedDetails);
+        evict();
+    }
+
+    public int size() {
+        return encodedByOrderId.size();
+    }
+
+    @Override
+    public void apply(OrderEvent event) {
+        encodedByOrderId.remove(event.orderId());
+    }
+
+    @Override
+    public void reset() {
+        encodedByOrderId.clear();
+    }
+
+    private void evict() {
+        while (queued.get() > maxOrders) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            encodedByOrderId.remove(oldest);
+        }
+    }
+}
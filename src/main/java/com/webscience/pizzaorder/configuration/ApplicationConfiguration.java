@@ -1,15 +1,35 @@
 package com.webscience.pizzaorder.configuration;
 
+import com.webscience.pizzaorder.serialization.OrderSerializersModule;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.Clock;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties({RetentionProperties.class, RateLimitProperties.class, SchedulingProperties.class, OvenProperties.class,
+        PreOrderProperties.class, IntakeProperties.class, EngineProperties.class, StorageProperties.class,
+        ReplicationProperties.class, StoreProperties.class, SerializationProperties.class})
 public class ApplicationConfiguration {
 
     @Bean
     public Clock clock() {
         return Clock.systemDefaultZone();
     }
+
+    /**
+     * Applied to the JSON mapper and to the Smile and CBOR ones, all built by the same builder.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer orderSerializersCustomizer(SerializationProperties serializationProperties) {
+        return builder -> {
+            if (serializationProperties.isHandWritten()) {
+                builder.postConfigurer(objectMapper -> objectMapper.registerModule(new OrderSerializersModule()));
+            }
+        };
+    }
 }
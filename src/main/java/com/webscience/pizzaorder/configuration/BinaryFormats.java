@@ -0,0 +1,42 @@
+package com.webscience.pizzaorder.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * NOTES:
+ * Binary representations of the API, negotiated with the Accept and Content-Type headers, JSON staying the default.
+ * Both use the compact field ids of the {@link CompactFieldIdsModule} and the ordinals of the enums
+ * (e.g. of the order status). Smile also writes every repeated field name and short string (entry types,
+ * ingredients) as a back reference to its first occurrence, which is where the lists of orders shrink most.
+ * Dates stay ISO-8601 strings, so that they keep their offset.
+ */
+public final class BinaryFormats {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private BinaryFormats() {
+    }
+
+    public static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return compact(builder.factory(SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                        .build())
+                .build());
+    }
+
+    public static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return compact(builder.factory(new CBORFactory()).build());
+    }
+
+    private static ObjectMapper compact(ObjectMapper mapper) {
+        return mapper.registerModule(new CompactFieldIdsModule())
+                .enable(SerializationFeature.WRITE_ENUMS_USING_INDEX);
+    }
+}
@@ -0,0 +1,47 @@
+package com.webscience.pizzaorder.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * NOTES:
+ * Names the properties declaring an index ({@code @JsonProperty(index = n)}) with the index itself,
+ * in both directions: the field ids of the binary representations, like the tags of a protobuf message.
+ * The other properties keep their names.
+ */
+public class CompactFieldIdsModule extends SimpleModule {
+
+    public CompactFieldIdsModule() {
+        super(CompactFieldIdsModule.class.getSimpleName());
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.insertAnnotationIntrospector(new FieldIdsIntrospector());
+    }
+
+    private static class FieldIdsIntrospector extends NopAnnotationIntrospector {
+
+        @Override
+        public PropertyName findNameForSerialization(Annotated annotated) {
+            return fieldIdOf(annotated);
+        }
+
+        @Override
+        public PropertyName findNameForDeserialization(Annotated annotated) {
+            return fieldIdOf(annotated);
+        }
+
+        private static PropertyName fieldIdOf(Annotated annotated) {
+            JsonProperty property = annotated.getAnnotation(JsonProperty.class);
+            if (property == null || property.index() == JsonProperty.INDEX_UNKNOWN) {
+                return null;
+            }
+            return PropertyName.construct(Integer.toString(property.index()));
+        }
+    }
+}
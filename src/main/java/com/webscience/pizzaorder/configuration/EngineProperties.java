@@ -0,0 +1,25 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NOTES:
+ * How the mutations of the orders are executed: by the request threads, with the kitchen commands
+ * serialized by a lock (CONCURRENT), or all by a single writer thread (SINGLE_WRITER),
+ * fed by a ring buffer of {@code capacity} commands.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.engine")
+public class EngineProperties {
+
+    public enum Mode {
+        CONCURRENT,
+        SINGLE_WRITER
+    }
+
+    private Mode mode = Mode.CONCURRENT;
+    private int capacity = 4096;
+}
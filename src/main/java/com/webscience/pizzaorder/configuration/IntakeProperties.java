@@ -0,0 +1,21 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NOTES:
+ * Order intake mode: inline by default, or asynchronous ({@code async}), where new orders are
+ * only checked and buffered by the request threads, up to {@code capacity} of them,
+ * and applied by a writer thread up to {@code batchSize} at a time.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.intake")
+public class IntakeProperties {
+
+    private boolean async = false;
+    private int capacity = 4096;
+    private int batchSize = 256;
+}
@@ -0,0 +1,17 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NOTES:
+ * Number of items of the same type the oven can cook at once, used to plan the batches.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.oven")
+public class OvenProperties {
+
+    private int capacity = 4;
+}
@@ -0,0 +1,22 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * NOTES:
+ * Orders requested for a later time are held (SCHEDULED) and released to the kitchen queue
+ * {@code leadTime} before the requested time. Release times are checked every {@code tick},
+ * which is also their precision.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.pre-order")
+public class PreOrderProperties {
+
+    private Duration leadTime = Duration.ofMinutes(20);
+    private Duration tick = Duration.ofSeconds(1);
+}
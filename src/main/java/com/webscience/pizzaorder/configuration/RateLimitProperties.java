@@ -0,0 +1,25 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NOTES:
+ * Rate limits of the customer endpoints, applied both per client address and per username, off by default.
+ * Up to {@code burst} requests are accepted at once, then {@code requestsPerSecond} on average.
+ * Behind a proxy or a load balancer every request comes from its address: {@code clientAddressHeader}
+ * (e.g. X-Forwarded-For) names the header the proxy writes the client address to, its last value is trusted.
+ * At most {@code maxKeys} clients are tracked: a new client evicts an idle or quiet one (see RateLimiter).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = false;
+    private double requestsPerSecond = 10;
+    private int burst = 20;
+    private int maxKeys = 100_000;
+    private String clientAddressHeader;
+}
@@ -0,0 +1,45 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * NOTES:
+ * Role of the instance in the replication of the orders: a STANDALONE instance does not replicate,
+ * a PRIMARY ships its event stream to the standbys connecting on {@code bindAddress}:{@code port}
+ * (0 for any free port), a STANDBY follows the primary at {@code primaryHost}:{@code primaryPort} and serves reads only.
+ * The primary listens on the loopback interface unless told otherwise, and both sides must be given
+ * the same {@code sharedSecret}: a connection without it is refused. The primary serves at most {@code maxStandbys}
+ * connections at a time, handshakes in progress included: the ones beyond are closed at once.
+ * The primary sends a heartbeat with its head offset every {@code heartbeat} when there are no events to ship,
+ * a standby reconnects {@code reconnectDelay} after losing the primary.
+ * The primary does not compact its stream beyond the offset of a lost standby for {@code standbyRetention}:
+ * a standby reconnecting later from a compacted offset is refused, and has to be restarted empty.
+ * Only the default store is replicated: an instance with other stores ({@code pizzaorder.store.menus}) must be STANDALONE.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.replication")
+public class ReplicationProperties {
+
+    public enum Role {
+        STANDALONE,
+        PRIMARY,
+        STANDBY
+    }
+
+    private Role role = Role.STANDALONE;
+    private String bindAddress = "127.0.0.1";
+    private int port = 7070;
+    private String primaryHost = "127.0.0.1";
+    private int primaryPort = 7070;
+    private Duration heartbeat = Duration.ofSeconds(1);
+    private Duration reconnectDelay = Duration.ofSeconds(1);
+    private int batchSize = 512;
+    private String sharedSecret;
+    private int maxStandbys = 4;
+    private Duration standbyRetention = Duration.ofMinutes(5);
+}
@@ -0,0 +1,33 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * NOTES:
+ * Retention policy of the COMPLETED orders: they are kept in memory as they are (hot tier)
+ * for at most {@code ttl} and up to {@code maxCompleted} orders, then they are either
+ * moved to the compressed cold tier (ARCHIVE), forgotten (DROP) or never evicted (KEEP).
+ * The cold tier is in memory too: it holds up to {@code maxArchived} orders, the oldest ones are dropped.
+ * Orders are evicted {@code chunkSize} at a time, one command of the engine per chunk.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.retention")
+public class RetentionProperties {
+
+    public enum Mode {
+        KEEP,
+        ARCHIVE,
+        DROP
+    }
+
+    private Mode mode = Mode.ARCHIVE;
+    private Duration ttl = Duration.ofHours(1);
+    private int maxCompleted = 10_000;
+    private int maxArchived = 100_000;
+    private int chunkSize = 256;
+}
@@ -0,0 +1,34 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * NOTES:
+ * Order in which the kitchen serves the WAITING orders:
+ * by insertion (FIFO), express orders first (PRIORITY), shortest estimated preparation first
+ * with {@code agingFactor} millis of preparation forgiven per millis of waiting (SHORTEST_JOB_FIRST),
+ * or earliest requested ready time first, defaulting to insertion + {@code defaultDeadline} (DEADLINE).
+ * The express flag is sent by the client, so it is ignored unless {@code trustClientExpress} is set,
+ * e.g. when only trusted front ends can reach the API.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.scheduling")
+public class SchedulingProperties {
+
+    public enum Policy {
+        FIFO,
+        PRIORITY,
+        SHORTEST_JOB_FIRST,
+        DEADLINE
+    }
+
+    private Policy policy = Policy.FIFO;
+    private double agingFactor = 1.0;
+    private Duration defaultDeadline = Duration.ofMinutes(30);
+    private boolean trustClientExpress = false;
+}
@@ -0,0 +1,19 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NOTES:
+ * Serialization of the order DTOs: by the reflective bean serializers of Jackson by default,
+ * or by the hand written serializers of the {@link com.webscience.pizzaorder.serialization.OrderSerializersModule}
+ * ({@code handWritten}), in every format.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.serialization")
+public class SerializationProperties {
+
+    private boolean handWritten = false;
+}
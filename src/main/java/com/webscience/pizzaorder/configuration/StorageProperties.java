@@ -0,0 +1,24 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NOTES:
+ * Number of shards the kitchen queue of the orders is partitioned into, by order id hash:
+ * 1 (the default) keeps a single shared queue, 0 gives one shard per available core.
+ * Sharding only pays off with many concurrent writers: the first order and the queue positions
+ * are then merged over the shards, and are not read atomically.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.storage")
+public class StorageProperties {
+
+    private int shards = 1;
+
+    public int getShardCount() {
+        return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,24 @@
+package com.webscience.pizzaorder.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NOTES:
+ * Stores served by the deployment: the default one ({@code defaultId}), reached also by the paths without a store,
+ * always serves the whole menu; every other store is listed in {@code menus} with the codes of the types of entry
+ * it serves, e.g. {@code pizzaorder.store.menus.rome=MARG,DIAV} (an empty list for the whole menu).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pizzaorder.store")
+public class StoreProperties {
+
+    private String defaultId = "main";
+    private Map<String, List<String>> menus = new LinkedHashMap<>();
+}
@@ -0,0 +1,67 @@
+package com.webscience.pizzaorder.configuration;
+
+import com.webscience.pizzaorder.cache.CompletedOrderDetailsConverter;
+import com.webscience.pizzaorder.cache.CompletedOrderResponseCache;
+import com.webscience.pizzaorder.ratelimit.ClientRateLimitInterceptor;
+import com.webscience.pizzaorder.replication.ReadOnlyStandbyInterceptor;
+import com.webscience.pizzaorder.store.StoreArgumentResolver;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final ClientRateLimitInterceptor clientRateLimitInterceptor;
+    private final ReadOnlyStandbyInterceptor readOnlyStandbyInterceptor;
+    private final StoreArgumentResolver storeArgumentResolver;
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+    private final CompletedOrderResponseCache completedOrderResponseCache;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(clientRateLimitInterceptor)
+                .addPathPatterns("/api/customer/**", "/api/stores/*/customer/**");
+        registry.addInterceptor(readOnlyStandbyInterceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/manage/replication/**");
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(storeArgumentResolver);
+    }
+
+    /**
+     * Replaces the default Smile and CBOR converters with the compact ones, after the JSON one,
+     * and puts the converter of the order details, backed by the cache of the completed ones, before all of them.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(BinaryFormats.smileMapper(objectMapperBuilders.getObject())));
+        converters.add(new MappingJackson2CborHttpMessageConverter(BinaryFormats.cborMapper(objectMapperBuilders.getObject())));
+
+        List<AbstractJackson2HttpMessageConverter> jacksonConverters = converters.stream()
+                .filter(converter -> converter instanceof MappingJackson2HttpMessageConverter
+                        || converter instanceof MappingJackson2SmileHttpMessageConverter
+                        || converter instanceof MappingJackson2CborHttpMessageConverter)
+                .map(AbstractJackson2HttpMessageConverter.class::cast)
+                .toList();
+        converters.add(converters.indexOf(jacksonConverters.get(0)),
+                new CompletedOrderDetailsConverter(completedOrderResponseCache, jacksonConverters));
+    }
+}
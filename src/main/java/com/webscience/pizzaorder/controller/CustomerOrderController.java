@@ -1,49 +1,83 @@
 package com.webscience.pizzaorder.controller;
 
+import com.webscience.pizzaorder.configuration.BinaryFormats;
 import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
 import com.webscience.pizzaorder.dto.OrderCreationResponseDTO;
 import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
 import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
-import com.webscience.pizzaorder.service.OrderService;
+import com.webscience.pizzaorder.ratelimit.CustomerRateLimiter;
+import com.webscience.pizzaorder.store.Store;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Tag(name = "user_order", description = "Users orders")
 @RestController
-@RequestMapping("/api/customer/order")
+@RequestMapping(value = {"/api/customer/order", "/api/stores/{storeId}/customer/order"},
+        produces = {MediaType.APPLICATION_JSON_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 @Validated
 @RequiredArgsConstructor
 public class CustomerOrderController {
 
-    private final OrderService orderService;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final CustomerRateLimiter customerRateLimiter;
 
-    @Operation(summary = "Create a new order")
-    @ResponseStatus(code = HttpStatus.CREATED)
-    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public OrderCreationResponseDTO createOrder(@io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Order creation request") @RequestBody @Valid OrderCreationRequestDTO orderCreationRequestDTO) {
-        String orderId = orderService.createOrder(orderCreationRequestDTO);
+    @Operation(summary = "Create a new order, or receive it to be created shortly (202) when the intake is async")
+    @PostMapping
+    public ResponseEntity<OrderCreationResponseDTO> createOrder(@Parameter(hidden = true) Store store, @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Order creation request") @RequestBody @Valid OrderCreationRequestDTO orderCreationRequestDTO,
+                                                                @Parameter(name = IDEMPOTENCY_KEY_HEADER, description = "Retries with the same key return the same order") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) @Size(min = 1, max = 255) String idempotencyKey) {
+        customerRateLimiter.checkUsername(orderCreationRequestDTO.getUsername());
 
-        return OrderCreationResponseDTO.builder()
-                .orderId(orderId)
-                .build();
+        boolean async = store.orderIntake().isAsync();
+        String orderId = async
+                ? store.orderIntake().receiveOrder(orderCreationRequestDTO, idempotencyKey)
+                : store.orderService().createOrder(orderCreationRequestDTO, idempotencyKey);
+
+        return ResponseEntity.status(async ? HttpStatus.ACCEPTED : HttpStatus.CREATED)
+                .body(OrderCreationResponseDTO.builder()
+                        .orderId(orderId)
+                        .build());
     }
 
     @Operation(summary = "Get order status")
-    @GetMapping(value = "{orderId}/status", produces = MediaType.APPLICATION_JSON_VALUE)
-    public OrderStatusResponseDTO getStatus(@Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
-        return orderService.getOrderStatus(orderId);
+    @GetMapping("{orderId}/status")
+    public OrderStatusResponseDTO getStatus(@Parameter(hidden = true) Store store, @Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
+        return store.orderIntake().getOrderStatus(orderId);
+    }
+
+    @Operation(summary = "Cancel an order, only while it is scheduled or waiting")
+    @PutMapping("{orderId}/cancel")
+    public void cancelOrder(@Parameter(hidden = true) Store store, @Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
+        store.orderIntake().cancelOrder(orderId);
     }
 
     @Operation(summary = "Get order details")
-    @GetMapping(value = "{orderId}/details", produces = MediaType.APPLICATION_JSON_VALUE)
-    public OrderDetailsResponseDTO getDetails(@Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
-        return orderService.getOrderDetails(orderId);
+    @GetMapping("{orderId}/details")
+    public OrderDetailsResponseDTO getDetails(@Parameter(hidden = true) Store store, @Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
+        return store.orderIntake().getOrderDetails(orderId);
+    }
+
+    @Operation(summary = "Get the orders of a user, newest first")
+    @GetMapping
+    public List<OrderDetailsResponseDTO> getOrdersByUsername(@Parameter(hidden = true) Store store, @Parameter(name = "username", required = true) @RequestParam @NotBlank String username,
+                                                             @Parameter(name = "page", description = "Page number, starting from 0") @RequestParam(defaultValue = "0") @Min(0) int page,
+                                                             @Parameter(name = "size", description = "Page size") @RequestParam(defaultValue = "20") @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        customerRateLimiter.checkUsername(username);
+        return store.orderService().getOrdersByUsername(username, page, size);
     }
 }
@@ -0,0 +1,33 @@
+package com.webscience.pizzaorder.controller;
+
+import com.webscience.pizzaorder.dto.StockDTO;
+import com.webscience.pizzaorder.store.Store;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Positive;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Tag(name = "manage_inventory", description = "Manage the ingredients inventory")
+@RestController
+@RequestMapping({"/api/manage/inventory", "/api/stores/{storeId}/manage/inventory"})
+@Validated
+public class ManagerInventoryController {
+
+    @Operation(summary = "Get the units available of the tracked ingredients")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<StockDTO> getStock(@Parameter(hidden = true) Store store) {
+        return store.inventoryService().getStock();
+    }
+
+    @Operation(summary = "Add units of an ingredient to the stock (the ingredient is tracked from now on)")
+    @PutMapping(value = "{ingredient}/restock", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StockDTO restock(@Parameter(hidden = true) Store store, @Parameter(name = "Ingredient", required = true) @PathVariable String ingredient,
+                            @Parameter(name = "units", required = true) @RequestParam @Positive long units) {
+        return store.inventoryService().restock(ingredient, units);
+    }
+}
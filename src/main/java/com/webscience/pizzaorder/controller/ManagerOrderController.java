@@ -1,60 +1,130 @@
 package com.webscience.pizzaorder.controller;
 
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.dto.BatchPlanResponseDTO;
+import com.webscience.pizzaorder.dto.IngredientDemandDTO;
 import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
-import com.webscience.pizzaorder.service.OrderService;
+import com.webscience.pizzaorder.dto.OrderStatsResponseDTO;
+import com.webscience.pizzaorder.dto.OvenBatchDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.service.OrderStatsService;
+import com.webscience.pizzaorder.store.Store;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import lombok.RequiredArgsConstructor;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Tag(name = "manage_orders", description = "Manage Orders")
 @RestController
-@RequestMapping("/api/manage/order")
+@RequestMapping(value = {"/api/manage/order", "/api/stores/{storeId}/manage/order"},
+        produces = {MediaType.APPLICATION_JSON_VALUE, BinaryFormats.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 @Validated
-@RequiredArgsConstructor
 public class ManagerOrderController {
 
-    private final OrderService orderService;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     @Operation(summary = "Get orders to be processed")
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<OrderDetailsResponseDTO> getOrdersToBeProcessed() {
-        return orderService.getOrdersToBeProcessed();
+    @GetMapping
+    public List<OrderDetailsResponseDTO> getOrdersToBeProcessed(@Parameter(hidden = true) Store store) {
+        return store.orderService().getOrdersToBeProcessed();
     }
 
     @Operation(summary = "Get ALL orders")
-    @GetMapping(value = "all", produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<OrderDetailsResponseDTO> getAllOrders() {
-        return orderService.getAllOrderDetails();
+    @GetMapping("all")
+    public List<OrderDetailsResponseDTO> getAllOrders(@Parameter(hidden = true) Store store) {
+        return store.orderService().getAllOrderDetails();
+    }
+
+    @Operation(summary = "Get the orders inserted in a time range, oldest first")
+    @GetMapping("range")
+    public List<OrderDetailsResponseDTO> getOrdersByInsertTs(@Parameter(hidden = true) Store store, @Parameter(name = "from", description = "Start of the range (inclusive)", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                             @Parameter(name = "to", description = "End of the range (exclusive)", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                                             @Parameter(name = "status", description = "Only the orders with this status") @RequestParam(required = false) OrderStatus status,
+                                                             @Parameter(name = "page", description = "Page number, starting from 0") @RequestParam(defaultValue = "0") @Min(0) int page,
+                                                             @Parameter(name = "size", description = "Page size") @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        return store.orderService().getOrdersByInsertTs(from, to, status, page, size);
+    }
+
+    @Operation(summary = "Take the next order according to the scheduling policy (set in progress)")
+    @PutMapping("next/start")
+    public OrderDetailsResponseDTO startProcessingNext(@Parameter(hidden = true) Store store) {
+        return store.orderService().startProcessingNextOrder();
     }
 
     @Operation(summary = "Take the next order (set in progress)")
-    @PutMapping(value = "{orderId}/start", produces = MediaType.APPLICATION_JSON_VALUE)
-    public void startProcessing(@Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
-        orderService.startProcessingOrder(orderId);
+    @PutMapping("{orderId}/start")
+    public void startProcessing(@Parameter(hidden = true) Store store, @Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
+        store.orderService().startProcessingOrder(orderId);
     }
 
     @Operation(summary = "Mark the current order in progress as completed")
-    @PutMapping(value = "{orderId}/completed", produces = MediaType.APPLICATION_JSON_VALUE)
-    public void completeProcessing(@Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
-        orderService.setOrderCompleted(orderId);
+    @PutMapping("{orderId}/completed")
+    public void completeProcessing(@Parameter(hidden = true) Store store, @Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
+        store.orderService().setOrderCompleted(orderId);
     }
 
     @Operation(summary = "Get the current order in progress")
-    @GetMapping(value = "current", produces = MediaType.APPLICATION_JSON_VALUE)
-    public OrderDetailsResponseDTO getOrderInProgress() {
-        return orderService.getOrderInProgress();
+    @GetMapping("current")
+    public OrderDetailsResponseDTO getOrderInProgress(@Parameter(hidden = true) Store store) {
+        return store.orderService().getOrderInProgress();
+    }
+
+    @Operation(summary = "Get the pending items and the next oven batch per type of entry")
+    @GetMapping("batch")
+    public BatchPlanResponseDTO getBatchPlan(@Parameter(hidden = true) Store store) {
+        return store.orderService().getBatchPlan();
+    }
+
+    @Operation(summary = "Start the next oven batch of a type of entry (set all of its orders in progress)")
+    @PutMapping("batch/start")
+    public OvenBatchDTO startBatch(@Parameter(hidden = true) Store store, @Parameter(name = "type", description = "Code of the type of entry", required = true) @RequestParam @NotBlank String type) {
+        return store.orderService().startBatch(type);
+    }
+
+    @Operation(summary = "Mark the oven batch in progress as completed (set all of its orders completed)")
+    @PutMapping("batch/{batchId}/completed")
+    public void completeBatch(@Parameter(hidden = true) Store store, @Parameter(name = "Batch Id", required = true) @PathVariable String batchId) {
+        store.orderService().completeBatch(batchId);
+    }
+
+    @Operation(summary = "Get the oven batch in progress")
+    @GetMapping("batch/current")
+    public OvenBatchDTO getBatchInProgress(@Parameter(hidden = true) Store store) {
+        return store.orderService().getBatchInProgress();
+    }
+
+    @Operation(summary = "Get the waiting and in progress orders using an ingredient, oldest first")
+    @GetMapping("by-ingredient")
+    public List<OrderDetailsResponseDTO> getOpenOrdersByIngredient(@Parameter(hidden = true) Store store, @Parameter(name = "ingredient", required = true) @RequestParam @NotBlank String ingredient,
+                                                                   @Parameter(name = "status", description = "Only the orders with this status") @RequestParam(required = false) OrderStatus status) {
+        return store.orderService().getOpenOrdersByIngredient(ingredient, status);
+    }
+
+    @Operation(summary = "Get the units of each ingredient needed by the waiting and in progress orders")
+    @GetMapping("ingredients")
+    public List<IngredientDemandDTO> getIngredientDemand(@Parameter(hidden = true) Store store) {
+        return store.orderService().getIngredientDemand();
+    }
+
+    @Operation(summary = "Get kitchen latency statistics per type of entry over a rolling window")
+    @GetMapping("stats")
+    public OrderStatsResponseDTO getStats(@Parameter(hidden = true) Store store, @Parameter(name = "Window size in minutes") @RequestParam(defaultValue = "60") @Min(1) @Max(OrderStatsService.MAX_WINDOW_MINUTES) int windowMinutes) {
+        return store.orderService().getOrderStats(windowMinutes);
     }
 
     @Operation(summary = "Get order details")
-    @GetMapping(value = "{orderId}/details", produces = MediaType.APPLICATION_JSON_VALUE)
-    public OrderDetailsResponseDTO getDetails(@Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
-        return orderService.getOrderDetails(orderId);
+    @GetMapping("{orderId}/details")
+    public OrderDetailsResponseDTO getDetails(@Parameter(hidden = true) Store store, @Parameter(name = "Order Id", required = true) @PathVariable String orderId) {
+        return store.orderService().getOrderDetails(orderId);
     }
 }
@@ -0,0 +1,33 @@
+package com.webscience.pizzaorder.controller;
+
+import com.webscience.pizzaorder.dto.ReplicationStatusDTO;
+import com.webscience.pizzaorder.replication.ReplicationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "manage_replication", description = "Manage the replication")
+@RestController
+@RequestMapping("/api/manage/replication")
+@RequiredArgsConstructor
+public class ManagerReplicationController {
+
+    private final ReplicationService replicationService;
+
+    @Operation(summary = "Get the role of the instance and the replication lag of a standby")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ReplicationStatusDTO getStatus() {
+        return replicationService.getStatus();
+    }
+
+    @Operation(summary = "Promote this standby to primary")
+    @PutMapping(value = "promote", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ReplicationStatusDTO promote() throws InterruptedException {
+        return replicationService.promote();
+    }
+}
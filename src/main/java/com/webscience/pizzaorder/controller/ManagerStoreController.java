@@ -0,0 +1,53 @@
+package com.webscience.pizzaorder.controller;
+
+import com.webscience.pizzaorder.dto.StoreDTO;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.store.Store;
+import com.webscience.pizzaorder.store.StoreRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "manage_stores", description = "Stores of the deployment")
+@RestController
+@RequestMapping("/api/manage/stores")
+@RequiredArgsConstructor
+public class ManagerStoreController {
+
+    private final StoreRegistry storeRegistry;
+
+    @Operation(summary = "Get the stores, with the current load of their kitchens")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<StoreDTO> getStores() {
+        return storeRegistry.getAll().stream()
+                .map(ManagerStoreController::buildStore)
+                .toList();
+    }
+
+    @Operation(summary = "Get a store, with the current load of its kitchen")
+    @GetMapping(value = "{storeId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StoreDTO getStore(@Parameter(name = "Store Id", required = true) @PathVariable String storeId) {
+        return buildStore(storeRegistry.get(storeId));
+    }
+
+    private static StoreDTO buildStore(Store store) {
+        return StoreDTO.builder()
+                .id(store.id())
+                .menu(store.entryTypeRepo().getAll().stream()
+                        .map(EntryType::id)
+                        .toList())
+                .waitingOrders(store.orderRepo().getWaitingCount())
+                .orderInProgress(store.orderRepo().getOrderInProgress())
+                .intakeBacklog(store.orderIntake().getBacklog())
+                .archivedOrders(store.orderRepo().getArchivedCount())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Schema(name = "batch_plan_response", description = "Pending items and proposed oven batches per type of entry")
+@Getter
+@Builder
+public class BatchPlanResponseDTO {
+
+    @Schema(description = "Number of items the oven can cook at once", example = "4")
+    @JsonProperty
+    private final int ovenCapacity;
+
+    @Schema(description = "Pending items and next batch per type of entry")
+    @JsonProperty
+    private final List<PendingEntryTypeDTO> entryTypes;
+}
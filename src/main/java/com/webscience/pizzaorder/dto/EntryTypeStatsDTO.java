@@ -0,0 +1,28 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+@Schema(name = "entry_type_stats", description = "Order latency statistics for a type of entry")
+@Getter
+@Builder
+public class EntryTypeStatsDTO {
+
+    @Schema(description = "Code of the type of entry", example = "MARG")
+    @JsonProperty
+    private final String type;
+
+    @Schema(description = "Time spent waiting in the queue (insert -> start)")
+    @JsonProperty
+    private final LatencyStatsDTO queueWait;
+
+    @Schema(description = "Preparation time (start -> complete)")
+    @JsonProperty
+    private final LatencyStatsDTO preparation;
+
+    @Schema(description = "End to end time (insert -> complete)")
+    @JsonProperty
+    private final LatencyStatsDTO endToEnd;
+}
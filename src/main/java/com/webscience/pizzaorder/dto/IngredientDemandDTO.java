@@ -0,0 +1,28 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+@Schema(name = "ingredient_demand", description = "Units of an ingredient needed by the open orders")
+@Getter
+@Builder
+public class IngredientDemandDTO {
+
+    @Schema(description = "Canonical name of the ingredient", example = "mozzarella")
+    @JsonProperty
+    private final String ingredient;
+
+    @Schema(description = "Units needed by the waiting orders", example = "40")
+    @JsonProperty
+    private final long waiting;
+
+    @Schema(description = "Units needed by the orders in progress", example = "4")
+    @JsonProperty
+    private final long inProgress;
+
+    @Schema(description = "Units needed by all the open orders", example = "44")
+    @JsonProperty
+    private final long total;
+}
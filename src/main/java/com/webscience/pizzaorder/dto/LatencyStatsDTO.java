@@ -0,0 +1,36 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+@Schema(name = "latency_stats", description = "Latency statistics, in milliseconds")
+@Getter
+@Builder
+public class LatencyStatsDTO {
+
+    @Schema(description = "Number of samples", example = "42")
+    @JsonProperty
+    private final long count;
+
+    @Schema(description = "Mean latency", example = "310000")
+    @JsonProperty
+    private final long meanMillis;
+
+    @Schema(description = "50th percentile", example = "300000")
+    @JsonProperty
+    private final long p50Millis;
+
+    @Schema(description = "90th percentile", example = "540000")
+    @JsonProperty
+    private final long p90Millis;
+
+    @Schema(description = "99th percentile", example = "720000")
+    @JsonProperty
+    private final long p99Millis;
+
+    @Schema(description = "Max latency", example = "780000")
+    @JsonProperty
+    private final long maxMillis;
+}
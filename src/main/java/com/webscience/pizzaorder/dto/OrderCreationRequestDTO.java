@@ -1,12 +1,15 @@
 package com.webscience.pizzaorder.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.webscience.pizzaorder.validation.WithinHorizon;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Schema(name = "order_creation_request", description = "Order creation request")
@@ -16,11 +19,29 @@ public class OrderCreationRequestDTO {
 
     @Schema(description = "Name of the user", example = "Davide")
     @NotEmpty(message = "User name cannot be empty.")
-    @JsonProperty
+    @JsonProperty(index = 1)
     private final String username;
 
     @Schema(description = "List of order entries")
     @NotEmpty(message = "Order entries list cannot be empty.")
-    @JsonProperty
+    @JsonProperty(index = 2)
     private final List<@Valid OrderEntryDTO> entries;
+
+    @Schema(description = "Express order, served before the regular ones when the kitchen schedules by priority; "
+            + "ignored unless the kitchen is configured to trust it", example = "false")
+    @JsonProperty(index = 3)
+    private final boolean express;
+
+    @Schema(description = "Requested ready time, used when the kitchen schedules by deadline", example = "2023-09-20T20:00:00+02:00")
+    @FutureOrPresent
+    @WithinHorizon
+    @JsonProperty(index = 4)
+    private final OffsetDateTime readyBy;
+
+    @Schema(description = "Requested pickup time of a pre-order: the order is queued for the kitchen only shortly before it, "
+            + "when missing the order is queued right away", example = "2023-09-20T20:30:00+02:00")
+    @FutureOrPresent
+    @WithinHorizon
+    @JsonProperty(index = 5)
+    private final OffsetDateTime requestedTime;
 }
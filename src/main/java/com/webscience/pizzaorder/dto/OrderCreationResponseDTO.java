@@ -9,6 +9,6 @@ import lombok.Builder;
 public class OrderCreationResponseDTO {
 
     @Schema(description = "Order Id", example = "9e40b6ef-9eed-4dfa-a0fc-e90409b64e39")
-    @JsonProperty
+    @JsonProperty(index = 1)
     private final String orderId;
 }
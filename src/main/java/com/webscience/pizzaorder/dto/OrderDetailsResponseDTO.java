@@ -6,26 +6,39 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Schema(name = "order_details", description = "Order creation response")
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class OrderDetailsResponseDTO {
 
     @Schema(description = "Order id", example = "9e40b6ef-9eed-4dfa-a0fc-e90409b64e39")
-    @JsonProperty
+    @JsonProperty(index = 1)
     private final String id;
 
     @Schema(description = "Name of the user", example = "Davide")
-    @JsonProperty
+    @JsonProperty(index = 2)
     private final String username;
 
     @Schema(description = "List of order entries")
-    @JsonProperty
+    @JsonProperty(index = 3)
     private final List<OrderEntryDTO> entries;
 
-    @Schema(description = "Status of the order", example = "WAITING", allowableValues = "WAITING, IN_PROGRESS, COMPLETED")
-    @JsonProperty
+    @Schema(description = "Status of the order", example = "WAITING", allowableValues = "WAITING, IN_PROGRESS, COMPLETED, CANCELLED, SCHEDULED, RECEIVED, REJECTED")
+    @JsonProperty(index = 4)
     private final OrderStatus status;
+
+    @Schema(description = "Express order", example = "false")
+    @JsonProperty(index = 5)
+    private final boolean express;
+
+    @Schema(description = "Requested pickup time of a pre-order", example = "2023-09-20T20:30:00+02:00")
+    @JsonProperty(index = 6)
+    private final OffsetDateTime requestedTime;
+
+    @Schema(description = "Insertion timestamp of the order", example = "2023-09-20T19:30:00+02:00")
+    @JsonProperty(index = 7)
+    private final OffsetDateTime insertTs;
 }
@@ -20,15 +20,15 @@ public class OrderEntryDTO {
 
     @Schema(description = "Code of the type of entry", example = "MARG", required = true)
     @NotEmpty
-    @JsonProperty
+    @JsonProperty(index = 1)
     private final String type;
 
     @Schema(description = "Quantity", example = "2", required = true)
     @Positive
-    @JsonProperty
+    @JsonProperty(index = 2)
     private final int quantity;
 
     @Schema(description = "Additional ingredients", example = "[ \"patatine\", \"olive\"]")
-    @JsonProperty
+    @JsonProperty(index = 3)
     private final List<String> additionalIngredients;
 }
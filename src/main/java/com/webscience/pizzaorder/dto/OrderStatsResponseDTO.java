@@ -0,0 +1,22 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Schema(name = "order_stats_response", description = "Kitchen latency statistics over a rolling window")
+@Getter
+@Builder
+public class OrderStatsResponseDTO {
+
+    @Schema(description = "Size of the rolling window in minutes", example = "60")
+    @JsonProperty
+    private final int windowMinutes;
+
+    @Schema(description = "Statistics per type of entry")
+    @JsonProperty
+    private final List<EntryTypeStatsDTO> entryTypes;
+}
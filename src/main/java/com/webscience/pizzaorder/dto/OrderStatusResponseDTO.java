@@ -1,5 +1,6 @@
 package com.webscience.pizzaorder.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.webscience.pizzaorder.model.OrderStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -9,9 +10,18 @@ import lombok.Getter;
 @Schema(name = "order_status_response", description = "Order status response")
 @Getter
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OrderStatusResponseDTO {
 
-    @Schema(description = "Status of the order", example = "WAITING", allowableValues = "WAITING, IN_PROGRESS, COMPLETED")
-    @JsonProperty
+    @Schema(description = "Status of the order", example = "WAITING", allowableValues = "WAITING, IN_PROGRESS, COMPLETED, CANCELLED, SCHEDULED, RECEIVED, REJECTED")
+    @JsonProperty(index = 1)
     private final OrderStatus status;
+
+    @Schema(description = "Position in the waiting queue, only for waiting orders", example = "7")
+    @JsonProperty(index = 2)
+    private final Integer queuePosition;
+
+    @Schema(description = "Estimated minutes before the order is ready, only for orders not completed yet", example = "12")
+    @JsonProperty(index = 3)
+    private final Long estimatedReadyInMinutes;
 }
@@ -0,0 +1,32 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Schema(name = "oven_batch", description = "Orders of the same type of entry cooked together")
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OvenBatchDTO {
+
+    @Schema(description = "Batch id, only for started batches", example = "5b0d1c3e-8f3a-4e4b-9a4f-2f8d3c1e7a10")
+    @JsonProperty
+    private final String id;
+
+    @Schema(description = "Code of the type of entry", example = "MARG")
+    @JsonProperty
+    private final String type;
+
+    @Schema(description = "Number of items in the batch", example = "4")
+    @JsonProperty
+    private final int quantity;
+
+    @Schema(description = "Ids of the orders in the batch")
+    @JsonProperty
+    private final List<String> orderIds;
+}
@@ -0,0 +1,26 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+@Schema(name = "pending_entry_type", description = "Items of a type of entry still to be prepared")
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PendingEntryTypeDTO {
+
+    @Schema(description = "Code of the type of entry", example = "MARG")
+    @JsonProperty
+    private final String type;
+
+    @Schema(description = "Items to be prepared over all the waiting orders", example = "7")
+    @JsonProperty
+    private final long pendingQuantity;
+
+    @Schema(description = "Next proposed batch, missing when all the waiting orders of this type mix other types")
+    @JsonProperty
+    private final OvenBatchDTO nextBatch;
+}
@@ -0,0 +1,55 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+@Schema(name = "replication_status", description = "Replication of the orders to the standbys")
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReplicationStatusDTO {
+
+    @Schema(description = "Role of the instance", example = "STANDBY", allowableValues = "STANDALONE, PRIMARY, STANDBY")
+    @JsonProperty
+    private final ReplicationProperties.Role role;
+
+    @Schema(description = "Id of the event stream of this instance, offsets are only meaningful within it", example = "0f8fad5b-d9cb-469f-a165-70867728950e")
+    @JsonProperty
+    private final String streamId;
+
+    @Schema(description = "Offset the next event will be appended at on this instance", example = "1520")
+    @JsonProperty
+    private final long headOffset;
+
+    @Schema(description = "Port the standbys connect to, only for a primary", example = "7070")
+    @JsonProperty
+    private final Integer port;
+
+    @Schema(description = "Number of connected standbys, only for a primary", example = "2")
+    @JsonProperty
+    private final Integer standbys;
+
+    @Schema(description = "Whether the standby is connected to the primary, only for a standby", example = "true")
+    @JsonProperty
+    private final Boolean connected;
+
+    @Schema(description = "Offset of the primary stream applied up to, only for a standby", example = "1498")
+    @JsonProperty
+    private final Long appliedOffset;
+
+    @Schema(description = "Head offset of the primary at the last contact, only for a standby", example = "1520")
+    @JsonProperty
+    private final Long primaryOffset;
+
+    @Schema(description = "Events of the primary not applied yet, only for a standby", example = "22")
+    @JsonProperty
+    private final Long lagEvents;
+
+    @Schema(description = "Milliseconds since the standby was last caught up with the primary, only for a standby", example = "35")
+    @JsonProperty
+    private final Long lagMillis;
+}
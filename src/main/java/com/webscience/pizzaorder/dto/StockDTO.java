@@ -0,0 +1,20 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+@Schema(name = "stock", description = "Units of an ingredient available in stock")
+@Getter
+@Builder
+public class StockDTO {
+
+    @Schema(description = "Canonical name of the ingredient", example = "mozzarella di bufala")
+    @JsonProperty
+    private final String ingredient;
+
+    @Schema(description = "Units available, not reserved by any order", example = "20")
+    @JsonProperty
+    private final long available;
+}
@@ -0,0 +1,40 @@
+package com.webscience.pizzaorder.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Schema(name = "store", description = "A store of the deployment and the current load of its kitchen")
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StoreDTO {
+
+    @Schema(description = "Id of the store, used in the /api/stores/{storeId} paths", example = "main")
+    @JsonProperty
+    private final String id;
+
+    @Schema(description = "Codes of the types of entry served by the store", example = "[\"MARG\", \"DIAV\"]")
+    @JsonProperty
+    private final List<String> menu;
+
+    @Schema(description = "Orders waiting in the kitchen queue", example = "12")
+    @JsonProperty
+    private final int waitingOrders;
+
+    @Schema(description = "Id of the order in progress, if any", example = "9e40b6ef-9eed-4dfa-a0fc-e90409b64e39")
+    @JsonProperty
+    private final String orderInProgress;
+
+    @Schema(description = "Orders received by the async intake and not applied yet", example = "0")
+    @JsonProperty
+    private final int intakeBacklog;
+
+    @Schema(description = "Completed orders moved to the cold tier", example = "250")
+    @JsonProperty
+    private final int archivedOrders;
+}
@@ -0,0 +1,10 @@
+package com.webscience.pizzaorder.engine;
+
+import com.webscience.pizzaorder.model.OvenBatch;
+
+/**
+ * Immutable view of the kitchen after the first {@code appliedCommands} commands (not counted in the CONCURRENT mode).
+ * The waiting orders are not part of it: they are read from the KitchenQueueProjection.
+ */
+public record KitchenView(long appliedCommands, String orderIdInProgress, OvenBatch batchInProgress) {
+}
@@ -0,0 +1,217 @@
+package com.webscience.pizzaorder.engine;
+
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * NOTES:
+ * Executes the mutations of the orders.
+ * In the CONCURRENT mode the commands run on the calling threads: the kitchen ones ({@link #execute})
+ * serialized by a lock, the others ({@link #executeConcurrently}) right away, relying on the concurrent
+ * structures of the {@link OrderRepo}.
+ * In the SINGLE_WRITER mode every command is put in a bounded ring buffer and applied by one writer thread,
+ * which owns the state of the repo: no locks between the commands, and a single total order of them
+ * (numbered by {@link KitchenView#appliedCommands()}), so the same commands always give the same state.
+ * Readers get an immutable {@link KitchenView} of the work in progress with a volatile read, never going through
+ * the ring buffer: the writer publishes the view once per drained batch, before waking up the callers of the batch,
+ * so every caller reads its own writes. The view is a few references, so publishing it costs O(1):
+ * the waiting queue, which would have to be copied, is served by the KitchenQueueProjection instead.
+ * In both modes the callers wait for the outcome of their command, so the services do not change.
+ */
+@Component
+public class OrderEngine {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final OrderRepo orderRepo;
+    private final EngineProperties engineProperties;
+
+    private final Object lock = new Object();
+    private final BlockingQueue<Command<?>> commands;
+    private volatile KitchenView view;
+    private volatile boolean running;
+    private Thread writer;
+    // written and read by the writer thread only
+    private long appliedCommands;
+
+    public OrderEngine(OrderRepo orderRepo, EngineProperties engineProperties) {
+        this.orderRepo = orderRepo;
+        this.engineProperties = engineProperties;
+        this.commands = new ArrayBlockingQueue<>(engineProperties.getCapacity());
+    }
+
+    public boolean isSingleWriter() {
+        return engineProperties.getMode() == EngineProperties.Mode.SINGLE_WRITER;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isSingleWriter()) {
+            return;
+        }
+        view = buildView();
+        running = true;
+        writer = new Thread(this::runWriter, "order-engine-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join();
+    }
+
+    /**
+     * Executes a command that must not overlap with the other ones (e.g. the kitchen state machine).
+     */
+    public <T> T execute(Supplier<T> command) {
+        if (isSingleWriter()) {
+            return submit(command);
+        }
+        synchronized (lock) {
+            return command.get();
+        }
+    }
+
+    public void run(Runnable command) {
+        execute(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executes a command safe to overlap with the other ones in the CONCURRENT mode (e.g. an order creation).
+     */
+    public <T> T executeConcurrently(Supplier<T> command) {
+        if (isSingleWriter()) {
+            return submit(command);
+        }
+        return command.get();
+    }
+
+    public void runConcurrently(Runnable command) {
+        executeConcurrently(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the view published by the writer, including at least the commands completed so far,
+     * or a view built on the fly in the CONCURRENT mode.
+     */
+    public KitchenView getView() {
+        if (!isSingleWriter()) {
+            return buildView();
+        }
+        return view;
+    }
+
+    private <T> T submit(Supplier<T> command) {
+        if (Thread.currentThread() == writer) {
+            // a command issued by another command: it is part of it
+            return command.get();
+        }
+
+        Command<T> submitted = new Command<>(command);
+        try {
+            commands.put(submitted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting a command", e);
+        }
+        return submitted.await();
+    }
+
+    private void runWriter() {
+        List<Command<?>> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                batch.add(commands.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            applyBatch(batch);
+        }
+        // the commands already submitted are still applied, their callers are waiting
+        commands.drainTo(batch);
+        applyBatch(batch);
+    }
+
+    private void applyBatch(List<Command<?>> batch) {
+        commands.drainTo(batch, BATCH_SIZE - batch.size());
+        for (Command<?> command : batch) {
+            command.apply();
+        }
+        if (!batch.isEmpty()) {
+            view = buildView();
+        }
+        for (Command<?> command : batch) {
+            command.complete();
+        }
+        batch.clear();
+    }
+
+    private KitchenView buildView() {
+        return new KitchenView(appliedCommands, orderRepo.getOrderInProgress(), orderRepo.getBatchInProgress());
+    }
+
+    private class Command<T> {
+        private final Supplier<T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Throwable failure;
+
+        private Command(Supplier<T> action) {
+            this.action = action;
+        }
+
+        private void apply() {
+            try {
+                value = action.get();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            appliedCommands++;
+        }
+
+        /**
+         * Called once the view including the command is published, so the caller reads its own writes in it.
+         */
+        private void complete() {
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        private T await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.webscience.pizzaorder.event;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A SCHEDULED or WAITING order has been cancelled by the customer (CANCELLED).
+ */
+public record OrderCancelled(String orderId, OffsetDateTime cancellationTs) implements OrderEvent {
+}
@@ -0,0 +1,9 @@
+package com.webscience.pizzaorder.event;
+
+import java.time.OffsetDateTime;
+
+/**
+ * An order has been completed by the kitchen (COMPLETED).
+ */
+public record OrderCompleted(String orderId, OffsetDateTime completionTs) implements OrderEvent {
+}
@@ -0,0 +1,26 @@
+package com.webscience.pizzaorder.event;
+
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * An order has been stored, WAITING, SCHEDULED (a pre-order) or REJECTED (then with its {@code completionTs}).
+ * It carries the whole order, so that a standby can store it again (see the replication).
+ * {@code queueRank} is the rank given by the scheduling policy, the kitchen queue sorts by rank then by sequence.
+ */
+public record OrderCreated(String orderId,
+                           long sequence,
+                           String userName,
+                           List<OrderEntry> entries,
+                           OrderStatus status,
+                           boolean express,
+                           OffsetDateTime deadline,
+                           OffsetDateTime requestedTs,
+                           OffsetDateTime insertTs,
+                           OffsetDateTime completionTs,
+                           long estimatedPrepMillis,
+                           long queueRank) implements OrderEvent {
+}
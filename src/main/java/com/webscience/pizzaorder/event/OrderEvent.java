@@ -0,0 +1,13 @@
+package com.webscience.pizzaorder.event;
+
+/**
+ * NOTES:
+ * A change of the lifecycle of an order, as appended to the {@link OrderEventStore}.
+ * Events are immutable facts: they carry everything the read projections need, never the mutable {@code Order}.
+ */
+public sealed interface OrderEvent
+        permits OrderCreated, OrderReleased, OrderStarted, OrderCompleted, OrderCancelled, OrderEvicted,
+        OvenBatchStarted, OvenBatchCompleted {
+
+    String orderId();
+}
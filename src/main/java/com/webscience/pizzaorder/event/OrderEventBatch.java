@@ -0,0 +1,10 @@
+package com.webscience.pizzaorder.event;
+
+import java.util.List;
+
+/**
+ * Events read from the {@link OrderEventStore}, in stream order, and the offset to read from next:
+ * the compacted offsets are skipped, so it can be beyond the offset of the last event plus one.
+ */
+public record OrderEventBatch(List<OrderEvent> events, long nextOffset) {
+}
@@ -0,0 +1,12 @@
+package com.webscience.pizzaorder.event;
+
+/**
+ * A read projection fed by the {@link OrderEventStore}.
+ * It must end up in the same state whenever it is given the same events from a {@link #reset()}.
+ */
+public interface OrderEventListener {
+
+    void apply(OrderEvent event);
+
+    void reset();
+}
@@ -0,0 +1,514 @@
+package com.webscience.pizzaorder.event;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * NOTES:
+ * Append-only stream of the {@link OrderEvent}s, the write side of the orders.
+ * Every event is appended to the stream, then applied to the read projections on the appending thread,
+ * so a caller always reads its own changes. The events of a single order are causally ordered
+ * by its status changes, so the stream keeps them in order.
+ * An append takes its offset from a counter and writes the event in the slot of that offset,
+ * in fixed size segments of slots: appends of different orders never wait for each other,
+ * and readers stop at the first slot still being written. The projections of different orders
+ * are updated concurrently.
+ * A rebuild resets the projections and replays the stream, with the appends held meanwhile.
+ * Each event has an offset, its position in the stream, so readers such as the replication to the standbys
+ * can follow the stream from where they stopped, parking until the next appends, which unpark them
+ * without any monitor shared with the other appends. Offsets are only meaningful within the stream,
+ * which has a random id of its own.
+ * The stream is compacted so that it does not grow with every order ever taken: once an order is dropped
+ * (evicted without being archived) the projections have forgotten it, so all its events are removed
+ * from the full segments every reader has acknowledged (see {@link Cursor}), which are packed with the events left,
+ * and freed when none is left. Offsets are never reused: a reader skips the removed ones, and a replay
+ * from the start gives the same projections, without the dropped orders. Resuming from an offset below
+ * the compacted ones could miss the end of an order, so {@link #isResumableFrom} refuses it.
+ * An append only records the drop: {@link #compact} runs off the append path, after the evictions
+ * (see {@code OrderRetentionService}). The offset each order was created at is kept until it is dropped,
+ * so a compaction only rewrites the segments from the creation of the oldest dropped order on,
+ * not the whole stream retained below it.
+ * As the rest of the storage, the stream is kept in memory: a durable log could replace it
+ * without changing the projections.
+ */
+@Component
+public class OrderEventStore {
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private final List<OrderEventListener> listeners;
+    private final AtomicLong tail = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment lastSegment;
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile String streamId = UUID.randomUUID().toString();
+
+    // offset of the creation of each order not dropped yet
+    private final Map<String, Long> createdOffsets = new ConcurrentHashMap<>();
+    // each dropped order whose events are still in the stream
+    private final Map<String, DroppedOrder> droppedOrders = new ConcurrentHashMap<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Set<Cursor> cursors = ConcurrentHashMap.newKeySet();
+    // the segments missing below it have been compacted away, the ones above it are never removed
+    private volatile long compactedOffset;
+
+    public OrderEventStore() {
+        this(List.of());
+    }
+
+    @Autowired
+    public OrderEventStore(List<OrderEventListener> listeners) {
+        this.listeners = List.copyOf(listeners);
+    }
+
+    public void append(OrderEvent event) {
+        lock.readLock().lock();
+        try {
+            long offset = tail.getAndIncrement();
+            segmentOf(offset).set(offset, event);
+            if (!waiters.isEmpty()) {
+                waiters.forEach(LockSupport::unpark);
+            }
+            for (OrderEventListener listener : listeners) {
+                listener.apply(event);
+            }
+            if (event instanceof OrderCreated) {
+                createdOffsets.put(event.orderId(), offset);
+            } else if (event instanceof OrderEvicted evicted && !evicted.archived()) {
+                Long createdOffset = createdOffsets.remove(evicted.orderId());
+                droppedOrders.put(evicted.orderId(), new DroppedOrder(createdOffset == null ? 0 : createdOffset, offset));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the projections from scratch, replaying the stream.
+     *
+     * @return the number of replayed events
+     */
+    public int rebuildProjections() {
+        lock.writeLock().lock();
+        try {
+            listeners.forEach(OrderEventListener::reset);
+            List<OrderEvent> replayed = getEvents();
+            for (OrderEvent event : replayed) {
+                for (OrderEventListener listener : listeners) {
+                    listener.apply(event);
+                }
+            }
+            return replayed.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the events still in the stream.
+     */
+    public List<OrderEvent> getEvents() {
+        return read(0, Integer.MAX_VALUE).events();
+    }
+
+    /**
+     * Reads up to {@code max} events from the given offset on, in stream order,
+     * stopping before the first event still being appended.
+     */
+    public OrderEventBatch read(long fromOffset, int max) {
+        long head = tail.get();
+        List<OrderEvent> events = new ArrayList<>(Math.min(max, SEGMENT_SIZE));
+        long next = fromOffset;
+        while (next < head && events.size() < max) {
+            Segment segment = segments.get(baseOf(next));
+            if (segment == null) {
+                long compacted = compactedOffset;
+                if (next >= compacted) {
+                    // not created yet by its first append
+                    break;
+                }
+                Long following = segments.higherKey(next);
+                next = following == null ? compacted : Math.min(following, compacted);
+                continue;
+            }
+            next = segment.read(next, max - events.size(), events);
+            if (next < segment.base + SEGMENT_SIZE && events.size() < max) {
+                break;
+            }
+        }
+        return new OrderEventBatch(events, next);
+    }
+
+    public String getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * The offset the next event will be appended at.
+     */
+    public long getHeadOffset() {
+        return tail.get();
+    }
+
+    /**
+     * Whether a reader having read the stream up to the given offset can go on from there: it cannot
+     * when events at or after it have been compacted while it was not following, since it could miss
+     * the end of an order it has seen the start of. Reading from the start is always possible.
+     */
+    public boolean isResumableFrom(long offset) {
+        return offset == 0 || (offset >= compactedOffset && offset <= tail.get());
+    }
+
+    /**
+     * Opens a cursor at the given offset: the stream is not compacted beyond the offset it acknowledges.
+     */
+    public Cursor openCursor(long offset) {
+        Cursor cursor = new Cursor(offset);
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    /**
+     * Waits until an event is appended at the given offset, at most {@code timeoutMillis}.
+     *
+     * @return false if no event was appended there in time
+     */
+    public boolean awaitEvents(long offset, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Thread current = Thread.currentThread();
+        // registered before checking, so an append after the check always finds it to unpark
+        waiters.add(current);
+        try {
+            while (!isAppended(offset)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return true;
+        } finally {
+            waiters.remove(current);
+        }
+    }
+
+    //for testing only
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            segments.clear();
+            lastSegment = null;
+            tail.set(0);
+            createdOffsets.clear();
+            droppedOrders.clear();
+            compactedOffset = 0;
+            streamId = UUID.randomUUID().toString();
+            listeners.forEach(OrderEventListener::reset);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the events of the dropped orders from the full segments below the offset acknowledged
+     * by every cursor. Only the segments from the creation of the oldest of these orders on are rewritten,
+     * the ones holding none of their events are kept as they are. Appends go on meanwhile,
+     * a compaction already running is not waited for.
+     *
+     * @return the number of orders whose events have been removed
+     */
+    public int compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return compactDropped();
+        } finally {
+            lock.readLock().unlock();
+            compacting.set(false);
+        }
+    }
+
+    private int compactDropped() {
+        if (droppedOrders.isEmpty()) {
+            return 0;
+        }
+        long floor = baseOf(Math.min(tail.get(), acknowledgedOffset()));
+        long end = compactedOffset;
+        while (end < floor) {
+            Segment segment = segments.get(end);
+            if (segment == null || !segment.isFull()) {
+                break;
+            }
+            end += SEGMENT_SIZE;
+        }
+
+        long compactable = end;
+        Set<String> removed = new HashSet<>();
+        long lowestCreated = Long.MAX_VALUE;
+        for (Map.Entry<String, DroppedOrder> dropped : droppedOrders.entrySet()) {
+            if (dropped.getValue().evictedOffset() < compactable) {
+                removed.add(dropped.getKey());
+                lowestCreated = Math.min(lowestCreated, dropped.getValue().createdOffset());
+            }
+        }
+        if (removed.isEmpty()) {
+            return 0;
+        }
+
+        for (Segment segment : segments.subMap(baseOf(lowestCreated), compactable).values()) {
+            Segment compacted = segment.without(removed);
+            if (compacted.size() == 0) {
+                segments.remove(segment.base, segment);
+            } else if (compacted != segment) {
+                segments.replace(segment.base, segment, compacted);
+            }
+        }
+        compactedOffset = compactable;
+        droppedOrders.keySet().removeAll(removed);
+        return removed.size();
+    }
+
+    private long acknowledgedOffset() {
+        long now = System.nanoTime();
+        long acknowledged = Long.MAX_VALUE;
+        for (Cursor cursor : cursors) {
+            if (cursor.isExpired(now)) {
+                cursors.remove(cursor);
+            } else {
+                acknowledged = Math.min(acknowledged, cursor.acknowledgedOffset);
+            }
+        }
+        return acknowledged;
+    }
+
+    private boolean isAppended(long offset) {
+        if (offset >= tail.get()) {
+            return false;
+        }
+        Segment segment = segments.get(baseOf(offset));
+        return segment == null ? offset < compactedOffset : segment.contains(offset);
+    }
+
+    private Segment segmentOf(long offset) {
+        long base = baseOf(offset);
+        Segment segment = lastSegment;
+        if (segment == null || segment.base != base) {
+            segment = segments.computeIfAbsent(base, OpenSegment::new);
+            lastSegment = segment;
+        }
+        return segment;
+    }
+
+    private static long baseOf(long offset) {
+        return offset >>> SEGMENT_SHIFT << SEGMENT_SHIFT;
+    }
+
+    /**
+     * Position of a reader of the stream, such as a standby.
+     * A closed cursor can keep holding the compaction for a while, e.g. until its reader reconnects.
+     */
+    public final class Cursor {
+        private volatile long acknowledgedOffset;
+        private volatile boolean closing;
+        private volatile long expiresAtNanos;
+
+        private Cursor(long offset) {
+            this.acknowledgedOffset = offset;
+        }
+
+        /**
+         * The reader has applied the stream up to the given offset.
+         */
+        public void acknowledge(long offset) {
+            acknowledgedOffset = Math.max(acknowledgedOffset, offset);
+        }
+
+        public void close() {
+            cursors.remove(this);
+        }
+
+        public void closeAfter(Duration delay) {
+            expiresAtNanos = System.nanoTime() + delay.toNanos();
+            closing = true;
+        }
+
+        private boolean isExpired(long now) {
+            return closing && now - expiresAtNanos >= 0;
+        }
+    }
+
+    private record DroppedOrder(long createdOffset, long evictedOffset) {
+    }
+
+    private abstract static sealed class Segment permits OpenSegment, PackedSegment {
+        final long base;
+
+        Segment(long base) {
+            this.base = base;
+        }
+
+        void set(long offset, OrderEvent event) {
+            throw new IllegalStateException("Segment " + base + " is full");
+        }
+
+        /**
+         * Adds up to {@code max} events from the given offset to {@code events}.
+         *
+         * @return the offset to read from next, before the end of the segment only when stopped early
+         */
+        abstract long read(long fromOffset, int max, List<OrderEvent> events);
+
+        abstract boolean contains(long offset);
+
+        abstract boolean isFull();
+
+        abstract int size();
+
+        /**
+         * Returns the segment without the events of the given orders, itself when it has none of them.
+         */
+        abstract Segment without(Set<String> orderIds);
+    }
+
+    private static final class OpenSegment extends Segment {
+        private final AtomicReferenceArray<OrderEvent> slots = new AtomicReferenceArray<>(SEGMENT_SIZE);
+
+        private OpenSegment(long base) {
+            super(base);
+        }
+
+        @Override
+        void set(long offset, OrderEvent event) {
+            slots.set((int) (offset - base), event);
+        }
+
+        @Override
+        long read(long fromOffset, int max, List<OrderEvent> events) {
+            int added = 0;
+            for (int slot = (int) (fromOffset - base); slot < SEGMENT_SIZE; slot++) {
+                OrderEvent event = slots.get(slot);
+                if (event == null || added == max) {
+                    return base + slot;
+                }
+                events.add(event);
+                added++;
+            }
+            return base + SEGMENT_SIZE;
+        }
+
+        @Override
+        boolean contains(long offset) {
+            return slots.get((int) (offset - base)) != null;
+        }
+
+        @Override
+        boolean isFull() {
+            return size() == SEGMENT_SIZE;
+        }
+
+        @Override
+        int size() {
+            int size = 0;
+            for (int slot = 0; slot < SEGMENT_SIZE; slot++) {
+                if (slots.get(slot) != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        Segment without(Set<String> orderIds) {
+            int[] slotsLeft = new int[SEGMENT_SIZE];
+            OrderEvent[] eventsLeft = new OrderEvent[SEGMENT_SIZE];
+            int size = 0;
+            for (int slot = 0; slot < SEGMENT_SIZE; slot++) {
+                OrderEvent event = slots.get(slot);
+                if (!orderIds.contains(event.orderId())) {
+                    slotsLeft[size] = slot;
+                    eventsLeft[size++] = event;
+                }
+            }
+            return size == SEGMENT_SIZE ? this : new PackedSegment(base, Arrays.copyOf(slotsLeft, size), Arrays.copyOf(eventsLeft, size));
+        }
+    }
+
+    private static final class PackedSegment extends Segment {
+        private final int[] slots;
+        private final OrderEvent[] events;
+
+        private PackedSegment(long base, int[] slots, OrderEvent[] events) {
+            super(base);
+            this.slots = slots;
+            this.events = events;
+        }
+
+        @Override
+        long read(long fromOffset, int max, List<OrderEvent> sink) {
+            int index = Arrays.binarySearch(slots, (int) (fromOffset - base));
+            int added = 0;
+            for (int i = index < 0 ? -index - 1 : index; i < slots.length; i++) {
+                if (added == max) {
+                    return base + slots[i];
+                }
+                sink.add(events[i]);
+                added++;
+            }
+            return base + SEGMENT_SIZE;
+        }
+
+        @Override
+        boolean contains(long offset) {
+            return true;
+        }
+
+        @Override
+        boolean isFull() {
+            return true;
+        }
+
+        @Override
+        int size() {
+            return slots.length;
+        }
+
+        @Override
+        Segment without(Set<String> orderIds) {
+            int[] slotsLeft = new int[slots.length];
+            OrderEvent[] eventsLeft = new OrderEvent[slots.length];
+            int size = 0;
+            for (int i = 0; i < slots.length; i++) {
+                if (!orderIds.contains(events[i].orderId())) {
+                    slotsLeft[size] = slots[i];
+                    eventsLeft[size++] = events[i];
+                }
+            }
+            return size == slots.length ? this : new PackedSegment(base, Arrays.copyOf(slotsLeft, size), Arrays.copyOf(eventsLeft, size));
+        }
+    }
+}
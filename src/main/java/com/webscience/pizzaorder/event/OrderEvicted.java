@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.event;
+
+/**
+ * A closed order has been evicted from memory: moved to the cold tier when {@code archived}, dropped otherwise.
+ * Projections drop what they precomputed for it, the archived orders are still read from the repo.
+ */
+public record OrderEvicted(String orderId, String userName, long sequence, boolean archived) implements OrderEvent {
+}
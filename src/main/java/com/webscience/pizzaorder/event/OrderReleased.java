@@ -0,0 +1,7 @@
+package com.webscience.pizzaorder.event;
+
+/**
+ * A SCHEDULED pre-order has been released to the kitchen queue (WAITING).
+ */
+public record OrderReleased(String orderId) implements OrderEvent {
+}
@@ -0,0 +1,14 @@
+package com.webscience.pizzaorder.event;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A WAITING order has been taken by the kitchen (IN_PROGRESS), on its own or in the oven batch {@code batchId}
+ * (then followed by the {@link OvenBatchStarted} of the batch).
+ */
+public record OrderStarted(String orderId, OffsetDateTime startTs, String batchId) implements OrderEvent {
+
+    public OrderStarted(String orderId, OffsetDateTime startTs) {
+        this(orderId, startTs, null);
+    }
+}
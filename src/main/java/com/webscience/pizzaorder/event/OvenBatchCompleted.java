@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.event;
+
+/**
+ * The oven batch {@code batchId} has been completed, after the {@link OrderCompleted} of each of its orders.
+ * It goes with the last order of the batch, as the {@link OvenBatchStarted}.
+ */
+public record OvenBatchCompleted(String orderId, String batchId) implements OrderEvent {
+}
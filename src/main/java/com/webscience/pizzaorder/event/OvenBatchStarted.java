@@ -0,0 +1,10 @@
+package com.webscience.pizzaorder.event;
+
+import com.webscience.pizzaorder.model.OvenBatch;
+
+/**
+ * An oven batch has been started, after the {@link OrderStarted} of each of its orders.
+ * It goes with the last order of the batch, so it leaves the stream together with that order.
+ */
+public record OvenBatchStarted(String orderId, OvenBatch batch) implements OrderEvent {
+}
@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Batch is not in progress")
+public class BatchNotInProgressException extends RuntimeException {
+}
@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Idempotency key already used for a different request")
+public class IdempotencyKeyReusedException extends RuntimeException {
+}
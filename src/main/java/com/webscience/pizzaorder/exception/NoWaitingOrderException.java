@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.NOT_FOUND, reason = "There are no waiting orders")
+public class NoWaitingOrderException extends RuntimeException {
+}
@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Not a standby")
+public class NotAStandbyException extends RuntimeException {
+}
@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Order cannot be cancelled")
+public class OrderNotCancellableException extends RuntimeException {
+}
@@ -0,0 +1,16 @@
+package com.webscience.pizzaorder.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Ingredient out of stock")
+public class OutOfStockException extends RuntimeException {
+
+    private final String ingredient;
+
+    public OutOfStockException(String ingredient) {
+        this.ingredient = ingredient;
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -25,11 +26,26 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(new RestApiError(HttpStatus.NOT_FOUND, "ORDER_NOT_FOUND", "Order id not found"));
     }
 
+    @ExceptionHandler(StoreNotFoundException.class)
+    protected ResponseEntity<Object> handleException(StoreNotFoundException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.NOT_FOUND, "STORE_NOT_FOUND", "Store id not found"));
+    }
+
+    @ExceptionHandler(NoWaitingOrderException.class)
+    protected ResponseEntity<Object> handleException(NoWaitingOrderException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.NOT_FOUND, "NO_WAITING_ORDER", "There are no waiting orders"));
+    }
+
     @ExceptionHandler(OrderNotInProgressException.class)
     protected ResponseEntity<Object> handleException(OrderNotInProgressException ex) {
         return buildResponseEntity(new RestApiError(HttpStatus.BAD_REQUEST, "ORDER_NOT_IN_PROGRESS", "Order is not in progress"));
     }
 
+    @ExceptionHandler(BatchNotInProgressException.class)
+    protected ResponseEntity<Object> handleException(BatchNotInProgressException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.BAD_REQUEST, "BATCH_NOT_IN_PROGRESS", "Batch is not in progress"));
+    }
+
     @ExceptionHandler(OrderAlreadyInProgressException.class)
     protected ResponseEntity<Object> handleException(OrderAlreadyInProgressException ex) {
         return buildResponseEntity(new RestApiError(HttpStatus.BAD_REQUEST, "ORDER_ALREADY_IN_PROGRESS", "Cannot start an order when another one is in progress"));
@@ -41,6 +57,44 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(new RestApiError(HttpStatus.BAD_REQUEST, "ORDER_ALREADY_PROCESSED", "Order cannot be started because already processed"));
     }
 
+    @ExceptionHandler(OrderNotCancellableException.class)
+    protected ResponseEntity<Object> handleException(OrderNotCancellableException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.BAD_REQUEST, "ORDER_NOT_CANCELLABLE", "Order cannot be cancelled because already processed"));
+    }
+
+    @ExceptionHandler(OrderNotYetAppliedException.class)
+    protected ResponseEntity<Object> handleException(OrderNotYetAppliedException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.CONFLICT, "ORDER_NOT_YET_APPLIED", "Order received but not applied yet, retry shortly"));
+    }
+
+    @ExceptionHandler(ReadOnlyStandbyException.class)
+    protected ResponseEntity<Object> handleException(ReadOnlyStandbyException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.SERVICE_UNAVAILABLE, "READ_ONLY_STANDBY", "This instance is a read only standby, send the changes to the primary"));
+    }
+
+    @ExceptionHandler(NotAStandbyException.class)
+    protected ResponseEntity<Object> handleException(NotAStandbyException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.CONFLICT, "NOT_A_STANDBY", "Only a standby can be promoted"));
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    protected ResponseEntity<Object> handleException(OutOfStockException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.CONFLICT, "OUT_OF_STOCK", "Not enough " + ex.getIngredient() + " in stock"));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    protected ResponseEntity<Object> handleException(IdempotencyKeyReusedException ex) {
+        return buildResponseEntity(new RestApiError(HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_REUSED", "Idempotency key already used for a different request"));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    protected ResponseEntity<Object> handleException(TooManyRequestsException ex) {
+        RestApiError apiError = new RestApiError(HttpStatus.TOO_MANY_REQUESTS, "TOO_MANY_REQUESTS", "Too many requests, retry later");
+        return ResponseEntity.status(apiError.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(apiError);
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     protected ResponseEntity<Object> handleItemNotDeletable(ConstraintViolationException ex) {
         return buildResponseEntity(new RestApiError(HttpStatus.BAD_REQUEST, "INVALID_PARAMETER", ex.getMessage()));
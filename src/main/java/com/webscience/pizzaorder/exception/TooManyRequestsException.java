@@ -0,0 +1,20 @@
+package com.webscience.pizzaorder.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@ResponseStatus(code = HttpStatus.TOO_MANY_REQUESTS, reason = "Too many requests")
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * No stack trace: it is thrown on purpose, possibly very often, to an abusive client.
+     */
+    public TooManyRequestsException(long retryAfterSeconds) {
+        super(null, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
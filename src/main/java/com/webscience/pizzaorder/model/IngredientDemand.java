@@ -0,0 +1,12 @@
+package com.webscience.pizzaorder.model;
+
+/**
+ * NOTES:
+ * Units of an ingredient needed by the open orders, split by status.
+ */
+public record IngredientDemand(String ingredient, long waiting, long inProgress) {
+
+    public long total() {
+        return waiting + inProgress;
+    }
+}
@@ -1,22 +1,225 @@
 package com.webscience.pizzaorder.model;
 
 import lombok.Builder;
-import lombok.Getter;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-@Getter
-@Builder
+/**
+ * NOTES:
+ * Orders are retained in memory for a long time, so they are stored in a compact layout:
+ * timestamps as epoch nanos (plus the shared {@link ZoneOffset} instance).
+ * The id is kept as given, the very instance the repo indexes the order by, so it costs just a reference
+ * and reading it on the hot paths (e.g. the shard of the kitchen queue, the events) allocates nothing.
+ * Entries are stored once as an immutable list sharing the {@link EntryType} instances and the additional
+ * ingredients canonicalized at intake (see IngredientDictionary), so duplicated names cost a reference each
+ * and the indexes walk the entries without rebuilding them; the normalized names share the list of the
+ * display names when they are the same.
+ * Timestamp getters rebuild the usual objects on the fly, so the rest of the code is not aware of the layout,
+ * while the hot paths (kitchen queue ranks, indexes, eviction) read the epoch accessors, which allocate nothing.
+ */
 public class Order {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
     private final String id;
     private final String userName;
     private final List<OrderEntry> orderEntries;
-    private final OffsetDateTime insertTs;
+    private final long insertEpochNanos;
+    private final ZoneOffset insertOffset;
+    private final long estimatedPrepMillis;
+    private final boolean express;
+    private final long deadlineEpochNanos;
+    private final ZoneOffset deadlineOffset;
+    private final long requestedEpochNanos;
+    private final ZoneOffset requestedOffset;
+
+    private static final AtomicReferenceFieldUpdater<Order, OrderStatus> ORDER_STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(Order.class, OrderStatus.class, "orderStatus");
+
+    private long sequence;
+    private volatile OrderStatus orderStatus;
+    private long startEpochNanos;
+    private ZoneOffset startOffset;
+    private long completionEpochNanos;
+    private ZoneOffset completionOffset;
+
+    @Builder
+    private Order(String id, String userName, List<OrderEntry> orderEntries, OffsetDateTime insertTs, long estimatedPrepMillis,
+                  boolean express, OffsetDateTime deadline, OffsetDateTime requestedTs, long sequence, OrderStatus orderStatus, OffsetDateTime startTs, OffsetDateTime completionTs) {
+        this.id = id;
+        this.userName = userName;
+        this.orderEntries = orderEntries == null ? List.of() : orderEntries.stream()
+                .map(Order::immutableEntry)
+                .toList();
+
+        this.insertEpochNanos = toEpochNanos(insertTs);
+        this.insertOffset = insertTs == null ? null : insertTs.getOffset();
+        this.estimatedPrepMillis = estimatedPrepMillis;
+        this.express = express;
+        this.deadlineEpochNanos = toEpochNanos(deadline);
+        this.deadlineOffset = deadline == null ? null : deadline.getOffset();
+        this.requestedEpochNanos = toEpochNanos(requestedTs);
+        this.requestedOffset = requestedTs == null ? null : requestedTs.getOffset();
+        this.sequence = sequence;
+        this.orderStatus = orderStatus;
+        setStartTs(startTs);
+        setCompletionTs(completionTs);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Returns the stored entries, an unmodifiable list.
+     */
+    public List<OrderEntry> getOrderEntries() {
+        return orderEntries;
+    }
+
+    public OffsetDateTime getInsertTs() {
+        return toOffsetDateTime(insertEpochNanos, insertOffset);
+    }
 
-    private OrderStatus orderStatus;
+    public long getEstimatedPrepMillis() {
+        return estimatedPrepMillis;
+    }
+
+    public boolean isExpress() {
+        return express;
+    }
+
+    public OffsetDateTime getDeadline() {
+        return toOffsetDateTime(deadlineEpochNanos, deadlineOffset);
+    }
+
+    /**
+     * Requested pickup time of a pre-order, null for the orders to be served as soon as possible.
+     */
+    public OffsetDateTime getRequestedTs() {
+        return toOffsetDateTime(requestedEpochNanos, requestedOffset);
+    }
+
+    public boolean hasInsertTs() {
+        return insertOffset != null;
+    }
+
+    /**
+     * Insertion timestamp as epoch nanos, 0 when not set.
+     */
+    public long getInsertEpochNanos() {
+        return insertEpochNanos;
+    }
+
+    public long getInsertEpochMillis() {
+        return Math.floorDiv(insertEpochNanos, NANOS_PER_MILLI);
+    }
+
+    public boolean hasDeadline() {
+        return deadlineOffset != null;
+    }
+
+    /**
+     * Deadline as epoch millis, 0 when not set.
+     */
+    public long getDeadlineEpochMillis() {
+        return Math.floorDiv(deadlineEpochNanos, NANOS_PER_MILLI);
+    }
+
+    public boolean hasCompletionTs() {
+        return completionOffset != null;
+    }
+
+    /**
+     * Closing timestamp as epoch nanos, 0 when not set.
+     */
+    public long getCompletionEpochNanos() {
+        return completionEpochNanos;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public OffsetDateTime getStartTs() {
+        return toOffsetDateTime(startEpochNanos, startOffset);
+    }
+
+    public OffsetDateTime getCompletionTs() {
+        return toOffsetDateTime(completionEpochNanos, completionOffset);
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
 
     public void setOrderStatus(OrderStatus orderStatus) {
         this.orderStatus = orderStatus;
     }
+
+    /**
+     * Atomically changes the status only if it is still the expected one,
+     * so that concurrent transitions of the same order (e.g. start and cancel) have a single winner.
+     */
+    public boolean compareAndSetOrderStatus(OrderStatus expected, OrderStatus orderStatus) {
+        return ORDER_STATUS.compareAndSet(this, expected, orderStatus);
+    }
+
+    public void setStartTs(OffsetDateTime startTs) {
+        this.startEpochNanos = toEpochNanos(startTs);
+        this.startOffset = startTs == null ? null : startTs.getOffset();
+    }
+
+    public void setCompletionTs(OffsetDateTime completionTs) {
+        this.completionEpochNanos = toEpochNanos(completionTs);
+        this.completionOffset = completionTs == null ? null : completionTs.getOffset();
+    }
+
+    private static long toEpochNanos(OffsetDateTime ts) {
+        if (ts == null) {
+            return 0;
+        }
+        Instant instant = ts.toInstant();
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+
+    private static OffsetDateTime toOffsetDateTime(long epochNanos, ZoneOffset offset) {
+        if (offset == null) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+        return OffsetDateTime.ofInstant(instant, offset);
+    }
+
+    private static OrderEntry immutableEntry(OrderEntry entry) {
+        if (entry.additionalIngredients() == null) {
+            return entry;
+        }
+        List<String> ingredients = immutableCopy(entry.additionalIngredients());
+        List<String> normalizedIngredients = entry.normalizedIngredients();
+        if (normalizedIngredients != null) {
+            // names usually come already normalized: then the entry keeps a single list
+            normalizedIngredients = normalizedIngredients.equals(ingredients) ? ingredients : immutableCopy(normalizedIngredients);
+        }
+        return new OrderEntry(entry.entryType(), entry.quantity(), ingredients, normalizedIngredients);
+    }
+
+    private static List<String> immutableCopy(List<String> names) {
+        return Collections.unmodifiableList(Arrays.asList(names.toArray(String[]::new)));
+    }
 }
@@ -3,7 +3,35 @@ package com.webscience.pizzaorder.model;
 import lombok.Builder;
 
 import java.util.List;
+import java.util.Objects;
 
-public record OrderEntry(EntryType entryType, int quantity, List<String> additionalIngredients) {
+/**
+ * NOTES:
+ * {@code normalizedIngredients} are the additional ingredients in their normalized form (see IngredientDictionary),
+ * the names the indexes and the inventory match them by. They are computed once, when the entry is built at intake,
+ * and being derived from the display names they are not part of the equality of the entries.
+ * When not given, the readers normalize the display names themselves.
+ */
+public record OrderEntry(EntryType entryType, int quantity, List<String> additionalIngredients, List<String> normalizedIngredients) {
     @Builder public OrderEntry {}
+
+    public OrderEntry(EntryType entryType, int quantity, List<String> additionalIngredients) {
+        this(entryType, quantity, additionalIngredients, null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof OrderEntry other
+                && quantity == other.quantity
+                && Objects.equals(entryType, other.entryType)
+                && Objects.equals(additionalIngredients, other.additionalIngredients);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entryType, quantity, additionalIngredients);
+    }
 }
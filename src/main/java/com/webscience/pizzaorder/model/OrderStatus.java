@@ -1,7 +1,15 @@
 package com.webscience.pizzaorder.model;
 
+/**
+ * NOTES:
+ * The binary representations of the orders carry the ordinal of the status: new statuses go at the end.
+ */
 public enum OrderStatus {
     WAITING,
     IN_PROGRESS,
-    COMPLETED
+    COMPLETED,
+    CANCELLED,
+    SCHEDULED,
+    RECEIVED,
+    REJECTED
 }
@@ -0,0 +1,13 @@
+package com.webscience.pizzaorder.model;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * NOTES:
+ * Orders of the same type of entry cooked together in the oven.
+ */
+public record OvenBatch(String id, String entryType, int quantity, List<String> orderIds) {
+    @Builder public OvenBatch {}
+}
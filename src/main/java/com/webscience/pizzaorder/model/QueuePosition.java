@@ -0,0 +1,8 @@
+package com.webscience.pizzaorder.model;
+
+/**
+ * Position (1-based) of a WAITING order in the kitchen queue, along with the estimated
+ * preparation time of all the orders up to it, the order itself included.
+ */
+public record QueuePosition(int position, long estimatedPrepMillis) {
+}
@@ -0,0 +1,55 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEventListener;
+import com.webscience.pizzaorder.event.OrderEvicted;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NOTES:
+ * Read projection of the orders as seen by the customers, by id: the status and the details of each order
+ * in memory, replaced by a new immutable view on every change, so reads are a single lookup.
+ * Evicted orders are dropped from the projection, the archived ones are still read from the repo.
+ */
+@Component
+public class CustomerOrderProjection implements OrderEventListener {
+
+    private final Map<String, CustomerOrderView> viewsById = new ConcurrentHashMap<>();
+
+    public Optional<CustomerOrderView> getView(String orderId) {
+        return orderId == null ? Optional.empty() : Optional.ofNullable(viewsById.get(orderId));
+    }
+
+    @Override
+    public void apply(OrderEvent event) {
+        if (event instanceof OrderCreated created) {
+            viewsById.put(created.orderId(),
+                    new CustomerOrderView(OrderDetailsViews.of(created, created.status()), created.estimatedPrepMillis(), null));
+        } else if (event instanceof OrderReleased) {
+            viewsById.computeIfPresent(event.orderId(), (id, view) -> view.withStatus(OrderStatus.WAITING));
+        } else if (event instanceof OrderStarted started) {
+            viewsById.computeIfPresent(event.orderId(), (id, view) -> view.started(started.startTs()));
+        } else if (event instanceof OrderCompleted) {
+            viewsById.computeIfPresent(event.orderId(), (id, view) -> view.withStatus(OrderStatus.COMPLETED));
+        } else if (event instanceof OrderCancelled) {
+            viewsById.computeIfPresent(event.orderId(), (id, view) -> view.withStatus(OrderStatus.CANCELLED));
+        } else if (event instanceof OrderEvicted) {
+            viewsById.remove(event.orderId());
+        }
+    }
+
+    @Override
+    public void reset() {
+        viewsById.clear();
+    }
+}
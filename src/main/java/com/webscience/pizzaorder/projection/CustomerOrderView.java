@@ -0,0 +1,24 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * What a customer can ask about an order: its details, already built, and what the estimate of its readiness needs.
+ */
+public record CustomerOrderView(OrderDetailsResponseDTO details, long estimatedPrepMillis, OffsetDateTime startTs) {
+
+    public OrderStatus status() {
+        return details.getStatus();
+    }
+
+    CustomerOrderView withStatus(OrderStatus status) {
+        return new CustomerOrderView(OrderDetailsViews.withStatus(details, status), estimatedPrepMillis, startTs);
+    }
+
+    CustomerOrderView started(OffsetDateTime startTs) {
+        return new CustomerOrderView(OrderDetailsViews.withStatus(details, OrderStatus.IN_PROGRESS), estimatedPrepMillis, startTs);
+    }
+}
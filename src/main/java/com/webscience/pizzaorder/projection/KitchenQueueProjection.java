@@ -0,0 +1,79 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEventListener;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * NOTES:
+ * Read projection of the kitchen waiting list: the details of the WAITING orders, already built,
+ * sorted as the kitchen queue (rank of the scheduling policy, then insertion sequence).
+ * Reading the list is a copy of the sorted values, no order is mapped on the way.
+ * SCHEDULED pre-orders are kept aside, with their details, until they are released.
+ */
+@Component
+public class KitchenQueueProjection implements OrderEventListener {
+
+    private final ConcurrentSkipListMap<QueueKey, OrderDetailsResponseDTO> waitingOrders = new ConcurrentSkipListMap<>();
+    private final Map<String, QueueEntry> entriesById = new ConcurrentHashMap<>();
+
+    public List<OrderDetailsResponseDTO> getWaitingOrders() {
+        return new ArrayList<>(waitingOrders.values());
+    }
+
+    @Override
+    public void apply(OrderEvent event) {
+        if (event instanceof OrderCreated created) {
+            if (created.status() == OrderStatus.WAITING || created.status() == OrderStatus.SCHEDULED) {
+                QueueEntry entry = new QueueEntry(new QueueKey(created.queueRank(), created.sequence()),
+                        OrderDetailsViews.of(created, OrderStatus.WAITING));
+                entriesById.put(created.orderId(), entry);
+                if (created.status() == OrderStatus.WAITING) {
+                    waitingOrders.put(entry.key(), entry.details());
+                }
+            }
+        } else if (event instanceof OrderReleased) {
+            QueueEntry entry = entriesById.get(event.orderId());
+            if (entry != null) {
+                waitingOrders.put(entry.key(), entry.details());
+            }
+        } else if (event instanceof OrderStarted || event instanceof OrderCompleted || event instanceof OrderCancelled) {
+            // any change of a WAITING order takes it out of the queue
+            QueueEntry entry = entriesById.remove(event.orderId());
+            if (entry != null) {
+                waitingOrders.remove(entry.key());
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        waitingOrders.clear();
+        entriesById.clear();
+    }
+
+    private record QueueEntry(QueueKey key, OrderDetailsResponseDTO details) {
+    }
+
+    private record QueueKey(long rank, long sequence) implements Comparable<QueueKey> {
+
+        @Override
+        public int compareTo(QueueKey other) {
+            int result = Long.compare(rank, other.rank);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the details of an order out of its creation event, once: the projections only change the status afterwards.
+ */
+final class OrderDetailsViews {
+
+    private OrderDetailsViews() {
+    }
+
+    static OrderDetailsResponseDTO of(OrderCreated created, OrderStatus status) {
+        List<OrderEntryDTO> entries = created.entries().stream()
+                .map(entry -> OrderEntryDTO.builder()
+                        .type(entry.entryType().id())
+                        .quantity(entry.quantity())
+                        .additionalIngredients(entry.additionalIngredients())
+                        .build())
+                .collect(Collectors.toList());
+
+        return OrderDetailsResponseDTO.builder()
+                .id(created.orderId())
+                .username(created.userName())
+                .entries(entries)
+                .status(status)
+                .express(created.express())
+                .requestedTime(created.requestedTs())
+                .insertTs(created.insertTs())
+                .build();
+    }
+
+    static OrderDetailsResponseDTO withStatus(OrderDetailsResponseDTO details, OrderStatus status) {
+        return details.toBuilder()
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEventListener;
+import com.webscience.pizzaorder.event.OrderEvicted;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * NOTES:
+ * Read projection of the order history of each user: the ids of the orders, newest first,
+ * so a page is a walk of just its slice. Archived orders stay in the history, dropped ones leave it.
+ */
+@Component
+public class UserHistoryProjection implements OrderEventListener {
+
+    private final Map<String, NavigableMap<Long, String>> orderIdsByUser = new ConcurrentHashMap<>();
+
+    public List<String> getOrderIds(String userName, int page, int size) {
+        NavigableMap<Long, String> orderIds = userName == null ? null : orderIdsByUser.get(userName);
+        if (orderIds == null) {
+            return List.of();
+        }
+        return orderIds.values().stream()
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void apply(OrderEvent event) {
+        if (event instanceof OrderCreated created && created.userName() != null) {
+            orderIdsByUser.computeIfAbsent(created.userName(), user -> new ConcurrentSkipListMap<>(Comparator.reverseOrder()))
+                    .put(created.sequence(), created.orderId());
+        } else if (event instanceof OrderEvicted evicted && !evicted.archived() && evicted.userName() != null) {
+            NavigableMap<Long, String> orderIds = orderIdsByUser.get(evicted.userName());
+            if (orderIds != null) {
+                orderIds.remove(evicted.sequence());
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        orderIdsByUser.clear();
+    }
+}
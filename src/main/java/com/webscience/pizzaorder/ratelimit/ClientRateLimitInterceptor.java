@@ -0,0 +1,38 @@
+package com.webscience.pizzaorder.ratelimit;
+
+import com.webscience.pizzaorder.configuration.RateLimitProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * NOTES:
+ * Rate limits the requests per client address, before they reach the controllers.
+ * The address is the remote one, or the last value of the configured header written by a trusted proxy:
+ * the values before it are written by the client, so they cannot be trusted.
+ * The per username limit needs the request body, so it is applied by the controller itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClientRateLimitInterceptor implements HandlerInterceptor {
+
+    private final CustomerRateLimiter customerRateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        customerRateLimiter.checkClient(clientAddressOf(request));
+        return true;
+    }
+
+    private String clientAddressOf(HttpServletRequest request) {
+        String header = rateLimitProperties.getClientAddressHeader();
+        String forwarded = header == null ? null : request.getHeader(header);
+        if (forwarded == null || forwarded.isBlank()) {
+            return request.getRemoteAddr();
+        }
+        return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+    }
+}
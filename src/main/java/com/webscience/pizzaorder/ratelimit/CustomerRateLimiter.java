@@ -0,0 +1,40 @@
+package com.webscience.pizzaorder.ratelimit;
+
+import com.webscience.pizzaorder.configuration.RateLimitProperties;
+import com.webscience.pizzaorder.exception.TooManyRequestsException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class CustomerRateLimiter {
+
+    private final boolean enabled;
+    private final RateLimiter clientRateLimiter;
+    private final RateLimiter usernameRateLimiter;
+
+    public CustomerRateLimiter(RateLimitProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.clientRateLimiter = new RateLimiter(properties.getRequestsPerSecond(), properties.getBurst(), properties.getMaxKeys());
+        this.usernameRateLimiter = new RateLimiter(properties.getRequestsPerSecond(), properties.getBurst(), properties.getMaxKeys());
+    }
+
+    public void checkClient(String clientAddress) {
+        check(clientRateLimiter, clientAddress);
+    }
+
+    public void checkUsername(String username) {
+        check(usernameRateLimiter, username);
+    }
+
+    private void check(RateLimiter rateLimiter, String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            throw new TooManyRequestsException(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+}
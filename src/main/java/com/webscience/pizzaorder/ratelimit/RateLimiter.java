@@ -0,0 +1,105 @@
+package com.webscience.pizzaorder.ratelimit;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * NOTES:
+ * Token buckets by key, kept in a bounded map.
+ * A new key first reserves a slot on an atomic counter, so concurrent new keys can never push the map
+ * past {@code maxKeys}. When the map is full, one bucket is evicted with a clock sweep over the buckets
+ * in insertion order: idle buckets (already refilled) go first, recently used ones get a second chance,
+ * and after a few of them the oldest bucket is evicted anyway. Every new key costs O(1), so a flood
+ * of new keys neither burns the request threads nor locks out the new clients, and it only evicts
+ * the buckets of the clients quiet for a whole turn of the clock: the limiting stays on for the others.
+ */
+public class RateLimiter {
+
+    private static final int MAX_SECOND_CHANCES = 8;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoTime;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Queue<TokenBucket> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public RateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        this(permitsPerSecond, burst, maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(double permitsPerSecond, int burst, int maxKeys, LongSupplier nanoTime) {
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1);
+        this.maxKeys = maxKeys;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return 0 if the request is allowed, otherwise the nanos to wait before retrying
+     */
+    public long tryAcquire(String key) {
+        long now = nanoTime.getAsLong();
+
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(key, now);
+            if (bucket == null) {
+                return emissionIntervalNanos;
+            }
+        }
+        return bucket.tryAcquire(now, emissionIntervalNanos, burstToleranceNanos);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the bucket of the key, or null if no slot could be freed (i.e. {@code maxKeys} is 0)
+     */
+    private TokenBucket newBucket(String key, long now) {
+        while (true) {
+            int current = size.get();
+            if (current >= maxKeys) {
+                if (!evictOne(now)) {
+                    return null;
+                }
+            } else if (size.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+
+        TokenBucket bucket = new TokenBucket(key, now);
+        TokenBucket existing = buckets.putIfAbsent(key, bucket);
+        if (existing != null) {
+            size.decrementAndGet();
+            return existing;
+        }
+        clock.add(bucket);
+        return bucket;
+    }
+
+    private boolean evictOne(long now) {
+        for (int chances = 0; ; chances++) {
+            TokenBucket oldest = clock.poll();
+            if (oldest == null) {
+                return false;
+            }
+            if (chances < MAX_SECOND_CHANCES && !oldest.isIdle(now) && oldest.clearReferenced()) {
+                clock.add(oldest);
+                continue;
+            }
+            buckets.remove(oldest.getKey(), oldest);
+            size.decrementAndGet();
+            return true;
+        }
+    }
+}
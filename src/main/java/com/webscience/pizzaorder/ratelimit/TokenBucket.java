@@ -0,0 +1,69 @@
+package com.webscience.pizzaorder.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NOTES:
+ * Lock-free token bucket, implemented with the generic cell rate algorithm (GCRA):
+ * instead of a token count refilled over time, the bucket only stores the theoretical arrival time
+ * of the next request, so acquiring a token is a single compare-and-set on one long.
+ * The referenced flag is the second chance bit of the clock eviction (see RateLimiter).
+ */
+class TokenBucket {
+
+    private final String key;
+    private final AtomicLong theoreticalArrivalNanos;
+    private volatile boolean referenced;
+
+    TokenBucket(String key, long nowNanos) {
+        this.key = key;
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Tries to take a token.
+     *
+     * @param emissionIntervalNanos time needed to refill one token
+     * @param burstToleranceNanos   how far the bucket can go ahead of the steady rate, i.e. (burst - 1) * interval
+     * @return 0 if the token was taken, otherwise the nanos to wait before the next token is available
+     */
+    long tryAcquire(long nowNanos, long emissionIntervalNanos, long burstToleranceNanos) {
+        if (!referenced) {
+            referenced = true;
+        }
+        while (true) {
+            long theoreticalArrival = theoreticalArrivalNanos.get();
+            long earliest = Math.max(theoreticalArrival, nowNanos);
+            long ahead = earliest - nowNanos;
+
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(theoreticalArrival, earliest + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * A bucket is idle when it is full again: forgetting it is the same as keeping it.
+     */
+    boolean isIdle(long nowNanos) {
+        return theoreticalArrivalNanos.get() - nowNanos <= 0;
+    }
+
+    /**
+     * @return whether the bucket has been used since the previous call
+     */
+    boolean clearReferenced() {
+        if (!referenced) {
+            return false;
+        }
+        referenced = false;
+        return true;
+    }
+}
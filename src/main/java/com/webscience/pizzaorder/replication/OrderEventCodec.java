@@ -0,0 +1,208 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEvicted;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.event.OvenBatchCompleted;
+import com.webscience.pizzaorder.event.OvenBatchStarted;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * NOTES:
+ * Binary encoding of the {@link OrderEvent}s shipped to the standbys: a type tag, then the fields in order.
+ * Timestamps are written as epoch seconds, nanos and offset, entry types by id only
+ * (they are resolved again against the menu of the standby).
+ */
+final class OrderEventCodec {
+
+    private static final int CREATED = 1;
+    private static final int RELEASED = 2;
+    private static final int STARTED = 3;
+    private static final int COMPLETED = 4;
+    private static final int CANCELLED = 5;
+    private static final int EVICTED = 6;
+    private static final int BATCH_STARTED = 7;
+    private static final int BATCH_COMPLETED = 8;
+
+    private OrderEventCodec() {
+    }
+
+    static void write(DataOutputStream out, OrderEvent event) throws IOException {
+        if (event instanceof OrderCreated created) {
+            out.writeByte(CREATED);
+            out.writeUTF(created.orderId());
+            out.writeLong(created.sequence());
+            writeNullableString(out, created.userName());
+            out.writeInt(created.entries().size());
+            for (OrderEntry entry : created.entries()) {
+                out.writeUTF(entry.entryType().id());
+                out.writeInt(entry.quantity());
+                List<String> ingredients = entry.additionalIngredients();
+                out.writeInt(ingredients == null ? -1 : ingredients.size());
+                if (ingredients != null) {
+                    for (String ingredient : ingredients) {
+                        out.writeUTF(ingredient);
+                    }
+                }
+            }
+            out.writeByte(created.status().ordinal());
+            out.writeBoolean(created.express());
+            writeTimestamp(out, created.deadline());
+            writeTimestamp(out, created.requestedTs());
+            writeTimestamp(out, created.insertTs());
+            writeTimestamp(out, created.completionTs());
+            out.writeLong(created.estimatedPrepMillis());
+            out.writeLong(created.queueRank());
+        } else if (event instanceof OrderReleased released) {
+            out.writeByte(RELEASED);
+            out.writeUTF(released.orderId());
+        } else if (event instanceof OrderStarted started) {
+            out.writeByte(STARTED);
+            out.writeUTF(started.orderId());
+            writeTimestamp(out, started.startTs());
+            writeNullableString(out, started.batchId());
+        } else if (event instanceof OrderCompleted completed) {
+            out.writeByte(COMPLETED);
+            out.writeUTF(completed.orderId());
+            writeTimestamp(out, completed.completionTs());
+        } else if (event instanceof OrderCancelled cancelled) {
+            out.writeByte(CANCELLED);
+            out.writeUTF(cancelled.orderId());
+            writeTimestamp(out, cancelled.cancellationTs());
+        } else if (event instanceof OrderEvicted evicted) {
+            out.writeByte(EVICTED);
+            out.writeUTF(evicted.orderId());
+            writeNullableString(out, evicted.userName());
+            out.writeLong(evicted.sequence());
+            out.writeBoolean(evicted.archived());
+        } else if (event instanceof OvenBatchStarted batchStarted) {
+            OvenBatch batch = batchStarted.batch();
+            out.writeByte(BATCH_STARTED);
+            out.writeUTF(batchStarted.orderId());
+            out.writeUTF(batch.id());
+            out.writeUTF(batch.entryType());
+            out.writeInt(batch.quantity());
+            out.writeInt(batch.orderIds().size());
+            for (String orderId : batch.orderIds()) {
+                out.writeUTF(orderId);
+            }
+        } else if (event instanceof OvenBatchCompleted batchCompleted) {
+            out.writeByte(BATCH_COMPLETED);
+            out.writeUTF(batchCompleted.orderId());
+            out.writeUTF(batchCompleted.batchId());
+        }
+    }
+
+    static OrderEvent read(DataInputStream in, Function<String, EntryType> entryTypeResolver) throws IOException {
+        int type = in.readByte();
+        return switch (type) {
+            case CREATED -> readCreated(in, entryTypeResolver);
+            case RELEASED -> new OrderReleased(in.readUTF());
+            case STARTED -> new OrderStarted(in.readUTF(), readTimestamp(in), readNullableString(in));
+            case COMPLETED -> new OrderCompleted(in.readUTF(), readTimestamp(in));
+            case CANCELLED -> new OrderCancelled(in.readUTF(), readTimestamp(in));
+            case EVICTED -> new OrderEvicted(in.readUTF(), readNullableString(in), in.readLong(), in.readBoolean());
+            case BATCH_STARTED -> readBatchStarted(in);
+            case BATCH_COMPLETED -> new OvenBatchCompleted(in.readUTF(), in.readUTF());
+            default -> throw new IOException("Unknown event type " + type);
+        };
+    }
+
+    private static OrderCreated readCreated(DataInputStream in, Function<String, EntryType> entryTypeResolver) throws IOException {
+        String orderId = in.readUTF();
+        long sequence = in.readLong();
+        String userName = readNullableString(in);
+
+        int entriesCount = in.readInt();
+        List<OrderEntry> entries = new ArrayList<>(entriesCount);
+        for (int i = 0; i < entriesCount; i++) {
+            EntryType entryType = entryTypeResolver.apply(in.readUTF());
+            int quantity = in.readInt();
+            int ingredientsCount = in.readInt();
+            List<String> ingredients = null;
+            if (ingredientsCount >= 0) {
+                ingredients = new ArrayList<>(ingredientsCount);
+                for (int j = 0; j < ingredientsCount; j++) {
+                    ingredients.add(in.readUTF());
+                }
+            }
+            entries.add(OrderEntry.builder()
+                    .entryType(entryType)
+                    .quantity(quantity)
+                    .additionalIngredients(ingredients)
+                    .normalizedIngredients(ingredients == null ? null : ingredients.stream().map(IngredientDictionary::normalize).toList())
+                    .build());
+        }
+
+        OrderStatus status = OrderStatus.values()[in.readByte()];
+        boolean express = in.readBoolean();
+        OffsetDateTime deadline = readTimestamp(in);
+        OffsetDateTime requestedTs = readTimestamp(in);
+        OffsetDateTime insertTs = readTimestamp(in);
+        OffsetDateTime completionTs = readTimestamp(in);
+        long estimatedPrepMillis = in.readLong();
+        long queueRank = in.readLong();
+        return new OrderCreated(orderId, sequence, userName, entries, status, express, deadline, requestedTs, insertTs,
+                completionTs, estimatedPrepMillis, queueRank);
+    }
+
+    private static OvenBatchStarted readBatchStarted(DataInputStream in) throws IOException {
+        String orderId = in.readUTF();
+        String batchId = in.readUTF();
+        String entryType = in.readUTF();
+        int quantity = in.readInt();
+        int ordersCount = in.readInt();
+        List<String> orderIds = new ArrayList<>(ordersCount);
+        for (int i = 0; i < ordersCount; i++) {
+            orderIds.add(in.readUTF());
+        }
+        return new OvenBatchStarted(orderId, new OvenBatch(batchId, entryType, quantity, orderIds));
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, OffsetDateTime ts) throws IOException {
+        out.writeBoolean(ts != null);
+        if (ts != null) {
+            Instant instant = ts.toInstant();
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+            out.writeInt(ts.getOffset().getTotalSeconds());
+        }
+    }
+
+    private static OffsetDateTime readTimestamp(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.ofTotalSeconds(in.readInt()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.exception.ReadOnlyStandbyException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * NOTES:
+ * Refuses the changes sent to a standby, before they reach the controllers: only reads are served.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadOnlyStandbyInterceptor implements HandlerInterceptor {
+
+    private final ReplicationService replicationService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (replicationService.isReadOnly() && !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            throw new ReadOnlyStandbyException();
+        }
+        return true;
+    }
+}
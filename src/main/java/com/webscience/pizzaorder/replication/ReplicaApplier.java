@@ -0,0 +1,112 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.event.OvenBatchCompleted;
+import com.webscience.pizzaorder.event.OvenBatchStarted;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.repo.OrderRepo;
+
+import java.util.List;
+
+/**
+ * NOTES:
+ * Replays the events of the primary on the {@link OrderRepo} of a standby, through the same status changes,
+ * so the standby appends the same events to its own stream and its projections follow.
+ * Applying is idempotent: an order already stored is not stored again and each status change is applied
+ * only from the status it comes from, so a stream shipped again from an older offset does no harm.
+ * The orders of an oven batch are started together, and the batch is recorded once all of them are IN_PROGRESS,
+ * so that a promoted standby can complete it.
+ * Evictions are not replayed, the standby evicts its closed orders with its own retention.
+ */
+class ReplicaApplier {
+
+    private final OrderRepo orderRepo;
+
+    ReplicaApplier(OrderRepo orderRepo) {
+        this.orderRepo = orderRepo;
+    }
+
+    void apply(OrderEvent event) {
+        if (event instanceof OrderCreated created) {
+            if (orderRepo.getOrderById(created.orderId()).isEmpty()) {
+                orderRepo.addOrder(buildOrder(created));
+            }
+            return;
+        }
+
+        if (event instanceof OvenBatchStarted batchStarted) {
+            applyBatchStarted(batchStarted.batch());
+            return;
+        }
+        if (event instanceof OvenBatchCompleted batchCompleted) {
+            OvenBatch batch = orderRepo.getBatchInProgress();
+            if (batch != null && batch.id().equals(batchCompleted.batchId())) {
+                // its orders have been completed by their own events
+                orderRepo.setBatchCompleted(List.of());
+            }
+            return;
+        }
+
+        Order order = orderRepo.getOrderById(event.orderId()).orElse(null);
+        if (order == null) {
+            return;
+        }
+        if (event instanceof OrderReleased) {
+            orderRepo.setOrderWaiting(order);
+        } else if (event instanceof OrderStarted started && order.getOrderStatus() == OrderStatus.WAITING) {
+            order.setStartTs(started.startTs());
+            if (started.batchId() == null) {
+                orderRepo.setOrderInProgress(order);
+            } else {
+                orderRepo.setOrdersInProgress(List.of(order), started.batchId());
+            }
+        } else if (event instanceof OrderCompleted completed && !isClosed(order.getOrderStatus())) {
+            order.setCompletionTs(completed.completionTs());
+            orderRepo.setOrderCompleted(order);
+        } else if (event instanceof OrderCancelled cancelled) {
+            orderRepo.setOrderCancelled(order, cancelled.cancellationTs());
+        }
+    }
+
+    /**
+     * A batch shipped again after its completion finds its orders closed, and is not started again.
+     */
+    private void applyBatchStarted(OvenBatch batch) {
+        OvenBatch current = orderRepo.getBatchInProgress();
+        if (current != null && current.id().equals(batch.id())) {
+            return;
+        }
+        boolean inProgress = batch.orderIds().stream()
+                .map(orderRepo::getOrderById)
+                .allMatch(order -> order.isPresent() && order.get().getOrderStatus() == OrderStatus.IN_PROGRESS);
+        if (inProgress) {
+            orderRepo.setBatchInProgress(batch);
+        }
+    }
+
+    private static boolean isClosed(OrderStatus status) {
+        return status == OrderStatus.COMPLETED || status == OrderStatus.CANCELLED || status == OrderStatus.REJECTED;
+    }
+
+    private static Order buildOrder(OrderCreated created) {
+        return Order.builder()
+                .id(created.orderId())
+                .userName(created.userName())
+                .orderEntries(created.entries())
+                .orderStatus(created.status())
+                .express(created.express())
+                .deadline(created.deadline())
+                .requestedTs(created.requestedTs())
+                .insertTs(created.insertTs())
+                .completionTs(created.completionTs())
+                .estimatedPrepMillis(created.estimatedPrepMillis())
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.model.EntryType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * NOTES:
+ * Standby side of the replication: follows the event stream of the primary, handing each batch of events
+ * to the applier, and reconnects from the last applied offset whenever the connection is lost.
+ * The offset is sent along with the id of the stream it belongs to, see {@link ReplicationHandshake}:
+ * the primary refuses it when its own stream is another one, and the standby keeps being refused
+ * until it is restarted empty.
+ * The lag is the number of events the primary had appended beyond the applied ones at the last contact,
+ * and the time since the standby was last caught up with the primary (0 while it is).
+ */
+@Slf4j
+class ReplicationClient {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private final ReplicationProperties replicationProperties;
+    private final Consumer<List<OrderEvent>> applier;
+    private final Function<String, EntryType> entryTypeResolver;
+    private final Clock clock;
+    private final ReplicationHandshake handshake;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile String streamId = "";
+    private volatile long appliedOffset;
+    private volatile long primaryOffset;
+    private volatile long caughtUpMillis;
+    private volatile Socket socket;
+    private Thread receiver;
+
+    ReplicationClient(ReplicationProperties replicationProperties, Consumer<List<OrderEvent>> applier,
+                      Function<String, EntryType> entryTypeResolver, Clock clock) {
+        this.replicationProperties = replicationProperties;
+        this.applier = applier;
+        this.entryTypeResolver = entryTypeResolver;
+        this.clock = clock;
+        this.handshake = new ReplicationHandshake(replicationProperties.getSharedSecret());
+    }
+
+    void start() {
+        caughtUpMillis = clock.millis();
+        running = true;
+        receiver = new Thread(this::follow, "replication-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    void stop() throws InterruptedException {
+        if (receiver == null) {
+            return;
+        }
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        receiver.interrupt();
+        receiver.join();
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    String getStreamId() {
+        return streamId;
+    }
+
+    long getAppliedOffset() {
+        return appliedOffset;
+    }
+
+    long getPrimaryOffset() {
+        return primaryOffset;
+    }
+
+    long getLagEvents() {
+        return Math.max(0, primaryOffset - appliedOffset);
+    }
+
+    long getLagMillis() {
+        return getLagEvents() == 0 && connected ? 0 : Math.max(0, clock.millis() - caughtUpMillis);
+    }
+
+    private void follow() {
+        while (running) {
+            try (Socket current = new Socket()) {
+                socket = current;
+                current.connect(new InetSocketAddress(replicationProperties.getPrimaryHost(), replicationProperties.getPrimaryPort()),
+                        CONNECT_TIMEOUT_MILLIS);
+                current.setTcpNoDelay(true);
+                receive(current);
+            } catch (IOException e) {
+                if (running) {
+                    log.info("Replication from {}:{} interrupted: {}", replicationProperties.getPrimaryHost(),
+                            replicationProperties.getPrimaryPort(), e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.error("Cannot apply the replicated events from offset {}", appliedOffset, e);
+            } finally {
+                connected = false;
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(replicationProperties.getReconnectDelay().toMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void open(DataInputStream in, DataOutputStream out) throws IOException {
+        int version = in.readInt();
+        if (version != ReplicationHandshake.VERSION) {
+            throw new IOException("Unknown replication version " + version);
+        }
+        String primaryStreamId = in.readUTF();
+        byte[] serverNonce = ReplicationHandshake.readBytes(in, ReplicationHandshake.NONCE_LENGTH);
+        byte[] clientNonce = ReplicationHandshake.nonce();
+        out.write(handshake.mac(serverNonce, clientNonce));
+        out.write(clientNonce);
+        out.writeUTF(streamId);
+        out.writeLong(appliedOffset);
+        out.flush();
+
+        int frame = in.readByte();
+        if (frame == ReplicationServer.REFUSED) {
+            String reason = in.readUTF();
+            log.error("Replication refused by the primary: {}", reason);
+            throw new IOException("Refused: " + reason);
+        }
+        if (frame != ReplicationServer.ACCEPTED
+                || !handshake.verify(ReplicationHandshake.readBytes(in, ReplicationHandshake.MAC_LENGTH), clientNonce, serverNonce)) {
+            throw new IOException("The primary failed the authentication, check the shared secret");
+        }
+        streamId = primaryStreamId;
+    }
+
+    private void receive(Socket current) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream()));
+        open(in, out);
+        connected = true;
+
+        while (running) {
+            int frame = in.readByte();
+            long headOffset = in.readLong();
+            if (frame == ReplicationServer.EVENTS) {
+                long nextOffset = in.readLong();
+                int count = in.readInt();
+                List<OrderEvent> events = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    events.add(OrderEventCodec.read(in, entryTypeResolver));
+                }
+                applier.accept(events);
+                appliedOffset = nextOffset;
+                // lets the primary compact its stream up to here
+                out.writeLong(appliedOffset);
+                out.flush();
+            } else if (frame != ReplicationServer.HEARTBEAT) {
+                throw new IOException("Unknown frame " + frame);
+            }
+            primaryOffset = Math.max(headOffset, appliedOffset);
+            if (appliedOffset >= primaryOffset) {
+                caughtUpMillis = clock.millis();
+            }
+        }
+    }
+}
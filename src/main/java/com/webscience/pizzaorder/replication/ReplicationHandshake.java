@@ -0,0 +1,65 @@
+package com.webscience.pizzaorder.replication;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * NOTES:
+ * Opening of a replication connection, authenticated by the shared secret without sending it:
+ * the primary sends the id of its stream and a nonce, the standby answers with the HMAC of both nonces,
+ * its own nonce, the stream it follows and its offset, then the primary refuses the connection with
+ * the reason or accepts it with the HMAC of the nonces in the other order, so each side knows the other one
+ * has the secret. The stream id tells the offsets of the different streams apart: after a promotion
+ * the new primary has a stream of its own.
+ */
+final class ReplicationHandshake {
+
+    static final int VERSION = 1;
+    static final int NONCE_LENGTH = 16;
+    static final int MAC_LENGTH = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    ReplicationHandshake(String sharedSecret) {
+        if (sharedSecret == null || sharedSecret.isBlank()) {
+            throw new IllegalStateException("pizzaorder.replication.shared-secret must be set to replicate");
+        }
+        this.key = new SecretKeySpec(sharedSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    static byte[] nonce() {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        return nonce;
+    }
+
+    static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    byte[] mac(byte[] first, byte[] second) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(first);
+            return mac.doFinal(second);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot compute the " + ALGORITHM + " of the handshake", e);
+        }
+    }
+
+    boolean verify(byte[] mac, byte[] first, byte[] second) {
+        return MessageDigest.isEqual(mac, mac(first, second));
+    }
+}
@@ -0,0 +1,223 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEventBatch;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NOTES:
+ * Primary side of the replication: ships the {@link OrderEventStore} to the standbys over TCP.
+ * A standby opens the connection with the {@link ReplicationHandshake}, sending the stream it follows
+ * and the offset it has applied up to: a standby without the shared secret, or with an offset of another
+ * stream (e.g. of the primary lost before a promotion) is refused. Each connection gets a sender thread from a pool
+ * bounded by {@code maxStandbys}, from before its handshake on: the connections beyond are closed without reading them,
+ * so no thread is started for them. Once accepted, the sender streams the events from there on in batches, each with the head offset of the primary and the offset
+ * to go on from (the compacted offsets are skipped), and waits for the next appends when the standby
+ * has caught up, sending a heartbeat instead every {@code heartbeat} of silence.
+ * Shipping is asynchronous: the appends never wait for the standbys.
+ * The standby acknowledges each applied batch, so the stream is not compacted beyond it, even for
+ * {@code standbyRetention} after it disconnects; an offset compacted meanwhile is refused.
+ */
+@Slf4j
+class ReplicationServer {
+
+    static final int EVENTS = 1;
+    static final int HEARTBEAT = 2;
+    static final int REFUSED = 3;
+    static final int ACCEPTED = 4;
+
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+
+    private final OrderEventStore eventStore;
+    private final ReplicationProperties replicationProperties;
+    private final ReplicationHandshake handshake;
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Socket> standbys = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private ThreadPoolExecutor senders;
+
+    ReplicationServer(OrderEventStore eventStore, ReplicationProperties replicationProperties) {
+        this.eventStore = eventStore;
+        this.replicationProperties = replicationProperties;
+        this.handshake = new ReplicationHandshake(replicationProperties.getSharedSecret());
+    }
+
+    void start() throws IOException {
+        serverSocket = new ServerSocket(replicationProperties.getPort(), 0, InetAddress.getByName(replicationProperties.getBindAddress()));
+        running = true;
+        AtomicInteger senderCount = new AtomicInteger();
+        senders = new ThreadPoolExecutor(0, Math.max(1, replicationProperties.getMaxStandbys()), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread sender = new Thread(runnable, "replication-sender-" + senderCount.incrementAndGet());
+                    sender.setDaemon(true);
+                    return sender;
+                });
+        acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Shipping the order events to the standbys on {}:{}", serverSocket.getInetAddress().getHostAddress(), getPort());
+    }
+
+    void stop() throws InterruptedException {
+        if (serverSocket == null) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverSocket);
+        connections.forEach(ReplicationServer::closeQuietly);
+        acceptor.join();
+        senders.shutdownNow();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getStandbyCount() {
+        return standbys.size();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                try {
+                    senders.execute(() -> ship(socket));
+                } catch (RejectedExecutionException e) {
+                    log.warn("Standby {} refused: already {} connections", socket.getRemoteSocketAddress(), senders.getMaximumPoolSize());
+                    connections.remove(socket);
+                    closeQuietly(socket);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Cannot accept a standby", e);
+                }
+            }
+        }
+    }
+
+    private void ship(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            String streamId = eventStore.getStreamId();
+            byte[] serverNonce = ReplicationHandshake.nonce();
+            out.writeInt(ReplicationHandshake.VERSION);
+            out.writeUTF(streamId);
+            out.write(serverNonce);
+            out.flush();
+
+            byte[] mac = ReplicationHandshake.readBytes(in, ReplicationHandshake.MAC_LENGTH);
+            byte[] clientNonce = ReplicationHandshake.readBytes(in, ReplicationHandshake.NONCE_LENGTH);
+            String standbyStreamId = in.readUTF();
+            long offset = in.readLong();
+            String refusal = refusalOf(mac, serverNonce, clientNonce, standbyStreamId, streamId, offset);
+            if (refusal != null) {
+                log.warn("Standby {} refused: {}", socket.getRemoteSocketAddress(), refusal);
+                out.writeByte(REFUSED);
+                out.writeUTF(refusal);
+                out.flush();
+                return;
+            }
+            out.writeByte(ACCEPTED);
+            out.write(handshake.mac(clientNonce, serverNonce));
+            out.flush();
+            socket.setSoTimeout(0);
+
+            standbys.add(socket);
+            log.info("Standby {} connected from offset {}", socket.getRemoteSocketAddress(), offset);
+            ship(in, out, offset);
+        } catch (IOException e) {
+            if (running) {
+                log.info("Standby {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            standbys.remove(socket);
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private String refusalOf(byte[] mac, byte[] serverNonce, byte[] clientNonce, String standbyStreamId, String streamId, long offset) {
+        if (!handshake.verify(mac, serverNonce, clientNonce)) {
+            return "authentication failed, check the shared secret";
+        }
+        // offset 0 is an empty standby, whatever it followed before
+        if (offset != 0 && !streamId.equals(standbyStreamId)) {
+            return "offset " + offset + " is of another stream, the standby has to be restarted empty";
+        }
+        if (!eventStore.isResumableFrom(offset)) {
+            return "offset " + offset + " has been compacted, the standby has to be restarted empty";
+        }
+        return null;
+    }
+
+    private void ship(DataInputStream in, DataOutputStream out, long offset) throws IOException, InterruptedException {
+        long heartbeatMillis = replicationProperties.getHeartbeat().toMillis();
+        OrderEventStore.Cursor cursor = eventStore.openCursor(offset);
+        try {
+            while (running) {
+                while (in.available() >= Long.BYTES) {
+                    cursor.acknowledge(in.readLong());
+                }
+
+                OrderEventBatch batch = eventStore.read(offset, replicationProperties.getBatchSize());
+                if (batch.nextOffset() == offset) {
+                    if (!eventStore.awaitEvents(offset, heartbeatMillis)) {
+                        out.writeByte(HEARTBEAT);
+                        out.writeLong(eventStore.getHeadOffset());
+                        out.flush();
+                    }
+                    continue;
+                }
+
+                out.writeByte(EVENTS);
+                out.writeLong(eventStore.getHeadOffset());
+                out.writeLong(batch.nextOffset());
+                out.writeInt(batch.events().size());
+                for (OrderEvent event : batch.events()) {
+                    OrderEventCodec.write(out, event);
+                }
+                out.flush();
+                offset = batch.nextOffset();
+            }
+        } finally {
+            // kept for a while, the standby can reconnect from where it was
+            cursor.closeAfter(replicationProperties.getStandbyRetention());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import com.webscience.pizzaorder.dto.ReplicationStatusDTO;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import com.webscience.pizzaorder.exception.NotAStandbyException;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.service.PreOrderScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * NOTES:
+ * Asynchronous log shipping replication: the primary streams its {@link OrderEventStore} over TCP to the standbys,
+ * which replay it on their own repo (see {@link ReplicaApplier}) and serve the customer status and details reads.
+ * Writes to a standby are refused (see {@link ReadOnlyStandbyInterceptor}).
+ * A standby can be promoted when the primary is lost: it stops following, puts its pre-orders back on the
+ * scheduler and starts shipping its own stream. The other standbys cannot resume from their offsets, which
+ * belong to the stream of the lost primary: each stream has its own id, sent in the handshake, and a standby
+ * coming from another stream is refused. They have to be restarted empty and pointed to the new primary,
+ * which ships them its whole stream.
+ * The inventory is not replicated: a promoted standby counts the stock from its own configuration.
+ */
+@Slf4j
+@Service
+public class ReplicationService {
+
+    private final OrderEventStore eventStore;
+    private final OrderRepo orderRepo;
+    private final OrderEngine orderEngine;
+    private final EntryTypeRepo entryTypeRepo;
+    private final PreOrderScheduler preOrderScheduler;
+    private final ReplicationProperties replicationProperties;
+    private final Clock clock;
+
+    private volatile ReplicationProperties.Role role;
+    private ReplicationServer server;
+    private ReplicationClient client;
+
+    public ReplicationService(OrderEventStore eventStore, OrderRepo orderRepo, OrderEngine orderEngine, EntryTypeRepo entryTypeRepo,
+                              PreOrderScheduler preOrderScheduler, ReplicationProperties replicationProperties, Clock clock) {
+        this.eventStore = eventStore;
+        this.orderRepo = orderRepo;
+        this.orderEngine = orderEngine;
+        this.entryTypeRepo = entryTypeRepo;
+        this.preOrderScheduler = preOrderScheduler;
+        this.replicationProperties = replicationProperties;
+        this.clock = clock;
+        this.role = replicationProperties.getRole();
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (role == ReplicationProperties.Role.PRIMARY) {
+            startServer();
+        } else if (role == ReplicationProperties.Role.STANDBY) {
+            ReplicaApplier applier = new ReplicaApplier(orderRepo);
+            client = new ReplicationClient(replicationProperties, events -> orderEngine.run(() -> events.forEach(applier::apply)),
+                    this::resolveEntryType, clock);
+            client.start();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (client != null) {
+            client.stop();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    public boolean isReadOnly() {
+        return role == ReplicationProperties.Role.STANDBY;
+    }
+
+    /**
+     * Turns this standby into the primary.
+     */
+    public synchronized ReplicationStatusDTO promote() throws InterruptedException {
+        if (role != ReplicationProperties.Role.STANDBY) {
+            throw new NotAStandbyException();
+        }
+        client.stop();
+        List<Order> preOrders = orderRepo.getScheduledOrders();
+        preOrders.forEach(preOrderScheduler::schedule);
+        startServer();
+        role = ReplicationProperties.Role.PRIMARY;
+        log.info("Promoted to primary at offset {}, {} pre-orders scheduled again", client.getAppliedOffset(), preOrders.size());
+        client = null;
+        return getStatus();
+    }
+
+    public synchronized ReplicationStatusDTO getStatus() {
+        ReplicationStatusDTO.ReplicationStatusDTOBuilder builder = ReplicationStatusDTO.builder()
+                .role(role)
+                .streamId(eventStore.getStreamId())
+                .headOffset(eventStore.getHeadOffset());
+
+        if (server != null) {
+            builder.port(server.getPort())
+                    .standbys(server.getStandbyCount());
+        }
+        if (client != null) {
+            builder.connected(client.isConnected())
+                    .appliedOffset(client.getAppliedOffset())
+                    .primaryOffset(client.getPrimaryOffset())
+                    .lagEvents(client.getLagEvents())
+                    .lagMillis(client.getLagMillis());
+        }
+        return builder.build();
+    }
+
+    private void startServer() {
+        server = new ReplicationServer(eventStore, replicationProperties);
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for the standbys on "
+                    + replicationProperties.getBindAddress() + ":" + replicationProperties.getPort(), e);
+        }
+    }
+
+    private EntryType resolveEntryType(String typeId) {
+        return entryTypeRepo.findById(typeId)
+                .orElseGet(() -> EntryType.builder().id(typeId).build());
+    }
+}
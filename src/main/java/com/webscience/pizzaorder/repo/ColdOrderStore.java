@@ -0,0 +1,94 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * NOTES:
+ * Cold tier of the completed orders evicted from memory: orders are kept encoded with {@link OrderCodec}
+ * and decoded again only when they are looked up.
+ * The store is bounded by its owner, which drops the oldest orders with {@link #dropOldest()}.
+ */
+class ColdOrderStore {
+
+    private final Function<String, EntryType> entryTypeResolver;
+    private final Map<String, Long> sequenceById = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, byte[]> ordersBySequence = new ConcurrentSkipListMap<>();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    ColdOrderStore(Function<String, EntryType> entryTypeResolver) {
+        this.entryTypeResolver = entryTypeResolver;
+    }
+
+    public void archive(Order order) {
+        archive(order, OrderCodec.encode(order));
+    }
+
+    /**
+     * Archives the order already encoded with {@link OrderCodec}, so that the encoding can be paid elsewhere.
+     */
+    public void archive(Order order, byte[] encoded) {
+        byte[] previous = ordersBySequence.put(order.getSequence(), encoded);
+        sequenceById.put(order.getId(), order.getSequence());
+        storedBytes.addAndGet(encoded.length - (previous == null ? 0 : previous.length));
+    }
+
+    /**
+     * Removes the order archived first, by insertion sequence.
+     *
+     * @return the removed order, empty if the store is empty
+     */
+    public Optional<Order> dropOldest() {
+        Map.Entry<Long, byte[]> oldest = ordersBySequence.pollFirstEntry();
+        if (oldest == null) {
+            return Optional.empty();
+        }
+        Order order = decode(oldest.getValue());
+        sequenceById.remove(order.getId(), oldest.getKey());
+        storedBytes.addAndGet(-oldest.getValue().length);
+        return Optional.of(order);
+    }
+
+    public Optional<Order> getOrderById(String orderId) {
+        Long sequence = sequenceById.get(orderId);
+        if (sequence == null) {
+            return Optional.empty();
+        }
+        return getOrderBySequence(sequence);
+    }
+
+    public Optional<Order> getOrderBySequence(long sequence) {
+        return Optional.ofNullable(ordersBySequence.get(sequence))
+                .map(this::decode);
+    }
+
+    public Order decode(byte[] encoded) {
+        return OrderCodec.decode(encoded, entryTypeResolver);
+    }
+
+    public NavigableMap<Long, byte[]> getAllBySequence() {
+        return ordersBySequence;
+    }
+
+    public int size() {
+        return ordersBySequence.size();
+    }
+
+    public long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    public void clear() {
+        sequenceById.clear();
+        ordersBySequence.clear();
+        storedBytes.set(0);
+    }
+}
@@ -3,6 +3,7 @@ package com.webscience.pizzaorder.repo;
 import com.webscience.pizzaorder.model.EntryType;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,6 +48,29 @@ public class EntryTypeRepo {
                     .build()
     );
 
+    public EntryTypeRepo() {
+    }
+
+    /**
+     * Only the given types of the catalog are available, e.g. the menu of a store: all of them when none is given.
+     */
+    public EntryTypeRepo(Collection<String> typeIds) {
+        for (String typeId : typeIds) {
+            if (findById(typeId).isEmpty()) {
+                throw new IllegalArgumentException("Unknown entry type " + typeId);
+            }
+        }
+        if (!typeIds.isEmpty()) {
+            availableTypes = availableTypes.stream()
+                    .filter(type -> typeIds.contains(type.id()))
+                    .toList();
+        }
+    }
+
+    public List<EntryType> getAll() {
+        return availableTypes;
+    }
+
     public Optional<EntryType> findById(String typeId) {
         if (typeId == null) {
             return Optional.empty();
@@ -0,0 +1,20 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.Order;
+
+import java.util.List;
+
+/**
+ * Oldest closed orders selected to be evicted together by {@link OrderRepo#evict(EvictionChunk)},
+ * already encoded for the cold tier when they are to be archived ({@code encoded} is null otherwise).
+ */
+public record EvictionChunk(List<Order> orders, List<byte[]> encoded) {
+
+    public boolean isArchive() {
+        return encoded != null;
+    }
+
+    public int size() {
+        return orders.size();
+    }
+}
@@ -0,0 +1,228 @@
+package com.webscience.pizzaorder.repo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * NOTES:
+ * Sorted map implemented as an indexable skip list: every forward link also stores
+ * how many entries it skips and the sum of their weights, so that both the rank of a key
+ * and the total weight of the entries up to that key are computed in O(log n)
+ * while walking down the list, without ever counting the entries one by one.
+ * The class is not thread safe, callers are expected to guard it.
+ */
+class IndexedSkipList<K extends Comparable<? super K>, V> {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node<K, V> head = new Node<>(null, null, 0, MAX_LEVEL);
+    private int level = 1;
+    private int size = 0;
+    private long totalWeight = 0;
+
+    /**
+     * Rank of an entry: its 1-based position and the sum of the weights of the entries
+     * up to it (the entry itself included).
+     */
+    record Rank(int position, long weightSum) {
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void put(K key, V value, long weight) {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        long[] weightRank = new long[MAX_LEVEL];
+
+        Node<K, V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            weightRank[i] = i == level - 1 ? 0 : weightRank[i + 1];
+            while (x.next[i] != null && x.next[i].key.compareTo(key) < 0) {
+                rank[i] += x.span[i];
+                weightRank[i] += x.weightSpan[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        Node<K, V> existing = x.next[0];
+        if (existing != null && existing.key.compareTo(key) == 0) {
+            remove(key);
+            put(key, value, weight);
+            return;
+        }
+
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                weightRank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+                head.weightSpan[i] = totalWeight;
+            }
+            level = newLevel;
+        }
+
+        Node<K, V> node = new Node<>(key, value, weight, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+
+            node.weightSpan[i] = update[i].weightSpan[i] - (weightRank[0] - weightRank[i]);
+            update[i].weightSpan[i] = (weightRank[0] - weightRank[i]) + weight;
+        }
+
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+            update[i].weightSpan[i] += weight;
+        }
+
+        size++;
+        totalWeight += weight;
+    }
+
+    public V remove(K key) {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] update = new Node[MAX_LEVEL];
+
+        Node<K, V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].key.compareTo(key) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        Node<K, V> node = x.next[0];
+        if (node == null || node.key.compareTo(key) != 0) {
+            return null;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].weightSpan[i] += node.weightSpan[i] - node.weight;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+                update[i].weightSpan[i] -= node.weight;
+            }
+        }
+
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+
+        size--;
+        totalWeight -= node.weight;
+        return node.value;
+    }
+
+    public Rank rank(K key) {
+        int position = 0;
+        long weightSum = 0;
+
+        Node<K, V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].key.compareTo(key) <= 0) {
+                position += x.span[i];
+                weightSum += x.weightSpan[i];
+                x = x.next[i];
+            }
+            if (x != head && x.key.compareTo(key) == 0) {
+                return new Rank(position, weightSum);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count and total weight of the entries with a key up to the given one (included), whether it is in the list or not.
+     */
+    public Rank headRank(K key) {
+        int position = 0;
+        long weightSum = 0;
+
+        Node<K, V> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].key.compareTo(key) <= 0) {
+                position += x.span[i];
+                weightSum += x.weightSpan[i];
+                x = x.next[i];
+            }
+        }
+        return new Rank(position, weightSum);
+    }
+
+    public K firstKey() {
+        return head.next[0] == null ? null : head.next[0].key;
+    }
+
+    public V first() {
+        return head.next[0] == null ? null : head.next[0].value;
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        for (Node<K, V> x = head.next[0]; x != null; x = x.next[0]) {
+            values.add(x.value);
+        }
+        return values;
+    }
+
+    public void clear() {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+            head.weightSpan[i] = 0;
+        }
+        level = 1;
+        size = 0;
+        totalWeight = 0;
+    }
+
+    private static int randomLevel() {
+        int newLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (newLevel < MAX_LEVEL && random.nextInt(4) == 0) {
+            newLevel++;
+        }
+        return newLevel;
+    }
+
+    private static class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final Node<K, V>[] next;
+        private final int[] span;
+        private final long[] weightSpan;
+
+        @SuppressWarnings("unchecked")
+        Node(K key, V value, long weight, int level) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.next = new Node[level];
+            this.span = new int[level];
+            this.weightSpan = new long[level];
+        }
+    }
+}
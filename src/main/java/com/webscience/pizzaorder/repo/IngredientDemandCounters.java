@@ -0,0 +1,85 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.IngredientDemand;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NOTES:
+ * Live demand of each ingredient over the open (WAITING and IN_PROGRESS) orders:
+ * the {@link OrderIngredients} of each entry, times the quantity.
+ * Counters are updated when an order changes status, each under the lock of its bin, so reading the demand
+ * is O(ingredients of the open orders): additional ingredients are free text, so the counters of an ingredient
+ * are removed as soon as no open order needs it, and the map never outgrows the open orders.
+ */
+class IngredientDemandCounters {
+
+    private final Map<String, Counters> countersByIngredient = new ConcurrentHashMap<>();
+
+    /**
+     * Moves the demand of the order from the {@code from} status to the {@code to} one,
+     * either can be a closed status (or null) meaning the order is not counted there.
+     */
+    public void move(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        OrderIngredients.forEach(order, (ingredient, quantity) -> move(ingredient, quantity, from, to));
+    }
+
+    private void move(String ingredient, int quantity, OrderStatus from, OrderStatus to) {
+        countersByIngredient.compute(ingredient, (name, counters) -> {
+            Counters result = counters == null ? new Counters() : counters;
+            result.add(from, -quantity);
+            result.add(to, quantity);
+            return result.isEmpty() ? null : result;
+        });
+    }
+
+    /**
+     * Returns the demand of the ingredients needed by at least one open order, sorted by name.
+     */
+    public List<IngredientDemand> getDemand() {
+        List<IngredientDemand> demand = new ArrayList<>();
+        countersByIngredient.forEach((ingredient, counters) -> {
+            long waiting = counters.waiting;
+            long inProgress = counters.inProgress;
+            if (waiting > 0 || inProgress > 0) {
+                demand.add(new IngredientDemand(ingredient, waiting, inProgress));
+            }
+        });
+        demand.sort(Comparator.comparing(IngredientDemand::ingredient));
+        return demand;
+    }
+
+    int size() {
+        return countersByIngredient.size();
+    }
+
+    public void clear() {
+        countersByIngredient.clear();
+    }
+
+    private static class Counters {
+        private volatile long waiting;
+        private volatile long inProgress;
+
+        private void add(OrderStatus status, int quantity) {
+            if (status == OrderStatus.WAITING) {
+                waiting += quantity;
+            } else if (status == OrderStatus.IN_PROGRESS) {
+                inProgress += quantity;
+            }
+        }
+
+        private boolean isEmpty() {
+            return waiting == 0 && inProgress == 0;
+        }
+    }
+}
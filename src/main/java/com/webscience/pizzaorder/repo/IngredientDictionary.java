@@ -0,0 +1,107 @@
+package com.webscience.pizzaorder.repo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * NOTES:
+ * Dictionary of the ingredients: equal free-form names are mapped to a single shared instance,
+ * so the orders retained in memory do not keep a copy each. Names are kept as the client wrote them,
+ * the indexes and the inventory match them by their {@link #normalize normalized} form: the dictionary
+ * normalizes each name once, when it is added, and shares its normalized form as well,
+ * so the entries of the orders carry it (see OrderEntry) and nothing is normalized again on status changes.
+ * The dictionary is bounded: once full, new names are neither shared nor added,
+ * so an abusive client cannot make it grow without limit.
+ */
+@Component
+public class IngredientDictionary {
+
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    private final int maxSize;
+    private final Map<String, Ingredient> sharedNames = new ConcurrentHashMap<>();
+    private int size = 0;
+
+    public IngredientDictionary(@Value("${pizzaorder.ingredients.max-dictionary-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Trims the name, collapses its whitespaces and lowercases it.
+     */
+    public static String normalize(String ingredient) {
+        return WHITESPACES.matcher(ingredient.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the shared instance of the given ingredient, adding it to the dictionary if needed.
+     */
+    public String canonicalize(String ingredient) {
+        if (ingredient == null) {
+            return null;
+        }
+
+        Ingredient shared = sharedNames.get(ingredient);
+        return (shared != null ? shared : add(ingredient)).name();
+    }
+
+    public List<String> canonicalize(List<String> ingredients) {
+        if (ingredients == null) {
+            return null;
+        }
+        return ingredients.stream()
+                .map(this::canonicalize)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the normalized form of each of the given ingredients, the shared one when they are in the dictionary.
+     */
+    public List<String> normalizeAll(List<String> ingredients) {
+        if (ingredients == null) {
+            return null;
+        }
+        return ingredients.stream()
+                .map(this::normalizeShared)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private String normalizeShared(String ingredient) {
+        if (ingredient == null) {
+            return null;
+        }
+
+        Ingredient shared = sharedNames.get(ingredient);
+        return shared != null ? shared.normalizedName() : normalize(ingredient);
+    }
+
+    private synchronized Ingredient add(String ingredient) {
+        Ingredient shared = sharedNames.get(ingredient);
+        if (shared != null) {
+            return shared;
+        }
+        String normalizedName = normalize(ingredient);
+        Ingredient added = new Ingredient(ingredient, normalizedName.equals(ingredient) ? ingredient : normalizedName);
+        if (size >= maxSize) {
+            return added;
+        }
+
+        size++;
+        sharedNames.put(ingredient, added);
+        return added;
+    }
+
+    private record Ingredient(String name, String normalizedName) {
+    }
+}
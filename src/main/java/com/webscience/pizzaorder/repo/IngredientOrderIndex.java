@@ -0,0 +1,57 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.Order;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * NOTES:
+ * Inverted index canonical ingredient -> insertion sequences of the open orders using it,
+ * so the orders with a given ingredient are found in time proportional to the result.
+ */
+class IngredientOrderIndex {
+
+    private final Map<String, NavigableSet<Long>> sequencesByIngredient = new ConcurrentHashMap<>();
+
+    public void add(Order order) {
+        for (String ingredient : ingredientsOf(order)) {
+            sequencesByIngredient.compute(ingredient, (name, sequences) -> {
+                NavigableSet<Long> result = sequences == null ? new ConcurrentSkipListSet<>() : sequences;
+                result.add(order.getSequence());
+                return result;
+            });
+        }
+    }
+
+    public void remove(Order order) {
+        for (String ingredient : ingredientsOf(order)) {
+            sequencesByIngredient.computeIfPresent(ingredient, (name, sequences) -> {
+                sequences.remove(order.getSequence());
+                return sequences.isEmpty() ? null : sequences;
+            });
+        }
+    }
+
+    /**
+     * Returns the sequences of the open orders using the given canonical ingredient, oldest first.
+     */
+    public Set<Long> getSequences(String ingredient) {
+        NavigableSet<Long> sequences = sequencesByIngredient.get(ingredient);
+        return sequences == null ? Set.of() : sequences;
+    }
+
+    public void clear() {
+        sequencesByIngredient.clear();
+    }
+
+    private static Set<String> ingredientsOf(Order order) {
+        Set<String> ingredients = new HashSet<>();
+        OrderIngredients.forEach(order, (ingredient, quantity) -> ingredients.add(ingredient));
+        return ingredients;
+    }
+}
@@ -0,0 +1,90 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.Order;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * NOTES:
+ * Sorted index of the orders by insertion timestamp (ties broken by insertion sequence),
+ * so a time range is read by walking only the matching slice of the index.
+ */
+class InsertTsIndex {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final NavigableSet<Key> keys = new ConcurrentSkipListSet<>();
+
+    public void add(Order order) {
+        if (order.hasInsertTs()) {
+            keys.add(keyOf(order));
+        }
+    }
+
+    public void remove(Order order) {
+        if (order.hasInsertTs()) {
+            keys.remove(keyOf(order));
+        }
+    }
+
+    /**
+     * Returns the sequences of the orders inserted in [from, to), oldest first.
+     */
+    public Iterator<Long> getSequences(OffsetDateTime from, OffsetDateTime to) {
+        long fromNanos = toEpochNanos(from);
+        long toNanos = toEpochNanos(to);
+        if (fromNanos >= toNanos) {
+            return Collections.emptyIterator();
+        }
+
+        Iterator<Key> slice = keys.subSet(new Key(fromNanos, Long.MIN_VALUE), true, new Key(toNanos, Long.MIN_VALUE), false).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return slice.hasNext();
+            }
+
+            @Override
+            public Long next() {
+                return slice.next().sequence();
+            }
+        };
+    }
+
+    public void clear() {
+        keys.clear();
+    }
+
+    private static Key keyOf(Order order) {
+        return new Key(order.getInsertEpochNanos(), order.getSequence());
+    }
+
+    /**
+     * Saturates instead of overflowing, so that unbounded query limits (e.g. {@link OffsetDateTime#MIN}) still work.
+     */
+    static long toEpochNanos(OffsetDateTime ts) {
+        Instant instant = ts.toInstant();
+        long seconds = instant.getEpochSecond();
+        if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / NANOS_PER_SECOND) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * NANOS_PER_SECOND + instant.getNano();
+    }
+
+    private record Key(long epochNanos, long sequence) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key other) {
+            int result = Long.compare(epochNanos, other.epochNanos);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
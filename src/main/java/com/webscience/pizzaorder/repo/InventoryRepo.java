@@ -0,0 +1,101 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.exception.OutOfStockException;
+import com.webscience.pizzaorder.model.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NOTES:
+ * Stock of the ingredients, in units (one unit per item using the ingredient).
+ * Only the ingredients restocked at least once are tracked, the others are considered always available.
+ * Orders reserve their ingredients with a compare-and-set loop on each counter, without any lock:
+ * if an ingredient is short, the units already reserved for the other ingredients are given back.
+ */
+@Component
+public class InventoryRepo {
+
+    private final Map<String, AtomicLong> stockByIngredient = new ConcurrentSkipListMap<>();
+
+    /**
+     * Reserves the units of the ingredients needed by the order.
+     *
+     * @throws OutOfStockException if an ingredient is short, nothing is reserved in that case
+     */
+    public void reserve(Order order) {
+        Map<String, Long> units = unitsOf(order);
+        List<Map.Entry<String, Long>> reserved = new ArrayList<>(units.size());
+
+        for (Map.Entry<String, Long> needed : units.entrySet()) {
+            AtomicLong stock = stockByIngredient.get(needed.getKey());
+            if (stock == null) {
+                continue;
+            }
+            if (!tryTake(stock, needed.getValue())) {
+                reserved.forEach(entry -> stockByIngredient.get(entry.getKey()).addAndGet(entry.getValue()));
+                throw new OutOfStockException(needed.getKey());
+            }
+            reserved.add(needed);
+        }
+    }
+
+    /**
+     * Gives back the units reserved by the order.
+     */
+    public void release(Order order) {
+        unitsOf(order).forEach((ingredient, units) -> {
+            AtomicLong stock = stockByIngredient.get(ingredient);
+            if (stock != null) {
+                stock.addAndGet(units);
+            }
+        });
+    }
+
+    /**
+     * Adds units of the given ingredient, which is tracked from now on.
+     *
+     * @return the units available after restocking
+     */
+    public long restock(String ingredient, long units) {
+        return stockByIngredient.computeIfAbsent(IngredientDictionary.normalize(ingredient), name -> new AtomicLong())
+                .addAndGet(units);
+    }
+
+    /**
+     * Returns the units available by tracked ingredient, sorted by name.
+     */
+    public Map<String, Long> getStock() {
+        Map<String, Long> stock = new TreeMap<>();
+        stockByIngredient.forEach((ingredient, units) -> stock.put(ingredient, units.get()));
+        return stock;
+    }
+
+    //for testing only
+    public void clear() {
+        stockByIngredient.clear();
+    }
+
+    private static boolean tryTake(AtomicLong stock, long units) {
+        while (true) {
+            long available = stock.get();
+            if (available < units) {
+                return false;
+            }
+            if (stock.compareAndSet(available, available - units)) {
+                return true;
+            }
+        }
+    }
+
+    private static Map<String, Long> unitsOf(Order order) {
+        Map<String, Long> units = new TreeMap<>();
+        OrderIngredients.forEach(order, (ingredient, quantity) -> units.merge(ingredient, (long) quantity, Long::sum));
+        return units;
+    }
+}
@@ -0,0 +1,267 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * NOTES:
+ * Compact binary encoding of an order, used by the cold tier.
+ * UUID ids are stored as 16 bytes, numbers as variable length integers, timestamps as epoch values
+ * and entry types by id only (they are resolved again against the menu when decoding).
+ * The encoded bytes are deflated only when it actually makes them smaller.
+ */
+final class OrderCodec {
+
+    private static final int RAW = 0;
+    private static final int DEFLATED = 1;
+
+    private static final int UUID_ID = 0;
+    private static final int STRING_ID = 1;
+
+    private static final int NULL_TS = 0;
+    private static final int PRESENT_TS = 1;
+
+    private OrderCodec() {
+    }
+
+    static byte[] encode(Order order) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            writeId(out, order.getId());
+            out.writeUTF(nullToEmpty(order.getUserName()));
+            out.writeByte(order.getOrderStatus().ordinal());
+            writeVarLong(out, order.getSequence());
+            writeVarLong(out, order.getEstimatedPrepMillis());
+            out.writeBoolean(order.isExpress());
+            writeTimestamp(out, order.getDeadline());
+            writeTimestamp(out, order.getRequestedTs());
+            writeTimestamp(out, order.getInsertTs());
+            writeTimestamp(out, order.getStartTs());
+            writeTimestamp(out, order.getCompletionTs());
+
+            List<OrderEntry> entries = order.getOrderEntries();
+            writeVarLong(out, entries.size());
+            for (OrderEntry entry : entries) {
+                out.writeUTF(entry.entryType().id());
+                writeVarLong(out, entry.quantity());
+
+                List<String> ingredients = entry.additionalIngredients();
+                writeVarLong(out, ingredients == null ? 0 : ingredients.size() + 1);
+                if (ingredients != null) {
+                    for (String ingredient : ingredients) {
+                        out.writeUTF(ingredient);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return compress(buffer.toByteArray());
+    }
+
+    static Order decode(byte[] bytes, Function<String, EntryType> entryTypeResolver) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(decompress(bytes)))) {
+            String id = readId(in);
+            String userName = in.readUTF();
+            OrderStatus status = OrderStatus.values()[in.readByte()];
+            long sequence = readVarLong(in);
+            long estimatedPrepMillis = readVarLong(in);
+            boolean express = in.readBoolean();
+            OffsetDateTime deadline = readTimestamp(in);
+            OffsetDateTime requestedTs = readTimestamp(in);
+            OffsetDateTime insertTs = readTimestamp(in);
+            OffsetDateTime startTs = readTimestamp(in);
+            OffsetDateTime completionTs = readTimestamp(in);
+
+            int entriesCount = (int) readVarLong(in);
+            List<OrderEntry> entries = new ArrayList<>(entriesCount);
+            for (int i = 0; i < entriesCount; i++) {
+                EntryType entryType = entryTypeResolver.apply(in.readUTF());
+                int quantity = (int) readVarLong(in);
+
+                int ingredientsCount = (int) readVarLong(in) - 1;
+                List<String> ingredients = null;
+                if (ingredientsCount >= 0) {
+                    ingredients = new ArrayList<>(ingredientsCount);
+                    for (int j = 0; j < ingredientsCount; j++) {
+                        ingredients.add(in.readUTF());
+                    }
+                }
+
+                entries.add(OrderEntry.builder()
+                        .entryType(entryType)
+                        .quantity(quantity)
+                        .additionalIngredients(ingredients)
+                        .build());
+            }
+
+            Order order = Order.builder()
+                    .id(id)
+                    .userName(userName)
+                    .orderEntries(entries)
+                    .insertTs(insertTs)
+                    .estimatedPrepMillis(estimatedPrepMillis)
+                    .express(express)
+                    .deadline(deadline)
+                    .requestedTs(requestedTs)
+                    .orderStatus(status)
+                    .startTs(startTs)
+                    .completionTs(completionTs)
+                    .build();
+            order.setSequence(sequence);
+            return order;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeId(DataOutputStream out, String id) throws IOException {
+        UUID uuid = parseUuid(id);
+        if (uuid != null) {
+            out.writeByte(UUID_ID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            out.writeByte(STRING_ID);
+            out.writeUTF(id);
+        }
+    }
+
+    private static String readId(DataInputStream in) throws IOException {
+        if (in.readByte() == UUID_ID) {
+            return new UUID(in.readLong(), in.readLong()).toString();
+        }
+        return in.readUTF();
+    }
+
+    /**
+     * Only the canonical lowercase form is stored in binary, so that decoding gives back the very same string.
+     */
+    static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeTimestamp(DataOutputStream out, OffsetDateTime ts) throws IOException {
+        if (ts == null) {
+            out.writeByte(NULL_TS);
+            return;
+        }
+        out.writeByte(PRESENT_TS);
+        Instant instant = ts.toInstant();
+        writeVarLong(out, instant.getEpochSecond());
+        writeVarLong(out, instant.getNano());
+        writeVarLong(out, ts.getOffset().getTotalSeconds());
+    }
+
+    private static OffsetDateTime readTimestamp(DataInputStream in) throws IOException {
+        if (in.readByte() == NULL_TS) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(readVarLong(in), readVarLong(in));
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds((int) readVarLong(in));
+        return OffsetDateTime.ofInstant(instant, offset);
+    }
+
+    /**
+     * Zig-zag encoded variable length integer, 7 bits per byte.
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigZag = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    private static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] deflated = new byte[raw.length];
+            int length = deflater.deflate(deflated);
+            if (!deflater.finished() || length + 5 >= raw.length) {
+                return withHeader(RAW, raw.length, raw, raw.length);
+            }
+            return withHeader(DEFLATED, raw.length, deflated, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        int rawLength = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+        byte[] raw = new byte[rawLength];
+        if (bytes[0] == RAW) {
+            System.arraycopy(bytes, 5, raw, 0, rawLength);
+            return raw;
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 5, bytes.length - 5);
+            inflater.inflate(raw);
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted archived order", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] withHeader(int format, int rawLength, byte[] payload, int payloadLength) {
+        byte[] bytes = new byte[payloadLength + 5];
+        bytes[0] = (byte) format;
+        bytes[1] = (byte) (rawLength >>> 24);
+        bytes[2] = (byte) (rawLength >>> 16);
+        bytes[3] = (byte) (rawLength >>> 8);
+        bytes[4] = (byte) rawLength;
+        System.arraycopy(payload, 0, bytes, 5, payloadLength);
+        return bytes;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
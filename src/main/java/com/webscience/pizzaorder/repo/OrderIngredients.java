@@ -0,0 +1,51 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * NOTES:
+ * Canonical ingredients of an order: base ingredients of each entry type plus the additional ones.
+ * The menu is tiny, so the canonical base ingredients of each type are computed once and shared,
+ * the additional ones are normalized once at intake and read from the entries.
+ */
+final class OrderIngredients {
+
+    private static final Map<EntryType, List<String>> BASE_INGREDIENTS = new ConcurrentHashMap<>();
+
+    private OrderIngredients() {
+    }
+
+    /**
+     * Calls {@code consumer} with each ingredient of each entry and the quantity of the entry.
+     * An ingredient appears once per entry using it.
+     */
+    static void forEach(Order order, ObjIntConsumer<String> consumer) {
+        for (OrderEntry entry : order.getOrderEntries()) {
+            for (String ingredient : baseIngredientsOf(entry.entryType())) {
+                consumer.accept(ingredient, entry.quantity());
+            }
+            if (entry.normalizedIngredients() != null) {
+                for (String ingredient : entry.normalizedIngredients()) {
+                    consumer.accept(ingredient, entry.quantity());
+                }
+            } else if (entry.additionalIngredients() != null) {
+                for (String ingredient : entry.additionalIngredients()) {
+                    consumer.accept(IngredientDictionary.normalize(ingredient), entry.quantity());
+                }
+            }
+        }
+    }
+
+    private static List<String> baseIngredientsOf(EntryType entryType) {
+        return BASE_INGREDIENTS.computeIfAbsent(entryType, type -> type.ingredients() == null
+                ? List.of()
+                : type.ingredients().stream().map(IngredientDictionary::normalize).toList());
+    }
+}
@@ -1,73 +1,616 @@
 package com.webscience.pizzaorder.repo;
 
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.configuration.StorageProperties;
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import com.webscience.pizzaorder.event.OrderEvicted;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.event.OvenBatchCompleted;
+import com.webscience.pizzaorder.event.OvenBatchStarted;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.IngredientDemand;
 import com.webscience.pizzaorder.model.Order;
 import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.model.QueuePosition;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * NOTES:
  * This class is a repo wrapping a very simple implementation of an in memory storage.
  * The implementation could be changed to use a better storage (e.g. relational database, ElasticSearch)
  * without changing the "service" logic.
+ * Orders are indexed by id and by insertion sequence, the WAITING ones are also kept in the
+ * {@link WaitingQueue}, sorted by the active {@link SchedulingPolicy},
+ * so lookups and queue positions never scan the whole list of orders.
+ * The indexes are concurrent maps, locked per bin or not at all. The kitchen queue is a single locked shard
+ * by default; sharding it by order id hash is opt-in ({@code shards}: N shards, or 0 for one per core,
+ * see StorageProperties), for many concurrent writers, at the cost of merging the shards on reads.
+ * The {@link UserOrderIndex} gives the orders of a single user in O(user's orders),
+ * the {@link InsertTsIndex} the orders inserted in a time range walking only the matching slice.
+ * {@link PendingEntries} follows the kitchen queue to plan the oven batches,
+ * {@link IngredientDemandCounters} and {@link IngredientOrderIndex} follow the open orders
+ * to give the demand of each ingredient and the orders using it.
+ * All status changes go through {@link #transition}, which keeps these indexes in sync.
+ * SCHEDULED pre-orders are stored and indexed by id, user and insertion, and kept apart until released,
+ * when they enter the kitchen queue (see PreOrderScheduler).
+ * COMPLETED orders can be evicted from memory to the {@link ColdOrderStore}: lookups fall through
+ * to it transparently, until the cold tier is full and its oldest orders are dropped as well.
+ * Every change is also appended to the {@link OrderEventStore} as an {@link OrderEvent}, which feeds the read
+ * projections: the events of an order are appended under its monitor, in the order of its status changes.
  */
 @Component
 public class OrderRepo {
 
-    private final List<Order> orders = new ArrayList<>();
-    private String orderIdInProgress = null;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Order> ordersById = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Order> ordersBySequence = new ConcurrentSkipListMap<>();
+    private final Map<String, Order> scheduledOrders = new ConcurrentHashMap<>();
+    private final SchedulingPolicy schedulingPolicy;
+    private final WaitingQueue waitingQueue;
+    private final PendingEntries pendingEntries = new PendingEntries();
+    private final IngredientDemandCounters ingredientDemand = new IngredientDemandCounters();
+    private final IngredientOrderIndex ingredientOrderIndex = new IngredientOrderIndex();
+    private final UserOrderIndex userOrderIndex = new UserOrderIndex();
+    private final InsertTsIndex insertTsIndex = new InsertTsIndex();
+    private final Queue<Order> completedOrders = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hotCompletedCount = new AtomicInteger();
+    private final ColdOrderStore coldOrderStore;
+    private final OrderEventStore eventStore;
+    private volatile String orderIdInProgress = null;
+    private volatile OvenBatch batchInProgress = null;
+
+    public OrderRepo() {
+        this(new EntryTypeRepo(), SchedulingPolicy.fifo(), 1, new OrderEventStore());
+    }
+
+    public OrderRepo(EntryTypeRepo entryTypeRepo, SchedulingProperties schedulingProperties) {
+        this(entryTypeRepo, schedulingProperties, new OrderEventStore());
+    }
+
+    public OrderRepo(EntryTypeRepo entryTypeRepo, SchedulingProperties schedulingProperties, OrderEventStore eventStore) {
+        this(entryTypeRepo, schedulingProperties, new StorageProperties(), eventStore);
+    }
+
+    @Autowired
+    public OrderRepo(EntryTypeRepo entryTypeRepo, SchedulingProperties schedulingProperties, StorageProperties storageProperties,
+                     OrderEventStore eventStore) {
+        this(entryTypeRepo, SchedulingPolicy.of(schedulingProperties), storageProperties.getShardCount(), eventStore);
+    }
+
+    OrderRepo(EntryTypeRepo entryTypeRepo, SchedulingPolicy schedulingPolicy) {
+        this(entryTypeRepo, schedulingPolicy, 1, new OrderEventStore());
+    }
+
+    OrderRepo(EntryTypeRepo entryTypeRepo, SchedulingPolicy schedulingPolicy, int shards, OrderEventStore eventStore) {
+        this.schedulingPolicy = schedulingPolicy;
+        this.waitingQueue = new WaitingQueue(schedulingPolicy, shards);
+        this.coldOrderStore = new ColdOrderStore(typeId -> entryTypeRepo.findById(typeId)
+                .orElseGet(() -> EntryType.builder().id(typeId).build()));
+        this.eventStore = eventStore;
+    }
 
     /**
      * NOTES:
-     * This implementation of unique id generation is very simple and local,
-     * it works only with a single instance of the APIs service.
+     * Random UUIDs, unique across instances without coordination.
+     * With the replication only the primary creates orders, the standbys store them with the id they were given.
      */
     public String generate() {
         return UUID.randomUUID().toString();
     }
 
     public void addOrder(Order order) {
-        orders.add(order);
+        order.setSequence(sequence.incrementAndGet());
+        // appended before the order can be found, so no other event of the order can precede it
+        eventStore.append(new OrderCreated(order.getId(), order.getSequence(), order.getUserName(), order.getOrderEntries(),
+                order.getOrderStatus(), order.isExpress(), order.getDeadline(), order.getRequestedTs(), order.getInsertTs(),
+                order.getCompletionTs(), order.getEstimatedPrepMillis(), schedulingPolicy.rank(order)));
+        if (order.getOrderStatus() == OrderStatus.SCHEDULED) {
+            // before the order can be found, so that its release or cancellation always finds it here
+            scheduledOrders.put(order.getId(), order);
+        }
+        ordersById.put(order.getId(), order);
+        ordersBySequence.put(order.getSequence(), order);
+        userOrderIndex.add(order);
+        insertTsIndex.add(order);
+
+        if (order.getOrderStatus() == OrderStatus.WAITING) {
+            enqueue(order);
+        } else if (isClosed(order.getOrderStatus())) {
+            trackCompleted(order);
+        }
+        ingredientDemand.move(order, null, order.getOrderStatus());
+        if (isOpen(order.getOrderStatus())) {
+            ingredientOrderIndex.add(order);
+        }
+    }
+
+    /**
+     * Returns the SCHEDULED pre-orders, in no particular order.
+     */
+    public List<Order> getScheduledOrders() {
+        return List.copyOf(scheduledOrders.values());
     }
 
     public Optional<Order> getOrderById(String orderId) {
-        return orders.stream()
-                .filter(order -> order.getId().equals(orderId))
-                .findFirst();
+        if (orderId == null) {
+            return Optional.empty();
+        }
+        Order order = ordersById.get(orderId);
+        if (order != null) {
+            return Optional.of(order);
+        }
+        return coldOrderStore.getOrderById(orderId);
     }
 
+    /**
+     * Returns a page of the orders of the given user, newest first, including the archived ones.
+     */
+    public List<Order> getByUserName(String userName, int page, int size) {
+        List<Order> orders = new ArrayList<>();
+        for (long orderSequence : userOrderIndex.getNewestFirst(userName, (long) page * size, size)) {
+            getOrderBySequence(orderSequence).ifPresent(orders::add);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns a page of the orders inserted in [from, to), oldest first, including the archived ones.
+     * When {@code status} is set, only the orders with that status are returned.
+     */
+    public List<Order> getByInsertTs(OffsetDateTime from, OffsetDateTime to, OrderStatus status, int page, int size) {
+        List<Order> orders = new ArrayList<>();
+        long toSkip = (long) page * size;
+        Iterator<Long> sequences = insertTsIndex.getSequences(from, to);
+        while (orders.size() < size && sequences.hasNext()) {
+            Order order = getOrderBySequence(sequences.next()).orElse(null);
+            if (order == null || (status != null && order.getOrderStatus() != status)) {
+                continue;
+            }
+            if (toSkip > 0) {
+                toSkip--;
+            } else {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    private Optional<Order> getOrderBySequence(long orderSequence) {
+        Order order = ordersBySequence.get(orderSequence);
+        if (order != null) {
+            return Optional.of(order);
+        }
+        // evicted meanwhile: orders are archived before being removed from memory
+        return coldOrderStore.getOrderBySequence(orderSequence);
+    }
+
+    /**
+     * Returns the WAITING orders in kitchen order, merging the shards of the queue.
+     */
     public List<Order> getNotProcessed() {
-        return orders.stream()
-                .filter(order -> order.getOrderStatus() == OrderStatus.WAITING)
-                .collect(Collectors.toList());
+        return waitingQueue.getAll();
+    }
+
+    /**
+     * Returns the number of WAITING orders, without copying the kitchen queue.
+     */
+    public int getWaitingCount() {
+        return waitingQueue.size();
     }
 
+    public int getShardCount() {
+        return waitingQueue.getShardCount();
+    }
+
+    /**
+     * Returns both the in memory and the archived orders, sorted by insertion.
+     */
     public List<Order> getAll() {
+        if (coldOrderStore.size() == 0) {
+            return new ArrayList<>(ordersBySequence.values());
+        }
+
+        List<Order> orders = new ArrayList<>(ordersBySequence.size() + coldOrderStore.size());
+        Iterator<Map.Entry<Long, Order>> hot = ordersBySequence.entrySet().iterator();
+        Iterator<Map.Entry<Long, byte[]>> cold = coldOrderStore.getAllBySequence().entrySet().iterator();
+        Map.Entry<Long, Order> nextHot = hot.hasNext() ? hot.next() : null;
+        Map.Entry<Long, byte[]> nextCold = cold.hasNext() ? cold.next() : null;
+
+        while (nextHot != null || nextCold != null) {
+            if (nextCold == null || (nextHot != null && nextHot.getKey() <= nextCold.getKey())) {
+                if (nextCold != null && nextCold.getKey().equals(nextHot.getKey())) {
+                    // being evicted right now: the in memory copy wins
+                    nextCold = cold.hasNext() ? cold.next() : null;
+                }
+                orders.add(nextHot.getValue());
+                nextHot = hot.hasNext() ? hot.next() : null;
+            } else {
+                orders.add(coldOrderStore.decode(nextCold.getValue()));
+                nextCold = cold.hasNext() ? cold.next() : null;
+            }
+        }
         return orders;
     }
 
+    /**
+     * Returns the WAITING order to be served next according to the scheduling policy.
+     */
+    public Optional<Order> getNextToProcess() {
+        return waitingQueue.getFirst();
+    }
+
+    public Optional<QueuePosition> getQueuePosition(Order order) {
+        return waitingQueue.getPosition(order);
+    }
+
     public String getOrderInProgress() {
         return orderIdInProgress;
     }
 
-    public void setOrderInProgress(Order order) {
-        order.setOrderStatus(OrderStatus.IN_PROGRESS);
+    /**
+     * Moves a WAITING order to IN_PROGRESS.
+     *
+     * @return false if the order was not WAITING anymore (e.g. it has just been cancelled)
+     */
+    public boolean setOrderInProgress(Order order) {
+        if (!transition(order, OrderStatus.WAITING, OrderStatus.IN_PROGRESS)) {
+            return false;
+        }
         orderIdInProgress = order.getId();
+        return true;
     }
 
     public void setOrderCompleted(Order order) {
-        order.setOrderStatus(OrderStatus.COMPLETED);
+        transition(order, null, OrderStatus.COMPLETED);
         orderIdInProgress = null;
     }
 
+    /**
+     * Moves a SCHEDULED pre-order to WAITING, queueing it for the kitchen.
+     *
+     * @return false if the order was not SCHEDULED anymore (e.g. it has just been cancelled)
+     */
+    public boolean setOrderWaiting(Order order) {
+        return transition(order, OrderStatus.SCHEDULED, OrderStatus.WAITING);
+    }
+
+    /**
+     * Moves a SCHEDULED or WAITING order to CANCELLED, setting its closing timestamp.
+     * A concurrent start (or release) of the same order is resolved by the atomic status change:
+     * the cancellation is retried only while the order is still cancellable.
+     *
+     * @return false if the order was neither SCHEDULED nor WAITING anymore
+     */
+    public boolean setOrderCancelled(Order order, OffsetDateTime cancellationTs) {
+        OrderStatus status;
+        while ((status = order.getOrderStatus()) == OrderStatus.WAITING || status == OrderStatus.SCHEDULED) {
+            if (transition(order, status, OrderStatus.CANCELLED, cancellationTs)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the quantities still to be prepared by type of entry, over the WAITING orders.
+     */
+    public Map<String, Long> getPendingQuantities() {
+        return pendingEntries.getQuantities();
+    }
+
+    /**
+     * Returns the oldest WAITING orders of the given type of entry fitting in an oven of the given capacity.
+     */
+    public List<Order> getNextBatch(String entryType, int capacity) {
+        return pendingEntries.nextBatch(entryType, capacity);
+    }
+
+    public OvenBatch getBatchInProgress() {
+        return batchInProgress;
+    }
+
+    /**
+     * Moves the given WAITING orders to IN_PROGRESS, in the oven batch {@code batchId}.
+     *
+     * @return the orders actually moved, i.e. the ones not cancelled meanwhile
+     */
+    public List<Order> setOrdersInProgress(List<Order> orders, String batchId) {
+        List<Order> started = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (transition(order, OrderStatus.WAITING, OrderStatus.IN_PROGRESS, null, batchId)) {
+                started.add(order);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Records the batch whose orders have just been moved to IN_PROGRESS (see {@link #setOrdersInProgress}).
+     */
+    public void setBatchInProgress(OvenBatch batch) {
+        batchInProgress = batch;
+        eventStore.append(new OvenBatchStarted(lastOrderIdOf(batch), batch));
+    }
+
+    /**
+     * Moves the given orders to COMPLETED, then ends the batch in progress.
+     */
+    public void setBatchCompleted(List<Order> orders) {
+        for (Order order : orders) {
+            transition(order, null, OrderStatus.COMPLETED);
+        }
+        OvenBatch batch = batchInProgress;
+        if (batch != null) {
+            batchInProgress = null;
+            eventStore.append(new OvenBatchCompleted(lastOrderIdOf(batch), batch.id()));
+        }
+    }
+
+    private static String lastOrderIdOf(OvenBatch batch) {
+        return batch.orderIds().get(batch.orderIds().size() - 1);
+    }
+
+    /**
+     * Returns the demand of each ingredient over the WAITING and IN_PROGRESS orders.
+     */
+    public List<IngredientDemand> getIngredientDemand() {
+        return ingredientDemand.getDemand();
+    }
+
+    /**
+     * Returns the WAITING and IN_PROGRESS orders using the given ingredient, oldest first.
+     * When {@code status} is set, only the orders with that status are returned.
+     */
+    public List<Order> getOpenByIngredient(String ingredient, OrderStatus status) {
+        List<Order> orders = new ArrayList<>();
+        for (long orderSequence : ingredientOrderIndex.getSequences(IngredientDictionary.normalize(ingredient))) {
+            Order order = ordersBySequence.get(orderSequence);
+            if (order != null && (status == null || order.getOrderStatus() == status)) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    private static boolean isOpen(OrderStatus status) {
+        return status == OrderStatus.WAITING || status == OrderStatus.IN_PROGRESS;
+    }
+
+    private boolean transition(Order order, OrderStatus expectedStatus, OrderStatus status) {
+        return transition(order, expectedStatus, status, null);
+    }
+
+    private boolean transition(Order order, OrderStatus expectedStatus, OrderStatus status, OffsetDateTime closingTs) {
+        return transition(order, expectedStatus, status, closingTs, null);
+    }
+
+    /**
+     * Atomically changes the status of the order, from {@code expectedStatus} only when it is set,
+     * appends the matching event, then updates the indexes.
+     * Only the winner of concurrent transitions appends the event and touches the indexes.
+     */
+    private boolean transition(Order order, OrderStatus expectedStatus, OrderStatus status, OffsetDateTime closingTs, String batchId) {
+        OrderStatus previousStatus;
+        synchronized (order) {
+            if (expectedStatus != null) {
+                if (!order.compareAndSetOrderStatus(expectedStatus, status)) {
+                    return false;
+                }
+                previousStatus = expectedStatus;
+            } else {
+                do {
+                    previousStatus = order.getOrderStatus();
+                } while (!order.compareAndSetOrderStatus(previousStatus, status));
+            }
+
+            if (closingTs != null) {
+                order.setCompletionTs(closingTs);
+            }
+            eventStore.append(eventOf(order, status, batchId));
+        }
+
+        if (previousStatus == OrderStatus.SCHEDULED) {
+            scheduledOrders.remove(order.getId(), order);
+        }
+        if (previousStatus == OrderStatus.WAITING && waitingQueue.remove(order)) {
+            pendingEntries.remove(order);
+        } else if (status == OrderStatus.WAITING) {
+            enqueue(order);
+        }
+        ingredientDemand.move(order, previousStatus, status);
+        if (isOpen(previousStatus) && !isOpen(status)) {
+            ingredientOrderIndex.remove(order);
+        } else if (!isOpen(previousStatus) && isOpen(status)) {
+            ingredientOrderIndex.add(order);
+        }
+
+        if (isClosed(status) && !isClosed(previousStatus)) {
+            trackCompleted(order);
+        }
+        return true;
+    }
+
+    private static OrderEvent eventOf(Order order, OrderStatus status, String batchId) {
+        return switch (status) {
+            case WAITING -> new OrderReleased(order.getId());
+            case IN_PROGRESS -> new OrderStarted(order.getId(), order.getStartTs(), batchId);
+            case COMPLETED -> new OrderCompleted(order.getId(), order.getCompletionTs());
+            case CANCELLED -> new OrderCancelled(order.getId(), order.getCompletionTs());
+            default -> throw new IllegalStateException("No transition to " + status);
+        };
+    }
+
+    /**
+     * Adds a WAITING order to the kitchen queue. If the order leaves the WAITING status meanwhile,
+     * its transition may have missed it in the queue, so it is taken out again here.
+     */
+    private void enqueue(Order order) {
+        pendingEntries.add(order);
+        waitingQueue.add(order);
+        if (order.getOrderStatus() != OrderStatus.WAITING && waitingQueue.remove(order)) {
+            pendingEntries.remove(order);
+        }
+    }
+
+    private static boolean isClosed(OrderStatus status) {
+        return status == OrderStatus.COMPLETED || status == OrderStatus.CANCELLED || status == OrderStatus.REJECTED;
+    }
+
+    private void trackCompleted(Order order) {
+        completedOrders.add(order);
+        hotCompletedCount.incrementAndGet();
+    }
+
+    /**
+     * Evicts from memory the COMPLETED (and CANCELLED or REJECTED) orders closed before the given timestamp,
+     * and the oldest ones exceeding {@code maxInMemory}.
+     * Evicted orders are moved to the cold tier when {@code archive} is set, dropped otherwise.
+     * Orders are always archived before being removed, so that lookups never miss them.
+     * Then the oldest archived orders exceeding {@code maxArchived} are dropped, and the stream of events compacted.
+     * The whole pass runs on the calling thread, see {@link #prepareEviction} to split it in chunks.
+     *
+     * @return the number of evicted orders, from memory or from the cold tier
+     */
+    public int evictCompleted(OffsetDateTime completedBefore, int maxInMemory, boolean archive, int maxArchived) {
+        int evicted = 0;
+        EvictionChunk chunk;
+        int chunkEvicted;
+        do {
+            // a chunk evicted only in part has been raced by another eviction: the rest is selected again
+            chunk = prepareEviction(completedBefore, maxInMemory, archive, Integer.MAX_VALUE);
+            chunkEvicted = evict(chunk);
+            evicted += chunkEvicted;
+        } while (chunkEvicted < chunk.size());
+        evicted += dropArchived(maxArchived, Integer.MAX_VALUE);
+        compactEvents();
+        return evicted;
+    }
+
+    /**
+     * Selects up to {@code maxOrders} of the orders to be evicted (see {@link #evictCompleted}), oldest first,
+     * encoding them for the cold tier when {@code archive} is set. Nothing is changed: the chunk can be prepared
+     * off the engine, closed orders do not change anymore.
+     */
+    public EvictionChunk prepareEviction(OffsetDateTime completedBefore, int maxInMemory, boolean archive, int maxOrders) {
+        long completedBeforeNanos = InsertTsIndex.toEpochNanos(completedBefore);
+        int exceeding = hotCompletedCount.get() - maxInMemory;
+
+        List<Order> orders = new ArrayList<>();
+        for (Order order : completedOrders) {
+            boolean expired = order.hasCompletionTs() && order.getCompletionEpochNanos() < completedBeforeNanos;
+            if (orders.size() >= maxOrders || (!expired && orders.size() >= exceeding)) {
+                break;
+            }
+            orders.add(order);
+        }
+
+        List<byte[]> encoded = null;
+        if (archive) {
+            encoded = new ArrayList<>(orders.size());
+            for (Order order : orders) {
+                encoded.add(OrderCodec.encode(order));
+            }
+        }
+        return new EvictionChunk(orders, encoded);
+    }
+
+    /**
+     * Evicts the orders of the chunk, as long as they are still the oldest closed ones in memory
+     * (i.e. not evicted meanwhile).
+     *
+     * @return the number of evicted orders
+     */
+    public synchronized int evict(EvictionChunk chunk) {
+        int evicted = 0;
+        for (Order order : chunk.orders()) {
+            if (completedOrders.peek() != order) {
+                break;
+            }
+            completedOrders.poll();
+            hotCompletedCount.decrementAndGet();
+
+            if (chunk.isArchive()) {
+                coldOrderStore.archive(order, chunk.encoded().get(evicted));
+            } else {
+                userOrderIndex.remove(order);
+                insertTsIndex.remove(order);
+            }
+            ordersById.remove(order.getId(), order);
+            ordersBySequence.remove(order.getSequence(), order);
+            eventStore.append(new OrderEvicted(order.getId(), order.getUserName(), order.getSequence(), chunk.isArchive()));
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Drops up to {@code maxOrders} of the oldest archived orders exceeding {@code maxArchived}.
+     *
+     * @return the number of dropped orders
+     */
+    public synchronized int dropArchived(int maxArchived, int maxOrders) {
+        int dropped = 0;
+        while (dropped < maxOrders && coldOrderStore.size() > maxArchived) {
+            Order order = coldOrderStore.dropOldest().orElseThrow();
+            userOrderIndex.remove(order);
+            insertTsIndex.remove(order);
+            eventStore.append(new OrderEvicted(order.getId(), order.getUserName(), order.getSequence(), false));
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Removes the events of the dropped orders from the stream, see {@link OrderEventStore#compact}.
+     * It does not change the orders, so it runs off the engine.
+     *
+     * @return the number of orders whose events have been removed
+     */
+    public int compactEvents() {
+        return eventStore.compact();
+    }
+
+    public int getArchivedCount() {
+        return coldOrderStore.size();
+    }
+
     //for testing only
     public void clear() {
         orderIdInProgress = null;
-        orders.clear();
+        batchInProgress = null;
+        waitingQueue.clear();
+        pendingEntries.clear();
+        ingredientDemand.clear();
+        ingredientOrderIndex.clear();
+        userOrderIndex.clear();
+        insertTsIndex.clear();
+        completedOrders.clear();
+        hotCompletedCount.set(0);
+        coldOrderStore.clear();
+        ordersBySequence.clear();
+        scheduledOrders.clear();
+        ordersById.clear();
+        eventStore.clear();
     }
 }
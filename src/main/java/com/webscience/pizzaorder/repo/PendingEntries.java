@@ -0,0 +1,124 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NOTES:
+ * Quantities still to be prepared per type of entry, summed over the WAITING orders, and the WAITING orders
+ * that can go in an oven batch, by type. Both are updated when an order enters or leaves the kitchen queue,
+ * so planning a batch never rescans the queue.
+ * Only the orders made of a single type of entry are batchable: an order mixing types would be
+ * half cooked by a batch, so it is still prepared on its own.
+ */
+class PendingEntries {
+
+    private final Map<String, AtomicLong> quantitiesByType = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Long, Order>> batchableByType = new ConcurrentHashMap<>();
+
+    public void add(Order order) {
+        List<OrderEntry> entries = order.getOrderEntries();
+        for (OrderEntry entry : entries) {
+            quantitiesByType.computeIfAbsent(entry.entryType().id(), type -> new AtomicLong())
+                    .addAndGet(entry.quantity());
+        }
+
+        String batchType = batchTypeOf(entries);
+        if (batchType != null) {
+            batchableByType.computeIfAbsent(batchType, type -> new ConcurrentSkipListMap<>())
+                    .put(order.getSequence(), order);
+        }
+    }
+
+    public void remove(Order order) {
+        List<OrderEntry> entries = order.getOrderEntries();
+        for (OrderEntry entry : entries) {
+            AtomicLong quantity = quantitiesByType.get(entry.entryType().id());
+            if (quantity != null) {
+                quantity.addAndGet(-entry.quantity());
+            }
+        }
+
+        String batchType = batchTypeOf(entries);
+        if (batchType != null) {
+            NavigableMap<Long, Order> batchable = batchableByType.get(batchType);
+            if (batchable != null) {
+                batchable.remove(order.getSequence(), order);
+            }
+        }
+    }
+
+    /**
+     * Returns the pending quantities by type of entry, skipping the types with nothing pending.
+     */
+    public NavigableMap<String, Long> getQuantities() {
+        NavigableMap<String, Long> quantities = new TreeMap<>();
+        quantitiesByType.forEach((type, quantity) -> {
+            long value = quantity.get();
+            if (value > 0) {
+                quantities.put(type, value);
+            }
+        });
+        return quantities;
+    }
+
+    /**
+     * Returns the oldest batchable orders of the given type fitting in {@code capacity} items.
+     * The batch stops at the first order not fitting, so orders are never overtaken by newer ones;
+     * an order bigger than the whole capacity makes a batch on its own.
+     */
+    public List<Order> nextBatch(String type, int capacity) {
+        NavigableMap<Long, Order> batchable = batchableByType.get(type);
+        List<Order> batch = new ArrayList<>();
+        if (batchable == null) {
+            return batch;
+        }
+
+        int quantity = 0;
+        for (Order order : batchable.values()) {
+            int orderQuantity = quantityOf(order);
+            if (quantity + orderQuantity > capacity && !batch.isEmpty()) {
+                break;
+            }
+            batch.add(order);
+            quantity += orderQuantity;
+            if (quantity >= capacity) {
+                break;
+            }
+        }
+        return batch;
+    }
+
+    public void clear() {
+        quantitiesByType.clear();
+        batchableByType.clear();
+    }
+
+    private static int quantityOf(Order order) {
+        return order.getOrderEntries().stream()
+                .mapToInt(OrderEntry::quantity)
+                .sum();
+    }
+
+    private static String batchTypeOf(List<OrderEntry> entries) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        String type = entries.get(0).entryType().id();
+        for (OrderEntry entry : entries) {
+            if (!entry.entryType().id().equals(type)) {
+                return null;
+            }
+        }
+        return type;
+    }
+}
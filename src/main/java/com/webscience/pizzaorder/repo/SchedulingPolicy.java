@@ -0,0 +1,47 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.model.Order;
+
+import java.time.Duration;
+
+/**
+ * NOTES:
+ * A scheduling policy ranks each WAITING order once, when it is enqueued: lower ranks are served first,
+ * ties by insertion. Ranks only depend on immutable properties of the order, so they never have to be
+ * recomputed and the queue stays a plain sorted structure with O(log n) enqueue and dequeue.
+ * Aging is time invariant for the same reason: waiting {@code t} millis lowers the effective rank by
+ * {@code agingFactor * t} for every order alike, so ranking by {@code prep + agingFactor * insertion}
+ * gives the same order as {@code prep - agingFactor * waited} at any time.
+ */
+@FunctionalInterface
+interface SchedulingPolicy {
+
+    long rank(Order order);
+
+    static SchedulingPolicy fifo() {
+        return order -> 0;
+    }
+
+    static SchedulingPolicy priority() {
+        return order -> order.isExpress() ? 0 : 1;
+    }
+
+    static SchedulingPolicy shortestJobFirst(double agingFactor) {
+        return order -> order.getEstimatedPrepMillis() + (long) (agingFactor * order.getInsertEpochMillis());
+    }
+
+    static SchedulingPolicy earliestDeadline(Duration defaultDeadline) {
+        long defaultDeadlineMillis = defaultDeadline.toMillis();
+        return order -> order.hasDeadline() ? order.getDeadlineEpochMillis() : order.getInsertEpochMillis() + defaultDeadlineMillis;
+    }
+
+    static SchedulingPolicy of(SchedulingProperties properties) {
+        return switch (properties.getPolicy()) {
+            case FIFO -> fifo();
+            case PRIORITY -> priority();
+            case SHORTEST_JOB_FIRST -> shortestJobFirst(properties.getAgingFactor());
+            case DEADLINE -> earliestDeadline(properties.getDefaultDeadline());
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.Order;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * NOTES:
+ * Secondary index username -> insertion sequences of the user's orders,
+ * so the orders of a user are found without scanning all the orders.
+ * Sequences are kept sorted, so the newest orders come first when reading them in descending order.
+ */
+class UserOrderIndex {
+
+    private final Map<String, NavigableSet<Long>> sequencesByUserName = new ConcurrentHashMap<>();
+
+    public void add(Order order) {
+        if (order.getUserName() == null) {
+            return;
+        }
+        sequencesByUserName.compute(order.getUserName(), (userName, sequences) -> {
+            NavigableSet<Long> result = sequences == null ? new ConcurrentSkipListSet<>() : sequences;
+            result.add(order.getSequence());
+            return result;
+        });
+    }
+
+    public void remove(Order order) {
+        if (order.getUserName() == null) {
+            return;
+        }
+        sequencesByUserName.computeIfPresent(order.getUserName(), (userName, sequences) -> {
+            sequences.remove(order.getSequence());
+            return sequences.isEmpty() ? null : sequences;
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} sequences of the user's orders, newest first, skipping the first {@code offset}.
+     */
+    public List<Long> getNewestFirst(String userName, long offset, int limit) {
+        NavigableSet<Long> sequences = sequencesByUserName.get(userName);
+        if (sequences == null) {
+            return List.of();
+        }
+
+        List<Long> page = new ArrayList<>(Math.min(limit, sequences.size()));
+        Iterator<Long> iterator = sequences.descendingIterator();
+        for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    public void clear() {
+        sequencesByUserName.clear();
+    }
+}
@@ -0,0 +1,221 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.QueuePosition;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * NOTES:
+ * Kitchen queue of the WAITING orders, sorted by the rank given by the {@link SchedulingPolicy},
+ * then by insertion sequence.
+ * Each order is weighted with its estimated preparation time, so the position of an order
+ * and the preparation time of the orders before it are both available in O(log n).
+ * The orders are partitioned by id hash over independent shards, each with its own skip list and lock,
+ * so enqueueing and dequeueing orders of different shards never contend.
+ * The whole queue is the k-way merge of the shards: the first order is the least of the shard heads,
+ * the position of an order the sum of the orders before it in every shard, O(shards * log n).
+ * Reads spanning the shards are not atomic, each shard is read at a slightly different moment.
+ */
+class WaitingQueue {
+
+    private final SchedulingPolicy schedulingPolicy;
+    private final Shard[] shards;
+
+    WaitingQueue(SchedulingPolicy schedulingPolicy) {
+        this(schedulingPolicy, 1);
+    }
+
+    WaitingQueue(SchedulingPolicy schedulingPolicy, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.schedulingPolicy = schedulingPolicy;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public void add(Order order) {
+        shardOf(order).put(keyOf(order), order);
+    }
+
+    public boolean remove(Order order) {
+        return shardOf(order).remove(keyOf(order));
+    }
+
+    public Optional<QueuePosition> getPosition(Order order) {
+        Key key = keyOf(order);
+        Shard ownShard = shardOf(order);
+        IndexedSkipList.Rank rank = ownShard.rank(key);
+        if (rank == null) {
+            return Optional.empty();
+        }
+
+        int position = rank.position();
+        long weightSum = rank.weightSum();
+        for (Shard shard : shards) {
+            if (shard != ownShard) {
+                IndexedSkipList.Rank headRank = shard.headRank(key);
+                position += headRank.position();
+                weightSum += headRank.weightSum();
+            }
+        }
+        return Optional.of(new QueuePosition(position, weightSum));
+    }
+
+    public Optional<Order> getFirst() {
+        if (shards.length == 1) {
+            return Optional.ofNullable(shards[0].first());
+        }
+
+        Order first = null;
+        Key firstKey = null;
+        for (Shard shard : shards) {
+            Order head = shard.first();
+            if (head != null) {
+                Key headKey = keyOf(head);
+                if (firstKey == null || headKey.compareTo(firstKey) < 0) {
+                    first = head;
+                    firstKey = headKey;
+                }
+            }
+        }
+        return Optional.ofNullable(first);
+    }
+
+    public List<Order> getAll() {
+        if (shards.length == 1) {
+            return shards[0].values();
+        }
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(shards.length);
+        int size = 0;
+        for (Shard shard : shards) {
+            List<Order> orders = shard.values();
+            size += orders.size();
+            Iterator<Order> iterator = orders.iterator();
+            if (iterator.hasNext()) {
+                cursors.add(new Cursor(iterator));
+            }
+        }
+
+        List<Order> merged = new ArrayList<>(size);
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            merged.add(cursor.current);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The number of queued orders, summed over the shards without copying them.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    private Shard shardOf(Order order) {
+        if (shards.length == 1) {
+            return shards[0];
+        }
+        int hash = order.getId().hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private Key keyOf(Order order) {
+        return new Key(schedulingPolicy.rank(order), order.getSequence());
+    }
+
+    private record Key(long rank, long sequence) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key other) {
+            int result = Long.compare(rank, other.rank);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class Shard {
+        private final IndexedSkipList<Key, Order> orders = new IndexedSkipList<>();
+
+        synchronized void put(Key key, Order order) {
+            orders.put(key, order, order.getEstimatedPrepMillis());
+        }
+
+        synchronized boolean remove(Key key) {
+            return orders.remove(key) != null;
+        }
+
+        synchronized IndexedSkipList.Rank rank(Key key) {
+            return orders.rank(key);
+        }
+
+        synchronized IndexedSkipList.Rank headRank(Key key) {
+            return orders.headRank(key);
+        }
+
+        synchronized Order first() {
+            return orders.first();
+        }
+
+        synchronized List<Order> values() {
+            return orders.values();
+        }
+
+        synchronized int size() {
+            return orders.size();
+        }
+
+        synchronized void clear() {
+            orders.clear();
+        }
+    }
+
+    private class Cursor implements Comparable<Cursor> {
+        private final Iterator<Order> iterator;
+        private Order current;
+        private Key currentKey;
+
+        private Cursor(Iterator<Order> iterator) {
+            this.iterator = iterator;
+            advance();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            currentKey = keyOf(current);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return currentKey.compareTo(other.currentKey);
+        }
+    }
+}
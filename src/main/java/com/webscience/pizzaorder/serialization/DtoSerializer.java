@@ -0,0 +1,82 @@
+package com.webscience.pizzaorder.serialization;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NOTES:
+ * Base of the hand written serializers of the DTOs: the serializer registered by the module is only a template,
+ * its contextual copy resolves once, for the configuration of the mapper, what the bean serializer would resolve
+ * (the names of the properties, e.g. the compact field ids of the binary formats, whether the null values are
+ * written, the serializers of the enums and dates), so writing a DTO is just calls to its getters and the generator.
+ * Only the ALWAYS and NON_NULL inclusions are supported.
+ */
+abstract class DtoSerializer<T> extends StdSerializer<T> implements ContextualSerializer {
+
+    protected DtoSerializer(Class<T> type) {
+        super(type);
+    }
+
+    protected static Map<String, SerializedString> resolveNames(SerializerProvider provider, Class<?> type) {
+        BeanDescription description = introspect(provider, type);
+        Map<String, SerializedString> names = new HashMap<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            names.put(property.getInternalName(), new SerializedString(property.getName()));
+        }
+        return names;
+    }
+
+    protected static boolean skipsNulls(SerializerProvider provider, Class<?> type) throws JsonMappingException {
+        BeanDescription description = introspect(provider, type);
+        JsonInclude.Include inclusion = description.findPropertyInclusion(provider.getConfig().getDefaultPropertyInclusion(type))
+                .getValueInclusion();
+        if (inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS) {
+            return false;
+        }
+        if (inclusion == JsonInclude.Include.NON_NULL) {
+            return true;
+        }
+        return provider.reportBadDefinition(provider.constructType(type),
+                "Inclusion " + inclusion + " not supported by the hand written serializer of " + type.getSimpleName());
+    }
+
+    protected static void writeString(JsonGenerator gen, SerializerProvider provider, boolean skipNulls, SerializedString name,
+                                      String value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        } else if (!skipNulls) {
+            gen.writeFieldName(name);
+            provider.defaultSerializeNull(gen);
+        }
+    }
+
+    protected static <V> void writeValue(JsonGenerator gen, SerializerProvider provider, boolean skipNulls, SerializedString name,
+                                         V value, JsonSerializer<Object> serializer) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            serializer.serialize(value, gen, provider);
+        } else if (!skipNulls) {
+            gen.writeFieldName(name);
+            provider.defaultSerializeNull(gen);
+        }
+    }
+
+    private static BeanDescription introspect(SerializerProvider provider, Class<?> type) {
+        SerializationConfig config = provider.getConfig();
+        return config.introspect(config.constructType(type));
+    }
+}
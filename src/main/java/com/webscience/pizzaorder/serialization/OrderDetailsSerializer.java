@@ -0,0 +1,93 @@
+package com.webscience.pizzaorder.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+class OrderDetailsSerializer extends DtoSerializer<OrderDetailsResponseDTO> {
+
+    private final SerializedString id;
+    private final SerializedString username;
+    private final SerializedString entries;
+    private final SerializedString status;
+    private final SerializedString express;
+    private final SerializedString requestedTime;
+    private final SerializedString insertTs;
+    private final boolean skipNulls;
+    private final JsonSerializer<Object> entrySerializer;
+    private final JsonSerializer<Object> statusSerializer;
+    private final JsonSerializer<Object> timestampSerializer;
+
+    OrderDetailsSerializer() {
+        this(null, false, null, null, null);
+    }
+
+    private OrderDetailsSerializer(Map<String, SerializedString> names, boolean skipNulls, JsonSerializer<Object> entrySerializer,
+                                   JsonSerializer<Object> statusSerializer, JsonSerializer<Object> timestampSerializer) {
+        super(OrderDetailsResponseDTO.class);
+        this.id = names == null ? null : names.get("id");
+        this.username = names == null ? null : names.get("username");
+        this.entries = names == null ? null : names.get("entries");
+        this.status = names == null ? null : names.get("status");
+        this.express = names == null ? null : names.get("express");
+        this.requestedTime = names == null ? null : names.get("requestedTime");
+        this.insertTs = names == null ? null : names.get("insertTs");
+        this.skipNulls = skipNulls;
+        this.entrySerializer = entrySerializer;
+        this.statusSerializer = statusSerializer;
+        this.timestampSerializer = timestampSerializer;
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        return new OrderDetailsSerializer(resolveNames(provider, OrderDetailsResponseDTO.class),
+                skipsNulls(provider, OrderDetailsResponseDTO.class),
+                provider.findValueSerializer(OrderEntryDTO.class, null),
+                provider.findValueSerializer(OrderStatus.class, null),
+                provider.findValueSerializer(OffsetDateTime.class, null));
+    }
+
+    @Override
+    public void serialize(OrderDetailsResponseDTO details, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(details);
+        writeString(gen, provider, skipNulls, id, details.getId());
+        writeString(gen, provider, skipNulls, username, details.getUsername());
+        List<OrderEntryDTO> orderEntries = details.getEntries();
+        if (orderEntries != null) {
+            gen.writeFieldName(entries);
+            writeEntries(gen, provider, orderEntries);
+        } else if (!skipNulls) {
+            gen.writeFieldName(entries);
+            provider.defaultSerializeNull(gen);
+        }
+        writeValue(gen, provider, skipNulls, status, details.getStatus(), statusSerializer);
+        gen.writeFieldName(express);
+        gen.writeBoolean(details.isExpress());
+        writeValue(gen, provider, skipNulls, requestedTime, details.getRequestedTime(), timestampSerializer);
+        writeValue(gen, provider, skipNulls, insertTs, details.getInsertTs(), timestampSerializer);
+        gen.writeEndObject();
+    }
+
+    private void writeEntries(JsonGenerator gen, SerializerProvider provider, List<OrderEntryDTO> orderEntries) throws IOException {
+        gen.writeStartArray(orderEntries, orderEntries.size());
+        for (OrderEntryDTO entry : orderEntries) {
+            if (entry == null) {
+                provider.defaultSerializeNull(gen);
+            } else {
+                entrySerializer.serialize(entry, gen, provider);
+            }
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,67 @@
+package com.webscience.pizzaorder.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+class OrderEntrySerializer extends DtoSerializer<OrderEntryDTO> {
+
+    private final SerializedString type;
+    private final SerializedString quantity;
+    private final SerializedString additionalIngredients;
+    private final boolean skipNulls;
+
+    OrderEntrySerializer() {
+        this(null, false);
+    }
+
+    private OrderEntrySerializer(Map<String, SerializedString> names, boolean skipNulls) {
+        super(OrderEntryDTO.class);
+        this.type = names == null ? null : names.get("type");
+        this.quantity = names == null ? null : names.get("quantity");
+        this.additionalIngredients = names == null ? null : names.get("additionalIngredients");
+        this.skipNulls = skipNulls;
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        return new OrderEntrySerializer(resolveNames(provider, OrderEntryDTO.class), skipsNulls(provider, OrderEntryDTO.class));
+    }
+
+    @Override
+    public void serialize(OrderEntryDTO entry, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(entry);
+        writeString(gen, provider, skipNulls, type, entry.getType());
+        gen.writeFieldName(quantity);
+        gen.writeNumber(entry.getQuantity());
+        List<String> ingredients = entry.getAdditionalIngredients();
+        if (ingredients != null) {
+            gen.writeFieldName(additionalIngredients);
+            writeStrings(gen, provider, ingredients);
+        } else if (!skipNulls) {
+            gen.writeFieldName(additionalIngredients);
+            provider.defaultSerializeNull(gen);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeStrings(JsonGenerator gen, SerializerProvider provider, List<String> values) throws IOException {
+        gen.writeStartArray(values, values.size());
+        for (String value : values) {
+            if (value == null) {
+                provider.defaultSerializeNull(gen);
+            } else {
+                gen.writeString(value);
+            }
+        }
+        gen.writeEndArray();
+    }
+}
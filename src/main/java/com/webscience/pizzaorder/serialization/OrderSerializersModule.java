@@ -0,0 +1,22 @@
+package com.webscience.pizzaorder.serialization;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+
+/**
+ * NOTES:
+ * Hand written serializers of the DTOs written on every order read, in place of the bean serializers:
+ * no property writers and no reflective calls of the getters, the same output byte by byte.
+ * They follow the fields of the DTOs: a field added to one of them must be added to its serializer too.
+ */
+public class OrderSerializersModule extends SimpleModule {
+
+    public OrderSerializersModule() {
+        super(OrderSerializersModule.class.getSimpleName());
+        addSerializer(OrderDetailsResponseDTO.class, new OrderDetailsSerializer());
+        addSerializer(OrderEntryDTO.class, new OrderEntrySerializer());
+        addSerializer(OrderStatusResponseDTO.class, new OrderStatusResponseSerializer());
+    }
+}
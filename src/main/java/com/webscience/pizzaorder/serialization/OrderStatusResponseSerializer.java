@@ -0,0 +1,65 @@
+package com.webscience.pizzaorder.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+
+import java.io.IOException;
+import java.util.Map;
+
+class OrderStatusResponseSerializer extends DtoSerializer<OrderStatusResponseDTO> {
+
+    private final SerializedString status;
+    private final SerializedString queuePosition;
+    private final SerializedString estimatedReadyInMinutes;
+    private final boolean skipNulls;
+    private final JsonSerializer<Object> statusSerializer;
+
+    OrderStatusResponseSerializer() {
+        this(null, false, null);
+    }
+
+    private OrderStatusResponseSerializer(Map<String, SerializedString> names, boolean skipNulls, JsonSerializer<Object> statusSerializer) {
+        super(OrderStatusResponseDTO.class);
+        this.status = names == null ? null : names.get("status");
+        this.queuePosition = names == null ? null : names.get("queuePosition");
+        this.estimatedReadyInMinutes = names == null ? null : names.get("estimatedReadyInMinutes");
+        this.skipNulls = skipNulls;
+        this.statusSerializer = statusSerializer;
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        return new OrderStatusResponseSerializer(resolveNames(provider, OrderStatusResponseDTO.class),
+                skipsNulls(provider, OrderStatusResponseDTO.class),
+                provider.findValueSerializer(OrderStatus.class, null));
+    }
+
+    @Override
+    public void serialize(OrderStatusResponseDTO response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(response);
+        writeValue(gen, provider, skipNulls, status, response.getStatus(), statusSerializer);
+        Integer position = response.getQueuePosition();
+        if (position != null) {
+            gen.writeFieldName(queuePosition);
+            gen.writeNumber(position.intValue());
+        } else if (!skipNulls) {
+            gen.writeFieldName(queuePosition);
+            provider.defaultSerializeNull(gen);
+        }
+        Long readyInMinutes = response.getEstimatedReadyInMinutes();
+        if (readyInMinutes != null) {
+            gen.writeFieldName(estimatedReadyInMinutes);
+            gen.writeNumber(readyInMinutes.longValue());
+        } else if (!skipNulls) {
+            gen.writeFieldName(estimatedReadyInMinutes);
+            provider.defaultSerializeNull(gen);
+        }
+        gen.writeEndObject();
+    }
+}
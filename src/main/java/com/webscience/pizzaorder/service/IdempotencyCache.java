@@ -0,0 +1,189 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.exception.IdempotencyKeyReusedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * NOTES:
+ * Bounded cache of idempotency key -> order id.
+ * Keys are scoped by user, so two users can never get each other's order by sending the same key.
+ * The first request with a given key creates the order, concurrent and later requests with the same key
+ * wait for it and get the very same id, as long as they carry the same request: the fingerprint of the first
+ * request is kept, and a different one is refused. Keys expire after {@code ttl}, and the oldest ones are evicted
+ * when the cache exceeds {@code maxSize}: since keys are added in time order, a FIFO queue is enough
+ * to find the expired ones without scanning the whole cache.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final int maxSize;
+
+    private final Map<ScopedKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public IdempotencyCache(Clock clock,
+                            @Value("${pizzaorder.idempotency.ttl:PT1H}") Duration ttl,
+                            @Value("${pizzaorder.idempotency.max-size:100000}") int maxSize) {
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the order id bound to the key of the given user, calling {@code creator} only if the key is new (or expired).
+     * If the creation fails, whatever the failure, the key is released and the failure is propagated to all the waiting requests.
+     *
+     * @throws IdempotencyKeyReusedException if the key is bound to a request with another fingerprint
+     */
+    public String getOrCreate(String userName, String key, String fingerprint, Supplier<String> creator) {
+        long now = clock.millis();
+        ScopedKey scopedKey = new ScopedKey(userName, key);
+        Entry entry = new Entry(scopedKey, fingerprint, now);
+
+        while (true) {
+            Entry existing = entries.putIfAbsent(scopedKey, entry);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired(now)) {
+                if (!existing.fingerprint.equals(fingerprint)) {
+                    throw new IdempotencyKeyReusedException();
+                }
+                return existing.await();
+            }
+            if (entries.replace(scopedKey, existing, entry)) {
+                break;
+            }
+        }
+
+        try {
+            String orderId = creator.get();
+            entry.orderId.complete(orderId);
+        } catch (Throwable e) {
+            entries.remove(scopedKey, entry);
+            entry.orderId.completeExceptionally(e);
+            throw e;
+        }
+
+        insertionOrder.add(entry);
+        size.incrementAndGet();
+        evict(now);
+
+        return entry.orderId.join();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            if (!oldest.isExpired(now) && size.get() <= maxSize) {
+                return;
+            }
+            if (insertionOrder.remove(oldest)) {
+                size.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * Fingerprint of an order creation request: a SHA-256 of all its fields, so a retry can be told apart
+     * from another request reusing the key.
+     */
+    public static String fingerprintOf(OrderCreationRequestDTO requestDTO) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, requestDTO.getUsername());
+        update(digest, String.valueOf(requestDTO.isExpress()));
+        update(digest, requestDTO.getReadyBy() == null ? null : requestDTO.getReadyBy().toString());
+        update(digest, requestDTO.getRequestedTime() == null ? null : requestDTO.getRequestedTime().toString());
+        if (requestDTO.getEntries() != null) {
+            for (OrderEntryDTO entryDTO : requestDTO.getEntries()) {
+                update(digest, entryDTO.getType());
+                update(digest, String.valueOf(entryDTO.getQuantity()));
+                if (entryDTO.getAdditionalIngredients() != null) {
+                    entryDTO.getAdditionalIngredients().forEach(ingredient -> update(digest, ingredient));
+                }
+                update(digest, null);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Length prefixed, so that no two different sequences of values give the same input.
+     */
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private record ScopedKey(String userName, String key) {
+    }
+
+    private class Entry {
+        private final ScopedKey key;
+        private final String fingerprint;
+        private final long createdMillis;
+        private final CompletableFuture<String> orderId = new CompletableFuture<>();
+
+        private Entry(ScopedKey key, String fingerprint, long createdMillis) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdMillis = createdMillis;
+        }
+
+        private boolean isExpired(long now) {
+            return now - createdMillis >= ttlMillis;
+        }
+
+        private String await() {
+            try {
+                return orderId.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.dto.StockDTO;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+import com.webscience.pizzaorder.repo.InventoryRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+@Service
+public class InventoryService {
+
+    private final InventoryRepo inventoryRepo;
+
+    public List<StockDTO> getStock() {
+        return inventoryRepo.getStock().entrySet().stream()
+                .map(stock -> buildStock(stock.getKey(), stock.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    public StockDTO restock(String ingredient, long units) {
+        long available = inventoryRepo.restock(ingredient, units);
+        return buildStock(IngredientDictionary.normalize(ingredient), available);
+    }
+
+    private static StockDTO buildStock(String ingredient, long available) {
+        return StockDTO.builder()
+                .ingredient(ingredient)
+                .available(available)
+                .build();
+    }
+}
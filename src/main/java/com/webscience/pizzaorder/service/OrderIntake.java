@@ -0,0 +1,209 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.configuration.IntakeProperties;
+import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.exception.OrderNotYetAppliedException;
+import com.webscience.pizzaorder.exception.TooManyRequestsException;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NOTES:
+ * Asynchronous order intake: request threads only check the entry types, give the order its id and put it
+ * in a bounded ring buffer (an {@link ArrayBlockingQueue}), while a single writer thread drains the buffer
+ * and applies the orders in batches, in arrival order, each batch as a single command of the engine.
+ * When the buffer is full the client is asked to retry later: the backlog never grows without limit,
+ * and at the peak the latency of the request does not depend on the work of the kitchen side.
+ * Until it is applied, the status of an order is RECEIVED, its details are the ones requested and it cannot
+ * be cancelled yet; an order that cannot be applied is stored as REJECTED, since its id has already been given out.
+ */
+@Slf4j
+@Service
+public class OrderIntake {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final OrderService orderService;
+    private final OrderRepo orderRepo;
+    private final IdempotencyCache idempotencyCache;
+    private final IntakeProperties intakeProperties;
+
+    private final BlockingQueue<ReceivedOrder> buffer;
+    private final Map<String, OrderCreationRequestDTO> receivedOrders = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread writer;
+
+    public OrderIntake(OrderService orderService, OrderRepo orderRepo, IdempotencyCache idempotencyCache, IntakeProperties intakeProperties) {
+        this.orderService = orderService;
+        this.orderRepo = orderRepo;
+        this.idempotencyCache = idempotencyCache;
+        this.intakeProperties = intakeProperties;
+        this.buffer = new ArrayBlockingQueue<>(intakeProperties.getCapacity());
+    }
+
+    public boolean isAsync() {
+        return intakeProperties.isAsync();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isAsync()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join();
+    }
+
+    /**
+     * Receives the order only once per idempotency key, see {@link OrderService#createOrder(OrderCreationRequestDTO, String)}.
+     */
+    public String receiveOrder(OrderCreationRequestDTO requestDTO, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return receiveOrder(requestDTO);
+        }
+        return idempotencyCache.getOrCreate(requestDTO.getUsername(), idempotencyKey, IdempotencyCache.fingerprintOf(requestDTO),
+                () -> receiveOrder(requestDTO));
+    }
+
+    /**
+     * Buffers the order to be applied by the writer thread, returning its id right away.
+     *
+     * @throws TooManyRequestsException when the buffer is full
+     */
+    public String receiveOrder(OrderCreationRequestDTO requestDTO) {
+        orderService.checkOrder(requestDTO);
+
+        String orderId = orderRepo.generate();
+        receivedOrders.put(orderId, requestDTO);
+        if (!buffer.offer(new ReceivedOrder(orderId, requestDTO))) {
+            receivedOrders.remove(orderId);
+            throw new TooManyRequestsException(RETRY_AFTER_SECONDS);
+        }
+        return orderId;
+    }
+
+    public OrderStatusResponseDTO getOrderStatus(String orderId) {
+        if (receivedOrders.containsKey(orderId)) {
+            return OrderStatusResponseDTO.builder()
+                    .status(OrderStatus.RECEIVED)
+                    .build();
+        }
+        return orderService.getOrderStatus(orderId);
+    }
+
+    public OrderDetailsResponseDTO getOrderDetails(String orderId) {
+        OrderCreationRequestDTO requestDTO = receivedOrders.get(orderId);
+        if (requestDTO != null) {
+            return orderService.buildReceivedOrderDetails(orderId, requestDTO);
+        }
+        return orderService.getOrderDetails(orderId);
+    }
+
+    /**
+     * @throws OrderNotYetAppliedException while the order is RECEIVED, the client can retry once it is applied
+     */
+    public void cancelOrder(String orderId) {
+        if (receivedOrders.containsKey(orderId)) {
+            throw new OrderNotYetAppliedException();
+        }
+        orderService.cancelOrder(orderId);
+    }
+
+    public int getBacklog() {
+        return buffer.size();
+    }
+
+    /**
+     * Applies up to {@code batchSize} buffered orders.
+     *
+     * @return the number of applied orders
+     */
+    int applyBatch() {
+        List<ReceivedOrder> batch = new ArrayList<>();
+        buffer.drainTo(batch, intakeProperties.getBatchSize());
+        apply(batch);
+        return batch.size();
+    }
+
+    private void runWriter() {
+        while (running) {
+            try {
+                // parks until an order arrives, then takes the ones queued meanwhile along with it
+                List<ReceivedOrder> batch = new ArrayList<>();
+                batch.add(buffer.take());
+                buffer.drainTo(batch, intakeProperties.getBatchSize() - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        while (applyBatch() > 0) {
+            // drains what has been received before stopping
+        }
+    }
+
+    private void apply(List<ReceivedOrder> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, OrderCreationRequestDTO> requests = new LinkedHashMap<>();
+        batch.forEach(receivedOrder -> requests.put(receivedOrder.orderId(), receivedOrder.requestDTO()));
+        Map<String, RuntimeException> failures;
+        try {
+            failures = orderService.applyReceivedOrders(requests);
+        } catch (RuntimeException e) {
+            failures = new LinkedHashMap<>();
+            for (String orderId : requests.keySet()) {
+                failures.put(orderId, e);
+            }
+        }
+
+        for (ReceivedOrder receivedOrder : batch) {
+            RuntimeException failure = failures.get(receivedOrder.orderId());
+            if (failure != null) {
+                log.error("Cannot apply received order {}, rejecting it", receivedOrder.orderId(), failure);
+                reject(receivedOrder);
+            }
+            // removed only once applied, so that the order is always found either here or in the repo
+            receivedOrders.remove(receivedOrder.orderId());
+        }
+    }
+
+    private void reject(ReceivedOrder receivedOrder) {
+        try {
+            orderService.rejectReceivedOrder(receivedOrder.orderId(), receivedOrder.requestDTO());
+        } catch (RuntimeException e) {
+            log.error("Cannot reject received order {}", receivedOrder.orderId(), e);
+        }
+    }
+
+    private record ReceivedOrder(String orderId, OrderCreationRequestDTO requestDTO) {
+    }
+}
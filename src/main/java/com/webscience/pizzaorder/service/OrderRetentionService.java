@@ -0,0 +1,71 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.configuration.RetentionProperties;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.repo.EvictionChunk;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+
+/**
+ * NOTES:
+ * Applies the retention policy in background, on the scheduler thread:
+ * request threads never wait for an eviction.
+ * The orders are evicted in bounded chunks, one command of the engine per chunk, and encoded for the cold tier
+ * on the scheduler thread before their command is submitted: in the SINGLE_WRITER mode the commands of the
+ * requests wait at most for one chunk, never for the whole pass.
+ * The stream of events is compacted at the end of the pass, off the engine too.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class OrderRetentionService {
+
+    private final OrderRepo orderRepo;
+    private final OrderEngine orderEngine;
+    private final RetentionProperties retentionProperties;
+    private final Clock clock;
+
+    @Scheduled(fixedDelayString = "${pizzaorder.retention.interval:PT30S}")
+    public void evictCompletedOrders() {
+        if (retentionProperties.getMode() == RetentionProperties.Mode.KEEP) {
+            return;
+        }
+
+        OffsetDateTime completedBefore = OffsetDateTime.now(clock).minus(retentionProperties.getTtl());
+        boolean archive = retentionProperties.getMode() == RetentionProperties.Mode.ARCHIVE;
+
+        int chunkSize = Math.max(1, retentionProperties.getChunkSize());
+
+        int evicted = 0;
+        while (true) {
+            EvictionChunk chunk = orderRepo.prepareEviction(completedBefore, retentionProperties.getMaxCompleted(), archive, chunkSize);
+            if (chunk.size() > 0) {
+                evicted += orderEngine.executeConcurrently(() -> orderRepo.evict(chunk));
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        while (orderRepo.getArchivedCount() > retentionProperties.getMaxArchived()) {
+            int dropped = orderEngine.executeConcurrently(() -> orderRepo.dropArchived(retentionProperties.getMaxArchived(), chunkSize));
+            if (dropped == 0) {
+                break;
+            }
+            evicted += dropped;
+        }
+
+        // also when nothing was evicted: the orders dropped before can be held by a standby behind
+        orderRepo.compactEvents();
+
+        if (evicted > 0) {
+            log.debug("Evicted {} completed orders ({} archived so far)", evicted, orderRepo.getArchivedCount());
+        }
+    }
+}
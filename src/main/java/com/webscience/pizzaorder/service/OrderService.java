@@ -1,41 +1,196 @@
 package com.webscience.pizzaorder.service;
 
+import com.webscience.pizzaorder.configuration.OvenProperties;
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.dto.BatchPlanResponseDTO;
+import com.webscience.pizzaorder.dto.IngredientDemandDTO;
 import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
 import com.webscience.pizzaorder.dto.OrderEntryDTO;
 import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderStatsResponseDTO;
 import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.dto.OvenBatchDTO;
+import com.webscience.pizzaorder.dto.PendingEntryTypeDTO;
+import com.webscience.pizzaorder.engine.KitchenView;
+import com.webscience.pizzaorder.engine.OrderEngine;
 import com.webscience.pizzaorder.exception.*;
 import com.webscience.pizzaorder.model.EntryType;
 import com.webscience.pizzaorder.model.Order;
 import com.webscience.pizzaorder.model.OrderEntry;
 import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.projection.CustomerOrderProjection;
+import com.webscience.pizzaorder.projection.CustomerOrderView;
+import com.webscience.pizzaorder.projection.KitchenQueueProjection;
+import com.webscience.pizzaorder.projection.UserHistoryProjection;
 import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+import com.webscience.pizzaorder.repo.InventoryRepo;
 import com.webscience.pizzaorder.repo.OrderRepo;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * NOTES:
+ * Commands go through the {@link OrderEngine} to the {@link OrderRepo}, whose changes are appended as events.
+ * The kitchen waiting list, the customer status and details and the history of a user are read from
+ * the projections of those events, with the details already built; only the orders no more in memory
+ * (archived) are read from the repo and mapped. The order and the oven batch in progress are read from the
+ * {@link KitchenView} published by the engine.
+ */
 @RequiredArgsConstructor
 @Service
 public class OrderService {
 
+    private static final long MILLIS_PER_MINUTE = Duration.ofMinutes(1).toMillis();
+
     private final EntryTypeRepo entryTypeRepo;
     private final OrderRepo orderRepo;
+    private final IngredientDictionary ingredientDictionary;
+    private final InventoryRepo inventoryRepo;
+    private final OrderStatsService orderStatsService;
+    private final IdempotencyCache idempotencyCache;
+    private final PreOrderScheduler preOrderScheduler;
+    private final OrderEngine orderEngine;
+    private final KitchenQueueProjection kitchenQueueProjection;
+    private final CustomerOrderProjection customerOrderProjection;
+    private final UserHistoryProjection userHistoryProjection;
+    private final OvenProperties ovenProperties;
+    private final SchedulingProperties schedulingProperties;
     private final Clock clock;
 
-    private final Object lock = new Object();
+    /**
+     * Creates the order only once per idempotency key of the user: a retry with the same key and the same request
+     * returns the id of the original order, without validating and inserting it again, another request is refused.
+     */
+    public String createOrder(OrderCreationRequestDTO requestDTO, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createOrder(requestDTO);
+        }
+        return idempotencyCache.getOrCreate(requestDTO.getUsername(), idempotencyKey, IdempotencyCache.fingerprintOf(requestDTO),
+                () -> createOrder(requestDTO));
+    }
 
     public String createOrder(OrderCreationRequestDTO requestDTO) {
         String orderId = orderRepo.generate();
         Order order = buildOrderModel(orderId, requestDTO);
-        orderRepo.addOrder(order);
+        orderEngine.runConcurrently(() -> {
+            inventoryRepo.reserve(order);
+            storeOrder(order);
+        });
         return orderId;
     }
 
+    /**
+     * Checks the parts of the request that can be rejected to the client by the async intake,
+     * before the order is actually built.
+     */
+    public void checkOrder(OrderCreationRequestDTO requestDTO) {
+        for (OrderEntryDTO entry : requestDTO.getEntries()) {
+            entryTypeRepo.findById(entry.getType())
+                    .orElseThrow(InvalidEntryTypeException::new);
+        }
+    }
+
+    /**
+     * Applies a batch of orders received by the async intake, with the ids already given to the clients,
+     * in the given order and as a single command of the engine.
+     * A shortage of stock cannot be reported to the client anymore, so the order is stored as REJECTED;
+     * any other failure of an order does not stop the rest of the batch and is returned.
+     *
+     * @return the orders that could not be applied, by id, with the cause
+     */
+    public Map<String, RuntimeException> applyReceivedOrders(Map<String, OrderCreationRequestDTO> requests) {
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        List<Order> orders = new ArrayList<>(requests.size());
+        requests.forEach((orderId, requestDTO) -> {
+            try {
+                orders.add(buildOrderModel(orderId, requestDTO));
+            } catch (RuntimeException e) {
+                failures.put(orderId, e);
+            }
+        });
+
+        orderEngine.runConcurrently(() -> {
+            for (Order order : orders) {
+                try {
+                    applyReceivedOrder(order);
+                } catch (RuntimeException e) {
+                    failures.put(order.getId(), e);
+                }
+            }
+        });
+        return failures;
+    }
+
+    private void applyReceivedOrder(Order order) {
+        try {
+            inventoryRepo.reserve(order);
+        } catch (OutOfStockException e) {
+            order.setOrderStatus(OrderStatus.REJECTED);
+            order.setCompletionTs(OffsetDateTime.now(clock));
+        }
+        storeOrder(order);
+    }
+
+    /**
+     * Stores as REJECTED a received order that could not be applied, unless it has been stored meanwhile:
+     * its id has already been given to the client, which finds out through the status of the order.
+     * Only the entries whose type still exists are kept.
+     */
+    public void rejectReceivedOrder(String orderId, OrderCreationRequestDTO requestDTO) {
+        orderEngine.runConcurrently(() -> {
+            if (orderRepo.getOrderById(orderId).isPresent()) {
+                return;
+            }
+            List<OrderEntry> orderEntries = requestDTO.getEntries().stream()
+                    .filter(entry -> entryTypeRepo.findById(entry.getType()).isPresent())
+                    .map(this::buildOrderItemModel)
+                    .toList();
+            OffsetDateTime now = OffsetDateTime.now(clock);
+            orderRepo.addOrder(Order.builder()
+                    .id(orderId)
+                    .userName(requestDTO.getUsername())
+                    .orderEntries(orderEntries)
+                    .requestedTs(requestDTO.getRequestedTime())
+                    .orderStatus(OrderStatus.REJECTED)
+                    .insertTs(now)
+                    .completionTs(now)
+                    .build());
+        });
+    }
+
+    /**
+     * Returns the details of an order received by the async intake but not applied yet, as requested.
+     */
+    public OrderDetailsResponseDTO buildReceivedOrderDetails(String orderId, OrderCreationRequestDTO requestDTO) {
+        return OrderDetailsResponseDTO.builder()
+                .id(orderId)
+                .username(requestDTO.getUsername())
+                .entries(requestDTO.getEntries())
+                .status(OrderStatus.RECEIVED)
+                .express(schedulingProperties.isTrustClientExpress() && requestDTO.isExpress())
+                .requestedTime(requestDTO.getRequestedTime())
+                .build();
+    }
+
+    private void storeOrder(Order order) {
+        orderRepo.addOrder(order);
+        if (order.getOrderStatus() == OrderStatus.SCHEDULED) {
+            preOrderScheduler.schedule(order);
+        }
+    }
+
     private Order buildOrderModel(String orderId, OrderCreationRequestDTO requestDTO) {
         List<OrderEntry> orderEntries = requestDTO.getEntries().stream()
                 .map(this::buildOrderItemModel)
@@ -45,7 +200,11 @@ public class OrderService {
                 .id(orderId)
                 .userName(requestDTO.getUsername())
                 .orderEntries(orderEntries)
-                .orderStatus(OrderStatus.WAITING)
+                .estimatedPrepMillis(orderStatsService.estimatePrepMillis(orderEntries))
+                .express(schedulingProperties.isTrustClientExpress() && requestDTO.isExpress())
+                .deadline(requestDTO.getReadyBy() != null ? requestDTO.getReadyBy() : requestDTO.getRequestedTime())
+                .requestedTs(requestDTO.getRequestedTime())
+                .orderStatus(preOrderScheduler.isToBeHeld(requestDTO.getRequestedTime()) ? OrderStatus.SCHEDULED : OrderStatus.WAITING)
                 .insertTs(OffsetDateTime.now(clock))
                 .build();
     }
@@ -54,31 +213,103 @@ public class OrderService {
         EntryType type = entryTypeRepo.findById(orderEntryDTO.getType())
                 .orElseThrow(InvalidEntryTypeException::new);
 
+        List<String> ingredients = ingredientDictionary.canonicalize(orderEntryDTO.getAdditionalIngredients());
         return OrderEntry.builder()
                 .entryType(type)
                 .quantity(orderEntryDTO.getQuantity())
-                .additionalIngredients(orderEntryDTO.getAdditionalIngredients())
+                .additionalIngredients(ingredients)
+                .normalizedIngredients(ingredientDictionary.normalizeAll(ingredients))
                 .build();
     }
 
     public OrderStatusResponseDTO getOrderStatus(String orderId) {
+        Optional<CustomerOrderView> view = customerOrderProjection.getView(orderId);
+        if (view.isPresent()) {
+            return buildOrderStatus(orderId, view.get());
+        }
         return orderRepo.getOrderById(orderId)
                 .map(this::buildOrderStatus)
                 .orElseThrow(OrderNotFoundException::new);
     }
 
+    /**
+     * The queue position is live, so it is still asked to the kitchen queue, in O(log n).
+     */
+    private OrderStatusResponseDTO buildOrderStatus(String orderId, CustomerOrderView view) {
+        OrderStatusResponseDTO.OrderStatusResponseDTOBuilder builder = OrderStatusResponseDTO.builder()
+                .status(view.status());
+
+        if (view.status() == OrderStatus.IN_PROGRESS) {
+            builder.estimatedReadyInMinutes(toMinutes(getRemainingPrepMillis(view.startTs(), view.estimatedPrepMillis())));
+        } else if (view.status() == OrderStatus.WAITING) {
+            orderRepo.getOrderById(orderId)
+                    .flatMap(orderRepo::getQueuePosition)
+                    .ifPresent(queuePosition -> builder
+                            .queuePosition(queuePosition.position())
+                            .estimatedReadyInMinutes(toMinutes(getRemainingPrepMillisInProgress() + queuePosition.estimatedPrepMillis())));
+        }
+
+        return builder.build();
+    }
+
     private OrderStatusResponseDTO buildOrderStatus(Order order) {
-        return OrderStatusResponseDTO.builder()
-                .status(order.getOrderStatus())
-                .build();
+        OrderStatusResponseDTO.OrderStatusResponseDTOBuilder builder = OrderStatusResponseDTO.builder()
+                .status(order.getOrderStatus());
+
+        if (order.getOrderStatus() == OrderStatus.IN_PROGRESS) {
+            builder.estimatedReadyInMinutes(toMinutes(getRemainingPrepMillis(order)));
+        } else if (order.getOrderStatus() == OrderStatus.WAITING) {
+            orderRepo.getQueuePosition(order).ifPresent(queuePosition -> builder
+                    .queuePosition(queuePosition.position())
+                    .estimatedReadyInMinutes(toMinutes(getRemainingPrepMillisInProgress() + queuePosition.estimatedPrepMillis())));
+        }
+
+        return builder.build();
+    }
+
+    private long getRemainingPrepMillisInProgress() {
+        KitchenView view = orderEngine.getView();
+        if (view.batchInProgress() != null) {
+            return getOrders(view.batchInProgress()).stream()
+                    .mapToLong(this::getRemainingPrepMillis)
+                    .max()
+                    .orElse(0L);
+        }
+        return orderRepo.getOrderById(view.orderIdInProgress())
+                .map(this::getRemainingPrepMillis)
+                .orElse(0L);
+    }
+
+    private long getRemainingPrepMillis(Order order) {
+        return getRemainingPrepMillis(order.getStartTs(), order.getEstimatedPrepMillis());
+    }
+
+    private long getRemainingPrepMillis(OffsetDateTime startTs, long estimatedPrepMillis) {
+        if (startTs == null) {
+            return estimatedPrepMillis;
+        }
+        long elapsed = Duration.between(startTs, OffsetDateTime.now(clock)).toMillis();
+        return Math.max(0, estimatedPrepMillis - elapsed);
+    }
+
+    private static long toMinutes(long millis) {
+        return (millis + MILLIS_PER_MINUTE - 1) / MILLIS_PER_MINUTE;
     }
 
     public OrderDetailsResponseDTO getOrderDetails(String orderId) {
-        return orderRepo.getOrderById(orderId)
-                .map(this::buildOrderDetails)
+        return findOrderDetails(orderId)
                 .orElseThrow(OrderNotFoundException::new);
     }
 
+    private Optional<OrderDetailsResponseDTO> findOrderDetails(String orderId) {
+        Optional<CustomerOrderView> view = customerOrderProjection.getView(orderId);
+        if (view.isPresent()) {
+            return Optional.of(view.get().details());
+        }
+        return orderRepo.getOrderById(orderId)
+                .map(this::buildOrderDetails);
+    }
+
     private OrderDetailsResponseDTO buildOrderDetails(Order order) {
         List<OrderEntryDTO> orderItems = order.getOrderEntries().stream()
                 .map(entry -> OrderEntryDTO.builder()
@@ -93,6 +324,9 @@ public class OrderService {
                 .username(order.getUserName())
                 .entries(orderItems)
                 .status(order.getOrderStatus())
+                .express(order.isExpress())
+                .requestedTime(order.getRequestedTs())
+                .insertTs(order.getInsertTs())
                 .build();
     }
 
@@ -102,31 +336,91 @@ public class OrderService {
                 .collect(Collectors.toList());
     }
 
-    public List<OrderDetailsResponseDTO> getOrdersToBeProcessed() {
-        return orderRepo.getNotProcessed().stream()
+    public List<OrderDetailsResponseDTO> getOrdersByUsername(String username, int page, int size) {
+        return userHistoryProjection.getOrderIds(username, page, size).stream()
+                .map(this::findOrderDetails)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    public List<OrderDetailsResponseDTO> getOrdersByInsertTs(OffsetDateTime from, OffsetDateTime to, OrderStatus status, int page, int size) {
+        return orderRepo.getByInsertTs(from, to, status, page, size).stream()
                 .map(this::buildOrderDetails)
                 .collect(Collectors.toList());
     }
 
+    public List<OrderDetailsResponseDTO> getOrdersToBeProcessed() {
+        return kitchenQueueProjection.getWaitingOrders();
+    }
+
     public void startProcessingOrder(String orderId) {
-        synchronized (lock) {
-            if (orderRepo.getOrderInProgress() != null) {
+        orderEngine.run(() -> {
+            if (isKitchenBusy()) {
                 throw new OrderAlreadyInProgressException();
             }
 
             Order order = orderRepo.getOrderById(orderId)
                     .orElseThrow(OrderNotFoundException::new);
 
-            if (order.getOrderStatus() != OrderStatus.WAITING) {
+            if (order.getOrderStatus() != OrderStatus.WAITING || !startProcessing(order)) {
                 throw new OrderAlreadyProcessedException();
             }
+        });
+    }
+
+    /**
+     * Starts the WAITING order that comes first according to the active scheduling policy.
+     */
+    public OrderDetailsResponseDTO startProcessingNextOrder() {
+        return orderEngine.execute(() -> {
+            if (isKitchenBusy()) {
+                throw new OrderAlreadyInProgressException();
+            }
+
+            while (true) {
+                Order order = orderRepo.getNextToProcess()
+                        .orElseThrow(NoWaitingOrderException::new);
 
-            orderRepo.setOrderInProgress(order);
+                // the order can be cancelled meanwhile, then the next one is taken
+                if (startProcessing(order)) {
+                    return buildOrderDetails(order);
+                }
+            }
+        });
+    }
+
+    /**
+     * The start is stamped before the status changes, so that the OrderStarted event carries it.
+     */
+    private boolean startProcessing(Order order) {
+        order.setStartTs(OffsetDateTime.now(clock));
+        if (!orderRepo.setOrderInProgress(order)) {
+            order.setStartTs(null);
+            return false;
         }
+        orderStatsService.recordStarted(order);
+        return true;
+    }
+
+    /**
+     * Cancels a SCHEDULED or WAITING order, giving back its ingredients to the inventory.
+     * The status change is atomic: if the kitchen starts the order at the same time, exactly one of the two wins.
+     */
+    public void cancelOrder(String orderId) {
+        orderEngine.runConcurrently(() -> {
+            Order order = orderRepo.getOrderById(orderId)
+                    .orElseThrow(OrderNotFoundException::new);
+
+            if (!orderRepo.setOrderCancelled(order, OffsetDateTime.now(clock))) {
+                throw new OrderNotCancellableException();
+            }
+            preOrderScheduler.cancel(orderId);
+            inventoryRepo.release(order);
+        });
     }
 
     public void setOrderCompleted(String orderId) {
-        synchronized (lock) {
+        orderEngine.run(() -> {
             String orderIdInProgress = orderRepo.getOrderInProgress();
 
             if (orderIdInProgress == null || !orderIdInProgress.equals(orderId)) {
@@ -136,12 +430,152 @@ public class OrderService {
             Order order = orderRepo.getOrderById(orderId)
                     .orElseThrow(OrderNotFoundException::new);
 
+            order.setCompletionTs(OffsetDateTime.now(clock));
             orderRepo.setOrderCompleted(order);
+            orderStatsService.recordCompleted(order);
+        });
+    }
+
+    private boolean isKitchenBusy() {
+        return orderRepo.getOrderInProgress() != null || orderRepo.getBatchInProgress() != null;
+    }
+
+    /**
+     * Pending items per type of entry, with the next oven batch proposed for each type.
+     * Both come from indexes maintained along with the kitchen queue, so no order is rescanned.
+     */
+    public BatchPlanResponseDTO getBatchPlan() {
+        int capacity = ovenProperties.getCapacity();
+        List<PendingEntryTypeDTO> entryTypes = orderRepo.getPendingQuantities().entrySet().stream()
+                .map(pending -> PendingEntryTypeDTO.builder()
+                        .type(pending.getKey())
+                        .pendingQuantity(pending.getValue())
+                        .nextBatch(buildBatchProposal(pending.getKey(), orderRepo.getNextBatch(pending.getKey(), capacity)))
+                        .build())
+                .collect(Collectors.toList());
+
+        return BatchPlanResponseDTO.builder()
+                .ovenCapacity(capacity)
+                .entryTypes(entryTypes)
+                .build();
+    }
+
+    private OvenBatchDTO buildBatchProposal(String entryType, List<Order> orders) {
+        if (orders.isEmpty()) {
+            return null;
         }
+        return OvenBatchDTO.builder()
+                .type(entryType)
+                .quantity(quantityOf(orders))
+                .orderIds(orders.stream().map(Order::getId).collect(Collectors.toList()))
+                .build();
+    }
+
+    /**
+     * Starts the next batch of the given type of entry: all of its orders are moved to IN_PROGRESS together.
+     */
+    public OvenBatchDTO startBatch(String entryType) {
+        return orderEngine.execute(() -> {
+            if (isKitchenBusy()) {
+                throw new OrderAlreadyInProgressException();
+            }
+
+            List<Order> candidates = orderRepo.getNextBatch(entryType, ovenProperties.getCapacity());
+            String batchId = orderRepo.generate();
+            OffsetDateTime now = OffsetDateTime.now(clock);
+            candidates.forEach(order -> order.setStartTs(now));
+            // orders cancelled meanwhile are left out of the batch
+            List<Order> orders = orderRepo.setOrdersInProgress(candidates, batchId);
+            candidates.stream()
+                    .filter(order -> !orders.contains(order))
+                    .forEach(order -> order.setStartTs(null));
+            if (orders.isEmpty()) {
+                throw new NoWaitingOrderException();
+            }
+
+            OvenBatch batch = OvenBatch.builder()
+                    .id(batchId)
+                    .entryType(entryType)
+                    .quantity(quantityOf(orders))
+                    .orderIds(orders.stream().map(Order::getId).collect(Collectors.toList()))
+                    .build();
+
+            orderRepo.setBatchInProgress(batch);
+            orders.forEach(orderStatsService::recordStarted);
+
+            return buildOvenBatch(batch);
+        });
+    }
+
+    /**
+     * Completes the batch in progress: all of its orders are moved to COMPLETED together.
+     */
+    public void completeBatch(String batchId) {
+        orderEngine.run(() -> {
+            OvenBatch batch = orderRepo.getBatchInProgress();
+            if (batch == null || !batch.id().equals(batchId)) {
+                throw new BatchNotInProgressException();
+            }
+
+            List<Order> orders = getOrders(batch);
+            OffsetDateTime now = OffsetDateTime.now(clock);
+            orders.forEach(order -> order.setCompletionTs(now));
+            orderRepo.setBatchCompleted(orders);
+            orders.forEach(orderStatsService::recordCompleted);
+        });
+    }
+
+    public OvenBatchDTO getBatchInProgress() {
+        OvenBatch batch = orderEngine.getView().batchInProgress();
+        return batch == null ? null : buildOvenBatch(batch);
+    }
+
+    private List<Order> getOrders(OvenBatch batch) {
+        return batch.orderIds().stream()
+                .map(orderRepo::getOrderById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    private static OvenBatchDTO buildOvenBatch(OvenBatch batch) {
+        return OvenBatchDTO.builder()
+                .id(batch.id())
+                .type(batch.entryType())
+                .quantity(batch.quantity())
+                .orderIds(batch.orderIds())
+                .build();
+    }
+
+    private static int quantityOf(List<Order> orders) {
+        return orders.stream()
+                .flatMap(order -> order.getOrderEntries().stream())
+                .mapToInt(OrderEntry::quantity)
+                .sum();
+    }
+
+    public List<OrderDetailsResponseDTO> getOpenOrdersByIngredient(String ingredient, OrderStatus status) {
+        return orderRepo.getOpenByIngredient(ingredient, status).stream()
+                .map(this::buildOrderDetails)
+                .collect(Collectors.toList());
+    }
+
+    public List<IngredientDemandDTO> getIngredientDemand() {
+        return orderRepo.getIngredientDemand().stream()
+                .map(demand -> IngredientDemandDTO.builder()
+                        .ingredient(demand.ingredient())
+                        .waiting(demand.waiting())
+                        .inProgress(demand.inProgress())
+                        .total(demand.total())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    public OrderStatsResponseDTO getOrderStats(int windowMinutes) {
+        return orderStatsService.getStats(windowMinutes);
     }
 
     public OrderDetailsResponseDTO getOrderInProgress() {
-        String orderIdInProgress = orderRepo.getOrderInProgress();
+        String orderIdInProgress = orderEngine.getView().orderIdInProgress();
 
         if (orderIdInProgress == null) {
             return null;
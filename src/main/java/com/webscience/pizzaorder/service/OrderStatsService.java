@@ -0,0 +1,154 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.dto.EntryTypeStatsDTO;
+import com.webscience.pizzaorder.dto.LatencyStatsDTO;
+import com.webscience.pizzaorder.dto.OrderStatsResponseDTO;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.stats.LatencyHistogram;
+import com.webscience.pizzaorder.stats.RollingLatencyHistogram;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * NOTES:
+ * Latency statistics are updated incrementally on every status transition,
+ * so reading them never requires to go through the orders history.
+ * The rolling windows are made of 1 minute slots, up to {@link #MAX_WINDOW_MINUTES}.
+ * The preparation time of a single item of each type is tracked as an exponentially weighted
+ * moving average, used to estimate how long the kitchen will take for new orders.
+ */
+@RequiredArgsConstructor
+@Service
+public class OrderStatsService {
+
+    public static final int MAX_WINDOW_MINUTES = 60;
+
+    private static final long SLOT_MILLIS = Duration.ofMinutes(1).toMillis();
+    private static final long DEFAULT_PREP_MILLIS_PER_ITEM = Duration.ofMinutes(4).toMillis();
+    private static final double PREP_MILLIS_SMOOTHING = 0.2;
+
+    private final Clock clock;
+
+    private final Map<String, EntryTypeLatencies> latenciesByType = new ConcurrentSkipListMap<>();
+
+    public void recordStarted(Order order) {
+        long queueWait = millisBetween(order.getInsertTs(), order.getStartTs());
+        if (queueWait < 0) {
+            return;
+        }
+
+        long now = clock.millis();
+        latenciesOf(order).forEach(latencies -> latencies.queueWait.record(now, queueWait));
+    }
+
+    public void recordCompleted(Order order) {
+        long preparation = millisBetween(order.getStartTs(), order.getCompletionTs());
+        long endToEnd = millisBetween(order.getInsertTs(), order.getCompletionTs());
+
+        int items = order.getOrderEntries().stream()
+                .mapToInt(OrderEntry::quantity)
+                .sum();
+
+        long now = clock.millis();
+        for (EntryTypeLatencies latencies : latenciesOf(order)) {
+            if (preparation >= 0) {
+                latencies.preparation.record(now, preparation);
+                if (items > 0) {
+                    latencies.recordPrepMillisPerItem((double) preparation / items);
+                }
+            }
+            if (endToEnd >= 0) {
+                latencies.endToEnd.record(now, endToEnd);
+            }
+        }
+    }
+
+    /**
+     * Estimated preparation time of the given entries, based on the observed preparation times
+     * of each type (or on a default value for types never prepared so far).
+     */
+    public long estimatePrepMillis(List<OrderEntry> orderEntries) {
+        double estimate = 0;
+        for (OrderEntry entry : orderEntries) {
+            EntryTypeLatencies latencies = latenciesByType.get(entry.entryType().id());
+            double prepMillisPerItem = latencies == null ? DEFAULT_PREP_MILLIS_PER_ITEM : latencies.getPrepMillisPerItem();
+            estimate += prepMillisPerItem * entry.quantity();
+        }
+        return Math.round(estimate);
+    }
+
+    public OrderStatsResponseDTO getStats(int windowMinutes) {
+        long now = clock.millis();
+
+        List<EntryTypeStatsDTO> entryTypes = latenciesByType.entrySet().stream()
+                .map(entry -> EntryTypeStatsDTO.builder()
+                        .type(entry.getKey())
+                        .queueWait(buildLatencyStats(entry.getValue().queueWait.snapshot(now, windowMinutes)))
+                        .preparation(buildLatencyStats(entry.getValue().preparation.snapshot(now, windowMinutes)))
+                        .endToEnd(buildLatencyStats(entry.getValue().endToEnd.snapshot(now, windowMinutes)))
+                        .build())
+                .collect(Collectors.toList());
+
+        return OrderStatsResponseDTO.builder()
+                .windowMinutes(windowMinutes)
+                .entryTypes(entryTypes)
+                .build();
+    }
+
+    private LatencyStatsDTO buildLatencyStats(LatencyHistogram histogram) {
+        return LatencyStatsDTO.builder()
+                .count(histogram.getCount())
+                .meanMillis(Math.round(histogram.getMean()))
+                .p50Millis(histogram.getPercentile(50))
+                .p90Millis(histogram.getPercentile(90))
+                .p99Millis(histogram.getPercentile(99))
+                .maxMillis(histogram.getMax())
+                .build();
+    }
+
+    /**
+     * An order with several entries of the same type counts once for that type.
+     */
+    private List<EntryTypeLatencies> latenciesOf(Order order) {
+        return order.getOrderEntries().stream()
+                .map(OrderEntry::entryType)
+                .map(EntryType::id)
+                .distinct()
+                .map(typeId -> latenciesByType.computeIfAbsent(typeId, id -> new EntryTypeLatencies()))
+                .collect(Collectors.toList());
+    }
+
+    private static long millisBetween(OffsetDateTime from, OffsetDateTime to) {
+        if (from == null || to == null) {
+            return -1;
+        }
+        return Duration.between(from, to).toMillis();
+    }
+
+    private static class EntryTypeLatencies {
+        private final RollingLatencyHistogram queueWait = new RollingLatencyHistogram(SLOT_MILLIS, MAX_WINDOW_MINUTES);
+        private final RollingLatencyHistogram preparation = new RollingLatencyHistogram(SLOT_MILLIS, MAX_WINDOW_MINUTES);
+        private final RollingLatencyHistogram endToEnd = new RollingLatencyHistogram(SLOT_MILLIS, MAX_WINDOW_MINUTES);
+        private double prepMillisPerItem = Double.NaN;
+
+        private synchronized void recordPrepMillisPerItem(double value) {
+            prepMillisPerItem = Double.isNaN(prepMillisPerItem)
+                    ? value
+                    : prepMillisPerItem + PREP_MILLIS_SMOOTHING * (value - prepMillisPerItem);
+        }
+
+        private synchronized double getPrepMillisPerItem() {
+            return Double.isNaN(prepMillisPerItem) ? DEFAULT_PREP_MILLIS_PER_ITEM : prepMillisPerItem;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.configuration.PreOrderProperties;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.timer.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NOTES:
+ * Holds the SCHEDULED pre-orders in a {@link TimingWheel} and releases them to the kitchen queue
+ * {@code leadTime} before their requested time.
+ * Scheduling and cancelling a pre-order are O(1), and the scheduler thread only advances the wheel
+ * every tick: no timer thread per order and no periodic scan of the pending pre-orders.
+ * The time comes from the injected {@link Clock}.
+ */
+@Slf4j
+@Service
+public class PreOrderScheduler {
+
+    private final OrderRepo orderRepo;
+    private final OrderEngine orderEngine;
+    private final PreOrderProperties preOrderProperties;
+    private final Clock clock;
+
+    private final TimingWheel<Order> timingWheel;
+    private final Map<String, TimingWheel.Timeout<Order>> timeoutsByOrderId = new HashMap<>();
+
+    public PreOrderScheduler(OrderRepo orderRepo, OrderEngine orderEngine, PreOrderProperties preOrderProperties, Clock clock) {
+        this.orderRepo = orderRepo;
+        this.orderEngine = orderEngine;
+        this.preOrderProperties = preOrderProperties;
+        this.clock = clock;
+        this.timingWheel = new TimingWheel<>(preOrderProperties.getTick(), clock.millis());
+    }
+
+    /**
+     * Tells whether an order requested for the given time has to be held, i.e. it is not to be released yet.
+     */
+    public boolean isToBeHeld(OffsetDateTime requestedTs) {
+        return requestedTs != null && releaseTsOf(requestedTs).isAfter(OffsetDateTime.now(clock));
+    }
+
+    /**
+     * Holds the given SCHEDULED order until its release time.
+     */
+    public synchronized void schedule(Order order) {
+        long releaseMillis = releaseTsOf(order.getRequestedTs()).toInstant().toEpochMilli();
+        timeoutsByOrderId.put(order.getId(), timingWheel.schedule(order, releaseMillis));
+    }
+
+    /**
+     * Drops the timeout of a pre-order, if it still has one.
+     */
+    public synchronized void cancel(String orderId) {
+        TimingWheel.Timeout<Order> timeout = timeoutsByOrderId.remove(orderId);
+        if (timeout != null) {
+            timingWheel.cancel(timeout);
+        }
+    }
+
+    public synchronized int getScheduledCount() {
+        return timingWheel.size();
+    }
+
+    @Scheduled(fixedDelayString = "${pizzaorder.pre-order.tick:PT1S}")
+    public void releaseDueOrders() {
+        List<Order> dueOrders;
+        synchronized (this) {
+            dueOrders = timingWheel.advance(clock.millis());
+            dueOrders.forEach(order -> timeoutsByOrderId.remove(order.getId()));
+        }
+
+        if (dueOrders.isEmpty()) {
+            return;
+        }
+        orderEngine.runConcurrently(() -> {
+            for (Order order : dueOrders) {
+                // a pre-order cancelled meanwhile stays CANCELLED
+                if (orderRepo.setOrderWaiting(order)) {
+                    log.debug("Released pre-order {} requested for {}", order.getId(), order.getRequestedTs());
+                }
+            }
+        });
+    }
+
+    private OffsetDateTime releaseTsOf(OffsetDateTime requestedTs) {
+        return requestedTs.minus(preOrderProperties.getLeadTime());
+    }
+}
@@ -0,0 +1,62 @@
+package com.webscience.pizzaorder.stats;
+
+/**
+ * NOTES:
+ * Latency histogram over a rolling time window.
+ * The window is split in a ring of fixed-size slots, each one owning its own {@link LatencyHistogram}:
+ * recording only touches the current slot and an expired slot is recycled in place,
+ * so old values fall out of the window without ever keeping the raw samples around.
+ */
+public class RollingLatencyHistogram {
+
+    private final long slotMillis;
+    private final LatencyHistogram[] slots;
+    private final long[] slotEpochs;
+
+    public RollingLatencyHistogram(long slotMillis, int slotCount) {
+        this.slotMillis = slotMillis;
+        this.slots = new LatencyHistogram[slotCount];
+        this.slotEpochs = new long[slotCount];
+
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LatencyHistogram();
+            slotEpochs[i] = -1;
+        }
+    }
+
+    public synchronized void record(long nowMillis, long valueMillis) {
+        long epoch = nowMillis / slotMillis;
+        int index = (int) Math.floorMod(epoch, (long) slots.length);
+
+        if (slotEpochs[index] != epoch) {
+            slots[index].reset();
+            slotEpochs[index] = epoch;
+        }
+        slots[index].record(valueMillis);
+    }
+
+    /**
+     * Merges the slots falling in the last {@code windowSlots} slots (current one included)
+     * into a new histogram.
+     */
+    public synchronized LatencyHistogram snapshot(long nowMillis, int windowSlots) {
+        long currentEpoch = nowMillis / slotMillis;
+        long oldestEpoch = currentEpoch - Math.min(windowSlots, slots.length) + 1;
+
+        LatencyHistogram merged = new LatencyHistogram();
+        for (int i = 0; i < slots.length; i++) {
+            if (slotEpochs[i] >= oldestEpoch && slotEpochs[i] <= currentEpoch) {
+                merged.add(slots[i]);
+            }
+        }
+        return merged;
+    }
+
+    public long getSlotMillis() {
+        return slotMillis;
+    }
+
+    public int getSlotCount() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,26 @@
+package com.webscience.pizzaorder.store;
+
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.service.InventoryService;
+import com.webscience.pizzaorder.service.OrderIntake;
+import com.webscience.pizzaorder.service.OrderRetentionService;
+import com.webscience.pizzaorder.service.PreOrderScheduler;
+import com.webscience.pizzaorder.service.OrderService;
+
+/**
+ * NOTES:
+ * A store and its own partition of the state: menu, orders, kitchen (engine, queue, order or batch in progress),
+ * projections, pre-orders, intake and inventory. Nothing of it is shared with the other stores.
+ */
+public record Store(String id,
+                    EntryTypeRepo entryTypeRepo,
+                    OrderRepo orderRepo,
+                    OrderEngine orderEngine,
+                    OrderService orderService,
+                    OrderIntake orderIntake,
+                    InventoryService inventoryService,
+                    PreOrderScheduler preOrderScheduler,
+                    OrderRetentionService orderRetentionService) {
+}
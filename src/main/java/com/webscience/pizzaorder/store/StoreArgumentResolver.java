@@ -0,0 +1,42 @@
+package com.webscience.pizzaorder.store;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * NOTES:
+ * Resolves the {@link Store} argument of the handlers from the {@code storeId} path variable,
+ * or to the default store for the paths without one.
+ */
+@Component
+@RequiredArgsConstructor
+public class StoreArgumentResolver implements HandlerMethodArgumentResolver {
+
+    public static final String STORE_ID_VARIABLE = "storeId";
+
+    private final StoreRegistry storeRegistry;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType() == Store.class;
+    }
+
+    @Override
+    public Store resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+                                 WebDataBinderFactory binderFactory) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables = (Map<String, String>) webRequest.getNativeRequest(HttpServletRequest.class)
+                .getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String storeId = pathVariables != null ? pathVariables.get(STORE_ID_VARIABLE) : null;
+        return storeId != null ? storeRegistry.get(storeId) : storeRegistry.getDefault();
+    }
+}
@@ -0,0 +1,101 @@
+package com.webscience.pizzaorder.store;
+
+import com.webscience.pizzaorder.cache.CompletedOrderResponseCache;
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.configuration.IntakeProperties;
+import com.webscience.pizzaorder.configuration.OvenProperties;
+import com.webscience.pizzaorder.configuration.PreOrderProperties;
+import com.webscience.pizzaorder.configuration.RetentionProperties;
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.configuration.StorageProperties;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import com.webscience.pizzaorder.projection.CustomerOrderProjection;
+import com.webscience.pizzaorder.projection.KitchenQueueProjection;
+import com.webscience.pizzaorder.projection.UserHistoryProjection;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+import com.webscience.pizzaorder.repo.InventoryRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.service.IdempotencyCache;
+import com.webscience.pizzaorder.service.InventoryService;
+import com.webscience.pizzaorder.service.OrderIntake;
+import com.webscience.pizzaorder.service.OrderRetentionService;
+import com.webscience.pizzaorder.service.OrderService;
+import com.webscience.pizzaorder.service.OrderStatsService;
+import com.webscience.pizzaorder.service.PreOrderScheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * NOTES:
+ * Builds the components of a store other than the default one, wired as the application context wires
+ * the default ones but not registered as beans: the beans of the context stay those of the default store.
+ * Only the configuration, the ingredient names interner, the cache of the encoded completed orders and the clock are shared.
+ */
+@Component
+public class StoreFactory {
+
+    private final SchedulingProperties schedulingProperties;
+    private final StorageProperties storageProperties;
+    private final EngineProperties engineProperties;
+    private final PreOrderProperties preOrderProperties;
+    private final IntakeProperties intakeProperties;
+    private final RetentionProperties retentionProperties;
+    private final OvenProperties ovenProperties;
+    private final IngredientDictionary ingredientDictionary;
+    private final CompletedOrderResponseCache completedOrderResponseCache;
+    private final Clock clock;
+    private final Duration idempotencyTtl;
+    private final int idempotencyMaxSize;
+
+    public StoreFactory(SchedulingProperties schedulingProperties, StorageProperties storageProperties, EngineProperties engineProperties,
+                        PreOrderProperties preOrderProperties, IntakeProperties intakeProperties, RetentionProperties retentionProperties,
+                        OvenProperties ovenProperties, IngredientDictionary ingredientDictionary,
+                        CompletedOrderResponseCache completedOrderResponseCache, Clock clock,
+                        @Value("${pizzaorder.idempotency.ttl:PT1H}") Duration idempotencyTtl,
+                        @Value("${pizzaorder.idempotency.max-size:100000}") int idempotencyMaxSize) {
+        this.schedulingProperties = schedulingProperties;
+        this.storageProperties = storageProperties;
+        this.engineProperties = engineProperties;
+        this.preOrderProperties = preOrderProperties;
+        this.intakeProperties = intakeProperties;
+        this.retentionProperties = retentionProperties;
+        this.ovenProperties = ovenProperties;
+        this.ingredientDictionary = ingredientDictionary;
+        this.completedOrderResponseCache = completedOrderResponseCache;
+        this.clock = clock;
+        this.idempotencyTtl = idempotencyTtl;
+        this.idempotencyMaxSize = idempotencyMaxSize;
+    }
+
+    /**
+     * Builds a store serving the given types of entry (all of them when empty), not started yet.
+     */
+    public Store create(String storeId, List<String> menu) {
+        EntryTypeRepo entryTypeRepo = new EntryTypeRepo(menu);
+        KitchenQueueProjection kitchenQueueProjection = new KitchenQueueProjection();
+        CustomerOrderProjection customerOrderProjection = new CustomerOrderProjection();
+        UserHistoryProjection userHistoryProjection = new UserHistoryProjection();
+        OrderEventStore eventStore = new OrderEventStore(List.of(kitchenQueueProjection, customerOrderProjection, userHistoryProjection,
+                completedOrderResponseCache));
+        OrderRepo orderRepo = new OrderRepo(entryTypeRepo, schedulingProperties, storageProperties, eventStore);
+        OrderEngine orderEngine = new OrderEngine(orderRepo, engineProperties);
+        InventoryRepo inventoryRepo = new InventoryRepo();
+        IdempotencyCache idempotencyCache = new IdempotencyCache(clock, idempotencyTtl, idempotencyMaxSize);
+        PreOrderScheduler preOrderScheduler = new PreOrderScheduler(orderRepo, orderEngine, preOrderProperties, clock);
+        OrderService orderService = new OrderService(entryTypeRepo, orderRepo, ingredientDictionary, inventoryRepo, new OrderStatsService(clock),
+                idempotencyCache, preOrderScheduler, orderEngine, kitchenQueueProjection, customerOrderProjection, userHistoryProjection,
+                ovenProperties, schedulingProperties, clock);
+
+        return new Store(storeId, entryTypeRepo, orderRepo, orderEngine, orderService,
+                new OrderIntake(orderService, orderRepo, idempotencyCache, intakeProperties),
+                new InventoryService(inventoryRepo),
+                preOrderScheduler,
+                new OrderRetentionService(orderRepo, orderEngine, retentionProperties, clock));
+    }
+}
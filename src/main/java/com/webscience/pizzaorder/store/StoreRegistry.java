@@ -0,0 +1,116 @@
+package com.webscience.pizzaorder.store;
+
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import com.webscience.pizzaorder.configuration.StoreProperties;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.exception.StoreNotFoundException;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.service.InventoryService;
+import com.webscience.pizzaorder.service.OrderIntake;
+import com.webscience.pizzaorder.service.OrderRetentionService;
+import com.webscience.pizzaorder.service.OrderService;
+import com.webscience.pizzaorder.service.PreOrderScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NOTES:
+ * The stores of the deployment, by id. The default store is made of the beans of the application context,
+ * which keep serving the paths without a store; the other ones are built by the {@link StoreFactory}
+ * at start up, and their engines, intakes, pre-orders and retention are run from here.
+ * Each store has its own locks, writer threads and buffers, so a burst at one store never waits for another one.
+ * The stores are fixed at start up, so the map is only read afterwards.
+ * Only the stream of the default store is replicated, so a replicated instance refuses to start with other stores:
+ * a standby could not serve their reads, and a promoted one would lose their orders.
+ */
+@Component
+public class StoreRegistry {
+
+    private final StoreProperties storeProperties;
+    private final ReplicationProperties replicationProperties;
+    private final StoreFactory storeFactory;
+    private final Store defaultStore;
+
+    private final Map<String, Store> storesById = new LinkedHashMap<>();
+    private final List<Store> createdStores = new ArrayList<>();
+
+    public StoreRegistry(StoreProperties storeProperties, ReplicationProperties replicationProperties, StoreFactory storeFactory, EntryTypeRepo entryTypeRepo, OrderRepo orderRepo,
+                         OrderEngine orderEngine, OrderService orderService, OrderIntake orderIntake, InventoryService inventoryService,
+                         PreOrderScheduler preOrderScheduler, OrderRetentionService orderRetentionService) {
+        this.storeProperties = storeProperties;
+        this.replicationProperties = replicationProperties;
+        this.storeFactory = storeFactory;
+        this.defaultStore = new Store(storeProperties.getDefaultId(), entryTypeRepo, orderRepo, orderEngine, orderService, orderIntake,
+                inventoryService, preOrderScheduler, orderRetentionService);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (replicationProperties.getRole() != ReplicationProperties.Role.STANDALONE && !storeProperties.getMenus().isEmpty()) {
+            throw new IllegalStateException("Only the default store can be replicated, remove the stores "
+                    + storeProperties.getMenus().keySet() + " or run as " + ReplicationProperties.Role.STANDALONE);
+        }
+        storesById.put(defaultStore.id(), defaultStore);
+        storeProperties.getMenus().forEach((storeId, menu) -> {
+            if (storesById.containsKey(storeId)) {
+                throw new IllegalStateException("Store " + storeId + " configured twice");
+            }
+            Store store = storeFactory.create(storeId, menu);
+            store.orderEngine().start();
+            store.orderIntake().start();
+            storesById.put(storeId, store);
+            createdStores.add(store);
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Store store : createdStores) {
+            store.orderIntake().stop();
+            store.orderEngine().stop();
+        }
+    }
+
+    public Store getDefault() {
+        return defaultStore;
+    }
+
+    /**
+     * @throws StoreNotFoundException if there is no store with the given id
+     */
+    public Store get(String storeId) {
+        Store store = storesById.get(storeId);
+        if (store == null) {
+            throw new StoreNotFoundException();
+        }
+        return store;
+    }
+
+    public List<Store> getAll() {
+        return List.copyOf(storesById.values());
+    }
+
+    /**
+     * The pre-orders of the default store are released by its own scheduled bean.
+     */
+    @Scheduled(fixedDelayString = "${pizzaorder.pre-order.tick:PT1S}")
+    public void releaseDueOrders() {
+        createdStores.forEach(store -> store.preOrderScheduler().releaseDueOrders());
+    }
+
+    /**
+     * The orders of the default store are evicted by its own scheduled bean.
+     */
+    @Scheduled(fixedDelayString = "${pizzaorder.retention.interval:PT30S}")
+    public void evictCompletedOrders() {
+        createdStores.forEach(store -> store.orderRetentionService().evictCompletedOrders());
+    }
+}
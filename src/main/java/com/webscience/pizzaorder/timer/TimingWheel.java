@@ -0,0 +1,177 @@
+package com.webscience.pizzaorder.timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NOTES:
+ * Hierarchical timing wheel: {@value #LEVELS} wheels of {@value #SLOTS} slots, each slot of a wheel spanning
+ * a whole turn of the wheel below (as the Linux kernel timers), so 64^4 ticks are covered with 256 slots.
+ * Timeouts are kept in intrusive doubly linked lists, so both scheduling and cancelling are O(1).
+ * Advancing the time only looks at the current slot of the lowest wheel, and moves the timeouts of a slot
+ * of an upper wheel down only when the wheel below completes its turn: pending timeouts are never scanned.
+ * Ticks are absolute (epoch millis divided by the tick duration), the time is always given by the caller,
+ * so the wheel needs neither a clock nor a thread of its own.
+ * It is not thread safe: callers serialize the access.
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] wheels;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(Duration tick, long startMillis) {
+        this.tickMillis = tick.toMillis();
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("The tick must be at least 1 millisecond");
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        this.wheels = new Timeout[LEVELS][SLOTS];
+        for (Timeout<T>[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = Timeout.sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedules the payload to be returned by the first {@link #advance} reaching {@code dueMillis}.
+     * A due time already passed is returned by the next advance.
+     */
+    public Timeout<T> schedule(T payload, long dueMillis) {
+        // rounded up, a timeout never expires early
+        long dueTick = -Math.floorDiv(-dueMillis, tickMillis);
+        Timeout<T> timeout = new Timeout<>(payload, Math.max(dueTick, currentTick + 1));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return false if the timeout has already expired or has already been cancelled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isLinked()) {
+            return false;
+        }
+        timeout.unlink();
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the time forward to {@code nowMillis}, returning the payloads of the expired timeouts in due order.
+     */
+    public List<T> advance(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        List<T> expired = new ArrayList<>();
+
+        while (currentTick < nowTick) {
+            if (size == 0) {
+                currentTick = nowTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+
+            Timeout<T> slot = wheels[0][(int) (currentTick & SLOT_MASK)];
+            while (slot.next != slot) {
+                Timeout<T> timeout = slot.next;
+                timeout.unlink();
+                size--;
+                expired.add(timeout.payload);
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * When the current tick starts a new turn of the wheels below a level, the slot of that level
+     * for the current tick is emptied and its timeouts placed again, now on the lower wheels.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            Timeout<T> slot = wheels[level][(int) ((currentTick >>> shift) & SLOT_MASK)];
+            while (slot.next != slot) {
+                Timeout<T> timeout = slot.next;
+                timeout.unlink();
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * The level is the lowest whose turn covers the delay, timeouts beyond the last wheel are parked
+     * in its farthest slot and placed again, with their actual due tick, when it comes round.
+     */
+    private void place(Timeout<T> timeout) {
+        long delay = Math.min(timeout.dueTick - currentTick, MAX_DELAY_TICKS);
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int index = (int) (((currentTick + delay) >>> (SLOT_BITS * level)) & SLOT_MASK);
+        wheels[level][index].linkBefore(timeout);
+    }
+
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long dueTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T payload, long dueTick) {
+            this.payload = payload;
+            this.dueTick = dueTick;
+        }
+
+        private static <T> Timeout<T> sentinel() {
+            Timeout<T> sentinel = new Timeout<>(null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        private boolean isLinked() {
+            return next != null;
+        }
+
+        /**
+         * Links the timeout at the tail of the slot this sentinel heads.
+         */
+        private void linkBefore(Timeout<T> timeout) {
+            timeout.prev = prev;
+            timeout.next = this;
+            prev.next = timeout;
+            prev = timeout;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
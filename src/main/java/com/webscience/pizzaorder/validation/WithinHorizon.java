@@ -0,0 +1,32 @@
+package com.webscience.pizzaorder.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * NOTES:
+ * The annotated timestamp must be at most {@code days} days away from now, in the past or in the future.
+ * Client timestamps are stored as epoch nanos (see Order), which only span the years 1677 to 2262:
+ * the horizon rejects the ones out of range as a bad request, well before they could overflow.
+ * Null is valid.
+ */
+@Documented
+@Constraint(validatedBy = WithinHorizonValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WithinHorizon {
+
+    String message() default "must be within {days} days from now";
+
+    long days() default 366;
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
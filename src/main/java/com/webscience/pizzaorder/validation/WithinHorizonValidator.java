@@ -0,0 +1,42 @@
+package com.webscience.pizzaorder.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * NOTES:
+ * Created by Spring with the application {@link Clock}, or on the system clock by a plain validator.
+ */
+public class WithinHorizonValidator implements ConstraintValidator<WithinHorizon, OffsetDateTime> {
+
+    private final Clock clock;
+    private Duration horizon;
+
+    public WithinHorizonValidator() {
+        this(Clock.systemDefaultZone());
+    }
+
+    @Autowired
+    public WithinHorizonValidator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void initialize(WithinHorizon constraint) {
+        horizon = Duration.ofDays(constraint.days());
+    }
+
+    @Override
+    public boolean isValid(OffsetDateTime value, ConstraintValidatorContext context) {
+        if (value == null) {
+            return true;
+        }
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        return !value.isBefore(now.minus(horizon)) && !value.isAfter(now.plus(horizon));
+    }
+}
@@ -0,0 +1,71 @@
+package com.webscience.pizzaorder;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "pizzaorder.intake.async=true")
+public class AsyncIntakeIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void givenAValidOrderRequest_whenRequestIsSent_thenOrderIsAcceptedAndAppliedShortly() throws Exception {
+        MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "MARG",
+                                            "quantity": 1
+                                        }
+                                    ]
+                                }"""))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.orderId", notNullValue()))
+                .andReturn();
+
+        String id = JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId");
+
+        String orderStatus = "RECEIVED";
+        for (int attempt = 0; attempt < 100 && orderStatus.equals("RECEIVED"); attempt++) {
+            Thread.sleep(20);
+            MvcResult statusResults = mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/status"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            orderStatus = JsonPath.read(statusResults.getResponse().getContentAsString(), "$.status");
+        }
+        assertEquals("WAITING", orderStatus);
+    }
+
+    @Test
+    void givenAnInvalidEntryType_whenRequestIsSent_thenBadRequestIsReturnedRightAway() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "NOT_EXISTING",
+                                            "quantity": 1
+                                        }
+                                    ]
+                                }"""))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,153 @@
+package com.webscience.pizzaorder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jayway.jsonpath.JsonPath;
+import com.webscience.pizzaorder.cache.CompletedOrderResponseCache;
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+public class BinaryContentNegotiationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepo orderRepo;
+
+    @Autowired
+    private CompletedOrderResponseCache completedOrderResponseCache;
+
+    @AfterEach
+    void tearDown() {
+        orderRepo.clear();
+    }
+
+    @Test
+    void givenASmileOrderRequest_whenRequestIsSent_thenTheOrderIsCreatedAndReadInEveryFormat() throws Exception {
+        OrderCreationRequestDTO request = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(2)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+        MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType(BinaryFormats.APPLICATION_SMILE)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(BinaryFormats.smileMapper(new Jackson2ObjectMapperBuilder()).writeValueAsBytes(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String id = JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId");
+
+        // JSON stays the default
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/details"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status", is("WAITING")));
+
+        JsonNode smileDetails = getTree("/api/customer/order/" + id + "/details", BinaryFormats.APPLICATION_SMILE, new SmileFactory());
+        assertEquals(id, smileDetails.get("1").asText());
+        assertEquals("Davide", smileDetails.get("2").asText());
+        assertEquals("MARG", smileDetails.get("3").get(0).get("1").asText());
+        assertEquals(2, smileDetails.get("3").get(0).get("2").asInt());
+        assertEquals("olive", smileDetails.get("3").get(0).get("3").get(0).asText());
+        assertEquals(OrderStatus.WAITING.ordinal(), smileDetails.get("4").asInt());
+        assertFalse(smileDetails.has("status"));
+
+        JsonNode cborWaitingOrders = getTree("/api/manage/order", MediaType.APPLICATION_CBOR, new CBORFactory());
+        assertEquals(1, cborWaitingOrders.size());
+        assertEquals(id, cborWaitingOrders.get(0).get("1").asText());
+        assertEquals(OrderStatus.WAITING.ordinal(), cborWaitingOrders.get(0).get("4").asInt());
+    }
+
+    @Test
+    void givenACompletedOrder_whenReadingItsDetails_thenTheyAreEncodedOncePerFormat() throws Exception {
+        String id = JsonPath.read(mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "MARG",
+                                            "quantity": 1
+                                        }
+                                    ]
+                                }"""))
+                .andReturn().getResponse().getContentAsString(), "$.orderId");
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/" + id + "/start"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/" + id + "/completed"))
+                .andExpect(status().isOk());
+
+        for (MediaType mediaType : List.of(MediaType.APPLICATION_JSON, BinaryFormats.APPLICATION_SMILE)) {
+            byte[] first = getDetails(id, mediaType);
+            assertArrayEquals(completedOrderResponseCache.get(id, mediaType), first);
+            assertArrayEquals(first, getDetails(id, mediaType));
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/" + id + "/details"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+
+        orderRepo.evictCompleted(OffsetDateTime.now().plusDays(1), 0, true, 100_000);
+        assertNull(completedOrderResponseCache.get(id, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void givenABinaryAccept_whenTheRequestFails_thenTheErrorIsInTheSameFormat() throws Exception {
+        JsonNode error = getTree("/api/customer/order/not-existing-order/details", MediaType.APPLICATION_CBOR, new CBORFactory(), 404);
+
+        assertEquals("ORDER_NOT_FOUND", error.get("code").asText());
+    }
+
+    private byte[] getDetails(String id, MediaType mediaType) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/details")
+                        .accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private JsonNode getTree(String path, MediaType mediaType, JsonFactory factory) throws Exception {
+        return getTree(path, mediaType, factory, 200);
+    }
+
+    private JsonNode getTree(String path, MediaType mediaType, JsonFactory factory, int expectedStatus) throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .accept(mediaType))
+                .andExpect(status().is(expectedStatus))
+                .andExpect(content().contentType(mediaType))
+                .andReturn();
+        return new ObjectMapper(factory).readTree(result.getResponse().getContentAsByteArray());
+    }
+}
@@ -0,0 +1,83 @@
+package com.webscience.pizzaorder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jayway.jsonpath.JsonPath;
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.serialization.OrderSerializersModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "pizzaorder.serialization.hand-written=true")
+public class HandWrittenSerializersIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepo orderRepo;
+
+    @AfterEach
+    void tearDown() {
+        orderRepo.clear();
+    }
+
+    @Test
+    void givenHandWrittenSerializers_whenAnOrderIsRead_thenItIsWrittenByThemInEveryFormat() throws Exception {
+        assertTrue(objectMapper.getRegisteredModuleIds().contains(new OrderSerializersModule().getTypeId()));
+
+        String id = JsonPath.read(mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "MARG",
+                                            "quantity": 2
+                                        }
+                                    ]
+                                }"""))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.orderId");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/details"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(id)))
+                .andExpect(jsonPath("$.entries[0].type", is("MARG")))
+                .andExpect(jsonPath("$.entries[0].quantity", is(2)))
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andExpect(jsonPath("$.requestedTime", nullValue()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andExpect(jsonPath("$.queuePosition", is(1)));
+
+        JsonNode smileDetails = new ObjectMapper(new SmileFactory()).readTree(mockMvc.perform(
+                        MockMvcRequestBuilders.get("/api/customer/order/" + id + "/details")
+                                .accept(BinaryFormats.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray());
+        assertEquals(id, smileDetails.get("1").asText());
+        assertEquals(OrderStatus.WAITING.ordinal(), smileDetails.get("4").asInt());
+    }
+}
@@ -0,0 +1,111 @@
+package com.webscience.pizzaorder;
+
+import com.jayway.jsonpath.JsonPath;
+import com.webscience.pizzaorder.store.StoreRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "pizzaorder.store.menus.rome=MARG,DIAV",
+        "pizzaorder.store.menus.milan="
+})
+public class MultiStoreIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StoreRegistry storeRegistry;
+
+    @AfterEach
+    void tearDown() {
+        storeRegistry.getAll().forEach(store -> store.orderRepo().clear());
+    }
+
+    @Test
+    void givenTwoStores_whenAnOrderIsCreatedAndStartedInOne_thenTheOtherIsNotAffected() throws Exception {
+        String romeOrderId = createOrder("/api/stores/rome", "DIAV");
+        String mainOrderId = createOrder("/api", "BUFA");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/stores/rome/manage/order"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(romeOrderId)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/stores/main/manage/order"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(mainOrderId)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/stores/milan/manage/order"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + romeOrderId + "/status"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/stores/rome/manage/order/next/start"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(romeOrderId)));
+        // each store has its own kitchen: the main one can start an order meanwhile
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/next/start"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(mainOrderId)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/stores"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains("main", "rome", "milan")))
+                .andExpect(jsonPath("$[0].menu", hasSize(4)))
+                .andExpect(jsonPath("$[1].menu", contains("MARG", "DIAV")))
+                .andExpect(jsonPath("$[1].orderInProgress", is(romeOrderId)))
+                .andExpect(jsonPath("$[2].waitingOrders", is(0)));
+    }
+
+    @Test
+    void givenAStoreMenu_whenOrderingATypeNotInIt_thenTheOrderIsRefused() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/stores/rome/customer/order")
+                        .contentType("application/json")
+                        .content(orderRequest("BUFA")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("INVALID_ENTRY_TYPE")));
+    }
+
+    @Test
+    void givenAnUnknownStore_whenSendingARequest_thenStoreIsNotFound() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/stores/paris/manage/order"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code", is("STORE_NOT_FOUND")));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/stores/paris"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String createOrder(String basePath, String type) throws Exception {
+        MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post(basePath + "/customer/order")
+                        .contentType("application/json")
+                        .content(orderRequest(type)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId");
+    }
+
+    private static String orderRequest(String type) {
+        return """
+                {
+                    "username": "Davide",
+                    "entries": [
+                        {
+                            "type": "%s",
+                            "quantity": 1
+                        }
+                    ]
+                }""".formatted(type);
+    }
+}
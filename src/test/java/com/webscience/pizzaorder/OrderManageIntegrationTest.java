@@ -1,9 +1,11 @@
 package com.webscience.pizzaorder;
 
+import com.jayway.jsonpath.JsonPath;
 import com.webscience.pizzaorder.model.Order;
 import com.webscience.pizzaorder.model.OrderEntry;
 import com.webscience.pizzaorder.model.OrderStatus;
 import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.InventoryRepo;
 import com.webscience.pizzaorder.repo.OrderRepo;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
@@ -33,6 +36,9 @@ public class OrderManageIntegrationTest {
     @Autowired
     private EntryTypeRepo entryTypeRepo;
 
+    @Autowired
+    private InventoryRepo inventoryRepo;
+
     @BeforeEach
     void setUp() {
         Order order1 = Order.builder()
@@ -75,6 +81,7 @@ public class OrderManageIntegrationTest {
     @AfterEach
     void tearDown() {
         orderRepo.clear();
+        inventoryRepo.clear();
     }
 
     @Test
@@ -155,6 +162,31 @@ public class OrderManageIntegrationTest {
                 .andExpect(jsonPath("$.code", is("ORDER_ALREADY_PROCESSED")));
     }
 
+    @Test
+    void givenAWaitingOrder_whenCancelled_thenOrderStatusIsChangedAndItCannotBeStarted() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customer/order/order-id-1/cancel"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-1/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("CANCELLED")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-1/start"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("ORDER_ALREADY_PROCESSED")));
+    }
+
+    @Test
+    void givenAnOrderInProgress_whenCancelled_thenBadRequestIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-1/start"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customer/order/order-id-1/cancel"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Order cannot be cancelled because already processed")))
+                .andExpect(jsonPath("$.code", is("ORDER_NOT_CANCELLABLE")));
+    }
+
     @Test
     void givenValidOrder_whenSetOrderCompleted_thenOrderStatusIsChanged() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-1/status"))
@@ -199,4 +231,193 @@ public class OrderManageIntegrationTest {
                 .andExpect(jsonPath("$.message", is("Order is not in progress")))
                 .andExpect(jsonPath("$.code", is("ORDER_NOT_IN_PROGRESS")));
     }
+
+    @Test
+    void givenProcessedOrders_whenStatsRequired_thenLatenciesPerEntryTypeAreReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-2/start"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-2/completed"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/stats").param("windowMinutes", "15"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.windowMinutes", is(15)))
+                .andExpect(jsonPath("$.entryTypes[?(@.type == 'DIAV')].preparation.count", hasItem(greaterThanOrEqualTo(1))));
+    }
+
+    @Test
+    void givenAnInvalidWindow_whenStatsRequired_thenBadRequestIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/stats").param("windowMinutes", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("INVALID_PARAMETER")));
+    }
+
+    @Test
+    void givenWaitingOrders_whenRequestingStatus_thenQueuePositionIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-3/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andExpect(jsonPath("$.queuePosition", is(3)))
+                .andExpect(jsonPath("$.estimatedReadyInMinutes", notNullValue()));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-1/start"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-3/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.queuePosition", is(2)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-1/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("IN_PROGRESS")))
+                .andExpect(jsonPath("$.queuePosition").doesNotExist());
+    }
+
+    @Test
+    void givenOrdersAtDifferentTimes_whenRangeRequired_thenOnlyOrdersInTheRangeAreReturned() throws Exception {
+        OffsetDateTime evening = OffsetDateTime.parse("2023-09-20T19:00:00+02:00");
+        for (int i = 0; i < 4; i++) {
+            orderRepo.addOrder(Order.builder()
+                    .id("evening-order-id-" + i)
+                    .userName("Davide")
+                    .orderStatus(i == 0 ? OrderStatus.COMPLETED : OrderStatus.WAITING)
+                    .insertTs(evening.plusMinutes(30L * i))
+                    .orderEntries(List.of(OrderEntry.builder()
+                            .entryType(entryTypeRepo.findById("MARG").get())
+                            .quantity(1)
+                            .build()))
+                    .build());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/range")
+                        .param("from", "2023-09-20T19:00:00+02:00")
+                        .param("to", "2023-09-20T20:00:00+02:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", is(List.of("evening-order-id-0", "evening-order-id-1"))))
+                .andExpect(jsonPath("$[0].insertTs", notNullValue()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/range")
+                        .param("from", "2023-09-20T17:00:00Z")
+                        .param("to", "2023-09-20T19:00:00Z")
+                        .param("status", "WAITING")
+                        .param("page", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", is(List.of("evening-order-id-2"))));
+    }
+
+    @Test
+    void givenWaitingOrders_whenStartingNextOrder_thenTheFirstInQueueIsStarted() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/next/start"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is("order-id-1")))
+                .andExpect(jsonPath("$.status", is("IN_PROGRESS")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/next/start"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("ORDER_ALREADY_IN_PROGRESS")));
+    }
+
+    @Test
+    void givenNoWaitingOrders_whenStartingNextOrder_thenNotFoundIsReturned() throws Exception {
+        orderRepo.clear();
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/next/start"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code", is("NO_WAITING_ORDER")));
+    }
+
+    @Test
+    void givenWaitingOrders_whenRunningABatch_thenAllOfItsOrdersMoveTogether() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/batch"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ovenCapacity", is(4)))
+                .andExpect(jsonPath("$.entryTypes[?(@.type == 'DIAV')].pendingQuantity", is(List.of(2))))
+                .andExpect(jsonPath("$.entryTypes[?(@.type == 'DIAV')].nextBatch.orderIds", is(List.of(List.of("order-id-2", "order-id-3")))));
+
+        String batchId = JsonPath.read(mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/batch/start").param("type", "DIAV"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", is(2)))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-3/status"))
+                .andExpect(jsonPath("$.status", is("IN_PROGRESS")));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-1/start"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("ORDER_ALREADY_IN_PROGRESS")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/batch/" + batchId + "/completed"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/order-id-2/status"))
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/batch"))
+                .andExpect(jsonPath("$.entryTypes[*].type", is(List.of("MARG"))));
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/batch/" + batchId + "/completed"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("BATCH_NOT_IN_PROGRESS")));
+    }
+
+    @Test
+    void givenOpenOrders_whenIngredientDemandRequired_thenUnitsPerIngredientAreReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-1/start"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/ingredients"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.ingredient == 'mozzarella')].waiting", is(List.of(2))))
+                .andExpect(jsonPath("$[?(@.ingredient == 'mozzarella')].inProgress", is(List.of(2))))
+                .andExpect(jsonPath("$[?(@.ingredient == 'salame piccante')].total", is(List.of(2))))
+                .andExpect(jsonPath("$[?(@.ingredient == 'basilico')].total", is(List.of(2))));
+    }
+
+    @Test
+    void givenOpenOrders_whenOrdersByIngredientRequired_thenOnlyOrdersUsingItAreReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/order-id-2/start"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/by-ingredient").param("ingredient", "Salame piccante"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", is(List.of("order-id-2", "order-id-3"))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order/by-ingredient")
+                        .param("ingredient", "salame piccante")
+                        .param("status", "WAITING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", is(List.of("order-id-3"))));
+    }
+
+    @Test
+    void givenAShortIngredient_whenCreatingOrder_thenConflictIsReturnedUntilRestocked() throws Exception {
+        String request = """
+                {
+                    "username": "Davide",
+                    "entries": [
+                        {
+                            "type": "BUFA",
+                            "quantity": 1
+                        }
+                    ]
+                }""";
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/inventory/Mozzarella di Bufala/restock").param("units", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available", is(1)));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order").contentType("application/json").content(request))
+                .andExpect(status().isCreated());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order").contentType("application/json").content(request))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is("OUT_OF_STOCK")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/inventory/mozzarella di bufala/restock").param("units", "3"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order").contentType("application/json").content(request))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/inventory"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].ingredient", is(List.of("mozzarella di bufala"))))
+                .andExpect(jsonPath("$[0].available", is(2)));
+    }
 }
@@ -9,7 +9,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -58,6 +62,40 @@ public class OrderUserIntegrationTest {
                 .andExpect(jsonPath("$.status", is("WAITING")));
     }
 
+    @Test
+    void givenAPreOrderRequest_whenRequestIsSent_thenOrderIsScheduledAndCanBeCancelled() throws Exception {
+        String requestedTime = OffsetDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS).toString();
+        MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "MARG",
+                                            "quantity": 1
+                                        }
+                                    ],
+                                    "requestedTime": "%s"
+                                }""".formatted(requestedTime)))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        String id = JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/details"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("SCHEDULED")))
+                .andExpect(jsonPath("$.requestedTime", notNullValue()));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customer/order/" + id + "/cancel"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("CANCELLED")));
+    }
+
     @Test
     void givenAnOrderRequestWithAdditionalIngredients_whenRequestIsSent_thenOrderIsCreated() throws Exception {
         MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
@@ -256,6 +294,48 @@ public class OrderUserIntegrationTest {
                 .andReturn();
     }
 
+    @Test
+    void givenAnOrderRequestWithTimesBeyondTheHorizon_whenRequestIsSent_thenBadRequestIsReturned() throws Exception {
+        for (String field : List.of("readyBy", "requestedTime")) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                            .contentType("application/json")
+                            .content("""
+                                    {
+                                        "username": "Davide",
+                                        "entries": [
+                                            {
+                                                "type": "MARG",
+                                                "quantity": 1
+                                            }
+                                        ],
+                                        "%s": "2300-01-01T20:00:00+02:00"
+                                    }""".formatted(field)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.detail", is("Invalid request content.")));
+        }
+    }
+
+    @Test
+    void givenAnOrderRequestWithTimesInThePast_whenRequestIsSent_thenBadRequestIsReturned() throws Exception {
+        for (String field : List.of("readyBy", "requestedTime")) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                            .contentType("application/json")
+                            .content("""
+                                    {
+                                        "username": "Davide",
+                                        "entries": [
+                                            {
+                                                "type": "MARG",
+                                                "quantity": 1
+                                            }
+                                        ],
+                                        "%s": "2000-01-01T20:00:00+02:00"
+                                    }""".formatted(field)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.detail", is("Invalid request content.")));
+        }
+    }
+
     @Test
     void givenAnOrderRequestWithInvalidEntryType_whenRequestIsSent_thenBadRequestIsReturned() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
@@ -346,4 +426,109 @@ public class OrderUserIntegrationTest {
                 .andExpect(status().isBadRequest())
                 .andReturn();
     }
+
+    @Test
+    void givenARetriedOrderRequest_whenSentWithTheSameIdempotencyKey_thenTheSameOrderIsReturned() throws Exception {
+        String request = """
+                {
+                    "username": "Davide",
+                    "entries": [
+                        {
+                            "type": "MARG",
+                            "quantity": 1
+                        }
+                    ]
+                }""";
+
+        MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .header("Idempotency-Key", "retried-request-key")
+                        .contentType("application/json")
+                        .content(request))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        String id = JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .header("Idempotency-Key", "retried-request-key")
+                        .contentType("application/json")
+                        .content(request))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.orderId", is(id)));
+    }
+
+    @Test
+    void givenAnIdempotencyKey_whenReusedForAnotherRequest_thenConflictIsReturned() throws Exception {
+        String request = """
+                {
+                    "username": "Davide",
+                    "entries": [
+                        {
+                            "type": "%s",
+                            "quantity": 1
+                        }
+                    ]
+                }""";
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .header("Idempotency-Key", "reused-request-key")
+                        .contentType("application/json")
+                        .content(request.formatted("MARG")))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .header("Idempotency-Key", "reused-request-key")
+                        .contentType("application/json")
+                        .content(request.formatted("DIAV")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code", is("IDEMPOTENCY_KEY_REUSED")));
+    }
+
+    @Test
+    void givenOrdersOfAUser_whenGettingTheUserOrders_thenTheyAreReturnedNewestFirst() throws Exception {
+        String username = "User-" + UUID.randomUUID();
+        List<String> ids = new ArrayList<>();
+        for (String type : List.of("MARG", "DIAV", "BUFA")) {
+            MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                            .contentType("application/json")
+                            .content("""
+                                    {
+                                        "username": "%s",
+                                        "entries": [
+                                            {
+                                                "type": "%s",
+                                                "quantity": 1
+                                            }
+                                        ]
+                                    }""".formatted(username, type)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            ids.add(JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId"));
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order")
+                        .param("username", username)
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[0].id", is(ids.get(2))))
+                .andExpect(jsonPath("$[0].entries[0].type", is("BUFA")))
+                .andExpect(jsonPath("$[1].id", is(ids.get(1))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order")
+                        .param("username", username)
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].id", is(ids.get(0))));
+    }
+
+    @Test
+    void givenAnInvalidPageSize_whenGettingTheUserOrders_thenBadRequestIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order")
+                        .param("username", "Davide")
+                        .param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
 }
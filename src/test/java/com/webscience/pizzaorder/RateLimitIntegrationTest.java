@@ -0,0 +1,123 @@
+package com.webscience.pizzaorder;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "pizzaorder.rate-limit.enabled=true",
+        "pizzaorder.rate-limit.requests-per-second=0.1",
+        "pizzaorder.rate-limit.burst=2",
+        "pizzaorder.rate-limit.client-address-header=X-Forwarded-For"
+})
+public class RateLimitIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void givenAClientExceedingTheBurst_whenRequestingStatus_thenTooManyRequestsIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.1");
+                            return request;
+                        }))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.1");
+                            return request;
+                        }))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.1");
+                            return request;
+                        }))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "10"))
+                .andExpect(jsonPath("$.code", is("TOO_MANY_REQUESTS")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.2");
+                            return request;
+                        }))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void givenAUserExceedingTheBurst_whenCreatingOrders_thenTooManyRequestsIsReturned() throws Exception {
+        String request = """
+                {
+                    "username": "Greedy",
+                    "entries": [
+                        {
+                            "type": "MARG",
+                            "quantity": 1
+                        }
+                    ]
+                }""";
+
+        for (int i = 0; i < 2; i++) {
+            String clientAddress = "10.0.1." + i;
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                            .with(r -> {
+                                r.setRemoteAddr(clientAddress);
+                                return r;
+                            })
+                            .contentType("application/json")
+                            .content(request))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .with(r -> {
+                            r.setRemoteAddr("10.0.1.9");
+                            return r;
+                        })
+                        .contentType("application/json")
+                        .content(request))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @Test
+    void givenClientsBehindAProxy_whenRequestingStatus_thenTheyAreLimitedByTheForwardedAddress() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                            .header("X-Forwarded-For", "203.0.113.7")
+                            .with(request -> {
+                                request.setRemoteAddr("10.0.2.1");
+                                return request;
+                            }))
+                    .andExpect(status().isNotFound());
+        }
+
+        // only the value written by the proxy counts, not the one sent by the client
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                        .header("X-Forwarded-For", "198.51.100.1, 203.0.113.7")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.2.1");
+                            return request;
+                        }))
+                .andExpect(status().isTooManyRequests());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-id/status")
+                        .header("X-Forwarded-For", "203.0.113.8")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.2.1");
+                            return request;
+                        }))
+                .andExpect(status().isNotFound());
+    }
+}
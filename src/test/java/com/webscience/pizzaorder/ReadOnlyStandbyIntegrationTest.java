@@ -0,0 +1,54 @@
+package com.webscience.pizzaorder;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "pizzaorder.replication.role=STANDBY",
+        "pizzaorder.replication.primary-port=1",
+        "pizzaorder.replication.reconnect-delay=PT1H",
+        "pizzaorder.replication.shared-secret=test-secret"
+})
+public class ReadOnlyStandbyIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void givenAStandby_whenSendingChanges_thenTheyAreRefusedAndReadsAreServed() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "MARG",
+                                            "quantity": 1
+                                        }
+                                    ]
+                                }"""))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.code", is("READ_ONLY_STANDBY")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/next/start"))
+                .andExpect(status().isServiceUnavailable());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/not-existing-order/status"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/replication"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.role", is("STANDBY")))
+                .andExpect(jsonPath("$.connected", is(false)));
+    }
+}
@@ -0,0 +1,60 @@
+package com.webscience.pizzaorder;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "pizzaorder.engine.mode=SINGLE_WRITER")
+public class SingleWriterEngineIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void givenAnOrder_whenTheKitchenProcessesIt_thenEveryStepIsAppliedByTheWriter() throws Exception {
+        MvcResult creationResults = mockMvc.perform(MockMvcRequestBuilders.post("/api/customer/order")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "username": "Davide",
+                                    "entries": [
+                                        {
+                                            "type": "MARG",
+                                            "quantity": 1
+                                        }
+                                    ]
+                                }"""))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        String id = JsonPath.read(creationResults.getResponse().getContentAsString(), "$.orderId");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/manage/order"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(id)));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/" + id + "/start"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/" + id + "/start"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is("ORDER_ALREADY_IN_PROGRESS")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/manage/order/" + id + "/completed"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customer/order/" + id + "/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+    }
+}
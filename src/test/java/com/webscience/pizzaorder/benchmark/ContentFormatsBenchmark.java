@@ -0,0 +1,107 @@
+package com.webscience.pizzaorder.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NOTES:
+ * Payload size and encode/decode time of a kitchen display poll (a list of {@code orders} order details)
+ * in the JSON of the API and in the compact Smile and CBOR representations.
+ * The response DTOs are write only, so the payloads are decoded into a tree, as a generic client would do.
+ * The payload sizes are printed once per trial.
+ * Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main ContentFormatsBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentFormatsBenchmark {
+
+    private static final String[] TYPES = {"MARG", "BUFA", "DIAV", "WURS"};
+    private static final String[] USERS = {"Davide", "Marco", "Giulia", "Anna", "Luca"};
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private String format;
+
+    @Param({"100"})
+    private int orders;
+
+    private ObjectMapper mapper;
+    private List<OrderDetailsResponseDTO> details;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // the Jackson configuration of the application
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper = switch (format) {
+            case "SMILE" -> BinaryFormats.smileMapper(builder);
+            case "CBOR" -> BinaryFormats.cborMapper(builder);
+            default -> builder.build();
+        };
+
+        OffsetDateTime insertTs = OffsetDateTime.of(2023, 9, 20, 19, 30, 0, 0, ZoneOffset.ofHours(2));
+        details = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            List<OrderEntryDTO> entries = new ArrayList<>();
+            for (int j = 0; j <= i % 3; j++) {
+                entries.add(OrderEntryDTO.builder()
+                        .type(TYPES[(i + j) % TYPES.length])
+                        .quantity(1 + j)
+                        .additionalIngredients(j == 1 ? List.of("olive", "basilico") : null)
+                        .build());
+            }
+            details.add(OrderDetailsResponseDTO.builder()
+                    .id(UUID.nameUUIDFromBytes(new byte[]{(byte) i, (byte) (i >> 8)}).toString())
+                    .username(USERS[i % USERS.length])
+                    .entries(entries)
+                    .status(i % 10 == 0 ? OrderStatus.IN_PROGRESS : OrderStatus.WAITING)
+                    .express(i % 7 == 0)
+                    .insertTs(insertTs.plusSeconds(i * 17L))
+                    .build());
+        }
+        encoded = mapper.writeValueAsBytes(details);
+        System.out.printf("%n%s payload of %d orders: %,d bytes%n", format, orders, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(details);
+    }
+
+    @Benchmark
+    public JsonNode decode() throws IOException {
+        return mapper.readTree(encoded);
+    }
+}
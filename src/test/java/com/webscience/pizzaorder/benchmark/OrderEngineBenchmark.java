@@ -0,0 +1,148 @@
+package com.webscience.pizzaorder.benchmark;
+
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.configuration.OvenProperties;
+import com.webscience.pizzaorder.configuration.PreOrderProperties;
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import com.webscience.pizzaorder.exception.NoWaitingOrderException;
+import com.webscience.pizzaorder.exception.OrderAlreadyInProgressException;
+import com.webscience.pizzaorder.projection.CustomerOrderProjection;
+import com.webscience.pizzaorder.projection.KitchenQueueProjection;
+import com.webscience.pizzaorder.projection.UserHistoryProjection;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+import com.webscience.pizzaorder.repo.InventoryRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.service.IdempotencyCache;
+import com.webscience.pizzaorder.service.OrderService;
+import com.webscience.pizzaorder.service.OrderStatsService;
+import com.webscience.pizzaorder.service.PreOrderScheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NOTES:
+ * Throughput of the order mutations in the CONCURRENT and the SINGLE_WRITER engine modes:
+ * customer threads create orders and cancel one in four of them, one kitchen thread starts and completes
+ * the next order in a loop, closed orders are dropped every 100 ms to keep the heap steady.
+ * Reports the mutations per second over the measured seconds, after a warm up.
+ * Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.webscience.pizzaorder.benchmark.OrderEngineBenchmark [customer threads]
+ */
+public class OrderEngineBenchmark {
+
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration MEASURE = Duration.ofSeconds(5);
+
+    private static final OrderCreationRequestDTO REQUEST = OrderCreationRequestDTO.builder()
+            .username("Davide")
+            .entries(List.of(OrderEntryDTO.builder()
+                    .type("MARG")
+                    .quantity(1)
+                    .build()))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        System.out.printf("cpus=%d customer threads=%d%n", Runtime.getRuntime().availableProcessors(), customers);
+        for (int round = 0; round < 2; round++) {
+            for (EngineProperties.Mode mode : EngineProperties.Mode.values()) {
+                run(mode, customers);
+            }
+        }
+    }
+
+    private static void run(EngineProperties.Mode mode, int customers) throws Exception {
+        Clock clock = Clock.systemUTC();
+        EngineProperties engineProperties = new EngineProperties();
+        engineProperties.setMode(mode);
+        KitchenQueueProjection kitchenQueueProjection = new KitchenQueueProjection();
+        CustomerOrderProjection customerOrderProjection = new CustomerOrderProjection();
+        UserHistoryProjection userHistoryProjection = new UserHistoryProjection();
+        OrderRepo orderRepo = new OrderRepo(new EntryTypeRepo(), new SchedulingProperties(),
+                new OrderEventStore(List.of(kitchenQueueProjection, customerOrderProjection, userHistoryProjection)));
+        OrderEngine orderEngine = new OrderEngine(orderRepo, engineProperties);
+        orderEngine.start();
+        OrderService orderService = new OrderService(new EntryTypeRepo(), orderRepo, new IngredientDictionary(100), new InventoryRepo(),
+                new OrderStatsService(clock), new IdempotencyCache(clock, Duration.ofHours(1), 100),
+                new PreOrderScheduler(orderRepo, orderEngine, new PreOrderProperties(), clock), orderEngine,
+                kitchenQueueProjection, customerOrderProjection, userHistoryProjection, new OvenProperties(), new SchedulingProperties(), clock);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        LongAdder customerOps = new LongAdder();
+        LongAdder kitchenOps = new LongAdder();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            threads.add(new Thread(() -> {
+                long created = 0;
+                while (running.get()) {
+                    String orderId = orderService.createOrder(REQUEST);
+                    int ops = 1;
+                    if (++created % 4 == 0) {
+                        try {
+                            orderService.cancelOrder(orderId);
+                        } catch (RuntimeException e) {
+                            // already started by the kitchen
+                        }
+                        ops++;
+                    }
+                    if (measuring.get()) {
+                        customerOps.add(ops);
+                    }
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                try {
+                    OrderDetailsResponseDTO order = orderService.startProcessingNextOrder();
+                    orderService.setOrderCompleted(order.getId());
+                    if (measuring.get()) {
+                        kitchenOps.add(2);
+                    }
+                } catch (NoWaitingOrderException | OrderAlreadyInProgressException e) {
+                    Thread.onSpinWait();
+                }
+            }
+        }));
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                orderEngine.executeConcurrently(() -> orderRepo.evictCompleted(OffsetDateTime.now(clock).plusDays(1), 0, false, 100_000));
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }));
+
+        threads.forEach(Thread::start);
+        Thread.sleep(WARM_UP.toMillis());
+        measuring.set(true);
+        Thread.sleep(MEASURE.toMillis());
+        measuring.set(false);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        orderEngine.stop();
+
+        double seconds = MEASURE.toMillis() / 1000.0;
+        System.out.printf("%-14s customer mutations/s=%,10.0f kitchen mutations/s=%,9.0f total/s=%,10.0f%n",
+                mode, customerOps.sum() / seconds, kitchenOps.sum() / seconds, (customerOps.sum() + kitchenOps.sum()) / seconds);
+    }
+}
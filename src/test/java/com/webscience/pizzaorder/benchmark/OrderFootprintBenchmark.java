@@ -0,0 +1,129 @@
+package com.webscience.pizzaorder.benchmark;
+
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * NOTES:
+ * Measures the retained heap per order, comparing the compact {@link Order} layout
+ * with the previous one (reproduced by {@link PlainOrder}).
+ * Ingredients come from JSON parsing in production, so every order gets its own copies of the strings,
+ * until they are canonicalized by the {@link IngredientDictionary} at intake: both layouts are built from
+ * the canonicalized entries, so that only the layout is compared.
+ * Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.webscience.pizzaorder.benchmark.OrderFootprintBenchmark
+ */
+public class OrderFootprintBenchmark {
+
+    private static final int ORDERS = 200_000;
+
+    private static final EntryTypeRepo ENTRY_TYPE_REPO = new EntryTypeRepo();
+    private static final EntryType MARGHERITA = ENTRY_TYPE_REPO.findById("MARG").orElseThrow();
+    private static final EntryType DIAVOLA = ENTRY_TYPE_REPO.findById("DIAV").orElseThrow();
+    private static final IngredientDictionary INGREDIENT_DICTIONARY = new IngredientDictionary(100);
+
+    public static void main(String[] args) {
+        OffsetDateTime now = OffsetDateTime.now();
+
+        // warm up class loading and the interned strings table
+        measure(1_000, i -> buildOrder(i, now));
+        measure(1_000, i -> buildPlainOrder(i, now));
+
+        double plainBytes = measure(ORDERS, i -> buildPlainOrder(i, now));
+        double compactBytes = measure(ORDERS, i -> buildOrder(i, now));
+
+        System.out.printf("Previous layout: %.1f bytes/order%n", plainBytes);
+        System.out.printf("Compact layout:  %.1f bytes/order%n", compactBytes);
+        System.out.printf("Saved:           %.1f%%%n", 100 * (plainBytes - compactBytes) / plainBytes);
+    }
+
+    private static double measure(int count, IntFunction<Object> factory) {
+        long before = usedMemory();
+        List<Object> retained = new ArrayList<>(count);
+        long listOverhead = usedMemory() - before;
+
+        for (int i = 0; i < count; i++) {
+            retained.add(factory.apply(i));
+        }
+
+        long after = usedMemory();
+        double perOrder = (double) (after - before - listOverhead) / count;
+        if (retained.size() != count) {
+            throw new IllegalStateException();
+        }
+        return perOrder;
+    }
+
+    /**
+     * The previous layout had no normalized names, the compact one gets them from the dictionary as at intake.
+     */
+    private static List<OrderEntry> buildCanonicalEntries(int i, boolean normalized) {
+        return buildEntries(i).stream()
+                .map(entry -> {
+                    List<String> ingredients = INGREDIENT_DICTIONARY.canonicalize(entry.additionalIngredients());
+                    return OrderEntry.builder()
+                            .entryType(entry.entryType())
+                            .quantity(entry.quantity())
+                            .additionalIngredients(ingredients)
+                            .normalizedIngredients(normalized ? INGREDIENT_DICTIONARY.normalizeAll(ingredients) : null)
+                            .build();
+                })
+                .toList();
+    }
+
+    private static List<OrderEntry> buildEntries(int i) {
+        return List.of(
+                OrderEntry.builder()
+                        .entryType(MARGHERITA)
+                        .quantity(1 + i % 3)
+                        .build(),
+                OrderEntry.builder()
+                        .entryType(DIAVOLA)
+                        .quantity(1)
+                        .additionalIngredients(new ArrayList<>(List.of(new String("olive"), new String("patatine"))))
+                        .build());
+    }
+
+    private static Order buildOrder(int i, OffsetDateTime now) {
+        Order order = Order.builder()
+                .id(UUID.randomUUID().toString())
+                .userName("Davide")
+                .orderEntries(buildCanonicalEntries(i, true))
+                .insertTs(now.minusSeconds(i))
+                .orderStatus(OrderStatus.COMPLETED)
+                .startTs(now)
+                .completionTs(now.plusSeconds(i))
+                .build();
+        order.setSequence(i);
+        return order;
+    }
+
+    private static PlainOrder buildPlainOrder(int i, OffsetDateTime now) {
+        return new PlainOrder(UUID.randomUUID().toString(), "Davide", new ArrayList<>(buildCanonicalEntries(i, false)),
+                now.minusSeconds(i), 0, i, OrderStatus.COMPLETED, now, now.plusSeconds(i));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private record PlainOrder(String id, String userName, List<OrderEntry> orderEntries, OffsetDateTime insertTs,
+                              long estimatedPrepMillis, long sequence, OrderStatus orderStatus,
+                              OffsetDateTime startTs, OffsetDateTime completionTs) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.webscience.pizzaorder.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.serialization.OrderSerializersModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NOTES:
+ * Encode time of a kitchen display poll (a list of {@code orders} order details) and of a status poll
+ * with the reflective bean serializers of Jackson and with the hand written ones, in every format of the API.
+ * Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main OrderSerializersBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderSerializersBenchmark {
+
+    private static final String[] TYPES = {"MARG", "BUFA", "DIAV", "WURS"};
+    private static final String[] USERS = {"Davide", "Marco", "Giulia", "Anna", "Luca"};
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean handWritten;
+
+    @Param({"100"})
+    private int orders;
+
+    private ObjectMapper mapper;
+    private List<OrderDetailsResponseDTO> details;
+    private OrderStatusResponseDTO status;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the Jackson configuration of the application
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (handWritten) {
+            builder.postConfigurer(objectMapper -> objectMapper.registerModule(new OrderSerializersModule()));
+        }
+        mapper = switch (format) {
+            case "SMILE" -> BinaryFormats.smileMapper(builder);
+            case "CBOR" -> BinaryFormats.cborMapper(builder);
+            default -> builder.build();
+        };
+
+        OffsetDateTime insertTs = OffsetDateTime.of(2023, 9, 20, 19, 30, 0, 0, ZoneOffset.ofHours(2));
+        details = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            List<OrderEntryDTO> entries = new ArrayList<>();
+            for (int j = 0; j <= i % 3; j++) {
+                entries.add(OrderEntryDTO.builder()
+                        .type(TYPES[(i + j) % TYPES.length])
+                        .quantity(1 + j)
+                        .additionalIngredients(j == 1 ? List.of("olive", "basilico") : null)
+                        .build());
+            }
+            details.add(OrderDetailsResponseDTO.builder()
+                    .id(UUID.nameUUIDFromBytes(new byte[]{(byte) i, (byte) (i >> 8)}).toString())
+                    .username(USERS[i % USERS.length])
+                    .entries(entries)
+                    .status(i % 10 == 0 ? OrderStatus.IN_PROGRESS : OrderStatus.WAITING)
+                    .express(i % 7 == 0)
+                    .insertTs(insertTs.plusSeconds(i * 17L))
+                    .build());
+        }
+        status = OrderStatusResponseDTO.builder()
+                .status(OrderStatus.WAITING)
+                .queuePosition(12)
+                .estimatedReadyInMinutes(35L)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] encodeDetails() throws IOException {
+        return mapper.writeValueAsBytes(details);
+    }
+
+    @Benchmark
+    public byte[] encodeStatus() throws IOException {
+        return mapper.writeValueAsBytes(status);
+    }
+}
@@ -0,0 +1,97 @@
+package com.webscience.pizzaorder.benchmark;
+
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * NOTES:
+ * Simulates a two hours evening peak with a single kitchen (arrivals faster than the kitchen can serve them)
+ * and reports the customer wait (insertion to start) for each scheduling policy.
+ * One order in five is express, one in four requests a ready time.
+ * Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.webscience.pizzaorder.benchmark.SchedulingPolicyBenchmark
+ */
+public class SchedulingPolicyBenchmark {
+
+    private static final OffsetDateTime PEAK_START = OffsetDateTime.of(2023, 9, 20, 19, 0, 0, 0, ZoneOffset.UTC);
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+    private static final long PEAK_MILLIS = Duration.ofHours(2).toMillis();
+    private static final long MEAN_INTERARRIVAL_MILLIS = 150_000;
+    private static final long[] PREP_MILLIS = {MINUTE, MINUTE, 2 * MINUTE, 3 * MINUTE, 6 * MINUTE};
+
+    public static void main(String[] args) {
+        for (SchedulingProperties.Policy policy : SchedulingProperties.Policy.values()) {
+            simulate(policy);
+        }
+    }
+
+    private static void simulate(SchedulingProperties.Policy policy) {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setPolicy(policy);
+        OrderRepo orderRepo = new OrderRepo(new EntryTypeRepo(), properties);
+
+        Order[] orders = generateOrders(new Random(42));
+        long[] waits = new long[orders.length];
+        int served = 0;
+        int arrived = 0;
+        long now = 0;
+
+        while (served < orders.length) {
+            while (arrived < orders.length && offsetOf(orders[arrived]) <= now) {
+                orderRepo.addOrder(orders[arrived++]);
+            }
+
+            Order next = orderRepo.getNextToProcess().orElse(null);
+            if (next == null) {
+                now = offsetOf(orders[arrived]);
+                continue;
+            }
+
+            orderRepo.setOrderInProgress(next);
+            waits[served++] = now - offsetOf(next);
+            now += next.getEstimatedPrepMillis();
+            orderRepo.setOrderCompleted(next);
+        }
+
+        Arrays.sort(waits);
+        System.out.printf("%-18s orders=%d mean wait=%5.1f min p90=%5.1f min max=%5.1f min%n",
+                policy, orders.length,
+                Arrays.stream(waits).average().orElse(0) / MINUTE,
+                (double) waits[(int) (waits.length * 0.9)] / MINUTE,
+                (double) waits[waits.length - 1] / MINUTE);
+    }
+
+    private static Order[] generateOrders(Random random) {
+        int count = (int) (PEAK_MILLIS / MEAN_INTERARRIVAL_MILLIS);
+        Order[] orders = new Order[count];
+        long arrival = 0;
+        for (int i = 0; i < count; i++) {
+            arrival += (long) (-Math.log(1 - random.nextDouble()) * MEAN_INTERARRIVAL_MILLIS);
+            OffsetDateTime insertTs = PEAK_START.plusNanos(arrival * 1_000_000);
+            orders[i] = Order.builder()
+                    .id("order-" + i)
+                    .userName("user-" + i)
+                    .orderStatus(OrderStatus.WAITING)
+                    .insertTs(insertTs)
+                    .estimatedPrepMillis(PREP_MILLIS[random.nextInt(PREP_MILLIS.length)])
+                    .express(random.nextInt(5) == 0)
+                    .deadline(random.nextInt(4) == 0 ? insertTs.plusMinutes(15) : null)
+                    .build();
+        }
+        return orders;
+    }
+
+    private static long offsetOf(Order order) {
+        return Duration.between(PEAK_START, order.getInsertTs()).toMillis();
+    }
+}
@@ -0,0 +1,104 @@
+package com.webscience.pizzaorder.benchmark;
+
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.configuration.StorageProperties;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NOTES:
+ * Intake throughput of the OrderRepo with a single kitchen queue and with one shard per core:
+ * every thread inserts WAITING orders and cancels each of them right after, so the queue stays small
+ * and the time goes to the shared structures. Closed orders are dropped every 100 ms.
+ * Reports the orders per second over the measured seconds, after a warm up.
+ * Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.webscience.pizzaorder.benchmark.ShardedRepoBenchmark [threads]
+ */
+public class ShardedRepoBenchmark {
+
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+    private static final Duration MEASURE = Duration.ofSeconds(5);
+
+    private static final List<OrderEntry> ENTRIES = List.of(OrderEntry.builder()
+            .entryType(EntryType.builder().id("MARG").build())
+            .quantity(1)
+            .build());
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : cores;
+        System.out.printf("cpus=%d threads=%d%n", cores, threads);
+        for (int round = 0; round < 2; round++) {
+            for (int shards : new int[]{1, Math.max(cores, 2)}) {
+                run(shards, threads);
+            }
+        }
+    }
+
+    private static void run(int shards, int threadCount) throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setShards(shards);
+        OrderRepo orderRepo = new OrderRepo(new EntryTypeRepo(), new SchedulingProperties(), storageProperties, new OrderEventStore());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        LongAdder orders = new LongAdder();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread(() -> {
+                while (running.get()) {
+                    OffsetDateTime now = OffsetDateTime.now();
+                    Order order = Order.builder()
+                            .id(UUID.randomUUID().toString())
+                            .userName("Davide")
+                            .orderEntries(ENTRIES)
+                            .orderStatus(OrderStatus.WAITING)
+                            .insertTs(now)
+                            .build();
+                    orderRepo.addOrder(order);
+                    orderRepo.setOrderCancelled(order, now);
+                    if (measuring.get()) {
+                        orders.increment();
+                    }
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                orderRepo.evictCompleted(OffsetDateTime.now().plusDays(1), 0, false, 100_000);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }));
+
+        threads.forEach(Thread::start);
+        Thread.sleep(WARM_UP.toMillis());
+        measuring.set(true);
+        Thread.sleep(MEASURE.toMillis());
+        measuring.set(false);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("shards=%-3d orders/s=%,10.0f%n", orderRepo.getShardCount(), orders.sum() / (MEASURE.toMillis() / 1000.0));
+    }
+}
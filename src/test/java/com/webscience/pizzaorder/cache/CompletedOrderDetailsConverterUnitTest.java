@@ -0,0 +1,81 @@
+package com.webscience.pizzaorder.cache;
+
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletedOrderDetailsConverterUnitTest {
+
+    private final MappingJackson2HttpMessageConverter jsonConverter = new MappingJackson2HttpMessageConverter();
+    private final MappingJackson2CborHttpMessageConverter cborConverter =
+            new MappingJackson2CborHttpMessageConverter(BinaryFormats.cborMapper(new Jackson2ObjectMapperBuilder()));
+    private final CompletedOrderResponseCache cache = new CompletedOrderResponseCache(100);
+    private final CompletedOrderDetailsConverter converter = new CompletedOrderDetailsConverter(cache, List.of(jsonConverter, cborConverter));
+
+    @Test
+    void givenCompletedDetails_whenWritten_thenTheyAreEncodedOnceAndAsTheJacksonConverters() throws IOException {
+        OrderDetailsResponseDTO details = buildDetails(OrderStatus.COMPLETED);
+
+        for (AbstractJackson2HttpMessageConverter delegate : List.of(jsonConverter, cborConverter)) {
+            MediaType mediaType = delegate.getSupportedMediaTypes().get(0);
+            byte[] expected = write(delegate, details, mediaType);
+
+            assertArrayEquals(expected, write(converter, details, mediaType));
+            byte[] cached = cache.get(details.getId(), mediaType);
+            assertArrayEquals(expected, cached);
+            assertArrayEquals(expected, write(converter, details, mediaType));
+            assertSame(cached, cache.get(details.getId(), mediaType));
+        }
+    }
+
+    @Test
+    void givenDetailsOfAnOrderNotCompleted_whenWritten_thenTheyAreNotCached() throws IOException {
+        OrderDetailsResponseDTO details = buildDetails(OrderStatus.IN_PROGRESS);
+
+        assertArrayEquals(write(jsonConverter, details, MediaType.APPLICATION_JSON), write(converter, details, MediaType.APPLICATION_JSON));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void givenTheConverter_whenAskedToRead_thenItRefuses() {
+        assertFalse(converter.canRead(OrderDetailsResponseDTO.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(OrderDetailsResponseDTO.class, MediaType.APPLICATION_CBOR));
+        assertFalse(converter.canWrite(OrderEntryDTO.class, MediaType.APPLICATION_JSON));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] write(HttpMessageConverter<?> converter, OrderDetailsResponseDTO details,
+                                MediaType mediaType) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        ((HttpMessageConverter<Object>) converter).write(details, mediaType, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    private static OrderDetailsResponseDTO buildDetails(OrderStatus status) {
+        return OrderDetailsResponseDTO.builder()
+                .id("order-id-1")
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(2)
+                        .build()))
+                .status(status)
+                .insertTs(OffsetDateTime.parse("2023-09-20T19:30:00+02:00"))
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.webscience.pizzaorder.cache;
+
+import com.webscience.pizzaorder.event.OrderEvicted;
+import com.webscience.pizzaorder.event.OrderReleased;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletedOrderResponseCacheUnitTest {
+
+    private static final byte[] JSON_BYTES = "{\"id\":\"order-id-1\"}".getBytes();
+    private static final byte[] CBOR_BYTES = {(byte) 0xbf, 0x61, 0x31, (byte) 0xff};
+
+    private final CompletedOrderResponseCache cache = new CompletedOrderResponseCache(2);
+
+    @Test
+    void givenEncodedDetails_whenGettingThem_thenTheSameBytesAreReturnedPerMediaType() {
+        cache.put("order-id-1", MediaType.APPLICATION_JSON, JSON_BYTES);
+        cache.put("order-id-1", MediaType.APPLICATION_CBOR, CBOR_BYTES);
+
+        assertSame(JSON_BYTES, cache.get("order-id-1", MediaType.APPLICATION_JSON));
+        assertSame(CBOR_BYTES, cache.get("order-id-1", MediaType.APPLICATION_CBOR));
+        assertNull(cache.get("order-id-2", MediaType.APPLICATION_JSON));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void givenAnEventOfACachedOrder_whenApplied_thenItsBytesAreDropped() {
+        cache.put("order-id-1", MediaType.APPLICATION_JSON, JSON_BYTES);
+        cache.put("order-id-2", MediaType.APPLICATION_JSON, JSON_BYTES);
+
+        cache.apply(new OrderEvicted("order-id-1", "Davide", 1, true));
+        cache.apply(new OrderReleased("order-id-3"));
+
+        assertNull(cache.get("order-id-1", MediaType.APPLICATION_JSON));
+        assertNotNull(cache.get("order-id-2", MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void givenMoreOrdersThanTheBound_whenCaching_thenTheOldestAreEvicted() {
+        cache.put("order-id-1", MediaType.APPLICATION_JSON, JSON_BYTES);
+        cache.put("order-id-2", MediaType.APPLICATION_JSON, JSON_BYTES);
+        cache.put("order-id-3", MediaType.APPLICATION_JSON, JSON_BYTES);
+
+        assertNull(cache.get("order-id-1", MediaType.APPLICATION_JSON));
+        assertNotNull(cache.get("order-id-2", MediaType.APPLICATION_JSON));
+        assertNotNull(cache.get("order-id-3", MediaType.APPLICATION_JSON));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void givenCachedOrders_whenReset_thenTheCacheIsEmpty() {
+        cache.put("order-id-1", MediaType.APPLICATION_JSON, JSON_BYTES);
+
+        cache.reset();
+
+        assertEquals(0, cache.size());
+    }
+}
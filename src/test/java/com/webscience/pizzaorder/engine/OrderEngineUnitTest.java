@@ -0,0 +1,136 @@
+package com.webscience.pizzaorder.engine;
+
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEngineUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .build();
+
+    private final OrderRepo orderRepo = new OrderRepo();
+    private OrderEngine orderEngine;
+
+    @BeforeEach
+    void setUp() {
+        EngineProperties properties = new EngineProperties();
+        properties.setMode(EngineProperties.Mode.SINGLE_WRITER);
+        properties.setCapacity(16);
+        orderEngine = new OrderEngine(orderRepo, properties);
+        orderEngine.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        orderEngine.stop();
+    }
+
+    @Test
+    void givenCommandsFromManyThreads_whenExecuted_thenTheyAreAllAppliedByTheWriterThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<String>> writerNames = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String orderId = "order-id-" + i;
+            writerNames.add(executor.submit(() -> {
+                ready.await();
+                return orderEngine.executeConcurrently(() -> {
+                    orderRepo.addOrder(buildOrder(orderId));
+                    return Thread.currentThread().getName();
+                });
+            }));
+        }
+        ready.countDown();
+
+        for (Future<String> writerName : writerNames) {
+            assertEquals("order-engine-writer", writerName.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(200, orderEngine.getView().appliedCommands());
+        assertEquals(200, orderRepo.getNotProcessed().size());
+    }
+
+    @Test
+    void givenAFailingCommand_whenExecuted_thenTheErrorReachesTheCallerAndTheWriterGoesOn() {
+        assertThrows(IllegalStateException.class, () -> orderEngine.run(() -> {
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(42, orderEngine.execute(() -> 42));
+    }
+
+    @Test
+    void givenACommandIssuingAnotherCommand_whenExecuted_thenTheInnerOneIsAppliedInline() {
+        assertEquals("inner", orderEngine.execute(() -> orderEngine.execute(() -> "inner")));
+    }
+
+    @Test
+    void givenAPublishedView_whenTheKitchenChanges_thenTheViewAlreadyReadIsUnchanged() {
+        Order order = buildOrder("an-order-id");
+        orderEngine.runConcurrently(() -> orderRepo.addOrder(order));
+        KitchenView before = orderEngine.getView();
+
+        orderEngine.run(() -> orderRepo.setOrderInProgress(order));
+        KitchenView after = orderEngine.getView();
+
+        assertNull(before.orderIdInProgress());
+        assertEquals("an-order-id", after.orderIdInProgress());
+        assertEquals(before.appliedCommands() + 1, after.appliedCommands());
+    }
+
+    @Test
+    void givenASlowCommand_whenReadingTheView_thenTheReaderDoesNotWaitForIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> slowCommand = executor.submit(() -> orderEngine.run(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        KitchenView view = assertTimeoutPreemptively(Duration.ofSeconds(1), () -> orderEngine.getView());
+
+        assertEquals(0, view.appliedCommands());
+        release.countDown();
+        slowCommand.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(1, orderEngine.getView().appliedCommands());
+    }
+
+    private static Order buildOrder(String orderId) {
+        return Order.builder()
+                .id(orderId)
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+    }
+}
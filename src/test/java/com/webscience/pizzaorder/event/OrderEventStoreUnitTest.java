@@ -0,0 +1,262 @@
+package com.webscience.pizzaorder.event;
+
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.projection.CustomerOrderProjection;
+import com.webscience.pizzaorder.projection.KitchenQueueProjection;
+import com.webscience.pizzaorder.projection.UserHistoryProjection;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventStoreUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .build();
+
+    private static final OffsetDateTime FIXED_TS = OffsetDateTime.of(2023, 9, 11, 19, 0, 0, 0, ZoneOffset.UTC);
+
+    private final KitchenQueueProjection kitchenQueueProjection = new KitchenQueueProjection();
+    private final CustomerOrderProjection customerOrderProjection = new CustomerOrderProjection();
+    private final UserHistoryProjection userHistoryProjection = new UserHistoryProjection();
+    private final OrderEventStore eventStore = new OrderEventStore(List.of(kitchenQueueProjection, customerOrderProjection, userHistoryProjection));
+    private final OrderRepo orderRepo = new OrderRepo(new EntryTypeRepo(), new SchedulingProperties(), eventStore);
+
+    @Test
+    void givenAnOrderLifecycle_whenAppliedToTheRepo_thenEveryChangeIsAppendedInOrder() {
+        Order order = buildOrder("order-id-1", "Davide", OrderStatus.SCHEDULED);
+        orderRepo.addOrder(order);
+        orderRepo.setOrderWaiting(order);
+        order.setStartTs(FIXED_TS);
+        orderRepo.setOrderInProgress(order);
+        order.setCompletionTs(FIXED_TS.plusMinutes(10));
+        orderRepo.setOrderCompleted(order);
+        orderRepo.evictCompleted(FIXED_TS.plusDays(1), 0, true, 100_000);
+
+        List<OrderEvent> events = eventStore.getEvents();
+        assertEquals(List.of(OrderCreated.class, OrderReleased.class, OrderStarted.class, OrderCompleted.class, OrderEvicted.class),
+                events.stream().map(Object::getClass).collect(Collectors.toList()));
+        assertEquals(OrderStatus.SCHEDULED, ((OrderCreated) events.get(0)).status());
+        assertEquals(new OrderStarted("order-id-1", FIXED_TS), events.get(2));
+        assertEquals(new OrderCompleted("order-id-1", FIXED_TS.plusMinutes(10)), events.get(3));
+        assertEquals(new OrderEvicted("order-id-1", "Davide", order.getSequence(), true), events.get(4));
+    }
+
+    @Test
+    void givenALostCancellation_whenAppliedToTheRepo_thenNoEventIsAppended() {
+        Order order = buildOrder("order-id-1", "Davide", OrderStatus.WAITING);
+        orderRepo.addOrder(order);
+        orderRepo.setOrderInProgress(order);
+
+        assertFalse(orderRepo.setOrderCancelled(order, FIXED_TS));
+
+        assertEquals(2, eventStore.getEvents().size());
+    }
+
+    @Test
+    void givenProjectionsOutOfDate_whenRebuilt_thenTheyAreTheSameAsBeforeFromTheEventStream() {
+        Order first = buildOrder("order-id-1", "Davide", OrderStatus.WAITING);
+        Order second = buildOrder("order-id-2", "Marco", OrderStatus.WAITING);
+        Order third = buildOrder("order-id-3", "Davide", OrderStatus.WAITING);
+        orderRepo.addOrder(first);
+        orderRepo.addOrder(second);
+        orderRepo.addOrder(third);
+        orderRepo.setOrderInProgress(first);
+        orderRepo.setOrderCancelled(second, FIXED_TS);
+
+        List<OrderDetailsResponseDTO> waitingOrders = kitchenQueueProjection.getWaitingOrders();
+        OrderStatus firstStatus = customerOrderProjection.getView("order-id-1").orElseThrow().status();
+        List<String> davideOrderIds = userHistoryProjection.getOrderIds("Davide", 0, 10);
+
+        customerOrderProjection.reset();
+        kitchenQueueProjection.reset();
+        userHistoryProjection.reset();
+        assertTrue(kitchenQueueProjection.getWaitingOrders().isEmpty());
+
+        assertEquals(5, eventStore.rebuildProjections());
+
+        assertEquals(List.of("order-id-3"), waitingOrders.stream().map(OrderDetailsResponseDTO::getId).collect(Collectors.toList()));
+        assertEquals(waitingOrders.stream().map(OrderDetailsResponseDTO::getId).collect(Collectors.toList()),
+                kitchenQueueProjection.getWaitingOrders().stream().map(OrderDetailsResponseDTO::getId).collect(Collectors.toList()));
+        assertEquals(OrderStatus.IN_PROGRESS, firstStatus);
+        assertEquals(firstStatus, customerOrderProjection.getView("order-id-1").orElseThrow().status());
+        assertEquals(OrderStatus.CANCELLED, customerOrderProjection.getView("order-id-2").orElseThrow().status());
+        assertEquals(List.of("order-id-3", "order-id-1"), davideOrderIds);
+        assertEquals(davideOrderIds, userHistoryProjection.getOrderIds("Davide", 0, 10));
+    }
+
+    @Test
+    void givenAppendsFromManyThreads_whenReadingTheStream_thenEveryEventIsThereOnceInTheOrderOfItsOrder() throws Exception {
+        int threads = 4;
+        int ordersPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<?>> appenders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            appenders.add(executor.submit(() -> {
+                ready.await();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    String orderId = "order-id-" + thread + "-" + i;
+                    eventStore.append(new OrderStarted(orderId, FIXED_TS));
+                    eventStore.append(new OrderCompleted(orderId, FIXED_TS.plusMinutes(10)));
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (Future<?> appender : appenders) {
+            appender.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<OrderEvent> events = eventStore.getEvents();
+        assertEquals(2L * threads * ordersPerThread, eventStore.getHeadOffset());
+        assertEquals(2 * threads * ordersPerThread, events.size());
+        Set<String> started = new HashSet<>();
+        for (OrderEvent event : events) {
+            if (event instanceof OrderStarted) {
+                assertTrue(started.add(event.orderId()));
+            } else {
+                assertTrue(started.contains(event.orderId()));
+            }
+        }
+        assertEquals(threads * ordersPerThread, started.size());
+        assertEquals(new OrderEventBatch(events.subList(1_500, 1_600), 1_600), eventStore.read(1_500, 100));
+    }
+
+    @Test
+    void givenAReaderWaitingForTheNextEvent_whenItIsAppended_thenTheReaderIsWokenUp() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> awaited = executor.submit(() -> eventStore.awaitEvents(0, 5_000));
+
+        Thread.sleep(50);
+        eventStore.append(new OrderStarted("order-id-1", FIXED_TS));
+
+        assertTrue(awaited.get(1, TimeUnit.SECONDS));
+        assertFalse(eventStore.awaitEvents(1, 10));
+        executor.shutdown();
+    }
+
+    @Test
+    void givenOrdersDroppedAfterCompletion_whenTakingManyMore_thenTheStreamStaysFlat() {
+        List<Integer> retained = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            takeAndDropOrders(round, 1_000);
+            retained.add(eventStore.getEvents().size());
+        }
+
+        assertEquals(80_000, eventStore.getHeadOffset());
+        assertTrue(retained.stream().allMatch(size -> size < 6_000), retained::toString);
+        assertTrue(userHistoryProjection.getOrderIds("Davide", 0, 10).isEmpty());
+
+        Order open = buildOrder("open-order-id", "Davide", OrderStatus.WAITING);
+        orderRepo.addOrder(open);
+        eventStore.rebuildProjections();
+        assertEquals(List.of("open-order-id"), userHistoryProjection.getOrderIds("Davide", 0, 10));
+        assertEquals(OrderStatus.WAITING, customerOrderProjection.getView("open-order-id").orElseThrow().status());
+    }
+
+    @Test
+    void givenAReaderBehind_whenOrdersAreDropped_thenTheStreamIsCompactedOnlyUpToItsAcknowledgedOffset() {
+        OrderEventStore.Cursor cursor = eventStore.openCursor(0);
+
+        takeAndDropOrders(0, 2_000);
+
+        assertEquals(8_000, eventStore.getEvents().size());
+        assertTrue(eventStore.isResumableFrom(1));
+
+        cursor.acknowledge(eventStore.getHeadOffset());
+        takeAndDropOrders(1, 2_000);
+
+        assertTrue(eventStore.getEvents().size() < 16_000);
+        assertEquals(8_000, eventStore.read(8_000, Integer.MAX_VALUE).events().size());
+        assertFalse(eventStore.isResumableFrom(1));
+        assertTrue(eventStore.isResumableFrom(0));
+        assertTrue(eventStore.isResumableFrom(eventStore.getHeadOffset()));
+        OrderEventBatch batch = eventStore.read(1, 10);
+        assertEquals(10, batch.events().size());
+        assertTrue(batch.nextOffset() > 11);
+        cursor.close();
+    }
+
+    @Test
+    void givenOrdersDropped_whenEvictingThemInChunks_thenTheStreamIsCompactedOnlyOffTheAppends() {
+        takeOrders(0, 3_000);
+        for (int chunk = 0; chunk < 3; chunk++) {
+            orderRepo.evict(orderRepo.prepareEviction(FIXED_TS.plusDays(1), 0, false, 1_000));
+        }
+
+        assertEquals(12_000, eventStore.getEvents().size());
+
+        // the orders evicted up to the last full segment
+        assertEquals(2_264, eventStore.compact());
+        assertEquals(12_000 - 4 * 2_264, eventStore.getEvents().size());
+        assertEquals(0, eventStore.compact());
+        assertFalse(eventStore.isResumableFrom(1));
+        assertTrue(userHistoryProjection.getOrderIds("Davide", 0, 10).isEmpty());
+    }
+
+    @Test
+    void givenARepoCleared_whenClearing_thenTheStreamAndTheProjectionsAreEmpty() {
+        orderRepo.addOrder(buildOrder("order-id-1", "Davide", OrderStatus.WAITING));
+
+        orderRepo.clear();
+
+        assertTrue(eventStore.getEvents().isEmpty());
+        assertTrue(kitchenQueueProjection.getWaitingOrders().isEmpty());
+        assertTrue(customerOrderProjection.getView("order-id-1").isEmpty());
+        assertTrue(userHistoryProjection.getOrderIds("Davide", 0, 10).isEmpty());
+    }
+
+    private void takeAndDropOrders(int round, int count) {
+        takeOrders(round, count);
+        orderRepo.evictCompleted(FIXED_TS.plusDays(1), 0, false, 100_000);
+    }
+
+    private void takeOrders(int round, int count) {
+        for (int i = 0; i < count; i++) {
+            Order order = buildOrder("order-id-" + round + "-" + i, "Davide", OrderStatus.WAITING);
+            orderRepo.addOrder(order);
+            order.setStartTs(FIXED_TS);
+            orderRepo.setOrderInProgress(order);
+            order.setCompletionTs(FIXED_TS.plusMinutes(10));
+            orderRepo.setOrderCompleted(order);
+        }
+    }
+
+    private static Order buildOrder(String orderId, String userName, OrderStatus status) {
+        return Order.builder()
+                .id(orderId)
+                .userName(userName)
+                .orderStatus(status)
+                .insertTs(FIXED_TS)
+                .requestedTs(status == OrderStatus.SCHEDULED ? FIXED_TS.plusHours(2) : null)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+    }
+}
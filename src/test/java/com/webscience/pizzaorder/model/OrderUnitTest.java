@@ -0,0 +1,109 @@
+package com.webscience.pizzaorder.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .build();
+
+    @Test
+    void givenAnUuidId_whenBuildingOrder_thenTheSameIdIsReturned() {
+        String id = UUID.randomUUID().toString();
+
+        assertEquals(id, Order.builder().id(id).build().getId());
+    }
+
+    @Test
+    void givenANotUuidId_whenBuildingOrder_thenTheSameIdIsReturned() {
+        assertEquals("an-order-id", Order.builder().id("an-order-id").build().getId());
+        assertEquals("9E40B6EF-9EED-4DFA-A0FC-E90409B64E39", Order.builder().id("9E40B6EF-9EED-4DFA-A0FC-E90409B64E39").build().getId());
+    }
+
+    @Test
+    void givenTimestamps_whenBuildingOrder_thenTheSameTimestampsAreReturned() {
+        OffsetDateTime insertTs = OffsetDateTime.of(2023, 9, 11, 19, 30, 15, 123_456_789, ZoneOffset.ofHours(2));
+
+        Order order = Order.builder()
+                .insertTs(insertTs)
+                .build();
+
+        assertEquals(insertTs, order.getInsertTs());
+        assertNull(order.getStartTs());
+        assertNull(order.getCompletionTs());
+
+        order.setStartTs(insertTs.plusMinutes(5));
+        assertEquals(insertTs.plusMinutes(5), order.getStartTs());
+    }
+
+    @Test
+    void givenTimestamps_whenReadingTheEpochAccessors_thenTheyMatchTheTimestamps() {
+        OffsetDateTime insertTs = OffsetDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999, ZoneOffset.ofHours(2));
+        OffsetDateTime deadline = OffsetDateTime.of(2023, 9, 11, 19, 30, 15, 123_456_789, ZoneOffset.ofHours(2));
+
+        Order order = Order.builder()
+                .insertTs(insertTs)
+                .deadline(deadline)
+                .build();
+
+        assertTrue(order.hasInsertTs());
+        assertEquals(insertTs.toInstant().toEpochMilli(), order.getInsertEpochMillis());
+        assertEquals(-2L * 3600 * 1_000_000_000L - 1, order.getInsertEpochNanos());
+        assertTrue(order.hasDeadline());
+        assertEquals(deadline.toInstant().toEpochMilli(), order.getDeadlineEpochMillis());
+        assertFalse(order.hasCompletionTs());
+
+        order.setCompletionTs(deadline);
+        assertTrue(order.hasCompletionTs());
+        assertEquals(deadline.toEpochSecond() * 1_000_000_000L + 123_456_789, order.getCompletionEpochNanos());
+    }
+
+    @Test
+    void givenEntries_whenBuildingOrder_thenEqualEntriesAreReturned() {
+        List<OrderEntry> entries = List.of(
+                OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(2)
+                        .build(),
+                OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .additionalIngredients(List.of("olive", "patatine"))
+                        .build());
+
+        Order order = Order.builder()
+                .orderEntries(entries)
+                .build();
+
+        assertEquals(entries, order.getOrderEntries());
+        assertEquals(MARGHERITA_TYPE, order.getOrderEntries().get(0).entryType());
+        assertSame("olive", order.getOrderEntries().get(1).additionalIngredients().get(0));
+    }
+
+    @Test
+    void givenAnOrder_whenReadingIdAndEntriesAgain_thenTheStoredInstancesAreReturned() {
+        String id = UUID.randomUUID().toString();
+        Order order = Order.builder()
+                .id(id)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .additionalIngredients(new ArrayList<>(List.of("olive")))
+                        .build()))
+                .build();
+
+        assertSame(id, order.getId());
+        assertSame(order.getOrderEntries(), order.getOrderEntries());
+        assertThrows(UnsupportedOperationException.class, () -> order.getOrderEntries().get(0).additionalIngredients().add("patatine"));
+    }
+}
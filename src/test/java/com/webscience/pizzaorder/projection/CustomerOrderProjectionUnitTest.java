@@ -0,0 +1,75 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvicted;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerOrderProjectionUnitTest {
+
+    private static final EntryType DIAVOLA_TYPE = EntryType.builder()
+            .id("DIAV")
+            .description("Diavola")
+            .build();
+
+    private static final OffsetDateTime FIXED_TS = OffsetDateTime.of(2023, 9, 11, 19, 0, 0, 0, ZoneOffset.UTC);
+
+    private final CustomerOrderProjection projection = new CustomerOrderProjection();
+
+    @Test
+    void givenAStartedOrder_whenReadingItsView_thenStatusStartAndEstimateAreReturned() {
+        projection.apply(created());
+        projection.apply(new OrderStarted("order-id-1", FIXED_TS.plusMinutes(5)));
+
+        CustomerOrderView view = projection.getView("order-id-1").orElseThrow();
+        assertEquals(OrderStatus.IN_PROGRESS, view.status());
+        assertEquals(OrderStatus.IN_PROGRESS, view.details().getStatus());
+        assertEquals(FIXED_TS.plusMinutes(5), view.startTs());
+        assertEquals(Duration.ofMinutes(8).toMillis(), view.estimatedPrepMillis());
+        assertEquals("Davide", view.details().getUsername());
+        assertTrue(view.details().isExpress());
+    }
+
+    @Test
+    void givenAViewAlreadyRead_whenTheOrderChanges_thenTheViewReadBeforeIsUnchanged() {
+        projection.apply(created());
+        CustomerOrderView waitingView = projection.getView("order-id-1").orElseThrow();
+
+        projection.apply(new OrderStarted("order-id-1", FIXED_TS));
+        projection.apply(new OrderCompleted("order-id-1", FIXED_TS.plusMinutes(8)));
+
+        assertEquals(OrderStatus.WAITING, waitingView.status());
+        assertEquals(OrderStatus.COMPLETED, projection.getView("order-id-1").orElseThrow().status());
+    }
+
+    @Test
+    void givenAnEvictedOrder_whenReadingItsView_thenNothingIsReturned() {
+        projection.apply(created());
+        projection.apply(new OrderCompleted("order-id-1", FIXED_TS));
+
+        projection.apply(new OrderEvicted("order-id-1", "Davide", 1, true));
+
+        assertTrue(projection.getView("order-id-1").isEmpty());
+        assertTrue(projection.getView(null).isEmpty());
+    }
+
+    private static OrderCreated created() {
+        List<OrderEntry> entries = List.of(OrderEntry.builder()
+                .entryType(DIAVOLA_TYPE)
+                .quantity(1)
+                .build());
+        return new OrderCreated("order-id-1", 1, "Davide", entries, OrderStatus.WAITING, true, null, null, FIXED_TS, null,
+                Duration.ofMinutes(8).toMillis(), 0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.webscience.pizzaorder.projection;
+
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KitchenQueueProjectionUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .build();
+
+    private static final OffsetDateTime FIXED_TS = OffsetDateTime.of(2023, 9, 11, 19, 0, 0, 0, ZoneOffset.UTC);
+
+    private final KitchenQueueProjection projection = new KitchenQueueProjection();
+
+    @Test
+    void givenWaitingOrders_whenReadingTheWaitingList_thenTheyAreSortedByRankThenBySequence() {
+        projection.apply(created("order-id-1", 1, OrderStatus.WAITING, 1));
+        projection.apply(created("order-id-2", 2, OrderStatus.WAITING, 0));
+        projection.apply(created("order-id-3", 3, OrderStatus.WAITING, 1));
+
+        assertEquals(List.of("order-id-2", "order-id-1", "order-id-3"), idsOf(projection.getWaitingOrders()));
+    }
+
+    @Test
+    void givenAWaitingOrder_whenReadingTheWaitingList_thenItsDetailsAreReturned() {
+        projection.apply(created("order-id-1", 1, OrderStatus.WAITING, 0));
+
+        OrderDetailsResponseDTO details = projection.getWaitingOrders().get(0);
+        assertEquals("order-id-1", details.getId());
+        assertEquals("Davide", details.getUsername());
+        assertEquals(OrderStatus.WAITING, details.getStatus());
+        assertEquals(FIXED_TS, details.getInsertTs());
+        assertEquals(List.of(OrderEntryDTO.builder().type("MARG").quantity(2).additionalIngredients(List.of("olive")).build()),
+                details.getEntries());
+    }
+
+    @Test
+    void givenAPreOrder_whenReleased_thenItEntersTheWaitingListInItsPlace() {
+        projection.apply(created("order-id-1", 1, OrderStatus.SCHEDULED, 0));
+        projection.apply(created("order-id-2", 2, OrderStatus.WAITING, 0));
+        assertEquals(List.of("order-id-2"), idsOf(projection.getWaitingOrders()));
+
+        projection.apply(new OrderReleased("order-id-1"));
+
+        assertEquals(List.of("order-id-1", "order-id-2"), idsOf(projection.getWaitingOrders()));
+        assertEquals(OrderStatus.WAITING, projection.getWaitingOrders().get(0).getStatus());
+    }
+
+    @Test
+    void givenWaitingOrders_whenStartedOrCancelled_thenTheyLeaveTheWaitingList() {
+        projection.apply(created("order-id-1", 1, OrderStatus.WAITING, 0));
+        projection.apply(created("order-id-2", 2, OrderStatus.WAITING, 0));
+        projection.apply(created("order-id-3", 3, OrderStatus.WAITING, 0));
+        projection.apply(created("order-id-4", 4, OrderStatus.REJECTED, 0));
+
+        projection.apply(new OrderStarted("order-id-1", FIXED_TS));
+        projection.apply(new OrderCancelled("order-id-3", FIXED_TS));
+
+        assertEquals(List.of("order-id-2"), idsOf(projection.getWaitingOrders()));
+    }
+
+    private static OrderCreated created(String orderId, long sequence, OrderStatus status, long queueRank) {
+        List<OrderEntry> entries = List.of(OrderEntry.builder()
+                .entryType(MARGHERITA_TYPE)
+                .quantity(2)
+                .additionalIngredients(List.of("olive"))
+                .build());
+        return new OrderCreated(orderId, sequence, "Davide", entries, status, false, null, null, FIXED_TS, null, 0, queueRank);
+    }
+
+    private static List<String> idsOf(List<OrderDetailsResponseDTO> orders) {
+        return orders.stream().map(OrderDetailsResponseDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,98 @@
+package com.webscience.pizzaorder.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterUnitTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void givenABurst_whenExceeded_thenRequestsAreRejectedUntilRefilled() {
+        RateLimiter rateLimiter = new RateLimiter(2, 3, 100, now::get);
+
+        assertEquals(0, rateLimiter.tryAcquire("client"));
+        assertEquals(0, rateLimiter.tryAcquire("client"));
+        assertEquals(0, rateLimiter.tryAcquire("client"));
+        assertEquals(SECOND / 2, rateLimiter.tryAcquire("client"));
+
+        now.addAndGet(SECOND / 2);
+        assertEquals(0, rateLimiter.tryAcquire("client"));
+        assertTrue(rateLimiter.tryAcquire("client") > 0);
+    }
+
+    @Test
+    void givenDifferentKeys_whenAcquiring_thenBucketsAreIndependent() {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 100, now::get);
+
+        assertEquals(0, rateLimiter.tryAcquire("client-1"));
+        assertTrue(rateLimiter.tryAcquire("client-1") > 0);
+        assertEquals(0, rateLimiter.tryAcquire("client-2"));
+    }
+
+    @Test
+    void givenAFullMap_whenANewKeyArrives_thenAnIdleBucketIsEvicted() {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 2, now::get);
+
+        rateLimiter.tryAcquire("client-1");
+        rateLimiter.tryAcquire("client-2");
+        now.addAndGet(2 * SECOND);
+        rateLimiter.tryAcquire("client-2");
+
+        assertEquals(0, rateLimiter.tryAcquire("client-3"));
+        assertEquals(2, rateLimiter.size());
+        assertTrue(rateLimiter.tryAcquire("client-2") > 0);
+    }
+
+    @Test
+    void givenAFullMapOfActiveBuckets_whenANewKeyArrives_thenTheLeastRecentlyUsedOneIsEvicted() {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 2, now::get);
+
+        rateLimiter.tryAcquire("client-1");
+        rateLimiter.tryAcquire("client-2");
+        assertEquals(0, rateLimiter.tryAcquire("client-3"));
+        // client-1 and client-2 both lost their second chance, the oldest one was evicted
+        assertEquals(2, rateLimiter.size());
+        assertTrue(rateLimiter.tryAcquire("client-2") > 0);
+
+        rateLimiter.tryAcquire("client-3");
+        assertEquals(0, rateLimiter.tryAcquire("client-4"));
+        assertTrue(rateLimiter.tryAcquire("client-3") > 0);
+        assertEquals(2, rateLimiter.size());
+    }
+
+    @Test
+    void givenConcurrentNewKeys_whenAcquiring_thenTheMapNeverExceedsItsBound() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 100, now::get);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    assertEquals(0, rateLimiter.tryAcquire("client-" + thread + "-" + i));
+                    assertTrue(rateLimiter.size() <= 100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, rateLimiter.size());
+    }
+
+    @Test
+    void givenNoKeysAllowed_whenANewKeyArrives_thenItIsRefused() {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 0, now::get);
+
+        assertEquals(SECOND, rateLimiter.tryAcquire("client"));
+        assertEquals(0, rateLimiter.size());
+    }
+}
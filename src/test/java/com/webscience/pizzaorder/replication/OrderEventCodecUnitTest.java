@@ -0,0 +1,75 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.event.OrderCancelled;
+import com.webscience.pizzaorder.event.OrderCompleted;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderEvent;
+import com.webscience.pizzaorder.event.OrderEvicted;
+import com.webscience.pizzaorder.event.OrderReleased;
+import com.webscience.pizzaorder.event.OrderStarted;
+import com.webscience.pizzaorder.event.OvenBatchCompleted;
+import com.webscience.pizzaorder.event.OvenBatchStarted;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEventCodecUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .ingredients(List.of("mozzarella", "tomato"))
+            .build();
+
+    private static final OffsetDateTime FIXED_TS = OffsetDateTime.of(2023, 9, 11, 19, 30, 15, 123_456_789, ZoneOffset.ofHours(2));
+
+    @Test
+    void givenEveryTypeOfEvent_whenEncodedAndDecoded_thenTheSameEventsAreRead() throws IOException {
+        List<OrderEntry> entries = List.of(
+                OrderEntry.builder().entryType(MARGHERITA_TYPE).quantity(2).additionalIngredients(List.of("olive", "basil")).build(),
+                OrderEntry.builder().entryType(MARGHERITA_TYPE).quantity(1).build());
+        List<OrderEvent> events = List.of(
+                new OrderCreated("9e40b6ef-9eed-4dfa-a0fc-e90409b64e39", 42, "Davide", entries, OrderStatus.SCHEDULED, true,
+                        FIXED_TS.plusHours(1), FIXED_TS.plusHours(1), FIXED_TS, null, 480_000, 7),
+                new OrderCreated("rejected-order-id", 43, null, entries, OrderStatus.REJECTED, false,
+                        null, null, FIXED_TS, FIXED_TS, 0, 0),
+                new OrderReleased("9e40b6ef-9eed-4dfa-a0fc-e90409b64e39"),
+                new OrderStarted("9e40b6ef-9eed-4dfa-a0fc-e90409b64e39", FIXED_TS.plusMinutes(40)),
+                new OrderStarted("batched-order-id", FIXED_TS.plusMinutes(40), "a-batch-id"),
+                new OvenBatchStarted("batched-order-id", new OvenBatch("a-batch-id", "MARG", 3, List.of("another-order-id", "batched-order-id"))),
+                new OvenBatchCompleted("batched-order-id", "a-batch-id"),
+                new OrderCompleted("9e40b6ef-9eed-4dfa-a0fc-e90409b64e39", FIXED_TS.plusMinutes(50)),
+                new OrderCancelled("another-order-id", FIXED_TS),
+                new OrderEvicted("9e40b6ef-9eed-4dfa-a0fc-e90409b64e39", "Davide", 42, true));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            for (OrderEvent event : events) {
+                OrderEventCodec.write(out, event);
+            }
+        }
+
+        List<OrderEvent> decoded = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            for (int i = 0; i < events.size(); i++) {
+                decoded.add(OrderEventCodec.read(in, typeId -> MARGHERITA_TYPE));
+            }
+            assertEquals(-1, in.read());
+        }
+        assertEquals(events, decoded);
+    }
+}
@@ -0,0 +1,312 @@
+package com.webscience.pizzaorder.replication;
+
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.configuration.PreOrderProperties;
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
+import com.webscience.pizzaorder.dto.ReplicationStatusDTO;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.event.OrderEventStore;
+import com.webscience.pizzaorder.exception.NotAStandbyException;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.projection.CustomerOrderProjection;
+import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import com.webscience.pizzaorder.service.PreOrderScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Primary and standbys are separate instances in the same JVM, replicating over TCP on localhost.
+ */
+class ReplicationServiceUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .build();
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final Clock clock = Clock.systemUTC();
+    private final List<Instance> instances = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (Instance instance : instances) {
+            instance.replicationService.stop();
+        }
+    }
+
+    @Test
+    void givenAPrimaryAndAStandby_whenOrdersChangeOnThePrimary_thenTheStandbyFollowsAndCatchesUp() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        Order waitingOrder = buildOrder("order-id-1", OrderStatus.WAITING);
+        Order cancelledOrder = buildOrder("order-id-2", OrderStatus.WAITING);
+        primary.orderRepo.addOrder(waitingOrder);
+        primary.orderRepo.addOrder(cancelledOrder);
+        primary.orderRepo.setOrderCancelled(cancelledOrder, OffsetDateTime.now(clock));
+
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+        waitUntil(() -> isCaughtUp(standby, primary));
+
+        waitingOrder.setStartTs(OffsetDateTime.now(clock));
+        primary.orderRepo.setOrderInProgress(waitingOrder);
+        primary.orderRepo.addOrder(buildOrder("order-id-3", OrderStatus.WAITING));
+        waitUntil(() -> isCaughtUp(standby, primary));
+
+        assertEquals(OrderStatus.IN_PROGRESS, standby.customerOrderProjection.getView("order-id-1").orElseThrow().status());
+        assertEquals(waitingOrder.getStartTs(), standby.customerOrderProjection.getView("order-id-1").orElseThrow().startTs());
+        assertEquals(OrderStatus.CANCELLED, standby.orderRepo.getOrderById("order-id-2").orElseThrow().getOrderStatus());
+        assertEquals(List.of("order-id-3"), standby.orderRepo.getNotProcessed().stream().map(Order::getId).toList());
+
+        ReplicationStatusDTO status = standby.replicationService.getStatus();
+        assertEquals(ReplicationProperties.Role.STANDBY, status.getRole());
+        assertTrue(status.getConnected());
+        assertEquals(0, status.getLagEvents());
+        assertEquals(0, status.getLagMillis());
+        assertEquals(1, primary.replicationService.getStatus().getStandbys());
+        assertTrue(standby.replicationService.isReadOnly());
+        assertFalse(primary.replicationService.isReadOnly());
+    }
+
+    @Test
+    void givenAStandby_whenPromoted_thenItShipsItsStreamToTheOtherStandbys() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        primary.orderRepo.addOrder(buildOrder("order-id-1", OrderStatus.WAITING));
+        primary.orderRepo.addOrder(buildPreOrder("pre-order-id"));
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+        waitUntil(() -> isCaughtUp(standby, primary));
+        primary.replicationService.stop();
+
+        ReplicationStatusDTO promoted = standby.replicationService.promote();
+
+        assertEquals(ReplicationProperties.Role.PRIMARY, promoted.getRole());
+        assertFalse(standby.replicationService.isReadOnly());
+        assertEquals(1, standby.preOrderScheduler.getScheduledCount());
+        assertThrows(NotAStandbyException.class, () -> standby.replicationService.promote());
+
+        standby.orderRepo.addOrder(buildOrder("order-id-2", OrderStatus.WAITING));
+        Instance otherStandby = startInstance(ReplicationProperties.Role.STANDBY, promoted.getPort());
+        waitUntil(() -> isCaughtUp(otherStandby, standby));
+
+        assertEquals(List.of("order-id-1", "order-id-2"), otherStandby.orderRepo.getNotProcessed().stream().map(Order::getId).toList());
+        assertEquals(OrderStatus.SCHEDULED, otherStandby.orderRepo.getOrderById("pre-order-id").orElseThrow().getOrderStatus());
+    }
+
+    @Test
+    void givenABatchInTheOven_whenTheStandbyIsPromoted_thenItCompletesTheBatch() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        Order firstOrder = buildOrder("order-id-1", OrderStatus.WAITING);
+        Order secondOrder = buildOrder("order-id-2", OrderStatus.WAITING);
+        primary.orderRepo.addOrder(firstOrder);
+        primary.orderRepo.addOrder(secondOrder);
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+
+        List<Order> started = primary.orderRepo.setOrdersInProgress(List.of(firstOrder, secondOrder), "a-batch-id");
+        OvenBatch batch = new OvenBatch("a-batch-id", "MARG", 2, started.stream().map(Order::getId).toList());
+        primary.orderRepo.setBatchInProgress(batch);
+        waitUntil(() -> isCaughtUp(standby, primary));
+        primary.replicationService.stop();
+
+        standby.replicationService.promote();
+
+        assertEquals(batch, standby.orderRepo.getBatchInProgress());
+        assertNull(standby.orderRepo.getOrderInProgress());
+        List<Order> orders = batch.orderIds().stream().map(orderId -> standby.orderRepo.getOrderById(orderId).orElseThrow()).toList();
+        assertTrue(orders.stream().allMatch(order -> order.getOrderStatus() == OrderStatus.IN_PROGRESS));
+
+        standby.orderRepo.setBatchCompleted(orders);
+
+        assertNull(standby.orderRepo.getBatchInProgress());
+        assertTrue(orders.stream().allMatch(order -> order.getOrderStatus() == OrderStatus.COMPLETED));
+    }
+
+    @Test
+    void givenABatchCompletedOnThePrimary_whenReplicated_thenTheStandbyHasNoBatchInProgress() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        Order order = buildOrder("order-id-1", OrderStatus.WAITING);
+        primary.orderRepo.addOrder(order);
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+
+        primary.orderRepo.setOrdersInProgress(List.of(order), "a-batch-id");
+        primary.orderRepo.setBatchInProgress(new OvenBatch("a-batch-id", "MARG", 1, List.of("order-id-1")));
+        order.setCompletionTs(OffsetDateTime.now(clock));
+        primary.orderRepo.setBatchCompleted(List.of(order));
+        waitUntil(() -> isCaughtUp(standby, primary));
+
+        assertNull(standby.orderRepo.getBatchInProgress());
+        assertEquals(OrderStatus.COMPLETED, standby.orderRepo.getOrderById("order-id-1").orElseThrow().getOrderStatus());
+    }
+
+    @Test
+    void givenAStandbyWithAnotherSecret_whenItConnects_thenItIsRefused() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        primary.orderRepo.addOrder(buildOrder("order-id-1", OrderStatus.WAITING));
+
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port(), "another-secret");
+        Thread.sleep(300);
+
+        assertFalse(standby.replicationService.getStatus().getConnected());
+        assertEquals(0, primary.replicationService.getStatus().getStandbys());
+        assertTrue(standby.orderRepo.getOrderById("order-id-1").isEmpty());
+    }
+
+    @Test
+    void givenAPrimaryServingAsManyConnectionsAsAllowed_whenAnotherOneArrives_thenItIsClosedAtOnce() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0, "test-secret", 1);
+
+        try (Socket pending = new Socket(InetAddress.getLoopbackAddress(), primary.port());
+             Socket extra = new Socket(InetAddress.getLoopbackAddress(), primary.port())) {
+            pending.setSoTimeout(1_000);
+            extra.setSoTimeout(1_000);
+
+            assertEquals(ReplicationHandshake.VERSION, new DataInputStream(pending.getInputStream()).readInt());
+            assertEquals(-1, extra.getInputStream().read());
+        }
+
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+        waitUntil(() -> isCaughtUp(standby, primary));
+    }
+
+    @Test
+    void givenAPreOrderReleasedOnThePrimary_whenTheStandbyIsPromoted_thenOnlyTheScheduledOnesAreScheduledAgain() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        Order releasedOrder = buildPreOrder("released-pre-order-id");
+        primary.orderRepo.addOrder(releasedOrder);
+        primary.orderRepo.addOrder(buildPreOrder("pre-order-id"));
+        primary.orderRepo.setOrderWaiting(releasedOrder);
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+        waitUntil(() -> isCaughtUp(standby, primary));
+        primary.replicationService.stop();
+
+        standby.replicationService.promote();
+
+        assertEquals(List.of("pre-order-id"), standby.orderRepo.getScheduledOrders().stream().map(Order::getId).toList());
+        assertEquals(1, standby.preOrderScheduler.getScheduledCount());
+    }
+
+    @Test
+    void givenAStandbyOfTheLostPrimary_whenPointedToThePromotedOne_thenItIsRefusedUntilRestartedEmpty() throws Exception {
+        Instance primary = startInstance(ReplicationProperties.Role.PRIMARY, 0);
+        primary.orderRepo.addOrder(buildOrder("order-id-1", OrderStatus.WAITING));
+        Instance standby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+        Instance oldStandby = startInstance(ReplicationProperties.Role.STANDBY, primary.port());
+        waitUntil(() -> isCaughtUp(standby, primary) && isCaughtUp(oldStandby, primary));
+        primary.replicationService.stop();
+
+        ReplicationStatusDTO promoted = standby.replicationService.promote();
+        standby.orderRepo.addOrder(buildOrder("order-id-2", OrderStatus.WAITING));
+        oldStandby.properties.setPrimaryPort(promoted.getPort());
+        Instance newStandby = startInstance(ReplicationProperties.Role.STANDBY, promoted.getPort());
+        waitUntil(() -> isCaughtUp(newStandby, standby));
+        Thread.sleep(300);
+
+        assertNotEquals(primary.eventStore.getStreamId(), promoted.getStreamId());
+        assertFalse(oldStandby.replicationService.getStatus().getConnected());
+        assertEquals(1, standby.replicationService.getStatus().getStandbys());
+        assertTrue(oldStandby.orderRepo.getOrderById("order-id-2").isEmpty());
+        assertEquals(List.of("order-id-1", "order-id-2"), newStandby.orderRepo.getNotProcessed().stream().map(Order::getId).toList());
+    }
+
+    private Instance startInstance(ReplicationProperties.Role role, int primaryPort) {
+        return startInstance(role, primaryPort, "test-secret");
+    }
+
+    private Instance startInstance(ReplicationProperties.Role role, int primaryPort, String sharedSecret) {
+        return startInstance(role, primaryPort, sharedSecret, new ReplicationProperties().getMaxStandbys());
+    }
+
+    private Instance startInstance(ReplicationProperties.Role role, int primaryPort, String sharedSecret, int maxStandbys) {
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setMaxStandbys(maxStandbys);
+        properties.setSharedSecret(sharedSecret);
+        properties.setRole(role);
+        properties.setPort(0);
+        properties.setPrimaryPort(primaryPort);
+        properties.setHeartbeat(Duration.ofMillis(50));
+        properties.setReconnectDelay(Duration.ofMillis(50));
+
+        CustomerOrderProjection customerOrderProjection = new CustomerOrderProjection();
+        OrderEventStore eventStore = new OrderEventStore(List.of(customerOrderProjection));
+        OrderRepo orderRepo = new OrderRepo(new EntryTypeRepo(), new SchedulingProperties(), eventStore);
+        OrderEngine orderEngine = new OrderEngine(orderRepo, new EngineProperties());
+        PreOrderScheduler preOrderScheduler = new PreOrderScheduler(orderRepo, orderEngine, new PreOrderProperties(), clock);
+        ReplicationService replicationService = new ReplicationService(eventStore, orderRepo, orderEngine, new EntryTypeRepo(),
+                preOrderScheduler, properties, clock);
+        replicationService.start();
+
+        Instance instance = new Instance(properties, eventStore, orderRepo, customerOrderProjection, preOrderScheduler, replicationService);
+        instances.add(instance);
+        return instance;
+    }
+
+    /**
+     * A standby appends the events it replays to its own stream, so caught up means as long a stream as the primary's.
+     */
+    private static boolean isCaughtUp(Instance standby, Instance primary) {
+        ReplicationStatusDTO status = standby.replicationService.getStatus();
+        return status.getConnected() && status.getAppliedOffset() == primary.eventStore.getHeadOffset() && status.getLagEvents() == 0;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Not replicated in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private Order buildOrder(String orderId, OrderStatus status) {
+        return Order.builder()
+                .id(orderId)
+                .userName("Davide")
+                .orderStatus(status)
+                .insertTs(OffsetDateTime.now(clock))
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+    }
+
+    private Order buildPreOrder(String orderId) {
+        OffsetDateTime requestedTs = OffsetDateTime.now(clock).plusHours(3);
+        return Order.builder()
+                .id(orderId)
+                .userName("Davide")
+                .orderStatus(OrderStatus.SCHEDULED)
+                .insertTs(OffsetDateTime.now(clock))
+                .requestedTs(requestedTs)
+                .deadline(requestedTs)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+    }
+
+    private record Instance(ReplicationProperties properties, OrderEventStore eventStore, OrderRepo orderRepo, CustomerOrderProjection customerOrderProjection,
+                            PreOrderScheduler preOrderScheduler, ReplicationService replicationService) {
+
+        int port() {
+            return replicationService.getStatus().getPort();
+        }
+    }
+}
@@ -31,4 +31,22 @@ class EntryTypeRepoUnitTest {
     void givenAnInvalidTypeId_whenGettingType_thenTypeIsReturned() {
         assertEquals(Optional.empty(), entryTypeRepo.findById("UNKNOWN"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenAMenu_whenGettingTypes_thenOnlyTheTypesOfTheMenuAreAvailable() {
+        EntryTypeRepo menuRepo = new EntryTypeRepo(List.of("DIAV", "MARG"));
+
+        assertEquals(List.of("MARG", "DIAV"), menuRepo.getAll().stream().map(EntryType::id).toList());
+        assertEquals(Optional.empty(), menuRepo.findById("BUFA"));
+    }
+
+    @Test
+    void givenAnEmptyMenu_whenGettingTypes_thenAllTypesAreAvailable() {
+        assertEquals(entryTypeRepo.getAll(), new EntryTypeRepo(List.of()).getAll());
+    }
+
+    @Test
+    void givenAMenuWithAnUnknownType_whenCreatingTheRepo_thenItIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new EntryTypeRepo(List.of("MARG", "UNKNOWN")));
+    }
+}
@@ -0,0 +1,89 @@
+package com.webscience.pizzaorder.repo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedSkipListUnitTest {
+
+    @Test
+    void givenSortedInsertions_whenGettingRank_thenPositionAndWeightsAreReturned() {
+        IndexedSkipList<Long, String> list = new IndexedSkipList<>();
+        list.put(1L, "a", 10);
+        list.put(2L, "b", 20);
+        list.put(3L, "c", 30);
+
+        assertEquals(new IndexedSkipList.Rank(1, 10), list.rank(1L));
+        assertEquals(new IndexedSkipList.Rank(2, 30), list.rank(2L));
+        assertEquals(new IndexedSkipList.Rank(3, 60), list.rank(3L));
+        assertNull(list.rank(4L));
+        assertEquals(List.of("a", "b", "c"), list.values());
+    }
+
+    @Test
+    void givenARemovedEntry_whenGettingRank_thenFollowingEntriesAreShifted() {
+        IndexedSkipList<Long, String> list = new IndexedSkipList<>();
+        list.put(1L, "a", 10);
+        list.put(2L, "b", 20);
+        list.put(3L, "c", 30);
+
+        assertEquals("b", list.remove(2L));
+        assertNull(list.remove(2L));
+
+        assertNull(list.rank(2L));
+        assertEquals(new IndexedSkipList.Rank(2, 40), list.rank(3L));
+        assertEquals(2, list.size());
+        assertEquals(40, list.totalWeight());
+        assertEquals("a", list.first());
+    }
+
+    @Test
+    void givenKeysInAndOutOfTheList_whenGettingHeadRank_thenEntriesUpToTheKeyAreCounted() {
+        IndexedSkipList<Long, String> list = new IndexedSkipList<>();
+        list.put(10L, "a", 10);
+        list.put(20L, "b", 20);
+        list.put(30L, "c", 30);
+
+        assertEquals(new IndexedSkipList.Rank(0, 0), list.headRank(5L));
+        assertEquals(new IndexedSkipList.Rank(1, 10), list.headRank(10L));
+        assertEquals(new IndexedSkipList.Rank(2, 30), list.headRank(25L));
+        assertEquals(new IndexedSkipList.Rank(3, 60), list.headRank(99L));
+        assertEquals(10L, list.firstKey());
+        assertNull(new IndexedSkipList<Long, String>().firstKey());
+    }
+
+    @Test
+    void givenRandomOperations_whenGettingRanks_thenTheyMatchASortedMap() {
+        IndexedSkipList<Long, Long> list = new IndexedSkipList<>();
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), list.remove(key));
+            } else {
+                long weight = random.nextInt(100);
+                expected.put(key, weight);
+                list.put(key, weight, weight);
+            }
+        }
+
+        int position = 0;
+        long weightSum = 0;
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            position++;
+            weightSum += entry.getValue();
+            assertEquals(new IndexedSkipList.Rank(position, weightSum), list.rank(entry.getKey()));
+        }
+        assertEquals(expected.size(), list.size());
+        assertEquals(weightSum, list.totalWeight());
+        assertEquals(new ArrayList<>(expected.values()), list.values());
+    }
+}
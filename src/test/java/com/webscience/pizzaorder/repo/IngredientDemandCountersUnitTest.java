@@ -0,0 +1,74 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.IngredientDemand;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientDemandCountersUnitTest {
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .ingredients(List.of("Pomodoro", "Mozzarella"))
+            .build();
+
+    private final IngredientDemandCounters ingredientDemand = new IngredientDemandCounters();
+
+    @Test
+    void givenOrdersWithFreeTextIngredients_whenTheyAreClosed_thenTheirCountersAreRemoved() {
+        for (int i = 0; i < 1_000; i++) {
+            Order order = Order.builder()
+                    .id("order-id-" + i)
+                    .orderStatus(OrderStatus.WAITING)
+                    .orderEntries(List.of(OrderEntry.builder()
+                            .entryType(MARGHERITA_TYPE)
+                            .quantity(1)
+                            .additionalIngredients(List.of("ingredient " + i))
+                            .build()))
+                    .build();
+
+            ingredientDemand.move(order, null, OrderStatus.WAITING);
+            ingredientDemand.move(order, OrderStatus.WAITING, OrderStatus.IN_PROGRESS);
+            ingredientDemand.move(order, OrderStatus.IN_PROGRESS, OrderStatus.COMPLETED);
+        }
+
+        assertEquals(0, ingredientDemand.size());
+        assertEquals(List.of(), ingredientDemand.getDemand());
+    }
+
+    @Test
+    void givenAnOpenOrder_whenAnotherOneUsingTheSameIngredientsIsClosed_thenItsDemandIsKept() {
+        Order openOrder = Order.builder()
+                .id("open-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(2)
+                        .build()))
+                .build();
+        Order closedOrder = Order.builder()
+                .id("closed-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+
+        ingredientDemand.move(openOrder, null, OrderStatus.WAITING);
+        ingredientDemand.move(closedOrder, null, OrderStatus.WAITING);
+        ingredientDemand.move(closedOrder, OrderStatus.WAITING, OrderStatus.CANCELLED);
+
+        assertEquals(List.of(
+                new IngredientDemand("mozzarella", 2, 0),
+                new IngredientDemand("pomodoro", 2, 0)), ingredientDemand.getDemand());
+        assertEquals(2, ingredientDemand.size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.webscience.pizzaorder.repo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientDictionaryUnitTest {
+
+    private final IngredientDictionary ingredientDictionary = new IngredientDictionary(2);
+
+    @Test
+    void givenEqualNames_whenCanonicalizing_thenTheSameInstanceIsReturned() {
+        String first = ingredientDictionary.canonicalize(new String("Prosciutto cotto"));
+        String second = ingredientDictionary.canonicalize(new String("Prosciutto cotto"));
+
+        assertEquals("Prosciutto cotto", first);
+        assertSame(first, second);
+        assertEquals(1, ingredientDictionary.size());
+    }
+
+    @Test
+    void givenEquivalentNames_whenNormalizing_thenTheSameNameIsReturned() {
+        assertEquals("prosciutto cotto", IngredientDictionary.normalize("  prosciutto \t COTTO "));
+        assertEquals("prosciutto cotto", IngredientDictionary.normalize("Prosciutto cotto"));
+    }
+
+    @Test
+    void givenCanonicalizedNames_whenNormalizingThem_thenTheSharedNormalizedNamesAreReturned() {
+        List<String> first = ingredientDictionary.normalizeAll(ingredientDictionary.canonicalize(List.of(new String(" Prosciutto  COTTO"))));
+        List<String> second = ingredientDictionary.normalizeAll(ingredientDictionary.canonicalize(List.of(new String(" Prosciutto  COTTO"))));
+
+        assertEquals(List.of("prosciutto cotto"), first);
+        assertSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    void givenAFullDictionary_whenNormalizingNewNames_thenTheyAreNormalizedAnyway() {
+        ingredientDictionary.canonicalize("olive");
+        ingredientDictionary.canonicalize("patatine");
+
+        assertEquals(List.of("funghi"), ingredientDictionary.normalizeAll(ingredientDictionary.canonicalize(List.of("Funghi"))));
+    }
+
+    @Test
+    void givenAFullDictionary_whenCanonicalizingNewNames_thenTheyAreReturnedAsTheyAreButNotAdded() {
+        ingredientDictionary.canonicalize("olive");
+        ingredientDictionary.canonicalize("patatine");
+
+        String funghi = new String("Funghi");
+        assertSame(funghi, ingredientDictionary.canonicalize(List.of(funghi)).get(0));
+        assertEquals(2, ingredientDictionary.size());
+    }
+}
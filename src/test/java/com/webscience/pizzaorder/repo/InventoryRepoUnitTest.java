@@ -0,0 +1,98 @@
+package com.webscience.pizzaorder.repo;
+
+import com.webscience.pizzaorder.exception.OutOfStockException;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryRepoUnitTest {
+
+    private static final EntryType BUFALINA_TYPE = EntryType.builder()
+            .id("BUFA")
+            .ingredients(List.of("Pomodoro", "Mozzarella di Bufala"))
+            .build();
+
+    private InventoryRepo inventoryRepo;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepo = new InventoryRepo();
+    }
+
+    @Test
+    void givenEnoughStock_whenReserving_thenUnitsAreTakenAndGivenBackOnRelease() {
+        inventoryRepo.restock("Mozzarella di Bufala", 5);
+        Order order = bufalinaOrder(2, List.of("olive"));
+
+        inventoryRepo.reserve(order);
+        assertEquals(Map.of("mozzarella di bufala", 3L), inventoryRepo.getStock());
+
+        inventoryRepo.release(order);
+        assertEquals(Map.of("mozzarella di bufala", 5L), inventoryRepo.getStock());
+    }
+
+    @Test
+    void givenAShortIngredient_whenReserving_thenNothingIsReserved() {
+        inventoryRepo.restock("mozzarella di bufala", 5);
+        inventoryRepo.restock("olive", 1);
+
+        OutOfStockException exception = assertThrows(OutOfStockException.class, () -> inventoryRepo.reserve(bufalinaOrder(2, List.of("Olive"))));
+
+        assertEquals("olive", exception.getIngredient());
+        assertEquals(Map.of("mozzarella di bufala", 5L, "olive", 1L), inventoryRepo.getStock());
+    }
+
+    @Test
+    void givenConcurrentOrders_whenReserving_thenStockIsNeverOversold() throws Exception {
+        inventoryRepo.restock("mozzarella di bufala", 100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            results.add(executor.submit(() -> {
+                try {
+                    inventoryRepo.reserve(bufalinaOrder(1, null));
+                    return true;
+                } catch (OutOfStockException e) {
+                    return false;
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        long reserved = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                reserved++;
+            }
+        }
+        assertEquals(100, reserved);
+        assertEquals(Map.of("mozzarella di bufala", 0L), inventoryRepo.getStock());
+    }
+
+    private static Order bufalinaOrder(int quantity, List<String> additionalIngredients) {
+        return Order.builder()
+                .id("an-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(BUFALINA_TYPE)
+                        .quantity(quantity)
+                        .additionalIngredients(additionalIngredients)
+                        .build()))
+                .build();
+    }
+}
@@ -1,14 +1,25 @@
 package com.webscience.pizzaorder.repo;
 
+import com.webscience.pizzaorder.event.OrderEventStore;
 import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.IngredientDemand;
 import com.webscience.pizzaorder.model.Order;
 import com.webscience.pizzaorder.model.OrderEntry;
 import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.model.QueuePosition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -190,4 +201,597 @@ class OrderRepoUnitTest {
         List<Order> expectedOrders = List.of(EXISTING_ORDER_1, EXISTING_ORDER_2);
         assertEquals(expectedOrders, orderRepo.getNotProcessed());
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenWaitingOrders_whenGettingQueuePosition_thenPositionAndPrepTimeAreReturned() {
+        Order newOrder = Order.builder()
+                .id("new-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.WAITING)
+                .estimatedPrepMillis(1000)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        orderRepo.addOrder(newOrder);
+
+        assertEquals(Optional.of(new QueuePosition(3, 1000)), orderRepo.getQueuePosition(newOrder));
+
+        orderRepo.setOrderInProgress(EXISTING_ORDER_2);
+
+        assertEquals(Optional.of(new QueuePosition(2, 1000)), orderRepo.getQueuePosition(newOrder));
+        assertEquals(Optional.empty(), orderRepo.getQueuePosition(EXISTING_ORDER_2));
+    }
+
+    @Test
+    void givenExpiredCompletedOrders_whenEvictingWithArchive_thenOrdersAreStillFoundInColdTier() {
+        OffsetDateTime now = OffsetDateTime.now();
+        Order completedOrder = Order.builder()
+                .id(orderRepo.generate())
+                .userName("Marco")
+                .orderStatus(OrderStatus.WAITING)
+                .insertTs(now.minusHours(3))
+                .express(true)
+                .deadline(now.minusHours(2))
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(1)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+
+        orderRepo.addOrder(completedOrder);
+        completedOrder.setCompletionTs(now.minusHours(2));
+        orderRepo.setOrderCompleted(completedOrder);
+
+        assertEquals(1, orderRepo.evictCompleted(now.minusHours(1), 100, true, 100_000));
+        assertEquals(1, orderRepo.getArchivedCount());
+
+        Order archivedOrder = orderRepo.getOrderById(completedOrder.getId()).orElseThrow();
+        assertNotSame(completedOrder, archivedOrder);
+        assertEquals("Marco", archivedOrder.getUserName());
+        assertEquals(OrderStatus.COMPLETED, archivedOrder.getOrderStatus());
+        assertEquals(completedOrder.getInsertTs(), archivedOrder.getInsertTs());
+        assertEquals(completedOrder.getCompletionTs(), archivedOrder.getCompletionTs());
+        assertTrue(archivedOrder.isExpress());
+        assertEquals(completedOrder.getDeadline(), archivedOrder.getDeadline());
+
+        OrderEntry archivedEntry = archivedOrder.getOrderEntries().get(0);
+        assertEquals("DIAV", archivedEntry.entryType().id());
+        assertEquals(1, archivedEntry.quantity());
+        assertEquals(List.of("olive"), archivedEntry.additionalIngredients());
+
+        List<String> allIds = orderRepo.getAll().stream().map(Order::getId).toList();
+        assertEquals(List.of("an-order-id", "another-order-id", completedOrder.getId()), allIds);
+    }
+
+    @Test
+    void givenTooManyCompletedOrders_whenEvictingWithDrop_thenOldestOrdersAreForgotten() {
+        Order firstCompletedOrder = Order.builder()
+                .id("first-completed-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.COMPLETED)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        Order secondCompletedOrder = Order.builder()
+                .id("second-completed-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.COMPLETED)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        orderRepo.addOrder(firstCompletedOrder);
+        orderRepo.addOrder(secondCompletedOrder);
+
+        assertEquals(1, orderRepo.evictCompleted(OffsetDateTime.MIN, 1, false, 100_000));
+
+        assertEquals(Optional.empty(), orderRepo.getOrderById("first-completed-order-id"));
+        assertEquals(Optional.of(secondCompletedOrder), orderRepo.getOrderById("second-completed-order-id"));
+        assertEquals(List.of(EXISTING_ORDER_1, EXISTING_ORDER_2, secondCompletedOrder), orderRepo.getAll());
+        assertEquals(0, orderRepo.getArchivedCount());
+    }
+
+    @Test
+    void givenAFullColdTier_whenEvictingWithArchive_thenOldestArchivedOrdersAreDropped() {
+        for (String orderId : List.of("first-completed-order-id", "second-completed-order-id", "third-completed-order-id")) {
+            orderRepo.addOrder(Order.builder()
+                    .id(orderId)
+                    .userName("Marco")
+                    .orderStatus(OrderStatus.COMPLETED)
+                    .orderEntries(List.of(OrderEntry.builder()
+                            .entryType(DIAVOLA_TYPE)
+                            .quantity(1)
+                            .build()))
+                    .build());
+        }
+
+        assertEquals(4, orderRepo.evictCompleted(OffsetDateTime.MIN, 0, true, 2));
+
+        assertEquals(2, orderRepo.getArchivedCount());
+        assertEquals(Optional.empty(), orderRepo.getOrderById("first-completed-order-id"));
+        assertTrue(orderRepo.getOrderById("second-completed-order-id").isPresent());
+        assertTrue(orderRepo.getOrderById("third-completed-order-id").isPresent());
+        assertEquals(List.of("third-completed-order-id", "second-completed-order-id", "another-order-id"),
+                orderRepo.getByUserName("Marco", 0, 10).stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void givenNotCompletedOrders_whenEvicting_thenNothingIsEvicted() {
+        assertEquals(0, orderRepo.evictCompleted(OffsetDateTime.MAX, 0, true, 100_000));
+        assertEquals(List.of(EXISTING_ORDER_1, EXISTING_ORDER_2), orderRepo.getAll());
+    }
+
+    @Test
+    void givenOrdersOfDifferentUsers_whenGettingByUserName_thenOnlyTheUserOrdersAreReturnedNewestFirst() {
+        Order newOrder = Order.builder()
+                .id("new-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        orderRepo.addOrder(newOrder);
+
+        assertEquals(List.of(newOrder, EXISTING_ORDER_2), orderRepo.getByUserName("Marco", 0, 10));
+        assertEquals(List.of(EXISTING_ORDER_2), orderRepo.getByUserName("Marco", 1, 1));
+        assertEquals(List.of(), orderRepo.getByUserName("Marco", 2, 1));
+        assertEquals(List.of(EXISTING_ORDER_1), orderRepo.getByUserName("Davide", 0, 10));
+        assertEquals(List.of(), orderRepo.getByUserName("Nobody", 0, 10));
+    }
+
+    @Test
+    void givenAPageBeyondTheIntRange_whenGettingByUserName_thenNoOrdersAreReturned() {
+        assertEquals(List.of(), orderRepo.getByUserName("Marco", Integer.MAX_VALUE, 10));
+    }
+
+    @Test
+    void givenEvictedOrders_whenGettingByUserName_thenArchivedOrdersAreKeptAndDroppedOnesAreNot() {
+        Order archivedOrder = Order.builder()
+                .id("archived-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.COMPLETED)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        orderRepo.addOrder(archivedOrder);
+        assertEquals(1, orderRepo.evictCompleted(OffsetDateTime.MIN, 0, true, 100_000));
+
+        List<Order> marcoOrders = orderRepo.getByUserName("Marco", 0, 10);
+        assertEquals(List.of("archived-order-id", "another-order-id"), marcoOrders.stream().map(Order::getId).toList());
+
+        Order droppedOrder = Order.builder()
+                .id("dropped-order-id")
+                .userName("Davide")
+                .orderStatus(OrderStatus.COMPLETED)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        orderRepo.addOrder(droppedOrder);
+        assertEquals(1, orderRepo.evictCompleted(OffsetDateTime.MIN, 0, false, 100_000));
+
+        assertEquals(List.of(EXISTING_ORDER_1), orderRepo.getByUserName("Davide", 0, 10));
+    }
+
+    @Test
+    void givenOrdersAtDifferentTimes_whenGettingByInsertTs_thenOnlyTheMatchingSliceIsReturned() {
+        OffsetDateTime evening = OffsetDateTime.parse("2023-09-20T19:00:00Z");
+        Order lateOrder = Order.builder()
+                .id("late-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.WAITING)
+                .insertTs(evening.plusHours(2))
+                .build();
+        Order firstOrder = Order.builder()
+                .id("first-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.COMPLETED)
+                .insertTs(evening)
+                .build();
+        Order secondOrder = Order.builder()
+                .id("second-order-id")
+                .userName("Davide")
+                .orderStatus(OrderStatus.WAITING)
+                .insertTs(evening.plusMinutes(59))
+                .build();
+
+        orderRepo.addOrder(lateOrder);
+        orderRepo.addOrder(firstOrder);
+        orderRepo.addOrder(secondOrder);
+
+        OffsetDateTime to = evening.plusHours(1);
+        assertEquals(List.of(firstOrder, secondOrder), orderRepo.getByInsertTs(evening, to, null, 0, 10));
+        assertEquals(List.of(secondOrder), orderRepo.getByInsertTs(evening, to, null, 1, 1));
+        assertEquals(List.of(secondOrder), orderRepo.getByInsertTs(evening, to, OrderStatus.WAITING, 0, 10));
+        assertEquals(List.of(lateOrder), orderRepo.getByInsertTs(to, OffsetDateTime.MAX, null, 0, 10));
+        assertEquals(List.of(), orderRepo.getByInsertTs(to, evening, null, 0, 10));
+        assertEquals(List.of(), orderRepo.getByInsertTs(evening, to, null, Integer.MAX_VALUE, 10));
+
+        assertEquals(1, orderRepo.evictCompleted(OffsetDateTime.MIN, 0, true, 100_000));
+        List<String> archivedIncluded = orderRepo.getByInsertTs(OffsetDateTime.MIN, to, OrderStatus.COMPLETED, 0, 10).stream()
+                .map(Order::getId)
+                .toList();
+        assertEquals(List.of("first-order-id"), archivedIncluded);
+    }
+
+    @Test
+    void givenPriorityPolicy_whenGettingOrdersToBeProcessed_thenExpressOrdersComeFirst() {
+        OrderRepo priorityRepo = new OrderRepo(new EntryTypeRepo(), SchedulingPolicy.priority());
+        Order regularOrder = Order.builder().id("regular-order-id").orderStatus(OrderStatus.WAITING).build();
+        Order expressOrder = Order.builder().id("express-order-id").orderStatus(OrderStatus.WAITING).express(true).build();
+        Order anotherRegularOrder = Order.builder().id("another-regular-order-id").orderStatus(OrderStatus.WAITING).build();
+
+        priorityRepo.addOrder(regularOrder);
+        priorityRepo.addOrder(expressOrder);
+        priorityRepo.addOrder(anotherRegularOrder);
+
+        assertEquals(List.of(expressOrder, regularOrder, anotherRegularOrder), priorityRepo.getNotProcessed());
+        assertEquals(Optional.of(expressOrder), priorityRepo.getNextToProcess());
+        assertEquals(Optional.of(new QueuePosition(2, 0)), priorityRepo.getQueuePosition(regularOrder));
+
+        priorityRepo.setOrderInProgress(expressOrder);
+        assertEquals(Optional.of(regularOrder), priorityRepo.getNextToProcess());
+    }
+
+    @Test
+    void givenAShardedRepo_whenReadingTheKitchenQueue_thenShardsAreMergedAsASingleQueue() {
+        OrderRepo singleRepo = new OrderRepo(new EntryTypeRepo(), SchedulingPolicy.priority(), 1, new OrderEventStore());
+        OrderRepo shardedRepo = new OrderRepo(new EntryTypeRepo(), SchedulingPolicy.priority(), 4, new OrderEventStore());
+        assertEquals(4, shardedRepo.getShardCount());
+
+        Random random = new Random(42);
+        List<Order> singleOrders = new ArrayList<>();
+        List<Order> shardedOrders = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            boolean express = random.nextInt(4) == 0;
+            long estimatedPrepMillis = random.nextInt(600_000);
+            Order singleOrder = Order.builder().id("order-id-" + i).orderStatus(OrderStatus.WAITING)
+                    .express(express).estimatedPrepMillis(estimatedPrepMillis).build();
+            Order shardedOrder = Order.builder().id("order-id-" + i).orderStatus(OrderStatus.WAITING)
+                    .express(express).estimatedPrepMillis(estimatedPrepMillis).build();
+            singleRepo.addOrder(singleOrder);
+            shardedRepo.addOrder(shardedOrder);
+            singleOrders.add(singleOrder);
+            shardedOrders.add(shardedOrder);
+        }
+        for (int i = 0; i < 200; i += 3) {
+            singleRepo.setOrderCancelled(singleOrders.get(i), OffsetDateTime.now());
+            shardedRepo.setOrderCancelled(shardedOrders.get(i), OffsetDateTime.now());
+        }
+
+        assertEquals(idsOf(singleRepo.getNotProcessed()), idsOf(shardedRepo.getNotProcessed()));
+        assertEquals(133, shardedRepo.getWaitingCount());
+        assertEquals(singleRepo.getWaitingCount(), shardedRepo.getWaitingCount());
+        assertEquals(singleRepo.getNextToProcess().map(Order::getId), shardedRepo.getNextToProcess().map(Order::getId));
+        for (int i = 0; i < 200; i++) {
+            assertEquals(singleRepo.getQueuePosition(singleOrders.get(i)), shardedRepo.getQueuePosition(shardedOrders.get(i)));
+        }
+    }
+
+    @Test
+    void givenShortestJobFirstPolicy_whenGettingOrdersToBeProcessed_thenShortOrdersComeFirstUntilLongOnesHaveWaitedEnough() {
+        OrderRepo sjfRepo = new OrderRepo(new EntryTypeRepo(), SchedulingPolicy.shortestJobFirst(1.0));
+        OffsetDateTime now = OffsetDateTime.now();
+        Order longOrder = Order.builder().id("long-order-id").orderStatus(OrderStatus.WAITING)
+                .insertTs(now).estimatedPrepMillis(600_000).build();
+        Order shortOrder = Order.builder().id("short-order-id").orderStatus(OrderStatus.WAITING)
+                .insertTs(now.plusMinutes(1)).estimatedPrepMillis(60_000).build();
+        Order lateShortOrder = Order.builder().id("late-short-order-id").orderStatus(OrderStatus.WAITING)
+                .insertTs(now.plusMinutes(20)).estimatedPrepMillis(60_000).build();
+
+        sjfRepo.addOrder(longOrder);
+        sjfRepo.addOrder(shortOrder);
+        sjfRepo.addOrder(lateShortOrder);
+
+        assertEquals(List.of(shortOrder, longOrder, lateShortOrder), sjfRepo.getNotProcessed());
+    }
+
+    @Test
+    void givenDeadlinePolicy_whenGettingOrdersToBeProcessed_thenEarliestDeadlinesComeFirst() {
+        OrderRepo deadlineRepo = new OrderRepo(new EntryTypeRepo(), SchedulingPolicy.earliestDeadline(Duration.ofMinutes(30)));
+        OffsetDateTime now = OffsetDateTime.now();
+        Order relaxedOrder = Order.builder().id("relaxed-order-id").orderStatus(OrderStatus.WAITING)
+                .insertTs(now).deadline(now.plusHours(2)).build();
+        Order defaultOrder = Order.builder().id("default-order-id").orderStatus(OrderStatus.WAITING)
+                .insertTs(now.plusMinutes(5)).build();
+        Order urgentOrder = Order.builder().id("urgent-order-id").orderStatus(OrderStatus.WAITING)
+                .insertTs(now.plusMinutes(10)).deadline(now.plusMinutes(20)).build();
+
+        deadlineRepo.addOrder(relaxedOrder);
+        deadlineRepo.addOrder(defaultOrder);
+        deadlineRepo.addOrder(urgentOrder);
+
+        assertEquals(List.of(urgentOrder, defaultOrder, relaxedOrder), deadlineRepo.getNotProcessed());
+    }
+
+    @Test
+    void givenWaitingOrders_whenTheyLeaveTheQueue_thenPendingQuantitiesAndBatchesAreUpdated() {
+        OrderRepo kitchenRepo = new OrderRepo();
+        Order smallOrder = Order.builder()
+                .id("small-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder().entryType(MARGHERITA_TYPE).quantity(2).build()))
+                .build();
+        Order mixedOrder = Order.builder()
+                .id("mixed-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(
+                        OrderEntry.builder().entryType(MARGHERITA_TYPE).quantity(1).build(),
+                        OrderEntry.builder().entryType(DIAVOLA_TYPE).quantity(1).build()))
+                .build();
+        Order bigOrder = Order.builder()
+                .id("big-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder().entryType(MARGHERITA_TYPE).quantity(3).build()))
+                .build();
+
+        kitchenRepo.addOrder(smallOrder);
+        kitchenRepo.addOrder(mixedOrder);
+        kitchenRepo.addOrder(bigOrder);
+
+        assertEquals(Map.of("MARG", 6L, "DIAV", 1L), kitchenRepo.getPendingQuantities());
+        assertEquals(List.of(smallOrder), kitchenRepo.getNextBatch("MARG", 4));
+        assertEquals(List.of(smallOrder, bigOrder), kitchenRepo.getNextBatch("MARG", 5));
+        assertEquals(List.of(), kitchenRepo.getNextBatch("DIAV", 4));
+
+        assertEquals(List.of(smallOrder), kitchenRepo.setOrdersInProgress(List.of(smallOrder), "a-batch-id"));
+        kitchenRepo.setBatchInProgress(new OvenBatch("a-batch-id", "MARG", 2, List.of("small-order-id")));
+
+        assertEquals(OrderStatus.IN_PROGRESS, smallOrder.getOrderStatus());
+        assertEquals("a-batch-id", kitchenRepo.getBatchInProgress().id());
+        assertEquals(Map.of("MARG", 4L, "DIAV", 1L), kitchenRepo.getPendingQuantities());
+        assertEquals(List.of(bigOrder), kitchenRepo.getNextBatch("MARG", 4));
+        assertEquals(List.of(mixedOrder, bigOrder), kitchenRepo.getNotProcessed());
+
+        kitchenRepo.setBatchCompleted(List.of(smallOrder));
+        kitchenRepo.setOrderInProgress(mixedOrder);
+
+        assertEquals(OrderStatus.COMPLETED, smallOrder.getOrderStatus());
+        assertNull(kitchenRepo.getBatchInProgress());
+        assertEquals(Map.of("MARG", 3L), kitchenRepo.getPendingQuantities());
+    }
+
+    @Test
+    void givenOpenOrders_whenTheyChangeStatus_thenIngredientDemandIsUpdated() {
+        OrderRepo kitchenRepo = new OrderRepo();
+        EntryType margherita = EntryType.builder()
+                .id("MARG")
+                .ingredients(List.of("Pomodoro", "Mozzarella"))
+                .build();
+        Order firstOrder = Order.builder()
+                .id("first-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(margherita)
+                        .quantity(2)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+        Order secondOrder = Order.builder()
+                .id("second-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(margherita)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        kitchenRepo.addOrder(firstOrder);
+        kitchenRepo.addOrder(secondOrder);
+
+        assertEquals(List.of(
+                new IngredientDemand("mozzarella", 3, 0),
+                new IngredientDemand("olive", 2, 0),
+                new IngredientDemand("pomodoro", 3, 0)), kitchenRepo.getIngredientDemand());
+
+        kitchenRepo.setOrderInProgress(firstOrder);
+
+        assertEquals(List.of(
+                new IngredientDemand("mozzarella", 1, 2),
+                new IngredientDemand("olive", 0, 2),
+                new IngredientDemand("pomodoro", 1, 2)), kitchenRepo.getIngredientDemand());
+
+        kitchenRepo.setOrderCompleted(firstOrder);
+
+        assertEquals(List.of(
+                new IngredientDemand("mozzarella", 1, 0),
+                new IngredientDemand("pomodoro", 1, 0)), kitchenRepo.getIngredientDemand());
+    }
+
+    @Test
+    void givenOpenOrders_whenGettingByIngredient_thenOnlyOpenOrdersUsingItAreReturned() {
+        OrderRepo kitchenRepo = new OrderRepo();
+        EntryType margherita = EntryType.builder()
+                .id("MARG")
+                .ingredients(List.of("Pomodoro", "Mozzarella"))
+                .build();
+        Order oliveOrder = Order.builder()
+                .id("olive-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(margherita)
+                        .quantity(1)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+        Order plainOrder = Order.builder()
+                .id("plain-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(margherita)
+                        .quantity(1)
+                        .build()))
+                .build();
+        Order anotherOliveOrder = Order.builder()
+                .id("another-olive-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(margherita)
+                        .quantity(1)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+
+        kitchenRepo.addOrder(oliveOrder);
+        kitchenRepo.addOrder(plainOrder);
+        kitchenRepo.addOrder(anotherOliveOrder);
+
+        assertEquals(List.of(oliveOrder, anotherOliveOrder), kitchenRepo.getOpenByIngredient(" Olive ", null));
+        assertEquals(List.of(oliveOrder, plainOrder, anotherOliveOrder), kitchenRepo.getOpenByIngredient("mozzarella", null));
+
+        kitchenRepo.setOrderInProgress(oliveOrder);
+
+        assertEquals(List.of(anotherOliveOrder), kitchenRepo.getOpenByIngredient("olive", OrderStatus.WAITING));
+        assertEquals(List.of(oliveOrder), kitchenRepo.getOpenByIngredient("olive", OrderStatus.IN_PROGRESS));
+
+        kitchenRepo.setOrderCompleted(oliveOrder);
+
+        assertEquals(List.of(anotherOliveOrder), kitchenRepo.getOpenByIngredient("olive", null));
+        assertEquals(List.of(), kitchenRepo.getOpenByIngredient("patatine", null));
+    }
+
+    @Test
+    void givenAWaitingOrder_whenCancelling_thenItLeavesTheQueueAndCannotBeStarted() {
+        OrderRepo kitchenRepo = new OrderRepo();
+        Order order = Order.builder()
+                .id("cancelled-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(2)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+        kitchenRepo.addOrder(order);
+
+        OffsetDateTime cancellationTs = OffsetDateTime.now();
+        assertTrue(kitchenRepo.setOrderCancelled(order, cancellationTs));
+
+        assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+        assertEquals(cancellationTs, order.getCompletionTs());
+        assertEquals(List.of(), kitchenRepo.getNotProcessed());
+        assertEquals(Optional.empty(), kitchenRepo.getNextToProcess());
+        assertEquals(Map.of(), kitchenRepo.getPendingQuantities());
+        assertEquals(List.of(), kitchenRepo.getNextBatch("MARG", 4));
+        assertEquals(List.of(), kitchenRepo.getOpenByIngredient("olive", null));
+        assertEquals(Optional.of(order), kitchenRepo.getOrderById("cancelled-order-id"));
+
+        assertFalse(kitchenRepo.setOrderInProgress(order));
+        assertEquals(List.of(), kitchenRepo.setOrdersInProgress(List.of(order), "a-batch-id"));
+        assertFalse(kitchenRepo.setOrderCancelled(order, cancellationTs));
+        assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+    }
+
+    @Test
+    void givenAnOrderInProgress_whenCancelling_thenItIsNotCancelled() {
+        OrderRepo kitchenRepo = new OrderRepo();
+        Order order = Order.builder()
+                .id("started-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+        kitchenRepo.addOrder(order);
+
+        assertTrue(kitchenRepo.setOrderInProgress(order));
+
+        assertFalse(kitchenRepo.setOrderCancelled(order, OffsetDateTime.now()));
+        assertEquals(OrderStatus.IN_PROGRESS, order.getOrderStatus());
+        assertEquals("started-order-id", kitchenRepo.getOrderInProgress());
+    }
+
+    @Test
+    void givenConcurrentStartAndCancel_whenRacing_thenExactlyOneWins() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            OrderRepo kitchenRepo = new OrderRepo();
+            Order order = Order.builder()
+                    .id("racing-order-id")
+                    .orderStatus(OrderStatus.WAITING)
+                    .orderEntries(List.of(OrderEntry.builder()
+                            .entryType(MARGHERITA_TYPE)
+                            .quantity(1)
+                            .build()))
+                    .build();
+            kitchenRepo.addOrder(order);
+
+            CountDownLatch ready = new CountDownLatch(1);
+            AtomicBoolean started = new AtomicBoolean();
+            Thread starter = new Thread(() -> {
+                awaitQuietly(ready);
+                started.set(kitchenRepo.setOrderInProgress(order));
+            });
+            starter.start();
+            ready.countDown();
+            boolean cancelled = kitchenRepo.setOrderCancelled(order, OffsetDateTime.now());
+            starter.join();
+
+            assertNotEquals(started.get(), cancelled);
+            assertEquals(cancelled ? OrderStatus.CANCELLED : OrderStatus.IN_PROGRESS, order.getOrderStatus());
+            assertEquals(List.of(), kitchenRepo.getNotProcessed());
+            assertEquals(started.get() ? "racing-order-id" : null, kitchenRepo.getOrderInProgress());
+        }
+    }
+
+    @Test
+    void givenAScheduledOrder_whenReleased_thenItEntersTheKitchenQueue() {
+        OrderRepo kitchenRepo = new OrderRepo();
+        Order order = Order.builder()
+                .id("pre-order-id")
+                .userName("Davide")
+                .orderStatus(OrderStatus.SCHEDULED)
+                .requestedTs(OffsetDateTime.now().plusHours(2))
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(2)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+        kitchenRepo.addOrder(order);
+
+        assertEquals(Optional.of(order), kitchenRepo.getOrderById("pre-order-id"));
+        assertEquals(List.of(order), kitchenRepo.getByUserName("Davide", 0, 10));
+        assertEquals(List.of(), kitchenRepo.getNotProcessed());
+        assertEquals(Map.of(), kitchenRepo.getPendingQuantities());
+        assertEquals(List.of(), kitchenRepo.getIngredientDemand());
+        assertFalse(kitchenRepo.setOrderInProgress(order));
+
+        assertTrue(kitchenRepo.setOrderWaiting(order));
+        assertFalse(kitchenRepo.setOrderWaiting(order));
+
+        assertEquals(OrderStatus.WAITING, order.getOrderStatus());
+        assertEquals(List.of(order), kitchenRepo.getNotProcessed());
+        assertEquals(Map.of("MARG", 2L), kitchenRepo.getPendingQuantities());
+        assertEquals(List.of(order), kitchenRepo.getOpenByIngredient("olive", OrderStatus.WAITING));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> idsOf(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
@@ -0,0 +1,113 @@
+package com.webscience.pizzaorder.serialization;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import com.webscience.pizzaorder.configuration.BinaryFormats;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderSerializersModuleUnitTest {
+
+    private static final OffsetDateTime INSERT_TS = OffsetDateTime.parse("2023-09-20T19:30:15.123+02:00");
+
+    @Test
+    void givenTheModule_whenTheSerializersAreLookedUp_thenTheHandWrittenOnesAreFound() throws IOException {
+        ObjectMapper mapper = jsonBuilder(true).build();
+
+        assertInstanceOf(OrderDetailsSerializer.class, mapper.getSerializerProviderInstance().findValueSerializer(OrderDetailsResponseDTO.class));
+        assertInstanceOf(OrderEntrySerializer.class, mapper.getSerializerProviderInstance().findValueSerializer(OrderEntryDTO.class));
+        assertInstanceOf(OrderStatusResponseSerializer.class,
+                mapper.getSerializerProviderInstance().findValueSerializer(OrderStatusResponseDTO.class));
+    }
+
+    @Test
+    void givenTheJsonMapper_whenTheDtosAreWritten_thenTheBytesAreTheReflectiveOnes() throws IOException {
+        assertSameBytes(jsonBuilder(false).build(), jsonBuilder(true).build());
+    }
+
+    @Test
+    void givenTheJsonMapperWritingDatesAsTimestamps_whenTheDtosAreWritten_thenTheBytesAreTheReflectiveOnes() throws IOException {
+        assertSameBytes(new Jackson2ObjectMapperBuilder().build(), withModule(new Jackson2ObjectMapperBuilder()).build());
+    }
+
+    @Test
+    void givenTheSmileMapper_whenTheDtosAreWritten_thenTheBytesAreTheReflectiveOnes() throws IOException {
+        assertSameBytes(BinaryFormats.smileMapper(jsonBuilder(false)), BinaryFormats.smileMapper(jsonBuilder(true)));
+    }
+
+    @Test
+    void givenTheCborMapper_whenTheDtosAreWritten_thenTheBytesAreTheReflectiveOnes() throws IOException {
+        assertSameBytes(BinaryFormats.cborMapper(jsonBuilder(false)), BinaryFormats.cborMapper(jsonBuilder(true)));
+    }
+
+    @Test
+    void givenNullsSkippedByDefault_whenTheDtosAreWritten_thenTheBytesAreTheReflectiveOnes() throws IOException {
+        assertSameBytes(jsonBuilder(false).serializationInclusion(JsonInclude.Include.NON_NULL).build(),
+                jsonBuilder(true).serializationInclusion(JsonInclude.Include.NON_NULL).build());
+    }
+
+    @Test
+    void givenAnUnsupportedInclusion_whenTheDetailsAreWritten_thenTheyAreRefused() {
+        ObjectMapper mapper = jsonBuilder(true).serializationInclusion(JsonInclude.Include.NON_EMPTY).build();
+
+        assertThrows(InvalidDefinitionException.class, () -> mapper.writeValueAsBytes(buildDetails()));
+    }
+
+    private static void assertSameBytes(ObjectMapper reflective, ObjectMapper handWritten) throws IOException {
+        OrderDetailsResponseDTO details = buildDetails();
+        OrderDetailsResponseDTO sparseDetails = OrderDetailsResponseDTO.builder()
+                .id("f6b1b2a4")
+                .entries(Arrays.asList(OrderEntryDTO.builder().type("DIAV").quantity(1).additionalIngredients(List.of()).build(), null))
+                .build();
+        List<Object> values = List.of(
+                details,
+                sparseDetails,
+                List.of(details, sparseDetails, details),
+                OrderEntryDTO.builder().additionalIngredients(Arrays.asList("olive", null)).build(),
+                OrderStatusResponseDTO.builder().status(OrderStatus.WAITING).queuePosition(3).estimatedReadyInMinutes(25L).build(),
+                OrderStatusResponseDTO.builder().status(OrderStatus.RECEIVED).build(),
+                OrderStatusResponseDTO.builder().build());
+
+        for (Object value : values) {
+            assertArrayEquals(reflective.writeValueAsBytes(value), handWritten.writeValueAsBytes(value), value::toString);
+        }
+    }
+
+    private static OrderDetailsResponseDTO buildDetails() {
+        return OrderDetailsResponseDTO.builder()
+                .id("2b1f3c5e-8a0d-4c1e-9f57-6d3a2e1b0c94")
+                .username("Davide")
+                .entries(List.of(
+                        OrderEntryDTO.builder().type("MARG").quantity(2).build(),
+                        OrderEntryDTO.builder().type("BUFA").quantity(1).additionalIngredients(List.of("olive", "basilico")).build()))
+                .status(OrderStatus.SCHEDULED)
+                .express(true)
+                .requestedTime(INSERT_TS.plusHours(2))
+                .insertTs(INSERT_TS)
+                .build();
+    }
+
+    private static Jackson2ObjectMapperBuilder jsonBuilder(boolean handWritten) {
+        // the Jackson configuration of the application
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return handWritten ? withModule(builder) : builder;
+    }
+
+    private static Jackson2ObjectMapperBuilder withModule(Jackson2ObjectMapperBuilder builder) {
+        return builder.postConfigurer(objectMapper -> objectMapper.registerModule(new OrderSerializersModule()));
+    }
+}
@@ -0,0 +1,159 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheUnitTest {
+
+    private static final Instant FIXED_INSTANT = Instant.parse("2023-09-11T00:00:00Z");
+
+    @Test
+    void givenAnExistingKey_whenCreating_thenTheCreatorIsNotCalledAgain() {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 100);
+
+        assertEquals("order-1", cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-1"));
+        assertEquals("order-1", cache.getOrCreate("Davide", "key", "fingerprint", () -> fail("should not be called")));
+    }
+
+    @Test
+    void givenAnExpiredKey_whenCreating_thenANewOrderIsCreated() {
+        MutableClock clock = new MutableClock(FIXED_INSTANT);
+        IdempotencyCache cache = new IdempotencyCache(clock, Duration.ofHours(1), 100);
+
+        cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-1");
+        clock.instant = FIXED_INSTANT.plus(Duration.ofHours(1));
+
+        assertEquals("order-2", cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-2"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void givenAFullCache_whenCreating_thenTheOldestKeyIsEvicted() {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 2);
+
+        cache.getOrCreate("Davide", "key-1", "fingerprint", () -> "order-1");
+        cache.getOrCreate("Davide", "key-2", "fingerprint", () -> "order-2");
+        cache.getOrCreate("Davide", "key-3", "fingerprint", () -> "order-3");
+
+        assertEquals(2, cache.size());
+        assertEquals("order-4", cache.getOrCreate("Davide", "key-1", "fingerprint", () -> "order-4"));
+        assertEquals("order-3", cache.getOrCreate("Davide", "key-3", "fingerprint", () -> "order-5"));
+    }
+
+    @Test
+    void givenAFailingCreation_whenRetrying_thenTheKeyIsReleased() {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 100);
+
+        assertThrows(IllegalStateException.class, () -> cache.getOrCreate("Davide", "key", "fingerprint", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals("order-1", cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-1"));
+    }
+
+    @Test
+    void givenACreationFailingWithAnError_whenRetrying_thenTheKeyIsReleased() {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 100);
+
+        assertThrows(StackOverflowError.class, () -> cache.getOrCreate("Davide", "key", "fingerprint", () -> {
+            throw new StackOverflowError();
+        }));
+        assertEquals("order-1", cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-1"));
+    }
+
+    @Test
+    void givenTheSameKeyForDifferentUsers_whenCreating_thenEachUserGetsItsOwnOrder() {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 100);
+
+        assertEquals("order-1", cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-1"));
+        assertEquals("order-2", cache.getOrCreate("Marco", "key", "fingerprint", () -> "order-2"));
+    }
+
+    @Test
+    void givenAnExistingKey_whenCreatingWithAnotherRequest_thenTheKeyIsRefused() {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 100);
+
+        cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-1");
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> cache.getOrCreate("Davide", "key", "another-fingerprint", () -> fail("should not be called")));
+    }
+
+    @Test
+    void givenRequests_whenFingerprinting_thenOnlyEqualRequestsMatch() {
+        OrderCreationRequestDTO request = buildRequest("Davide", 1);
+
+        assertEquals(IdempotencyCache.fingerprintOf(request), IdempotencyCache.fingerprintOf(buildRequest("Davide", 1)));
+        assertNotEquals(IdempotencyCache.fingerprintOf(request), IdempotencyCache.fingerprintOf(buildRequest("Davide", 2)));
+        assertNotEquals(IdempotencyCache.fingerprintOf(request), IdempotencyCache.fingerprintOf(buildRequest("Marco", 1)));
+    }
+
+    @Test
+    void givenConcurrentDuplicates_whenCreating_thenASingleOrderIsCreated() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(Clock.fixed(FIXED_INSTANT, ZoneOffset.UTC), Duration.ofHours(1), 100);
+        AtomicInteger creations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getOrCreate("Davide", "key", "fingerprint", () -> "order-" + creations.incrementAndGet());
+                }));
+            }
+            start.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("order-1", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, creations.get());
+    }
+
+    private static OrderCreationRequestDTO buildRequest(String username, int quantity) {
+        return OrderCreationRequestDTO.builder()
+                .username(username)
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(quantity)
+                        .additionalIngredients(List.of("olive"))
+                        .build()))
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.configuration.IntakeProperties;
+import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
+import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
+import com.webscience.pizzaorder.dto.OrderEntryDTO;
+import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.exception.InvalidEntryTypeException;
+import com.webscience.pizzaorder.exception.OrderNotYetAppliedException;
+import com.webscience.pizzaorder.exception.TooManyRequestsException;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeUnitTest {
+
+    private static final OrderCreationRequestDTO REQUEST = OrderCreationRequestDTO.builder()
+            .username("Davide")
+            .entries(List.of(OrderEntryDTO.builder()
+                    .type("MARG")
+                    .quantity(1)
+                    .build()))
+            .build();
+
+    @Mock
+    private OrderService orderService;
+
+    private OrderIntake orderIntake;
+
+    @BeforeEach
+    void setUp() {
+        IntakeProperties properties = new IntakeProperties();
+        properties.setAsync(true);
+        properties.setCapacity(2);
+        properties.setBatchSize(10);
+        Clock clock = Clock.fixed(Instant.parse("2023-09-11T00:00:00Z"), ZoneOffset.UTC);
+
+        orderIntake = new OrderIntake(orderService, new OrderRepo(), new IdempotencyCache(clock, Duration.ofHours(1), 100), properties);
+    }
+
+    @Test
+    void givenReceivedOrders_whenApplied_thenTheyAreReceivedUntilAppliedInArrivalOrder() {
+        String firstId = orderIntake.receiveOrder(REQUEST);
+        String secondId = orderIntake.receiveOrder(REQUEST);
+
+        assertEquals(OrderStatus.RECEIVED, orderIntake.getOrderStatus(firstId).getStatus());
+        assertEquals(2, orderIntake.getBacklog());
+        verify(orderService, never()).applyReceivedOrders(any());
+
+        when(orderService.getOrderStatus(firstId)).thenReturn(OrderStatusResponseDTO.builder().status(OrderStatus.WAITING).build());
+
+        assertEquals(2, orderIntake.applyBatch());
+
+        ArgumentCaptor<Map<String, OrderCreationRequestDTO>> batchCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(orderService).applyReceivedOrders(batchCaptor.capture());
+        assertEquals(List.of(firstId, secondId), List.copyOf(batchCaptor.getValue().keySet()));
+        assertEquals(OrderStatus.WAITING, orderIntake.getOrderStatus(firstId).getStatus());
+        assertEquals(0, orderIntake.getBacklog());
+    }
+
+    @Test
+    void givenAReceivedOrder_whenItCannotBeApplied_thenItIsStoredAsRejected() {
+        String orderId = orderIntake.receiveOrder(REQUEST);
+        String otherOrderId = orderIntake.receiveOrder(REQUEST);
+        when(orderService.applyReceivedOrders(any())).thenReturn(Map.of(orderId, new IllegalStateException("broken")));
+
+        orderIntake.applyBatch();
+
+        verify(orderService).rejectReceivedOrder(orderId, REQUEST);
+        verify(orderService, never()).rejectReceivedOrder(eq(otherOrderId), any());
+        when(orderService.getOrderStatus(orderId)).thenReturn(OrderStatusResponseDTO.builder().status(OrderStatus.REJECTED).build());
+        assertEquals(OrderStatus.REJECTED, orderIntake.getOrderStatus(orderId).getStatus());
+    }
+
+    @Test
+    void givenAReceivedOrder_whenGettingDetailsOrCancellingIt_thenItIsFoundButNotCancelledYet() {
+        String orderId = orderIntake.receiveOrder(REQUEST);
+        OrderDetailsResponseDTO details = OrderDetailsResponseDTO.builder().id(orderId).status(OrderStatus.RECEIVED).build();
+        when(orderService.buildReceivedOrderDetails(orderId, REQUEST)).thenReturn(details);
+
+        assertSame(details, orderIntake.getOrderDetails(orderId));
+        assertThrows(OrderNotYetAppliedException.class, () -> orderIntake.cancelOrder(orderId));
+        verify(orderService, never()).cancelOrder(any());
+
+        orderIntake.applyBatch();
+        orderIntake.cancelOrder(orderId);
+
+        verify(orderService).cancelOrder(orderId);
+    }
+
+    @Test
+    void givenAFullBuffer_whenReceivingAnOrder_thenTheClientIsAskedToRetryLater() {
+        orderIntake.receiveOrder(REQUEST);
+        orderIntake.receiveOrder(REQUEST);
+
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class, () -> orderIntake.receiveOrder(REQUEST));
+        assertEquals(1, exception.getRetryAfterSeconds());
+
+        orderIntake.applyBatch();
+
+        assertNotNull(orderIntake.receiveOrder(REQUEST));
+    }
+
+    @Test
+    void givenAnInvalidEntryType_whenReceivingAnOrder_thenItIsRejectedRightAway() {
+        doThrow(new InvalidEntryTypeException()).when(orderService).checkOrder(REQUEST);
+
+        assertThrows(InvalidEntryTypeException.class, () -> orderIntake.receiveOrder(REQUEST));
+        assertEquals(0, orderIntake.getBacklog());
+    }
+
+    @Test
+    void givenAnIdempotencyKey_whenReceivingTheSameOrderTwice_thenItIsBufferedOnce() {
+        String orderId = orderIntake.receiveOrder(REQUEST, "key");
+
+        assertEquals(orderId, orderIntake.receiveOrder(REQUEST, "key"));
+        assertEquals(1, orderIntake.getBacklog());
+    }
+}
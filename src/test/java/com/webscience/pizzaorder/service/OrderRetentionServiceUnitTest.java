@@ -0,0 +1,110 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.configuration.RetentionProperties;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderRetentionServiceUnitTest {
+
+    private static final OffsetDateTime FIXED_TS = LocalDate.of(2023, 9, 11)
+            .atStartOfDay()
+            .atOffset(ZoneOffset.UTC);
+
+    private final Clock clock = Clock.fixed(FIXED_TS.toInstant(), ZoneId.of("UTC"));
+    private final OrderRepo orderRepo = new OrderRepo();
+    private OrderEngine orderEngine;
+
+    @BeforeEach
+    void setUp() {
+        EngineProperties engineProperties = new EngineProperties();
+        engineProperties.setMode(EngineProperties.Mode.SINGLE_WRITER);
+        orderEngine = new OrderEngine(orderRepo, engineProperties);
+        orderEngine.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        orderEngine.stop();
+    }
+
+    @Test
+    void givenArchiveMode_whenEvicting_thenExpiredOrdersAreArchivedOneChunkPerCommand() {
+        addCompletedOrders(5, FIXED_TS.minusHours(1));
+        addCompletedOrders(1, FIXED_TS);
+        RetentionProperties properties = new RetentionProperties();
+        properties.setMode(RetentionProperties.Mode.ARCHIVE);
+        properties.setTtl(Duration.ofMinutes(30));
+        properties.setChunkSize(2);
+        long commandsBefore = orderEngine.getView().appliedCommands();
+
+        new OrderRetentionService(orderRepo, orderEngine, properties, clock).evictCompletedOrders();
+
+        assertEquals(5, orderRepo.getArchivedCount());
+        assertEquals(1, orderRepo.getAll().stream().filter(order -> order.getCompletionTs().equals(FIXED_TS)).count());
+        assertEquals(3, orderEngine.getView().appliedCommands() - commandsBefore);
+    }
+
+    @Test
+    void givenAFullColdTier_whenEvicting_thenTheOldestArchivedOrdersAreDroppedInChunks() {
+        addCompletedOrders(5, FIXED_TS.minusHours(2));
+        RetentionProperties properties = new RetentionProperties();
+        properties.setMode(RetentionProperties.Mode.ARCHIVE);
+        properties.setMaxArchived(1);
+        properties.setChunkSize(3);
+        long commandsBefore = orderEngine.getView().appliedCommands();
+
+        new OrderRetentionService(orderRepo, orderEngine, properties, clock).evictCompletedOrders();
+
+        assertEquals(1, orderRepo.getArchivedCount());
+        assertEquals(1, orderRepo.getAll().size());
+        assertEquals(2 + 2, orderEngine.getView().appliedCommands() - commandsBefore);
+    }
+
+    @Test
+    void givenDropMode_whenEvicting_thenTheOrdersExceedingTheLimitAreDropped() {
+        addCompletedOrders(3, FIXED_TS);
+        RetentionProperties properties = new RetentionProperties();
+        properties.setMode(RetentionProperties.Mode.DROP);
+        properties.setMaxCompleted(1);
+
+        new OrderRetentionService(orderRepo, orderEngine, properties, clock).evictCompletedOrders();
+
+        assertEquals(0, orderRepo.getArchivedCount());
+        assertEquals(1, orderRepo.getAll().size());
+    }
+
+    @Test
+    void givenKeepMode_whenEvicting_thenNothingIsEvicted() {
+        addCompletedOrders(3, FIXED_TS.minusDays(1));
+        RetentionProperties properties = new RetentionProperties();
+        properties.setMode(RetentionProperties.Mode.KEEP);
+        properties.setMaxCompleted(0);
+
+        new OrderRetentionService(orderRepo, orderEngine, properties, clock).evictCompletedOrders();
+
+        assertEquals(3, orderRepo.getAll().size());
+        assertEquals(0, orderRepo.getArchivedCount());
+    }
+
+    private void addCompletedOrders(int count, OffsetDateTime completionTs) {
+        for (int i = 0; i < count; i++) {
+            orderRepo.addOrder(Order.builder()
+                    .id(orderRepo.generate())
+                    .userName("Davide")
+                    .orderStatus(OrderStatus.COMPLETED)
+                    .insertTs(completionTs)
+                    .completionTs(completionTs)
+                    .build());
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.webscience.pizzaorder.service;
 
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.configuration.OvenProperties;
+import com.webscience.pizzaorder.configuration.PreOrderProperties;
+import com.webscience.pizzaorder.configuration.SchedulingProperties;
 import com.webscience.pizzaorder.dto.OrderCreationRequestDTO;
 import com.webscience.pizzaorder.dto.OrderDetailsResponseDTO;
 import com.webscience.pizzaorder.dto.OrderEntryDTO;
 import com.webscience.pizzaorder.dto.OrderStatusResponseDTO;
+import com.webscience.pizzaorder.dto.OvenBatchDTO;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.event.OrderCreated;
+import com.webscience.pizzaorder.event.OrderStarted;
 import com.webscience.pizzaorder.exception.*;
 import com.webscience.pizzaorder.model.EntryType;
 import com.webscience.pizzaorder.model.Order;
 import com.webscience.pizzaorder.model.OrderEntry;
 import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.model.OvenBatch;
+import com.webscience.pizzaorder.model.QueuePosition;
+import com.webscience.pizzaorder.projection.CustomerOrderProjection;
+import com.webscience.pizzaorder.projection.KitchenQueueProjection;
+import com.webscience.pizzaorder.projection.UserHistoryProjection;
 import com.webscience.pizzaorder.repo.EntryTypeRepo;
+import com.webscience.pizzaorder.repo.IngredientDictionary;
+import com.webscience.pizzaorder.repo.InventoryRepo;
 import com.webscience.pizzaorder.repo.OrderRepo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,7 +34,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.*;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -48,13 +65,25 @@ class OrderServiceUnitTest {
     @Mock
     private OrderRepo orderRepo;
 
+    private final InventoryRepo inventoryRepo = new InventoryRepo();
+
     private final Clock clock = Clock.fixed(FIXED_TS.toInstant(), ZoneId.of("UTC"));
 
+    private PreOrderScheduler preOrderScheduler;
+
+    private final CustomerOrderProjection customerOrderProjection = new CustomerOrderProjection();
+
+    private final SchedulingProperties schedulingProperties = new SchedulingProperties();
+
     private OrderService orderService;
 
     @BeforeEach
     void setUp() {
-        orderService = new OrderService(entryTypeRepo, orderRepo, clock);
+        OrderEngine orderEngine = new OrderEngine(orderRepo, new EngineProperties());
+        preOrderScheduler = new PreOrderScheduler(orderRepo, orderEngine, new PreOrderProperties(), clock);
+        orderService = new OrderService(entryTypeRepo, orderRepo, new IngredientDictionary(100), inventoryRepo, new OrderStatsService(clock),
+                new IdempotencyCache(clock, Duration.ofHours(1), 100), preOrderScheduler,
+                orderEngine, new KitchenQueueProjection(), customerOrderProjection, new UserHistoryProjection(), new OvenProperties(), schedulingProperties, clock);
 
         lenient().when(entryTypeRepo.findById("MARG")).thenReturn(Optional.of(MARGHERITA_TYPE));
         lenient().when(entryTypeRepo.findById("DIAV")).thenReturn(Optional.of(DIAVOLA_TYPE));
@@ -96,6 +125,118 @@ class OrderServiceUnitTest {
         assertEquals(expectedEntries, order.getOrderEntries());
     }
 
+    @Test
+    void givenAnExpressRequest_whenCreatingOrder_theFlagIsKeptOnlyWhenTrusted() {
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(1)
+                        .build()))
+                .express(true)
+                .build();
+
+        orderService.createOrder(requestDTO);
+        schedulingProperties.setTrustClientExpress(true);
+        orderService.createOrder(requestDTO);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo, times(2)).addOrder(orderCaptor.capture());
+        assertFalse(orderCaptor.getAllValues().get(0).isExpress());
+        assertTrue(orderCaptor.getAllValues().get(1).isExpress());
+    }
+
+    @Test
+    void givenARequestedTimeLaterThanTheLeadTime_whenCreatingOrder_theOrderIsHeldUntilItsReleaseTime() {
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(1)
+                        .build()))
+                .requestedTime(FIXED_TS.plusHours(20).plusMinutes(30))
+                .build();
+
+        orderService.createOrder(requestDTO);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).addOrder(orderCaptor.capture());
+
+        Order order = orderCaptor.getValue();
+        assertEquals(OrderStatus.SCHEDULED, order.getOrderStatus());
+        assertEquals(FIXED_TS.plusHours(20).plusMinutes(30), order.getRequestedTs());
+        assertEquals(FIXED_TS.plusHours(20).plusMinutes(30), order.getDeadline());
+        assertEquals(1, preOrderScheduler.getScheduledCount());
+    }
+
+    @Test
+    void givenARequestedTimeWithinTheLeadTime_whenCreatingOrder_theOrderIsQueuedRightAway() {
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(1)
+                        .build()))
+                .requestedTime(FIXED_TS.plusMinutes(10))
+                .build();
+
+        orderService.createOrder(requestDTO);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).addOrder(orderCaptor.capture());
+
+        assertEquals(OrderStatus.WAITING, orderCaptor.getValue().getOrderStatus());
+        assertEquals(0, preOrderScheduler.getScheduledCount());
+    }
+
+    @Test
+    void givenAReceivedOrderOutOfStock_whenApplyingIt_theOrderIsStoredAsRejected() {
+        EntryType margherita = EntryType.builder()
+                .id("MARG")
+                .ingredients(List.of("Mozzarella"))
+                .build();
+        when(entryTypeRepo.findById("MARG")).thenReturn(Optional.of(margherita));
+        inventoryRepo.restock("mozzarella", 1);
+
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(2)
+                        .build()))
+                .build();
+
+        assertEquals(Map.of(), orderService.applyReceivedOrders(Map.of("a-received-order-id", requestDTO)));
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).addOrder(orderCaptor.capture());
+
+        Order order = orderCaptor.getValue();
+        assertEquals("a-received-order-id", order.getId());
+        assertEquals(OrderStatus.REJECTED, order.getOrderStatus());
+        assertEquals(FIXED_TS, order.getCompletionTs());
+        assertEquals(1L, inventoryRepo.getStock().get("mozzarella"));
+    }
+
+    @Test
+    void givenABatchOfReceivedOrders_whenOneCannotBeBuilt_thenTheOthersAreStoredAndItIsReturned() {
+        when(entryTypeRepo.findById("MARG")).thenReturn(Optional.of(EntryType.builder().id("MARG").build()));
+        when(entryTypeRepo.findById("GONE")).thenReturn(Optional.empty());
+
+        Map<String, OrderCreationRequestDTO> requests = new LinkedHashMap<>();
+        requests.put("first-order-id", buildRequest("MARG"));
+        requests.put("broken-order-id", buildRequest("GONE"));
+        requests.put("last-order-id", buildRequest("MARG"));
+
+        Map<String, RuntimeException> failures = orderService.applyReceivedOrders(requests);
+
+        assertEquals(List.of("broken-order-id"), List.copyOf(failures.keySet()));
+        assertInstanceOf(InvalidEntryTypeException.class, failures.get("broken-order-id"));
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo, times(2)).addOrder(orderCaptor.capture());
+        assertEquals(List.of("first-order-id", "last-order-id"), orderCaptor.getAllValues().stream().map(Order::getId).toList());
+    }
+
     @Test
     void givenAValidOrderWithMultipleEntries_whenCreatingOrder_theOrderIsCorrectlyCreated() {
         OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
@@ -139,6 +280,55 @@ class OrderServiceUnitTest {
         assertEquals(expectedEntries, order.getOrderEntries());
     }
 
+    @Test
+    void givenAdditionalIngredients_whenCreatingOrder_theIngredientsAreSharedAsWritten() {
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(
+                        OrderEntryDTO.builder()
+                                .type("MARG")
+                                .quantity(1)
+                                .additionalIngredients(List.of(new String("Olive"), "prosciutto cotto"))
+                                .build(),
+                        OrderEntryDTO.builder()
+                                .type("DIAV")
+                                .quantity(1)
+                                .additionalIngredients(List.of(new String("Olive")))
+                                .build()
+                ))
+                .build();
+
+        orderService.createOrder(requestDTO);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).addOrder(orderCaptor.capture());
+
+        List<OrderEntry> entries = orderCaptor.getValue().getOrderEntries();
+        assertEquals(List.of("Olive", "prosciutto cotto"), entries.get(0).additionalIngredients());
+        assertSame(entries.get(0).additionalIngredients().get(0), entries.get(1).additionalIngredients().get(0));
+    }
+
+    @Test
+    void givenTheSameIdempotencyKey_whenCreatingOrderTwice_theOrderIsCreatedOnce() {
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(
+                        OrderEntryDTO.builder()
+                                .type("MARG")
+                                .quantity(1)
+                                .build()
+                ))
+                .build();
+
+        String orderId = orderService.createOrder(requestDTO, "a-key");
+        String retriedOrderId = orderService.createOrder(requestDTO, "a-key");
+        String otherOrderId = orderService.createOrder(requestDTO, "another-key");
+
+        assertEquals(orderId, retriedOrderId);
+        assertNotEquals(orderId, otherOrderId);
+        verify(orderRepo, times(2)).addOrder(any());
+    }
+
     @Test
     void givenANotValidEntryType_whenCreatingOrder_theExceptionIsThrown() {
         OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
@@ -176,6 +366,41 @@ class OrderServiceUnitTest {
         assertEquals(OrderStatus.IN_PROGRESS, orderStatus.getStatus());
     }
 
+    @Test
+    void givenAWaitingOrder_whenRequestingStatus_thenQueuePositionAndEstimateAreReturned() {
+        Order inProgressOrder = Order.builder()
+                .id("in-progress-order-id")
+                .userName("Marco")
+                .orderStatus(OrderStatus.IN_PROGRESS)
+                .estimatedPrepMillis(Duration.ofMinutes(5).toMillis())
+                .startTs(FIXED_TS.minusMinutes(2))
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        Order order = Order.builder()
+                .id("an-order-id")
+                .userName("Davide")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(2)
+                        .build()))
+                .build();
+
+        when(orderRepo.getOrderById("an-order-id")).thenReturn(Optional.of(order));
+        when(orderRepo.getOrderById("in-progress-order-id")).thenReturn(Optional.of(inProgressOrder));
+        when(orderRepo.getOrderInProgress()).thenReturn("in-progress-order-id");
+        when(orderRepo.getQueuePosition(order)).thenReturn(Optional.of(new QueuePosition(7, Duration.ofMinutes(9).toMillis())));
+
+        OrderStatusResponseDTO orderStatus = orderService.getOrderStatus("an-order-id");
+        assertEquals(OrderStatus.WAITING, orderStatus.getStatus());
+        assertEquals(7, orderStatus.getQueuePosition());
+        assertEquals(12, orderStatus.getEstimatedReadyInMinutes());
+    }
+
     @Test
     void givenANotExistingOrder_whenRequestingStatus_thenExceptionIsThrown() {
         Order order = Order.builder()
@@ -219,6 +444,24 @@ class OrderServiceUnitTest {
         assertEquals(expectedEntries, orderDetails.getEntries());
     }
 
+    @Test
+    void givenAnOrderInTheProjection_whenRequestingStatusAndDetails_thenTheyAreReadFromTheProjection() {
+        customerOrderProjection.apply(new OrderCreated("an-order-id", 1, "Davide", List.of(OrderEntry.builder()
+                .entryType(DIAVOLA_TYPE)
+                .quantity(2)
+                .build()), OrderStatus.WAITING, false, null, null, FIXED_TS, null, Duration.ofMinutes(10).toMillis(), 0));
+        customerOrderProjection.apply(new OrderStarted("an-order-id", FIXED_TS.minusMinutes(4)));
+
+        OrderStatusResponseDTO orderStatus = orderService.getOrderStatus("an-order-id");
+        assertEquals(OrderStatus.IN_PROGRESS, orderStatus.getStatus());
+        assertEquals(6, orderStatus.getEstimatedReadyInMinutes());
+
+        OrderDetailsResponseDTO orderDetails = orderService.getOrderDetails("an-order-id");
+        assertEquals("Davide", orderDetails.getUsername());
+        assertEquals(OrderStatus.IN_PROGRESS, orderDetails.getStatus());
+        verify(orderRepo, never()).getOrderById(any());
+    }
+
     @Test
     void givenANotExistingOrder_whenRequestingDetails_thenExceptionIsThrown() {
         Order order = Order.builder()
@@ -236,6 +479,56 @@ class OrderServiceUnitTest {
         assertThrows(OrderNotFoundException.class, () -> orderService.getOrderDetails("not-existing-order"));
     }
 
+    @Test
+    void givenAReceivedOrderThatCannotBeApplied_whenRejectingIt_theOrderIsStoredAsRejected() {
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(
+                        OrderEntryDTO.builder()
+                                .type("MARG")
+                                .quantity(1)
+                                .build(),
+                        OrderEntryDTO.builder()
+                                .type("GONE")
+                                .quantity(1)
+                                .build()))
+                .build();
+
+        orderService.rejectReceivedOrder("an-order-id", requestDTO);
+
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).addOrder(orderCaptor.capture());
+        Order order = orderCaptor.getValue();
+        assertEquals("an-order-id", order.getId());
+        assertEquals(OrderStatus.REJECTED, order.getOrderStatus());
+        assertEquals(FIXED_TS, order.getCompletionTs());
+        assertEquals(List.of(OrderEntry.builder()
+                .entryType(MARGHERITA_TYPE)
+                .quantity(1)
+                .build()), order.getOrderEntries());
+    }
+
+    @Test
+    void givenAnIngredientOutOfStock_whenCreatingOrder_theOrderIsRejected() {
+        EntryType margherita = EntryType.builder()
+                .id("MARG")
+                .ingredients(List.of("Mozzarella"))
+                .build();
+        when(entryTypeRepo.findById("MARG")).thenReturn(Optional.of(margherita));
+        inventoryRepo.restock("mozzarella", 1);
+
+        OrderCreationRequestDTO requestDTO = OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type("MARG")
+                        .quantity(2)
+                        .build()))
+                .build();
+
+        assertThrows(OutOfStockException.class, () -> orderService.createOrder(requestDTO));
+        verify(orderRepo, never()).addOrder(any());
+    }
+
     @Test
     void givenNoOrdersInProgressAndValidOrder_whenStartingProgress_orderStatusIsChanged() {
         Order order = Order.builder()
@@ -249,10 +542,12 @@ class OrderServiceUnitTest {
                 .build();
 
         lenient().when(orderRepo.getOrderById("an-order-id")).thenReturn(Optional.of(order));
+        when(orderRepo.setOrderInProgress(order)).thenReturn(true);
 
         orderService.startProcessingOrder("an-order-id");
 
         verify(orderRepo).setOrderInProgress(order);
+        assertEquals(FIXED_TS, order.getStartTs());
     }
 
     @Test
@@ -301,6 +596,157 @@ class OrderServiceUnitTest {
         assertThrows(OrderAlreadyProcessedException.class, () -> orderService.startProcessingOrder("an-order-id"));
     }
 
+    @Test
+    void givenWaitingOrders_whenStartingNextOrder_theOrderChosenByTheRepoIsStarted() {
+        Order order = Order.builder()
+                .id("an-order-id")
+                .userName("Davide")
+                .orderStatus(OrderStatus.WAITING)
+                .express(true)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(DIAVOLA_TYPE)
+                        .quantity(2)
+                        .build()))
+                .build();
+
+        when(orderRepo.getNextToProcess()).thenReturn(Optional.of(order));
+        when(orderRepo.setOrderInProgress(order)).thenReturn(true);
+
+        OrderDetailsResponseDTO details = orderService.startProcessingNextOrder();
+
+        verify(orderRepo).setOrderInProgress(order);
+        assertEquals(FIXED_TS, order.getStartTs());
+        assertEquals("an-order-id", details.getId());
+        assertTrue(details.isExpress());
+    }
+
+    @Test
+    void givenTheNextOrderCancelledMeanwhile_whenStartingNextOrder_theFollowingOneIsStarted() {
+        Order cancelledOrder = Order.builder()
+                .id("cancelled-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .build();
+        Order order = Order.builder()
+                .id("an-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .build();
+
+        when(orderRepo.getNextToProcess()).thenReturn(Optional.of(cancelledOrder), Optional.of(order));
+        when(orderRepo.setOrderInProgress(cancelledOrder)).thenReturn(false);
+        when(orderRepo.setOrderInProgress(order)).thenReturn(true);
+
+        OrderDetailsResponseDTO details = orderService.startProcessingNextOrder();
+
+        assertEquals("an-order-id", details.getId());
+        assertNull(cancelledOrder.getStartTs());
+    }
+
+    @Test
+    void givenAWaitingOrder_whenCancelling_theIngredientsAreBackInStock() {
+        Order order = Order.builder()
+                .id("an-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(EntryType.builder().id("MARG").ingredients(List.of("mozzarella")).build())
+                        .quantity(2)
+                        .build()))
+                .build();
+        inventoryRepo.restock("mozzarella", 2);
+        inventoryRepo.reserve(order);
+
+        when(orderRepo.getOrderById("an-order-id")).thenReturn(Optional.of(order));
+        when(orderRepo.setOrderCancelled(order, FIXED_TS)).thenReturn(true);
+
+        orderService.cancelOrder("an-order-id");
+
+        assertEquals(2L, inventoryRepo.getStock().get("mozzarella"));
+    }
+
+    @Test
+    void givenAnOrderAlreadyStarted_whenCancelling_orderExceptionIsThrown() {
+        Order order = Order.builder()
+                .id("an-order-id")
+                .orderStatus(OrderStatus.IN_PROGRESS)
+                .build();
+
+        when(orderRepo.getOrderById("an-order-id")).thenReturn(Optional.of(order));
+        when(orderRepo.setOrderCancelled(order, FIXED_TS)).thenReturn(false);
+
+        assertThrows(OrderNotCancellableException.class, () -> orderService.cancelOrder("an-order-id"));
+        assertThrows(OrderNotFoundException.class, () -> orderService.cancelOrder("not-existing-order"));
+    }
+
+    @Test
+    void givenNoWaitingOrders_whenStartingNextOrder_orderExceptionIsThrown() {
+        when(orderRepo.getNextToProcess()).thenReturn(Optional.empty());
+        assertThrows(NoWaitingOrderException.class, () -> orderService.startProcessingNextOrder());
+    }
+
+    @Test
+    void givenBatchableOrders_whenStartingBatch_allTheOrdersAreStartedTogether() {
+        Order firstOrder = Order.builder()
+                .id("an-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(2)
+                        .build()))
+                .build();
+        Order secondOrder = Order.builder()
+                .id("another-order-id")
+                .orderStatus(OrderStatus.WAITING)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        when(orderRepo.getNextBatch("MARG", 4)).thenReturn(List.of(firstOrder, secondOrder));
+        when(orderRepo.setOrdersInProgress(eq(List.of(firstOrder, secondOrder)), anyString())).thenReturn(List.of(firstOrder, secondOrder));
+
+        OvenBatchDTO batch = orderService.startBatch("MARG");
+
+        assertNotNull(batch.getId());
+        assertEquals(3, batch.getQuantity());
+        assertEquals(List.of("an-order-id", "another-order-id"), batch.getOrderIds());
+        assertEquals(FIXED_TS, firstOrder.getStartTs());
+        assertEquals(FIXED_TS, secondOrder.getStartTs());
+
+        ArgumentCaptor<OvenBatch> batchCaptor = ArgumentCaptor.forClass(OvenBatch.class);
+        verify(orderRepo).setBatchInProgress(batchCaptor.capture());
+        assertEquals(batch.getId(), batchCaptor.getValue().id());
+    }
+
+    @Test
+    void givenABatchInProgress_whenStartingAnOrder_orderExceptionIsThrown() {
+        when(orderRepo.getBatchInProgress()).thenReturn(new OvenBatch("a-batch-id", "MARG", 1, List.of("an-order-id")));
+
+        assertThrows(OrderAlreadyInProgressException.class, () -> orderService.startProcessingOrder("another-order-id"));
+        assertThrows(OrderAlreadyInProgressException.class, () -> orderService.startBatch("MARG"));
+    }
+
+    @Test
+    void givenABatchInProgress_whenCompletingIt_allTheOrdersAreCompletedTogether() {
+        Order order = Order.builder()
+                .id("an-order-id")
+                .orderStatus(OrderStatus.IN_PROGRESS)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(2)
+                        .build()))
+                .build();
+
+        when(orderRepo.getBatchInProgress()).thenReturn(new OvenBatch("a-batch-id", "MARG", 2, List.of("an-order-id")));
+        when(orderRepo.getOrderById("an-order-id")).thenReturn(Optional.of(order));
+
+        assertThrows(BatchNotInProgressException.class, () -> orderService.completeBatch("another-batch-id"));
+
+        orderService.completeBatch("a-batch-id");
+
+        verify(orderRepo).setBatchCompleted(List.of(order));
+        assertEquals(FIXED_TS, order.getCompletionTs());
+    }
+
     @Test
     void givenAnOrderInProgress_whenSettingCompleted_orderStatusIsChanged() {
         Order order = Order.builder()
@@ -320,6 +766,7 @@ class OrderServiceUnitTest {
         orderService.setOrderCompleted("an-order-id");
 
         verify(orderRepo).setOrderCompleted(order);
+        assertEquals(FIXED_TS, order.getCompletionTs());
     }
 
     @Test
@@ -366,4 +813,14 @@ class OrderServiceUnitTest {
     void givenNoOrderInProgress_whenGettingOrderInProgress_nullIsReturned() {
         assertNull(orderService.getOrderInProgress());
     }
-}
\ No newline at end of file
+
+    private static OrderCreationRequestDTO buildRequest(String entryType) {
+        return OrderCreationRequestDTO.builder()
+                .username("Davide")
+                .entries(List.of(OrderEntryDTO.builder()
+                        .type(entryType)
+                        .quantity(1)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.webscience.pizzaorder.service;
+
+import com.webscience.pizzaorder.configuration.EngineProperties;
+import com.webscience.pizzaorder.configuration.PreOrderProperties;
+import com.webscience.pizzaorder.engine.OrderEngine;
+import com.webscience.pizzaorder.model.EntryType;
+import com.webscience.pizzaorder.model.Order;
+import com.webscience.pizzaorder.model.OrderEntry;
+import com.webscience.pizzaorder.model.OrderStatus;
+import com.webscience.pizzaorder.repo.OrderRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreOrderSchedulerUnitTest {
+
+    private static final Instant FIXED_INSTANT = Instant.parse("2023-09-11T18:00:00Z");
+
+    private static final EntryType MARGHERITA_TYPE = EntryType.builder()
+            .id("MARG")
+            .description("Margherita")
+            .build();
+
+    private final MutableClock clock = new MutableClock(FIXED_INSTANT);
+    private final OrderRepo orderRepo = new OrderRepo();
+    private PreOrderScheduler preOrderScheduler;
+
+    @BeforeEach
+    void setUp() {
+        PreOrderProperties properties = new PreOrderProperties();
+        properties.setLeadTime(Duration.ofMinutes(20));
+        preOrderScheduler = new PreOrderScheduler(orderRepo, new OrderEngine(orderRepo, new EngineProperties()), properties, clock);
+    }
+
+    @Test
+    void givenARequestedTime_whenCheckingIfToBeHeld_thenOnlyTimesBeyondTheLeadTimeAreHeld() {
+        OffsetDateTime now = OffsetDateTime.ofInstant(FIXED_INSTANT, ZoneOffset.UTC);
+
+        assertTrue(preOrderScheduler.isToBeHeld(now.plusMinutes(21)));
+        assertFalse(preOrderScheduler.isToBeHeld(now.plusMinutes(20)));
+        assertFalse(preOrderScheduler.isToBeHeld(now.minusMinutes(5)));
+        assertFalse(preOrderScheduler.isToBeHeld(null));
+    }
+
+    @Test
+    void givenAPreOrder_whenTheLeadTimeBeforeTheRequestedTimeComes_thenItIsReleasedToTheKitchenQueue() {
+        Order order = buildPreOrder("pre-order-id", OffsetDateTime.parse("2023-09-11T20:30:00Z"));
+        orderRepo.addOrder(order);
+        preOrderScheduler.schedule(order);
+
+        assertEquals(List.of(), orderRepo.getNotProcessed());
+
+        clock.instant = Instant.parse("2023-09-11T20:09:59Z");
+        preOrderScheduler.releaseDueOrders();
+
+        assertEquals(OrderStatus.SCHEDULED, order.getOrderStatus());
+        assertEquals(1, preOrderScheduler.getScheduledCount());
+
+        clock.instant = Instant.parse("2023-09-11T20:10:00Z");
+        preOrderScheduler.releaseDueOrders();
+
+        assertEquals(OrderStatus.WAITING, order.getOrderStatus());
+        assertEquals(List.of(order), orderRepo.getNotProcessed());
+        assertEquals(Optional.of(order), orderRepo.getNextToProcess());
+        assertEquals(0, preOrderScheduler.getScheduledCount());
+    }
+
+    @Test
+    void givenACancelledPreOrder_whenItsReleaseTimeComes_thenItIsNotReleased() {
+        Order order = buildPreOrder("pre-order-id", OffsetDateTime.parse("2023-09-11T20:30:00Z"));
+        orderRepo.addOrder(order);
+        preOrderScheduler.schedule(order);
+
+        assertTrue(orderRepo.setOrderCancelled(order, OffsetDateTime.now(clock)));
+        preOrderScheduler.cancel("pre-order-id");
+
+        clock.instant = Instant.parse("2023-09-11T21:00:00Z");
+        preOrderScheduler.releaseDueOrders();
+
+        assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+        assertEquals(List.of(), orderRepo.getNotProcessed());
+        assertEquals(0, preOrderScheduler.getScheduledCount());
+    }
+
+    private static Order buildPreOrder(String id, OffsetDateTime requestedTs) {
+        return Order.builder()
+                .id(id)
+                .userName("Davide")
+                .orderStatus(OrderStatus.SCHEDULED)
+                .requestedTs(requestedTs)
+                .orderEntries(List.of(OrderEntry.builder()
+                        .entryType(MARGHERITA_TYPE)
+                        .quantity(1)
+                        .build()))
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.webscience.pizzaorder.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingLatencyHistogramUnitTest {
+
+    private static final long SLOT_MILLIS = 60_000;
+
+    @Test
+    void givenRecordedValues_whenGettingPercentiles_thenValuesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean());
+        assertEquals(500, histogram.getPercentile(50), 500 * 0.125);
+        assertEquals(990, histogram.getPercentile(99), 990 * 0.125);
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    void givenAnEmptyHistogram_whenGettingPercentiles_thenZeroIsReturned() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    void givenValuesRecordedInDifferentSlots_whenTakingSnapshot_thenOnlyValuesInWindowAreMerged() {
+        RollingLatencyHistogram rolling = new RollingLatencyHistogram(SLOT_MILLIS, 60);
+
+        rolling.record(0, 100);
+        rolling.record(10 * SLOT_MILLIS, 200);
+        rolling.record(20 * SLOT_MILLIS, 300);
+
+        assertEquals(3, rolling.snapshot(20 * SLOT_MILLIS, 60).getCount());
+        assertEquals(2, rolling.snapshot(20 * SLOT_MILLIS, 15).getCount());
+        assertEquals(1, rolling.snapshot(20 * SLOT_MILLIS, 1).getCount());
+        assertEquals(300, rolling.snapshot(20 * SLOT_MILLIS, 1).getMax());
+    }
+
+    @Test
+    void givenAnExpiredSlot_whenRecordingInTheSameRingPosition_thenOldValuesAreDiscarded() {
+        RollingLatencyHistogram rolling = new RollingLatencyHistogram(SLOT_MILLIS, 60);
+
+        rolling.record(0, 100);
+        rolling.record(60 * SLOT_MILLIS, 200);
+
+        LatencyHistogram snapshot = rolling.snapshot(60 * SLOT_MILLIS, 60);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(200, snapshot.getMax());
+    }
+}
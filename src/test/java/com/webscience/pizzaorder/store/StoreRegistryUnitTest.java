@@ -0,0 +1,27 @@
+package com.webscience.pizzaorder.store;
+
+import com.webscience.pizzaorder.configuration.ReplicationProperties;
+import com.webscience.pizzaorder.configuration.StoreProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StoreRegistryUnitTest {
+
+    @Test
+    void givenAReplicatedInstanceWithOtherStores_whenStarting_thenItIsRefused() {
+        StoreProperties storeProperties = new StoreProperties();
+        storeProperties.getMenus().put("rome", List.of("MARG"));
+        ReplicationProperties replicationProperties = new ReplicationProperties();
+        replicationProperties.setRole(ReplicationProperties.Role.PRIMARY);
+        StoreFactory storeFactory = mock(StoreFactory.class);
+        StoreRegistry storeRegistry = new StoreRegistry(storeProperties, replicationProperties, storeFactory,
+                null, null, null, null, null, null, null, null);
+
+        assertThrows(IllegalStateException.class, storeRegistry::start);
+        verifyNoInteractions(storeFactory);
+    }
+}
@@ -0,0 +1,91 @@
+package com.webscience.pizzaorder.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelUnitTest {
+
+    private static final long START_MILLIS = 1_694_390_400_000L;
+    private static final long SECOND = 1000;
+
+    @Test
+    void givenATimeout_whenAdvancing_thenItExpiresAtItsDueTimeAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofSeconds(1), START_MILLIS);
+        wheel.schedule("pre-order", START_MILLIS + 10 * SECOND + 1);
+
+        assertEquals(List.of(), wheel.advance(START_MILLIS + 10 * SECOND));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("pre-order"), wheel.advance(START_MILLIS + 11 * SECOND));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advance(START_MILLIS + 12 * SECOND));
+    }
+
+    @Test
+    void givenAPastDueTime_whenAdvancing_thenItExpiresRightAway() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofSeconds(1), START_MILLIS);
+        wheel.schedule("late-order", START_MILLIS - 60 * SECOND);
+
+        assertEquals(List.of("late-order"), wheel.advance(START_MILLIS + SECOND));
+    }
+
+    @Test
+    void givenACancelledTimeout_whenAdvancing_thenItNeverExpires() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofSeconds(1), START_MILLIS);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled-order", START_MILLIS + 2 * 3600 * SECOND);
+        wheel.schedule("pre-order", START_MILLIS + 2 * 3600 * SECOND);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(List.of("pre-order"), wheel.advance(START_MILLIS + 3 * 3600 * SECOND));
+    }
+
+    @Test
+    void givenTimeoutsOnAllTheLevels_whenAdvancingTickByTick_thenEachExpiresAtItsOwnTick() {
+        TimingWheel<Long> wheel = new TimingWheel<>(Duration.ofSeconds(1), START_MILLIS);
+        Random random = new Random(42);
+        List<Long> dueTicks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long dueTick = 1 + random.nextInt(300_000);
+            dueTicks.add(dueTick);
+            wheel.schedule(dueTick, START_MILLIS + dueTick * SECOND);
+        }
+
+        int expired = 0;
+        for (long tick = 1; tick <= 300_000; tick++) {
+            for (long dueTick : wheel.advance(START_MILLIS + tick * SECOND)) {
+                assertEquals(tick, dueTick);
+                expired++;
+            }
+        }
+        assertEquals(dueTicks.size(), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void givenATimeoutBeyondTheLastWheel_whenAdvancing_thenItStillExpiresAtItsDueTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(1), START_MILLIS);
+        long dueMillis = START_MILLIS + 20_000_000L;
+        wheel.schedule("far-order", dueMillis);
+
+        assertEquals(List.of(), wheel.advance(dueMillis - 1));
+        assertEquals(List.of("far-order"), wheel.advance(dueMillis));
+    }
+
+    @Test
+    void givenAnIdleWheel_whenAdvancingFarAhead_thenLaterTimeoutsAreStillOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofSeconds(1), START_MILLIS);
+        wheel.advance(START_MILLIS + 30L * 24 * 3600 * SECOND);
+
+        long nowMillis = START_MILLIS + 30L * 24 * 3600 * SECOND;
+        wheel.schedule("pre-order", nowMillis + 90 * SECOND);
+
+        assertEquals(List.of(), wheel.advance(nowMillis + 89 * SECOND));
+        assertEquals(List.of("pre-order"), wheel.advance(nowMillis + 90 * SECOND));
+    }
+}